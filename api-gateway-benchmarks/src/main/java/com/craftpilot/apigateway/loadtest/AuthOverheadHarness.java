@@ -0,0 +1,183 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.cache.UserPreferenceCache;
+import com.craftpilot.apigateway.cache.VerifiedTokenCache;
+import com.craftpilot.apigateway.filter.FirebaseAuthFilter;
+import com.craftpilot.apigateway.security.FirebaseTokenVerifier;
+import com.craftpilot.apigateway.security.LocalTokenVerifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * FirebaseAuthFilter'ın istek başına ek gecikmesini sabit hızlı (open-loop) yük altında ölçer.
+ * Gecikme, isteğin planlanan başlangıç anından filtre zincirinin tamamlanmasına kadardır;
+ * böylece kuyrukta bekleme de sayılır (coordinated omission yok).
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.craftpilot.apigateway.loadtest.AuthOverheadHarness --rps=2000 --seconds=30
+ * </pre>
+ *
+ * Senaryolar: "uncached" (her istekte SDK benzeri doğrulama, boundedElastic), "cached"
+ * (doğrulanmış token önbelleği), "local" (önbelleksiz, event loop'ta yerel RS256 doğrulama)
+ * ve "localCached". Yerel senaryolar ağsız, bellekteki test anahtar kümesini kullanır.
+ * Seçenekler: --users, --warmupSeconds, --loops.
+ * Rapor target/auth-overhead-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class AuthOverheadHarness {
+
+    private AuthOverheadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int rps = Integer.parseInt(options.getOrDefault("rps", "2000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmupSeconds", "5"));
+        int users = Integer.parseInt(options.getOrDefault("users", "2000"));
+        int loops = Integer.parseInt(options.getOrDefault("loops", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        TestTokens tokens = new TestTokens("craftpilot-bench", "bench-key");
+        long now = System.currentTimeMillis() / 1000L;
+        String[] userTokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            userTokens[i] = tokens.issue("user-" + i, "user-" + i + "@craftpilot.io", now - 60, now + 3600);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rps", rps);
+        result.put("seconds", seconds);
+        result.put("users", users);
+        result.put("eventLoops", loops);
+        LocalTokenVerifier sdkOnly = new LocalTokenVerifier(false, "", Duration.ZERO, keyId -> null);
+        LocalTokenVerifier local = new LocalTokenVerifier(true, tokens.projectId(), Duration.ofMinutes(5),
+                keyId -> tokens.keyId().equals(keyId) ? tokens.publicKey() : null);
+        result.put("uncached", run("uncached", cache -> new SimulatedFirebaseTokenVerifier(tokens, cache, sdkOnly), false,
+                userTokens, rps, seconds, warmupSeconds, loops));
+        result.put("cached", run("cached", cache -> new SimulatedFirebaseTokenVerifier(tokens, cache, sdkOnly), true,
+                userTokens, rps, seconds, warmupSeconds, loops));
+        result.put("local", run("local", cache -> new SimulatedFirebaseTokenVerifier(tokens, cache, local), false,
+                userTokens, rps, seconds, warmupSeconds, loops));
+        result.put("localCached", run("localCached", cache -> new SimulatedFirebaseTokenVerifier(tokens, cache, local), true,
+                userTokens, rps, seconds, warmupSeconds, loops));
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        String json = mapper.writeValueAsString(result);
+        log.info("Sonuç:\n{}", json);
+        File output = new File(options.getOrDefault("output", "target/auth-overhead-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+    }
+
+    static Map<String, Object> run(String name, Function<VerifiedTokenCache, FirebaseTokenVerifier> verifierFactory, boolean cacheEnabled,
+                                   String[] userTokens, int rps, int seconds, int warmupSeconds, int loops) throws InterruptedException {
+        VerifiedTokenCache cache = new VerifiedTokenCache(cacheEnabled, 100_000, Duration.ofSeconds(5),
+                true, Duration.ofSeconds(60), 10_000, new SimpleMeterRegistry());
+        FirebaseAuthFilter filter = new FirebaseAuthFilter(verifierFactory.apply(cache), new FixedLanguageCache());
+        ExecutorService[] eventLoops = new ExecutorService[loops];
+        for (int i = 0; i < loops; i++) {
+            eventLoops[i] = Executors.newSingleThreadExecutor();
+        }
+
+        try {
+            drive(filter, eventLoops, userTokens, rps, warmupSeconds, new LatencyStats(), new AtomicInteger());
+            LatencyStats latency = new LatencyStats();
+            AtomicInteger rejected = new AtomicInteger();
+            long started = System.nanoTime();
+            drive(filter, eventLoops, userTokens, rps, seconds, latency, rejected);
+            double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("achievedRps", Math.round(latency.count() / elapsedSeconds));
+            summary.put("rejected", rejected.get());
+            summary.put("latency", latency.summary());
+            log.info("{}: {}", name, summary);
+            return summary;
+        } finally {
+            for (ExecutorService loop : eventLoops) {
+                loop.shutdownNow();
+            }
+        }
+    }
+
+    private static void drive(FirebaseAuthFilter filter, ExecutorService[] eventLoops, String[] userTokens,
+                              int rps, int seconds, LatencyStats latency, AtomicInteger rejected) throws InterruptedException {
+        int total = rps * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        CountDownLatch done = new CountDownLatch(total);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String token = userTokens[ThreadLocalRandom.current().nextInt(userTokens.length)];
+            eventLoops[i % eventLoops.length].execute(() -> {
+                MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/credits/balance")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+                filter.filter(exchange, ex -> Mono.empty())
+                        .doFinally(signal -> {
+                            latency.record(System.nanoTime() - intended);
+                            HttpStatusCode status = exchange.getResponse().getStatusCode();
+                            if (status != null && status.isError()) {
+                                rejected.incrementAndGet();
+                            }
+                            done.countDown();
+                        })
+                        .subscribe();
+            });
+        }
+        done.await(seconds + 30L, TimeUnit.SECONDS);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * user-service'e gitmeden sabit dil döner
+     */
+    static final class FixedLanguageCache extends UserPreferenceCache {
+        FixedLanguageCache() {
+            super(WebClient.builder(), new SimpleMeterRegistry(), "http://localhost", 1000, 1000,
+                    Duration.ofHours(6), Duration.ofSeconds(15));
+        }
+
+        @Override
+        public Mono<String> getUserLanguage(String userId) {
+            return Mono.just("tr");
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.loadbalancer.InstanceStatsRegistry;
+import com.craftpilot.apigateway.loadbalancer.LatencyAwareLoadBalancer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Varsayılan RoundRobinLoadBalancer ile LatencyAwareLoadBalancer'ı yerel bir stub küme üzerinde
+ * karşılaştırır. --instances kadar HTTP sunucusu açılır; biri bozuk davranır:
+ * "slow" senaryosunda OpenRouter'da takılmış gibi --slowMs gecikir, "failing" senaryosunda 503 döner.
+ * Gecikme istemcinin planladığı gönderim anından ölçülür (açık döngü, koordineli ihmal yok).
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.craftpilot.apigateway.loadtest.LoadBalancerHarness --rps=400 --seconds=20
+ * </pre>
+ *
+ * Rapor target/load-balancer-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class LoadBalancerHarness {
+    private static final String SERVICE_ID = "llm-service";
+
+    private LoadBalancerHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int instances = Integer.parseInt(options.getOrDefault("instances", "4"));
+        int rps = Integer.parseInt(options.getOrDefault("rps", "400"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        int baseMs = Integer.parseInt(options.getOrDefault("baseMs", "20"));
+        int slowMs = Integer.parseInt(options.getOrDefault("slowMs", "400"));
+
+        ConnectionProvider provider = ConnectionProvider.builder("harness").maxConnections(5000)
+                .pendingAcquireMaxCount(-1).build();
+        HttpClient client = HttpClient.create(provider).responseTimeout(Duration.ofSeconds(10));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("instances", instances);
+        result.put("rps", rps);
+        result.put("seconds", seconds);
+        result.put("healthyLatencyMs", baseMs);
+        result.put("slowLatencyMs", slowMs);
+
+        for (String mode : new String[]{"slow", "failing"}) {
+            List<DisposableServer> servers = startCluster(instances, baseMs, slowMs, mode);
+            List<ServiceInstance> serviceInstances = new ArrayList<>();
+            for (int i = 0; i < servers.size(); i++) {
+                serviceInstances.add(new DefaultServiceInstance(SERVICE_ID + "-" + i, SERVICE_ID,
+                        "127.0.0.1", servers.get(i).port(), false));
+            }
+            ServiceInstanceListSupplier supplier = ServiceInstanceListSuppliers.from(SERVICE_ID,
+                    serviceInstances.toArray(new ServiceInstance[0]));
+            // JIT ve bağlantı havuzu ısınması
+            run(client, new RoundRobinLoadBalancer(new SimpleObjectProvider<>(supplier), SERVICE_ID), null,
+                    serviceInstances.get(instances - 1), rps, 3);
+
+            result.put("roundRobin-" + mode, run(client,
+                    new RoundRobinLoadBalancer(new SimpleObjectProvider<>(supplier), SERVICE_ID), null,
+                    serviceInstances.get(instances - 1), rps, seconds));
+            InstanceStatsRegistry stats = new InstanceStatsRegistry(new SimpleMeterRegistry(), Duration.ofSeconds(10), 3,
+                    Duration.ofSeconds(30), Duration.ofSeconds(10), Duration.ofSeconds(1));
+            result.put("latencyAware-" + mode, run(client,
+                    new LatencyAwareLoadBalancer(new SimpleObjectProvider<>(supplier), SERVICE_ID, stats), stats,
+                    serviceInstances.get(instances - 1), rps, seconds));
+            servers.forEach(DisposableServer::disposeNow);
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/load-balancer-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+        provider.disposeLater().block();
+    }
+
+    /**
+     * Son sunucu bozuk örnektir
+     */
+    static List<DisposableServer> startCluster(int instances, int baseMs, int slowMs, String mode) {
+        List<DisposableServer> servers = new ArrayList<>();
+        for (int i = 0; i < instances; i++) {
+            boolean degraded = i == instances - 1;
+            servers.add(HttpServer.create()
+                    .host("127.0.0.1")
+                    .port(0)
+                    .route(routes -> routes.get("/work", (request, response) -> {
+                        // Sağlıklı örnekler baseMs etrafında +-%25 dalgalanır
+                        long latency = (long) (baseMs * (0.75 + ThreadLocalRandom.current().nextDouble() * 0.5));
+                        if (degraded && "slow".equals(mode)) {
+                            latency = slowMs;
+                        }
+                        if (degraded && "failing".equals(mode)) {
+                            return Mono.delay(Duration.ofMillis(2))
+                                    .then(response.status(503).sendString(Mono.just("unavailable")).then());
+                        }
+                        return Mono.delay(Duration.ofMillis(latency))
+                                .then(response.sendString(Mono.just("ok")).then());
+                    }))
+                    .bindNow());
+        }
+        return servers;
+    }
+
+    static Map<String, Object> run(HttpClient client, ReactorServiceInstanceLoadBalancer balancer, InstanceStatsRegistry stats,
+                                   ServiceInstance degraded, int rps, int seconds) throws InterruptedException {
+        LatencyStats latency = new LatencyStats();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong toDegraded = new AtomicLong();
+        int total = rps * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        CountDownLatch done = new CountDownLatch(total);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            balancer.choose(new DefaultRequest<>())
+                    .flatMap(response -> call(client, response.getServer(), stats, degraded, toDegraded))
+                    .doOnNext(status -> {
+                        if (status >= 500) {
+                            errors.incrementAndGet();
+                        }
+                    })
+                    .doOnError(e -> errors.incrementAndGet())
+                    .doFinally(signal -> {
+                        latency.record(System.nanoTime() - intended);
+                        done.countDown();
+                    })
+                    .subscribe(null, e -> { });
+        }
+        done.await(seconds + 30L, TimeUnit.SECONDS);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("balancer", stats == null ? "round-robin" : "latency-aware");
+        summary.put("requests", total);
+        summary.put("errorRate", Math.round(errors.get() * 10000.0 / total) / 10000.0);
+        summary.put("degradedShare", Math.round(toDegraded.get() * 1000.0 / total) / 1000.0);
+        summary.put("latency", latency.summary());
+        log.info("{}", summary);
+        return summary;
+    }
+
+    /**
+     * Gateway'deki LoadBalancerStatsFilter'ın yaptığı gözlemleri taklit eder: bekleyen istek,
+     * ilk yanıta kadar geçen süre ve 5xx/bağlantı hataları
+     */
+    private static Mono<Integer> call(HttpClient client, ServiceInstance instance, InstanceStatsRegistry stats,
+                                      ServiceInstance degraded, AtomicLong toDegraded) {
+        if (instance.getPort() == degraded.getPort()) {
+            toDegraded.incrementAndGet();
+        }
+        long start = System.nanoTime();
+        if (stats != null) {
+            stats.requestStarted(instance);
+        }
+        return client.get()
+                .uri("http://127.0.0.1:" + instance.getPort() + "/work")
+                .responseSingle((response, body) -> {
+                    int status = response.status().code();
+                    if (stats != null) {
+                        stats.recordLatency(instance, System.nanoTime() - start);
+                        if (status >= 500) {
+                            stats.recordFailure(instance);
+                        } else {
+                            stats.recordSuccess(instance);
+                        }
+                    }
+                    return body.then(Mono.just(status));
+                })
+                .doOnError(e -> {
+                    if (stats != null) {
+                        stats.recordFailure(instance);
+                    }
+                })
+                .doFinally(signal -> {
+                    if (stats != null) {
+                        stats.requestFinished(instance);
+                    }
+                });
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
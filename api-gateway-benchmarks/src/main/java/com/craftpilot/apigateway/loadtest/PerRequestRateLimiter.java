@@ -0,0 +1,27 @@
+package com.craftpilot.apigateway.loadtest;
+
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Mevcut RedisRateLimiter davranışı: her istek global kovaya bir gidiş-dönüş yapar.
+ */
+public class PerRequestRateLimiter {
+
+    private final SimulatedGlobalBucket globalBucket;
+    private final int replenishRate;
+    private final int burstCapacity;
+
+    public PerRequestRateLimiter(SimulatedGlobalBucket globalBucket, int replenishRate, int burstCapacity) {
+        this.globalBucket = globalBucket;
+        this.replenishRate = replenishRate;
+        this.burstCapacity = burstCapacity;
+    }
+
+    public Mono<RateLimiter.Response> isAllowed(String routeId, String id) {
+        return globalBucket.lease(routeId + ":" + id, replenishRate, burstCapacity, 1)
+                .map(result -> new RateLimiter.Response(result.get(0) == 1L, Map.of()));
+    }
+}
@@ -0,0 +1,181 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.cache.UserPreferenceCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tercih replikasının açılış yüklemesini, bellek kullanımını ve okuma maliyetini ölçer.
+ * user-service anlık görüntüsü sayfa başına --pageLatencyMs gecikmeyle simüle edilir; yükleme
+ * sürerken olay upsert'leri uygulanır ve yükleme bitince bu değerlerin korunduğu doğrulanır.
+ *
+ * <pre>
+ * java -Xmx2g -cp target/benchmarks.jar com.craftpilot.apigateway.loadtest.PreferenceReplicaHarness --users=1000000
+ * </pre>
+ *
+ * Rapor target/preference-replica-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class PreferenceReplicaHarness {
+    private static final String[] LANGUAGES = {"tr", "de", "fr", "es", "ar", "ru", "it", "pt"};
+
+    private PreferenceReplicaHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "1000000"));
+        double nonDefaultRatio = Double.parseDouble(options.getOrDefault("nonDefaultRatio", "0.3"));
+        int pageSize = Integer.parseInt(options.getOrDefault("pageSize", "2000"));
+        int pageLatencyMs = Integer.parseInt(options.getOrDefault("pageLatencyMs", "5"));
+        int lookups = Integer.parseInt(options.getOrDefault("lookups", "10000000"));
+
+        long heapBefore = usedHeap();
+        SimulatedReplica replica = new SimulatedReplica(users, nonDefaultRatio, pageSize, Duration.ofMillis(pageLatencyMs));
+        long started = System.nanoTime();
+        replica.start();
+        // Yükleme sürerken gelen olaylar: anlık görüntüdeki (eski) değeri ezmemeli
+        int concurrentEvents = 0;
+        while (!replica.isReady()) {
+            replica.upsert(userId(concurrentEvents), "ja", System.currentTimeMillis());
+            concurrentEvents++;
+            Thread.sleep(1);
+        }
+        double loadSeconds = (System.nanoTime() - started) / 1e9;
+        replica.stop();
+
+        int preserved = 0;
+        for (int i = 0; i < concurrentEvents; i++) {
+            if ("ja".equals(replica.languageOf(userId(i)))) {
+                preserved++;
+            }
+        }
+        int mismatches = 0;
+        for (int i = concurrentEvents; i < users; i++) {
+            if (!expectedLanguage(i, nonDefaultRatio).equals(replica.languageOf(userId(i)))) {
+                mismatches++;
+            }
+        }
+        long heapAfter = usedHeap();
+        int entries = replica.entryCount();
+
+        // Okuma maliyeti: tek thread, rastgele kullanıcılar
+        String[] probe = new String[1 << 16];
+        for (int i = 0; i < probe.length; i++) {
+            probe[i] = userId(ThreadLocalRandom.current().nextInt(users));
+        }
+        int sink = 0;
+        for (int i = 0; i < lookups / 10; i++) {
+            sink += replica.languageOf(probe[i & (probe.length - 1)]).length();
+        }
+        long lookupStart = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            sink += replica.languageOf(probe[i & (probe.length - 1)]).length();
+        }
+        double nanosPerLookup = (double) (System.nanoTime() - lookupStart) / lookups;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("nonDefaultRatio", nonDefaultRatio);
+        result.put("pages", (users + pageSize - 1) / pageSize);
+        result.put("pageLatencyMs", pageLatencyMs);
+        result.put("loadSeconds", Math.round(loadSeconds * 100) / 100.0);
+        result.put("storedEntries", entries);
+        result.put("retainedMb", Math.round((heapAfter - heapBefore) / 1024.0 / 1024.0 * 10) / 10.0);
+        result.put("bytesPerStoredEntry", entries == 0 ? 0 : (heapAfter - heapBefore) / entries);
+        result.put("eventsDuringLoad", concurrentEvents);
+        result.put("eventsPreserved", preserved);
+        result.put("snapshotMismatches", mismatches);
+        result.put("nanosPerLookup", Math.round(nanosPerLookup * 10) / 10.0);
+        result.put("sink", sink & 1);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/preference-replica-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+    }
+
+    static String userId(int index) {
+        // Firebase uid'leri 28 karakterdir
+        return String.format("u%027d", index);
+    }
+
+    static String expectedLanguage(int index, double nonDefaultRatio) {
+        int bucket = Math.floorMod(index * 2654435761L, 1000L) > nonDefaultRatio * 1000 ? -1 : index % LANGUAGES.length;
+        return bucket < 0 ? UserPreferenceCache.DEFAULT_LANGUAGE : LANGUAGES[bucket];
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Anlık görüntü sayfalarını user-service yerine bellekten üretir
+     */
+    static final class SimulatedReplica extends UserPreferenceCache {
+        private final int users;
+        private final double nonDefaultRatio;
+        private final int pageSize;
+        private final Duration pageLatency;
+
+        SimulatedReplica(int users, double nonDefaultRatio, int pageSize, Duration pageLatency) {
+            super(WebClient.builder(), new SimpleMeterRegistry(), "http://localhost", users, pageSize,
+                    Duration.ofHours(6), Duration.ofSeconds(1));
+            this.users = users;
+            this.nonDefaultRatio = nonDefaultRatio;
+            this.pageSize = pageSize;
+            this.pageLatency = pageLatency;
+        }
+
+        int entryCount() {
+            int count = 0;
+            for (int i = 0; i < users; i++) {
+                if (!DEFAULT_LANGUAGE.equals(languageOf(userId(i)))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        protected Mono<SnapshotPage> fetchPage(String cursor) {
+            int from = cursor == null ? 0 : Integer.parseInt(cursor.substring(1)) + 1;
+            int to = Math.min(users, from + pageSize);
+            Map<String, String> languages = new LinkedHashMap<>();
+            for (int i = from; i < to; i++) {
+                languages.put(userId(i), expectedLanguage(i, nonDefaultRatio));
+            }
+            String next = to < users ? userId(to - 1) : null;
+            return Mono.delay(pageLatency).thenReturn(new SnapshotPage(languages, next));
+        }
+    }
+}
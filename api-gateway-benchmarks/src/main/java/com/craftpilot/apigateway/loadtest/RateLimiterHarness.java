@@ -0,0 +1,169 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.ratelimit.HybridRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+/**
+ * Mevcut (her istekte Redis) hız sınırlayıcı ile iki seviyeli HybridRateLimiter'ı aynı açık döngü
+ * yük altında karşılaştırır: karar gecikmesi, global kovaya yapılan çağrı sayısı ve doğruluk
+ * (kabul edilen istek / ideal token bucket kabulü).
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.craftpilot.apigateway.loadtest.RateLimiterHarness --seconds=20
+ * </pre>
+ *
+ * Kullanıcılar limitlerinin yarısı (normal trafik) ve iki katı (aşırı yük) hızda istek gönderir;
+ * istekler --pods kadar limiter örneğine (pod) sırayla dağıtılır. Redis gidiş-dönüşü --rttMs ve
+ * --slowRttMs ile iki senaryoda ölçülür.
+ * Rapor target/rate-limiter-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class RateLimiterHarness {
+    private static final String ROUTE_ID = "user-service";
+
+    private RateLimiterHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        int users = Integer.parseInt(options.getOrDefault("users", "100"));
+        int pods = Integer.parseInt(options.getOrDefault("pods", "4"));
+        int replenishRate = Integer.parseInt(options.getOrDefault("replenishRate", "20"));
+        int burstCapacity = Integer.parseInt(options.getOrDefault("burstCapacity", "40"));
+        int rttMs = Integer.parseInt(options.getOrDefault("rttMs", "1"));
+        int slowRttMs = Integer.parseInt(options.getOrDefault("slowRttMs", "20"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("seconds", seconds);
+        result.put("users", users);
+        result.put("pods", pods);
+        result.put("replenishRate", replenishRate);
+        result.put("burstCapacity", burstCapacity);
+
+        // JIT ısınması, sonuçlara dahil edilmez
+        run("warmup", pods, users, users * replenishRate * 2, 3, replenishRate, burstCapacity, Duration.ofMillis(rttMs), true);
+
+        for (double load : new double[]{0.5, 2.0}) {
+            int rps = (int) (users * replenishRate * load);
+            for (int rtt : new int[]{rttMs, slowRttMs}) {
+                Duration roundTrip = Duration.ofMillis(rtt);
+                String suffix = "-load" + load + "-rtt" + rtt + "ms";
+                result.put("redis" + suffix, run("redis" + suffix, pods, users, rps, seconds,
+                        replenishRate, burstCapacity, roundTrip, false));
+                result.put("hybrid" + suffix, run("hybrid" + suffix, pods, users, rps, seconds,
+                        replenishRate, burstCapacity, roundTrip, true));
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/rate-limiter-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+    }
+
+    static Map<String, Object> run(String name, int pods, int users, int rps, int seconds, int replenishRate,
+                                   int burstCapacity, Duration roundTrip, boolean hybrid) throws InterruptedException {
+        SimulatedGlobalBucket globalBucket = new SimulatedGlobalBucket(roundTrip);
+        BiFunction<String, String, Mono<RateLimiter.Response>>[] limiters = limiters(pods, globalBucket,
+                replenishRate, burstCapacity, hybrid);
+
+        LatencyStats latency = new LatencyStats();
+        AtomicLongArray admitted = new AtomicLongArray(users);
+        int total = rps * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        CountDownLatch done = new CountDownLatch(total);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int user = i % users;
+            limiters[(i / users) % pods].apply(ROUTE_ID, "user-" + user)
+                    .doOnNext(response -> {
+                        if (response.isAllowed()) {
+                            admitted.incrementAndGet(user);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        latency.record(System.nanoTime() - intended);
+                        done.countDown();
+                    })
+                    .subscribe();
+        }
+        done.await(seconds + 30L, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        // İdeal token bucket: başlangıçta dolu kova + süre boyunca dolan jetonlar (en fazla sunulan istek kadar)
+        double ideal = Math.min(burstCapacity + replenishRate * elapsedSeconds, (double) total / users);
+        long totalAdmitted = 0;
+        double worstUser = 0;
+        for (int user = 0; user < users; user++) {
+            totalAdmitted += admitted.get(user);
+            worstUser = Math.max(worstUser, admitted.get(user) / ideal);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("limiter", hybrid ? "hybrid" : "redis-per-request");
+        summary.put("rps", rps);
+        summary.put("redisRttMs", roundTrip.toMillis());
+        summary.put("admitted", totalAdmitted);
+        summary.put("idealAdmitted", Math.round(ideal * users));
+        summary.put("accuracy", Math.round(totalAdmitted / (ideal * users) * 1000) / 1000.0);
+        summary.put("worstUserRatio", Math.round(worstUser * 1000) / 1000.0);
+        summary.put("redisCallsPerRequest", Math.round(globalBucket.calls() * 1000.0 / total) / 1000.0);
+        summary.put("latency", latency.summary());
+        log.info("{}: {}", name, summary);
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiFunction<String, String, Mono<RateLimiter.Response>>[] limiters(int pods, SimulatedGlobalBucket globalBucket,
+                                                                                    int replenishRate, int burstCapacity, boolean hybrid) {
+        BiFunction<String, String, Mono<RateLimiter.Response>>[] limiters = new BiFunction[pods];
+        for (int pod = 0; pod < pods; pod++) {
+            if (hybrid) {
+                SimulatedHybridRateLimiter limiter = new SimulatedHybridRateLimiter(globalBucket, Duration.ofSeconds(1));
+                HybridRateLimiter.Config config = new HybridRateLimiter.Config();
+                config.setReplenishRate(replenishRate);
+                config.setBurstCapacity(burstCapacity);
+                limiter.getConfig().put(ROUTE_ID, config);
+                limiters[pod] = limiter::isAllowed;
+            } else {
+                limiters[pod] = new PerRequestRateLimiter(globalBucket, replenishRate, burstCapacity)::isAllowed;
+            }
+        }
+        return limiters;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
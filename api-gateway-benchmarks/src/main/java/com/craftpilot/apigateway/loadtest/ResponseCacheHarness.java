@@ -0,0 +1,299 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.filter.ConditionalResponseCacheGatewayFilterFactory;
+import com.craftpilot.apigateway.filter.FirebaseAuthFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.Connection;
+import reactor.netty.NettyInbound;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ConditionalResponseCache filtresinin istemciye giden bayt ve gateway CPU kazancını ölçer.
+ * Her kullanıcı aynı sayfayı --loads kez açar ve tarayıcı gibi son ETag'i If-None-Match ile gönderir.
+ * Filtresiz durumda her yanıt downstream'den gelir ve gateway tarafından gzip ile sıkıştırılır
+ * (server.compression, 1KB üzeri JSON); filtreli durumda 304'ler gövdesiz döner.
+ * İstekler gateway'in kendi FilteringWebHandler'ından geçer: route filtresi global filtrelerle birlikte sıralanır ve
+ * gövdeyi gerçek NettyWriteResponseFilter yazar. Downstream, NettyRoutingFilter gibi yanıt bağlantısını exchange'e
+ * koyan bir global filtredir.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.craftpilot.apigateway.loadtest.ResponseCacheHarness --users=200 --loads=50
+ * </pre>
+ *
+ * Rapor target/response-cache-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class ResponseCacheHarness {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private ResponseCacheHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "200"));
+        int loads = Integer.parseInt(options.getOrDefault("loads", "50"));
+        byte[] catalog = catalog(Integer.parseInt(options.getOrDefault("models", "150")));
+
+        List<Endpoint> endpoints = List.of(
+                new Endpoint("user-service", "/users/models/available", List.of("X-User-Id"), "max-age=60, private"),
+                new Endpoint("llm-service", "/ai/config/models", List.of(), "max-age=300, public"),
+                new Endpoint("user-service", "/users/u/preferences", List.of("X-User-Id"), "no-cache, private"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("loadsPerUser", loads);
+        result.put("bodyBytes", catalog.length);
+
+        // JIT ısınması
+        for (Endpoint endpoint : endpoints) {
+            run(endpoint, catalog, 20, 20, false);
+            run(endpoint, catalog, 20, 20, true);
+        }
+        for (Endpoint endpoint : endpoints) {
+            Map<String, Object> baseline = run(endpoint, catalog, users, loads, false);
+            Map<String, Object> cached = run(endpoint, catalog, users, loads, true);
+            Map<String, Object> comparison = new LinkedHashMap<>();
+            comparison.put("cacheControl", endpoint.cacheControl());
+            comparison.put("baseline", baseline);
+            comparison.put("conditionalCache", cached);
+            comparison.put("clientBytesSavedPct", pct((long) baseline.get("clientBytes"), (long) cached.get("clientBytes")));
+            comparison.put("cpuSavedPct", pct((long) baseline.get("cpuMicros"), (long) cached.get("cpuMicros")));
+            result.put(endpoint.path(), comparison);
+            log.info("{}: {}", endpoint.path(), comparison);
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/response-cache-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+    }
+
+    static Map<String, Object> run(Endpoint endpoint, byte[] body, int users, int loads, boolean withFilter) throws IOException {
+        ConditionalResponseCacheGatewayFilterFactory factory = new ConditionalResponseCacheGatewayFilterFactory(
+                new SimpleMeterRegistry(), DataSize.ofMegabytes(64), DataSize.ofKilobytes(512), 100_000);
+        ConditionalResponseCacheGatewayFilterFactory.Config config = new ConditionalResponseCacheGatewayFilterFactory.Config();
+        config.setRouteId(endpoint.routeId());
+        config.setPaths(List.of(endpoint.path()));
+        config.setKeyHeaders(endpoint.keyHeaders());
+        Route route = Route.async()
+                .id(endpoint.routeId())
+                .uri(URI.create("http://" + endpoint.routeId()))
+                .predicate(exchange -> true)
+                .filters(withFilter ? List.of(factory.apply(config)) : List.of())
+                .build();
+
+        AtomicLong downstreamCalls = new AtomicLong();
+        GlobalFilter routing = new OrderedGlobalFilter(Ordered.LOWEST_PRECEDENCE, (exchange, chain) -> {
+            downstreamCalls.incrementAndGet();
+            var response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setCacheControl(endpoint.cacheControl());
+            response.getHeaders().setContentLength(body.length);
+            exchange.getAttributes().put(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR, new DownstreamConnection(body));
+            return chain.filter(exchange);
+        });
+        FilteringWebHandler handler = new FilteringWebHandler(List.of(
+                new NettyWriteResponseFilter(List.of(MediaType.TEXT_EVENT_STREAM)), routing));
+
+        long clientBytes = 0;
+        long notModified = 0;
+        String[] lastEtag = new String[users];
+        long cpuStart = THREADS.getCurrentThreadCpuTime();
+        for (int load = 0; load < loads; load++) {
+            for (int user = 0; user < users; user++) {
+                MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(endpoint.path())
+                        .header("X-User-Id", "user-" + user);
+                if (lastEtag[user] != null) {
+                    request.header(HttpHeaders.IF_NONE_MATCH, lastEtag[user]);
+                }
+                MockServerWebExchange exchange = MockServerWebExchange.from(request);
+                exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+                exchange.getAttributes().put(FirebaseAuthFilter.VERIFIED_USER_ID_ATTR, "user-" + user);
+                handler.handle(exchange).block();
+
+                MockServerHttpResponse response = exchange.getResponse();
+                if (HttpStatus.NOT_MODIFIED.equals(response.getStatusCode())) {
+                    notModified++;
+                    continue;
+                }
+                lastEtag[user] = response.getHeaders().getETag();
+                byte[] sent = DataBufferUtils.join(response.getBody())
+                        .map(buffer -> {
+                            byte[] bytes = new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            DataBufferUtils.release(buffer);
+                            return bytes;
+                        })
+                        .defaultIfEmpty(new byte[0])
+                        .block();
+                // Gateway sıkıştırması: server.compression min-response-size 1KB
+                clientBytes += sent.length >= 1024 ? gzip(sent).length : sent.length;
+            }
+        }
+        long cpuMicros = (THREADS.getCurrentThreadCpuTime() - cpuStart) / 1000;
+        long requests = (long) users * loads;
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", requests);
+        summary.put("notModified", notModified);
+        summary.put("downstreamCalls", downstreamCalls.get());
+        summary.put("clientBytes", clientBytes);
+        summary.put("cpuMicros", cpuMicros);
+        summary.put("cpuMicrosPerRequest", Math.round(cpuMicros * 100.0 / requests) / 100.0);
+        return summary;
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * /users/models/available yanıtına benzer bir model kataloğu
+     */
+    static byte[] catalog(int models) {
+        StringBuilder json = new StringBuilder("{\"models\":[");
+        String[] providers = {"openai", "anthropic", "google", "meta-llama", "mistralai", "deepseek"};
+        for (int i = 0; i < models; i++) {
+            String provider = providers[i % providers.length];
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"modelId\":\"").append(provider).append("/model-").append(i)
+                    .append("\",\"modelName\":\"Model ").append(i)
+                    .append("\",\"provider\":\"").append(provider)
+                    .append("\",\"maxInputTokens\":").append(8192 * (1 + i % 16))
+                    .append(",\"requiredPlan\":\"").append(i % 3 == 0 ? "premium" : "free")
+                    .append("\",\"creditCost\":").append(1 + i % 5)
+                    .append(",\"creditType\":\"").append(i % 2 == 0 ? "STANDARD" : "ADVANCED")
+                    .append("\",\"category\":\"").append(i % 4 == 0 ? "reasoning" : "chat")
+                    .append("\",\"contextLength\":").append(32000 + i * 1000)
+                    .append(",\"defaultTemperature\":0.7,\"description\":\"")
+                    .append("Genel amaçlı sohbet ve kod üretimi için model ").append(i).append("\"}");
+        }
+        json.append("],\"providers\":[");
+        for (int i = 0; i < providers.length; i++) {
+            json.append(i > 0 ? "," : "").append("{\"name\":\"").append(providers[i]).append("\",\"icon\":\"")
+                    .append(providers[i]).append(".svg\"}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static double pct(long baseline, long value) {
+        return baseline == 0 ? 0 : Math.round((baseline - value) * 1000.0 / baseline) / 10.0;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    record Endpoint(String routeId, String path, List<String> keyHeaders, String cacheControl) {
+    }
+
+    private record OrderedGlobalFilter(int order, GatewayFilter delegate) implements GlobalFilter, Ordered {
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return delegate.filter(exchange, chain);
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+    }
+
+    /**
+     * NettyWriteResponseFilter'ın okuduğu downstream yanıt bağlantısı; gövde tek parça olarak gelir
+     */
+    private static final class DownstreamConnection implements Connection {
+        private final byte[] body;
+        private Channel channel;
+
+        DownstreamConnection(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public Channel channel() {
+            if (channel == null) {
+                channel = new EmbeddedChannel();
+            }
+            return channel;
+        }
+
+        @Override
+        public NettyInbound inbound() {
+            return new NettyInbound() {
+                @Override
+                public ByteBufFlux receive() {
+                    return ByteBufFlux.fromInbound(Mono.fromSupplier(() -> Unpooled.wrappedBuffer(body)));
+                }
+
+                @Override
+                public Flux<?> receiveObject() {
+                    return receive();
+                }
+
+                @Override
+                public NettyInbound withConnection(Consumer<? super Connection> withConnection) {
+                    withConnection.accept(DownstreamConnection.this);
+                    return this;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.cache.VerifiedTokenCache;
+import com.craftpilot.apigateway.security.FirebaseTokenVerifier;
+import com.craftpilot.apigateway.security.LocalTokenVerifier;
+import com.craftpilot.apigateway.security.VerifiedToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.util.Base64;
+
+/**
+ * FirebaseAuth.verifyIdToken yerine aynı işi (JWT ayrıştırma + RS256 imza doğrulama) yerel anahtarla
+ * yapan doğrulayıcı. Gateway'deki gibi boundedElastic üzerinde çalışır; sertifika indirme maliyeti
+ * (SDK'da önbelleklenir) dahil değildir. Verilen yerel doğrulayıcı karar veremezse bu yola düşülür.
+ */
+public class SimulatedFirebaseTokenVerifier extends FirebaseTokenVerifier {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TestTokens tokens;
+
+    public SimulatedFirebaseTokenVerifier(TestTokens tokens, VerifiedTokenCache tokenCache, LocalTokenVerifier localVerifier) {
+        super(null, tokenCache, localVerifier);
+        this.tokens = tokens;
+    }
+
+    @Override
+    protected Mono<VerifiedToken> verifyWithFirebase(String token) {
+        return Mono.fromCallable(() -> verifyBlocking(token))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private VerifiedToken verifyBlocking(String token) throws Exception {
+        String[] parts = token.split("\\.");
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(tokens.publicKey());
+        verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        if (!verifier.verify(Base64.getUrlDecoder().decode(parts[2]))) {
+            throw new IllegalArgumentException("invalid signature");
+        }
+        JsonNode payload = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+        return VerifiedToken.builder()
+                .uid(payload.path("user_id").asText())
+                .email(payload.path("email").asText(""))
+                .role(payload.path("role").asText("USER"))
+                .issuedAtEpochSeconds(payload.path("iat").asLong())
+                .expiresAtEpochSeconds(payload.path("exp").asLong())
+                .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.craftpilot.apigateway.loadtest;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis'teki token bucket betiklerinin bellek içi karşılığı. Her çağrı ayarlanan gidiş-dönüş
+ * süresi kadar gecikir; böylece pod'lar arası paylaşılan global kova ağ maliyetiyle birlikte taklit edilir.
+ */
+public class SimulatedGlobalBucket {
+
+    private final Duration roundTrip;
+    private final Map<String, double[]> buckets = new HashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+
+    public SimulatedGlobalBucket(Duration roundTrip) {
+        this.roundTrip = roundTrip;
+    }
+
+    /**
+     * En fazla {@code requested} jeton verir; [verilen, kalan] döner (hybrid_rate_limiter.lua ile aynı)
+     */
+    public Mono<List<Long>> lease(String key, int rate, int capacity, long requested) {
+        calls.incrementAndGet();
+        return Mono.delay(roundTrip).map(tick -> {
+            synchronized (buckets) {
+                long now = System.currentTimeMillis();
+                double[] state = buckets.computeIfAbsent(key, k -> new double[]{capacity, now});
+                double filled = Math.min(capacity, state[0] + (now - state[1]) * rate / 1000.0);
+                long granted = Math.min((long) Math.floor(filled), requested);
+                state[0] = filled - granted;
+                state[1] = now;
+                return List.of(granted, (long) Math.floor(state[0]));
+            }
+        });
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+}
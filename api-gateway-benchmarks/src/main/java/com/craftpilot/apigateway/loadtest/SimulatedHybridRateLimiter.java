@@ -0,0 +1,27 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.ratelimit.HybridRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Global kovası Redis yerine {@link SimulatedGlobalBucket} olan HybridRateLimiter; her örnek bir pod'u temsil eder.
+ */
+public class SimulatedHybridRateLimiter extends HybridRateLimiter {
+
+    private final SimulatedGlobalBucket globalBucket;
+
+    public SimulatedHybridRateLimiter(SimulatedGlobalBucket globalBucket, Duration redisTimeout) {
+        super(null, null, new SimpleMeterRegistry(), 64, 100_000, 0.1, 0.25,
+                Duration.ofSeconds(1), Duration.ofSeconds(5), redisTimeout);
+        this.globalBucket = globalBucket;
+    }
+
+    @Override
+    protected Mono<List<Long>> acquireLease(String key, Config config, long amount) {
+        return globalBucket.lease(key, config.getReplenishRate(), config.getBurstCapacity(), amount);
+    }
+}
@@ -0,0 +1,377 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.craftpilot.apigateway.config.GatewayConfig;
+import com.craftpilot.apigateway.filter.StreamingPassthroughGatewayFilterFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.server.WebHandler;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * StreamingPassthrough filtresinin SSE akışlarına etkisini yerel bir SSE stub üzerinde ölçer.
+ * Stub, llm-service gibi sıkıştırma açık (text/event-stream dahil) bir servistir ve her olaya gönderim
+ * anını (nanoTime) yazar; istemci olay başına uçtan uca gecikmeyi hesaplar. Gateway, gerçek
+ * NettyRoutingFilter/NettyWriteResponseFilter ve GatewayConfig'teki sıkıştırma ayarıyla
+ * (server.compression ile aynı mime listesi) Reactor Netty üzerinde ayağa kaldırılır.
+ * "default" route mevcut /ai/** zinciri gibi davranır, "passthrough" route StreamingPassthrough kullanır.
+ * Ayrıca istemci iptalinin upstream'e ulaşma süresi ve açık kalan upstream stream sayısı ölçülür.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.craftpilot.apigateway.loadtest.StreamingHarness --streams=100 --events=100 --intervalMs=20
+ * </pre>
+ *
+ * Rapor target/streaming-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class StreamingHarness {
+    private static final Set<String> COMPRESSIBLE = Set.of("application/json", "application/xml", "text/html",
+            "text/xml", "text/plain");
+
+    private StreamingHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int streams = Integer.parseInt(options.getOrDefault("streams", "100"));
+        int events = Integer.parseInt(options.getOrDefault("events", "100"));
+        int intervalMs = Integer.parseInt(options.getOrDefault("intervalMs", "20"));
+        int cancelStreams = Integer.parseInt(options.getOrDefault("cancelStreams", "100"));
+
+        Stub stub = new Stub();
+        DisposableServer upstream = stub.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConnectionProvider gatewayPool = ConnectionProvider.builder("gateway").maxConnections(5000)
+                .pendingAcquireMaxCount(-1).build();
+        DisposableServer gateway = startGateway(upstream.port(), registry, gatewayPool);
+        ConnectionProvider clientPool = ConnectionProvider.builder("harness").maxConnections(5000)
+                .pendingAcquireMaxCount(-1).build();
+        // Tarayıcı gibi Accept-Encoding: gzip gönderen istemci
+        HttpClient client = HttpClient.create(clientPool).compress(true);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("streams", streams);
+        result.put("eventsPerStream", events);
+        result.put("intervalMs", intervalMs);
+
+        Map<String, String> targets = new LinkedHashMap<>();
+        targets.put("direct", "http://127.0.0.1:" + upstream.port());
+        targets.put("default", "http://127.0.0.1:" + gateway.port() + "/default");
+        targets.put("passthrough", "http://127.0.0.1:" + gateway.port() + "/passthrough");
+
+        // JIT ve bağlantı havuzu ısınması
+        for (String base : targets.values()) {
+            stream(client, base + "/events?type=text/event-stream", 50, 20, intervalMs);
+        }
+        for (String type : new String[]{"text/event-stream", "text/plain"}) {
+            Map<String, Object> byTarget = new LinkedHashMap<>();
+            // Alt sınır: sıkıştırmasız doğrudan bağlantı
+            byTarget.put("directIdentity", stream(HttpClient.create(clientPool),
+                    targets.get("direct") + "/events?type=" + type, streams, events, intervalMs));
+            for (Map.Entry<String, String> target : targets.entrySet()) {
+                String base = target.getValue() + "/events?type=" + type;
+                Map<String, Object> summary = stream(client, base, streams, events, intervalMs);
+                summary.put("contentEncoding", contentEncoding(clientPool, base));
+                byTarget.put(target.getKey(), summary);
+                log.info("{} {}: {}", type, target.getKey(), summary);
+            }
+            result.put(type, byTarget);
+        }
+
+        Map<String, Object> cancellation = new LinkedHashMap<>();
+        for (String route : new String[]{"default", "passthrough"}) {
+            cancellation.put(route, cancel(client, stub, targets.get(route) + "/events?type=text/event-stream",
+                    cancelStreams, intervalMs));
+            log.info("cancel {}: {}", route, cancellation.get(route));
+        }
+        result.put("cancellation", cancellation);
+
+        Map<String, Object> filterMetrics = new LinkedHashMap<>();
+        Timer eventDelay = registry.get("gateway.stream.event.delay").timer();
+        filterMetrics.put("events", (long) registry.get("gateway.stream.events").counter().count());
+        for (ValueAtPercentile percentile : eventDelay.takeSnapshot().percentileValues()) {
+            filterMetrics.put("eventDelayP" + percentile.percentile() * 100 + "Ms",
+                    Math.round(percentile.value(TimeUnit.MICROSECONDS)) / 1000.0);
+        }
+        filterMetrics.put("eventDelayMaxMs", Math.round(eventDelay.max(TimeUnit.MICROSECONDS)) / 1000.0);
+        filterMetrics.put("cancelled", (long) registry.get("gateway.stream.cancelled").counter().count());
+        result.put("gatewayMetrics", filterMetrics);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/streaming-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+        gateway.disposeNow();
+        upstream.disposeNow();
+        gatewayPool.disposeLater().block();
+        clientPool.disposeLater().block();
+    }
+
+    /**
+     * Route başına gerçek SCG filtre zinciri: (StreamingPassthrough) + NettyRoutingFilter + NettyWriteResponseFilter
+     */
+    static DisposableServer startGateway(int upstreamPort, SimpleMeterRegistry registry, ConnectionProvider pool) {
+        StreamingPassthroughGatewayFilterFactory factory = new StreamingPassthroughGatewayFilterFactory(registry);
+        StreamingPassthroughGatewayFilterFactory.Config config = new StreamingPassthroughGatewayFilterFactory.Config();
+        config.setRouteId("llm-service-stream");
+        GatewayFilter passthroughFilter = factory.apply(config);
+
+        URI upstreamUri = URI.create("http://127.0.0.1:" + upstreamPort);
+        Route defaultRoute = Route.async().id("llm-service").uri(upstreamUri)
+                .predicate(exchange -> true).build();
+        Route passthroughRoute = Route.async().id("llm-service-stream").uri(upstreamUri)
+                .predicate(exchange -> true).filters(passthroughFilter).build();
+
+        List<GlobalFilter> globalFilters = new ArrayList<>();
+        globalFilters.add(new NettyRoutingFilter(HttpClient.create(pool), new SimpleObjectProvider<>(List.of()),
+                new HttpClientProperties()));
+        globalFilters.add(new NettyWriteResponseFilter(List.of(MediaType.TEXT_EVENT_STREAM,
+                MediaType.APPLICATION_NDJSON)));
+        FilteringWebHandler filteringHandler = new FilteringWebHandler(globalFilters);
+
+        // RoutePredicateHandlerMapping + StripPrefix yerine: ilk path parçası route'u seçer
+        WebHandler routing = exchange -> {
+            URI uri = exchange.getRequest().getURI();
+            String path = uri.getRawPath();
+            String prefix = path.substring(0, path.indexOf('/', 1));
+            exchange.getAttributes().put(GATEWAY_ROUTE_ATTR,
+                    "/passthrough".equals(prefix) ? passthroughRoute : defaultRoute);
+            exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create(upstreamUri + path.substring(prefix.length())
+                    + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "")));
+            return filteringHandler.handle(exchange);
+        };
+
+        // Spring Boot'un server.compression davranışı (mime listesi + 1KB alt sınır), ardından GatewayConfig özelleştirmesi
+        HttpServer server = HttpServer.create().host("127.0.0.1").port(0)
+                .compress((request, response) -> {
+                    String contentType = response.responseHeaders().get(HttpHeaders.CONTENT_TYPE);
+                    String contentLength = response.responseHeaders().get(HttpHeaders.CONTENT_LENGTH);
+                    return contentType != null
+                            && COMPRESSIBLE.contains(MediaType.parseMediaType(contentType).getType() + "/"
+                                    + MediaType.parseMediaType(contentType).getSubtype())
+                            && (contentLength == null || Long.parseLong(contentLength) >= 1024);
+                });
+        server = new GatewayConfig().streamingCompressionBypass().apply(server);
+        return server.handle(new ReactorHttpHandlerAdapter(WebHttpHandlerBuilder.webHandler(routing).build()))
+                .bindNow();
+    }
+
+    static Map<String, Object> stream(HttpClient client, String url, int streams, int events, int intervalMs)
+            throws InterruptedException {
+        LatencyStats latency = new LatencyStats();
+        AtomicLong received = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(streams);
+        for (int i = 0; i < streams; i++) {
+            EventParser parser = new EventParser();
+            client.get()
+                    .uri(url + "&count=" + events + "&intervalMs=" + intervalMs)
+                    .responseContent()
+                    .asString(StandardCharsets.UTF_8)
+                    .doOnNext(chunk -> {
+                        long now = System.nanoTime();
+                        for (long sentAt : parser.feed(chunk)) {
+                            latency.record(now - sentAt);
+                            received.incrementAndGet();
+                        }
+                    })
+                    .doOnError(e -> errors.incrementAndGet())
+                    .doFinally(signal -> done.countDown())
+                    .subscribe(null, e -> { });
+        }
+        done.await((long) events * intervalMs / 1000 + 60, TimeUnit.SECONDS);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("eventsReceived", received.get());
+        summary.put("errors", errors.get());
+        summary.put("eventLatency", latency.summary());
+        return summary;
+    }
+
+    /**
+     * Her stream birkaç olaydan sonra istemci tarafından kapatılır; stub'daki iptal anına kadar geçen süre ölçülür
+     */
+    static Map<String, Object> cancel(HttpClient client, Stub stub, String url, int streams, int intervalMs)
+            throws InterruptedException {
+        LatencyStats propagation = new LatencyStats();
+        int openBefore = stub.open.get();
+        long cancelledBefore = stub.cancelled.get();
+        CountDownLatch done = new CountDownLatch(streams);
+        for (int i = 0; i < streams; i++) {
+            String streamId = "c" + System.nanoTime() + "-" + i;
+            client.get()
+                    .uri(url + "&count=100000&intervalMs=" + intervalMs + "&id=" + streamId)
+                    .responseContent()
+                    .asString(StandardCharsets.UTF_8)
+                    .doOnCancel(() -> stub.clientCancelledAt.put(streamId, System.nanoTime()))
+                    .take(5)
+                    .doFinally(signal -> done.countDown())
+                    .subscribe(null, e -> { });
+        }
+        done.await(30, TimeUnit.SECONDS);
+        TimeUnit.SECONDS.sleep(2);
+        for (Map.Entry<String, Long> entry : stub.clientCancelledAt.entrySet()) {
+            Long upstreamCancelled = stub.upstreamCancelledAt.get(entry.getKey());
+            if (upstreamCancelled != null) {
+                propagation.record(upstreamCancelled - entry.getValue());
+            }
+        }
+        stub.clientCancelledAt.clear();
+        stub.upstreamCancelledAt.clear();
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("upstreamCancelled", stub.cancelled.get() - cancelledBefore);
+        summary.put("upstreamStillOpenAfter2s", stub.open.get() - openBefore);
+        summary.put("propagation", propagation.summary());
+        // Bir sonraki senaryo için açık kalan stream'ler stub tarafında kapatılır
+        stub.closeAll();
+        return summary;
+    }
+
+    private static String contentEncoding(ConnectionProvider pool, String url) {
+        return HttpClient.create(pool)
+                .headers(headers -> headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .get()
+                .uri(url + "&count=3&intervalMs=1")
+                .responseSingle((response, body) -> body.then(Mono.justOrEmpty(
+                        response.responseHeaders().get(HttpHeaders.CONTENT_ENCODING))))
+                .defaultIfEmpty("identity")
+                .block(Duration.ofSeconds(10));
+    }
+
+    /**
+     * llm-service gibi sıkıştırması açık SSE servisi. Her olay "sentAt" alanında gönderim anını taşır.
+     */
+    static final class Stub {
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final Map<String, Long> clientCancelledAt = new ConcurrentHashMap<>();
+        private final Map<String, Long> upstreamCancelledAt = new ConcurrentHashMap<>();
+        private volatile Sinks.Empty<Void> closeSignal = Sinks.empty();
+
+        DisposableServer start() {
+            return HttpServer.create().host("127.0.0.1").port(0)
+                    .compress((request, response) -> true)
+                    .route(routes -> routes.get("/events", (request, response) -> {
+                        Map<String, String> query = query(request.uri());
+                        int count = Integer.parseInt(query.getOrDefault("count", "100"));
+                        long interval = Long.parseLong(query.getOrDefault("intervalMs", "20"));
+                        String id = query.get("id");
+                        Flux<String> events = Flux.interval(Duration.ofMillis(interval))
+                                .take(count)
+                                .map(seq -> "id: " + seq + "\ndata: {\"seq\":" + seq + ",\"sentAt\":" + System.nanoTime()
+                                        + ",\"delta\":\"token\"}\n\n")
+                                .takeUntilOther(closeSignal.asMono())
+                                .doOnSubscribe(subscription -> open.incrementAndGet())
+                                .doOnCancel(() -> {
+                                    cancelled.incrementAndGet();
+                                    if (id != null) {
+                                        upstreamCancelledAt.put(id, System.nanoTime());
+                                    }
+                                })
+                                .doFinally(signal -> open.decrementAndGet());
+                        return response.header(HttpHeaders.CONTENT_TYPE, query.getOrDefault("type", "text/event-stream"))
+                                .sendString(events);
+                    }))
+                    .bindNow();
+        }
+
+        void closeAll() {
+            Sinks.Empty<Void> previous = closeSignal;
+            closeSignal = Sinks.empty();
+            previous.tryEmitEmpty();
+        }
+    }
+
+    /**
+     * Parça sınırları olay sınırlarıyla örtüşmeyebilir; tamamlanmış olayların sentAt değerlerini döner
+     */
+    static final class EventParser {
+        private final StringBuilder pending = new StringBuilder();
+
+        List<Long> feed(String chunk) {
+            pending.append(chunk);
+            List<Long> sentAt = new ArrayList<>();
+            int end;
+            while ((end = pending.indexOf("\n\n")) >= 0) {
+                String event = pending.substring(0, end);
+                pending.delete(0, end + 2);
+                int start = event.indexOf("\"sentAt\":");
+                if (start >= 0) {
+                    int valueStart = start + 9;
+                    int valueEnd = event.indexOf(',', valueStart);
+                    sentAt.add(Long.parseLong(event.substring(valueStart, valueEnd)));
+                }
+            }
+            return sentAt;
+        }
+    }
+
+    private static Map<String, String> query(String uri) {
+        Map<String, String> query = new HashMap<>();
+        int index = uri.indexOf('?');
+        if (index < 0) {
+            return query;
+        }
+        for (String pair : uri.substring(index + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return query;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
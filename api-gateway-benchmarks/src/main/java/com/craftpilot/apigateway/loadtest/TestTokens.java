@@ -0,0 +1,81 @@
+package com.craftpilot.apigateway.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Firebase ID token biçiminde (RS256, kid başlığı, securetoken issuer) yerel anahtarla imzalanmış
+ * test token'ları üretir; ağ ya da gerçek Firebase projesi gerekmez.
+ */
+public final class TestTokens {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String projectId;
+    private final String keyId;
+    private final KeyPair keyPair;
+
+    public TestTokens(String projectId, String keyId) {
+        this.projectId = projectId;
+        this.keyId = keyId;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            this.keyPair = generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String projectId() {
+        return projectId;
+    }
+
+    public String keyId() {
+        return keyId;
+    }
+
+    public PublicKey publicKey() {
+        return keyPair.getPublic();
+    }
+
+    public String issue(String uid, String email, long issuedAtEpochSeconds, long expiresAtEpochSeconds) {
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", "RS256");
+        header.put("kid", keyId);
+        header.put("typ", "JWT");
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("iss", "https://securetoken.google.com/" + projectId);
+        payload.put("aud", projectId);
+        payload.put("auth_time", issuedAtEpochSeconds);
+        payload.put("user_id", uid);
+        payload.put("sub", uid);
+        payload.put("iat", issuedAtEpochSeconds);
+        payload.put("exp", expiresAtEpochSeconds);
+        payload.put("email", email);
+        payload.put("email_verified", true);
+        payload.put("firebase", Map.of("sign_in_provider", "password"));
+
+        try {
+            String signingInput = ENCODER.encodeToString(MAPPER.writeValueAsBytes(header)) + "."
+                    + ENCODER.encodeToString(MAPPER.writeValueAsBytes(payload));
+            Signature signer = Signature.getInstance("SHA256withRSA");
+            signer.initSign(keyPair.getPrivate());
+            signer.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + ENCODER.encodeToString(signer.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.craftpilot.apigateway.accesslog;
+
+/**
+ * Örneklenmiş tek bir erişim kaydı; ring buffer'a konur ve arka plan yazıcısı tarafından satıra çevrilir
+ */
+public record AccessLogEntry(
+        long timestampMillis,
+        String method,
+        String path,
+        String routeId,
+        int status,
+        long durationNanos,
+        String reason,
+        String error) {
+}
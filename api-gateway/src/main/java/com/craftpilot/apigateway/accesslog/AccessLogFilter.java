@@ -0,0 +1,116 @@
+package com.craftpilot.apigateway.accesslog;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Her istek için gateway.access zamanlayıcısını (route, method, status sınıfı) nanosaniye hassasiyetle günceller;
+ * satır logu yalnızca örneklenen istekler için AccessLogWriter'a bırakılır. 5xx/hata ve slow-threshold'u
+ * aşan istekler her zaman, diğerleri sample-rate oranında kaydedilir. Ayrıntılı satırlar için
+ * "access-log" logger'ı ayrı bir dosyaya yönlendirilebilir.
+ */
+@Component
+@Order(-1)  // En önce çalışacak
+public class AccessLogFilter implements WebFilter {
+    private static final Set<String> METHODS = Set.of("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS");
+    // İstemci bağlantıyı yanıt bitmeden kapattı (nginx geleneği)
+    private static final int CLIENT_CLOSED = 499;
+
+    private final MeterRegistry meterRegistry;
+    private final AccessLogWriter writer;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public AccessLogFilter(
+            MeterRegistry meterRegistry,
+            AccessLogWriter writer,
+            @Value("${gateway.access-log.enabled:true}") boolean enabled,
+            @Value("${gateway.access-log.sample-rate:0.01}") double sampleRate,
+            @Value("${gateway.access-log.slow-threshold:1s}") Duration slowThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.writer = writer;
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(v -> complete(exchange, start, statusOf(exchange), null))
+                .doOnError(error -> complete(exchange, start, statusOf(error), error))
+                .doOnCancel(() -> complete(exchange, start, CLIENT_CLOSED, null));
+    }
+
+    private void complete(ServerWebExchange exchange, long start, int status, Throwable error) {
+        long duration = System.nanoTime() - start;
+        String method = exchange.getRequest().getMethod().name();
+        if (!METHODS.contains(method)) {
+            method = "OTHER";
+        }
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "none";
+        String statusClass = status == CLIENT_CLOSED ? "cancelled" : (status / 100) + "xx";
+        timer(routeId, method, statusClass).record(duration, TimeUnit.NANOSECONDS);
+
+        if (!enabled) {
+            return;
+        }
+        String reason;
+        if (error != null || status >= 500) {
+            reason = "error";
+        } else if (duration >= slowThresholdNanos) {
+            reason = "slow";
+        } else if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            reason = "sample";
+        } else {
+            return;
+        }
+        writer.submit(new AccessLogEntry(System.currentTimeMillis(), method, exchange.getRequest().getPath().value(),
+                routeId, status, duration, reason, error != null ? error.getMessage() : null));
+    }
+
+    private Timer timer(String routeId, String method, String statusClass) {
+        return timers.computeIfAbsent(routeId + '|' + method + '|' + statusClass, key -> Timer.builder("gateway.access")
+                .tag("route", routeId)
+                .tag("method", method)
+                .tag("status", statusClass)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(meterRegistry));
+    }
+
+    private static int statusOf(ServerWebExchange exchange) {
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        return status != null ? status.value() : 200;
+    }
+
+    private static int statusOf(Throwable error) {
+        return error instanceof ResponseStatusException statusException
+                ? statusException.getStatusCode().value()
+                : 500;
+    }
+}
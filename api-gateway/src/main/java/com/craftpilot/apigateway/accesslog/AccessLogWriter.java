@@ -0,0 +1,128 @@
+package com.craftpilot.apigateway.accesslog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Erişim kayıtlarını ring buffer'dan tek bir arka plan thread'i ile boşaltıp "access-log" logger'ına
+ * JSON satırı olarak yazar. Event-loop yalnızca offer() maliyetini öder; tampon doluysa kayıt düşürülür
+ * ve gateway.access.log.dropped sayacı artar.
+ */
+@Slf4j
+@Component
+public class AccessLogWriter {
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access-log");
+
+    private final AccessLogRingBuffer buffer;
+    private final long idleParkNanos;
+    private final Counter written;
+    private final Counter dropped;
+    private volatile boolean running;
+    private Thread thread;
+
+    public AccessLogWriter(
+            MeterRegistry meterRegistry,
+            @Value("${gateway.access-log.buffer-size:16384}") int bufferSize,
+            @Value("${gateway.access-log.idle-wait:20ms}") Duration idleWait) {
+        this.buffer = new AccessLogRingBuffer(bufferSize);
+        this.idleParkNanos = idleWait.toNanos();
+        this.written = meterRegistry.counter("gateway.access.log.written");
+        this.dropped = meterRegistry.counter("gateway.access.log.dropped");
+        Gauge.builder("gateway.access.log.pending", buffer, AccessLogRingBuffer::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::drainLoop, "access-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(2));
+        // Kapanışta kuyrukta kalanlar da yazılır
+        drain();
+    }
+
+    /**
+     * Event-loop'tan çağrılır; asla bloklamaz
+     */
+    public void submit(AccessLogEntry entry) {
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            try {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(idleParkNanos);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Erişim kaydı yazılamadı: {}", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized int drain() {
+        int count = 0;
+        AccessLogEntry entry;
+        while ((entry = buffer.poll()) != null) {
+            ACCESS_LOG.info(format(entry));
+            count++;
+        }
+        if (count > 0) {
+            written.increment(count);
+        }
+        return count;
+    }
+
+    static String format(AccessLogEntry entry) {
+        StringBuilder line = new StringBuilder(192)
+                .append("{\"ts\":\"").append(Instant.ofEpochMilli(entry.timestampMillis()))
+                .append("\",\"method\":\"").append(entry.method())
+                .append("\",\"path\":\"");
+        appendEscaped(line, entry.path());
+        line.append("\",\"route\":\"").append(entry.routeId())
+                .append("\",\"status\":").append(entry.status())
+                .append(",\"durationMs\":").append(Math.round(entry.durationNanos() / 1_000.0) / 1_000.0)
+                .append(",\"reason\":\"").append(entry.reason()).append('"');
+        if (entry.error() != null) {
+            line.append(",\"error\":\"");
+            appendEscaped(line, entry.error());
+            line.append('"');
+        }
+        return line.append('}').toString();
+    }
+
+    private static void appendEscaped(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+    }
+}
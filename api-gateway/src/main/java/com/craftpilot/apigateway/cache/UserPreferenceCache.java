@@ -1,77 +1,253 @@
 package com.craftpilot.apigateway.cache;
 
-import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Kullanıcı dil tercihlerinin gateway içindeki tam replikası. Açılışta user-service'in
+ * /internal/preferences/snapshot ucundan sayfa sayfa yüklenir, sonra tercih olaylarıyla
+ * (UserPreferenceEventListener) upsert edilerek güncel tutulur; okuma yalnızca bellekten yapılır.
+ *
+ * Bellek: varsayılan dildeki kullanıcılar hiç tutulmaz, diğerleri için userId -> 1 baytlık dil kodu
+ * saklanır (dil sözlüğü ayrı, en fazla 127 dil). Kayıt sayısı max-entries ile sınırlıdır; sınır dolunca
+ * yeni kullanıcılar varsayılan dile düşer ve gateway.preferences.replica.overflow sayacı artar.
+ * Kaçırılan olaylar resync-interval aralığıyla yapılan tam yenilemede düzelir.
+ */
 @Slf4j
 @Component
 public class UserPreferenceCache {
+    public static final String DEFAULT_LANGUAGE = "en";
+    private static final int MAX_LANGUAGES = Byte.MAX_VALUE;
+
     private final WebClient webClient;
-    private final AsyncLoadingCache<String, String> languageCache;
-    private final Executor cacheExecutor;
+    private final MeterRegistry meterRegistry;
+    private final int maxEntries;
+    private final int pageSize;
+    private final Duration resyncInterval;
+    private final Duration retryInterval;
+
+    private final Map<String, Byte> languageCodes = new ConcurrentHashMap<>();
+    private volatile String[] languages = new String[0];
+    private volatile Map<String, Byte> entries = new ConcurrentHashMap<>();
+    // Tam yükleme sürerken olaylarla değişen kullanıcılar; anlık görüntü bunları ezmez
+    private final Set<String> touchedDuringSync = ConcurrentHashMap.newKeySet();
+    private volatile boolean syncing;
+    private volatile boolean ready;
+    private volatile long lastSyncMillis;
+    private volatile long lastEventLagMillis;
+    private Disposable syncLoop;
 
-    public UserPreferenceCache(WebClient.Builder webClientBuilder) {
-        this.webClient = webClientBuilder
-                .baseUrl("http://user-service")
+    public UserPreferenceCache(
+            WebClient.Builder webClientBuilder,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.preferences.base-url:http://user-service}") String baseUrl,
+            @Value("${gateway.preferences.max-entries:500000}") int maxEntries,
+            @Value("${gateway.preferences.page-size:2000}") int pageSize,
+            @Value("${gateway.preferences.resync-interval:6h}") Duration resyncInterval,
+            @Value("${gateway.preferences.retry-interval:15s}") Duration retryInterval) {
+        // Paylaşılan builder'ı değiştirmemek için kopya üzerinden
+        this.webClient = webClientBuilder.clone()
+                .baseUrl(baseUrl)
                 .build();
-        
-        this.cacheExecutor = Executors.newFixedThreadPool(2);
-        
-        this.languageCache = Caffeine.newBuilder()
-            .expireAfterWrite(Duration.ofHours(1))
-            .maximumSize(10000)
-            .executor(cacheExecutor)
-            .buildAsync((key, executor) -> loadUserLanguageAsync(key));
-    }
-    
+        this.meterRegistry = meterRegistry;
+        this.maxEntries = maxEntries;
+        this.pageSize = pageSize;
+        this.resyncInterval = resyncInterval;
+        this.retryInterval = retryInterval;
+
+        Gauge.builder("gateway.preferences.replica.entries", this, cache -> cache.entries.size())
+                .register(meterRegistry);
+        Gauge.builder("gateway.preferences.replica.ready", this, cache -> cache.ready ? 1 : 0)
+                .register(meterRegistry);
+        Gauge.builder("gateway.preferences.replica.staleness", this, UserPreferenceCache::stalenessSeconds)
+                .description("Son tam yükleme veya uygulanan olaydan bu yana geçen süre (saniye)")
+                .register(meterRegistry);
+        Gauge.builder("gateway.preferences.replica.event.lag", this, cache -> cache.lastEventLagMillis)
+                .description("Son olayın yayınlanması ile replikaya uygulanması arasındaki süre (ms)")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        syncLoop = Mono.defer(this::synchronize)
+                .thenReturn(resyncInterval)
+                .onErrorResume(e -> {
+                    log.warn("Tercih anlık görüntüsü yüklenemedi, {} sonra tekrar denenecek: {}", retryInterval, e.getMessage());
+                    return Mono.just(retryInterval);
+                })
+                .delayUntil(Mono::delay)
+                .repeat()
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (syncLoop != null) {
+            syncLoop.dispose();
+        }
+    }
+
     public Mono<String> getUserLanguage(String userId) {
-        if (userId == null || userId.trim().isEmpty()) {
-            return Mono.just("en");
+        return Mono.just(languageOf(userId));
+    }
+
+    /**
+     * Bellekten okur; kaydı olmayan (veya replika henüz yüklenmemişse) kullanıcı için varsayılan dili döner.
+     */
+    public String languageOf(String userId) {
+        if (userId == null || userId.isEmpty()) {
+            return DEFAULT_LANGUAGE;
         }
-        
-        return Mono.fromFuture(() -> languageCache.get(userId))
-            .onErrorResume(e -> {
-                log.warn("Dil tercihi alınamadı: {}, varsayılan 'en' kullanılıyor", e.getMessage());
-                return Mono.just("en");
-            });
-    }
-    
-    private CompletableFuture<String> loadUserLanguageAsync(String userId) {
+        Byte code = entries.get(userId);
+        return code != null ? languages[code] : DEFAULT_LANGUAGE;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Olaydan gelen dil tercihini uygular; eventTimestamp bilinmiyorsa 0 verilir.
+     */
+    public synchronized void upsert(String userId, String language, long eventTimestamp) {
+        put(entries, userId, language);
+        if (syncing) {
+            touchedDuringSync.add(userId);
+        }
+        recordEvent(eventTimestamp);
+    }
+
+    public synchronized void remove(String userId, long eventTimestamp) {
+        entries.remove(userId);
+        if (syncing) {
+            touchedDuringSync.add(userId);
+        }
+        recordEvent(eventTimestamp);
+    }
+
+    /**
+     * Anlık görüntüyü yeni bir tabloya yükler ve tek seferde değiştirir. Yükleme sırasında
+     * olaylarla değişen kullanıcılar için canlı tablodaki değer korunur.
+     */
+    Mono<Void> synchronize() {
+        Map<String, Byte> loaded = new ConcurrentHashMap<>();
+        long started = System.currentTimeMillis();
+        beginSync();
+        return fetchPage(null)
+                .expand(page -> page.nextCursor() == null ? Mono.empty() : fetchPage(page.nextCursor()))
+                .doOnNext(page -> page.languages().forEach((userId, language) -> put(loaded, userId, language)))
+                .then(Mono.fromRunnable(() -> completeSync(loaded, started)))
+                .doFinally(signal -> syncing = false)
+                .then();
+    }
+
+    protected Mono<SnapshotPage> fetchPage(String cursor) {
         return webClient.get()
-            .uri("/users/{userId}/preferences", userId)
-            .retrieve()
-            .bodyToMono(Map.class)
-            .map(preferences -> {
-                Object languageObj = preferences.get("language");
-                String language = languageObj != null ? languageObj.toString() : "en";
-                log.debug("Kullanıcı {} için dil tercihi yüklendi: {}", userId, language);
-                return language;
-            })
-            .onErrorResume(e -> {
-                log.warn("Kullanıcı tercihi alınamadı {}: {}", userId, e.getMessage());
-                return Mono.just("en");
-            })
-            .toFuture();
-    }
-    
-    public void invalidate(String userId) {
-        languageCache.synchronous().invalidate(userId);
-        log.debug("Kullanıcı {} için dil önbelleği temizlendi", userId);
-    }
-    
-    public void refreshCache(String userId) {
-        languageCache.synchronous().refresh(userId);
-        log.debug("Kullanıcı {} için dil önbelleği yenileniyor", userId);
+                .uri(uriBuilder -> uriBuilder.path("/internal/preferences/snapshot")
+                        .queryParam("limit", pageSize)
+                        .queryParamIfPresent("cursor", Optional.ofNullable(cursor))
+                        .build())
+                .retrieve()
+                .bodyToMono(SnapshotPage.class)
+                .timeout(Duration.ofSeconds(10))
+                .map(page -> page.languages() != null ? page : new SnapshotPage(Map.of(), null));
+    }
+
+    private synchronized void beginSync() {
+        touchedDuringSync.clear();
+        syncing = true;
+    }
+
+    private synchronized void completeSync(Map<String, Byte> loaded, long started) {
+        Map<String, Byte> live = entries;
+        for (String userId : touchedDuringSync) {
+            Byte code = live.get(userId);
+            if (code != null) {
+                loaded.put(userId, code);
+            } else {
+                loaded.remove(userId);
+            }
+        }
+        touchedDuringSync.clear();
+        syncing = false;
+        entries = loaded;
+        lastSyncMillis = System.currentTimeMillis();
+        ready = true;
+        log.info("Tercih replikası yüklendi: {} kayıt, {} ms", loaded.size(), lastSyncMillis - started);
+    }
+
+    private void put(Map<String, Byte> target, String userId, String language) {
+        if (userId == null || userId.isEmpty()) {
+            return;
+        }
+        if (language == null || language.isEmpty() || DEFAULT_LANGUAGE.equals(language)) {
+            target.remove(userId);
+            return;
+        }
+        Byte code = codeOf(language);
+        if (code == null) {
+            return;
+        }
+        if (target.size() >= maxEntries && !target.containsKey(userId)) {
+            meterRegistry.counter("gateway.preferences.replica.overflow").increment();
+            return;
+        }
+        target.put(userId, code);
+    }
+
+    private Byte codeOf(String language) {
+        Byte code = languageCodes.get(language);
+        return code != null ? code : register(language);
+    }
+
+    private synchronized Byte register(String language) {
+        Byte code = languageCodes.get(language);
+        if (code != null) {
+            return code;
+        }
+        if (languages.length >= MAX_LANGUAGES) {
+            log.warn("Dil sözlüğü dolu, '{}' dili replikaya alınmadı", language);
+            return null;
+        }
+        String[] extended = Arrays.copyOf(languages, languages.length + 1);
+        extended[languages.length] = language.intern();
+        // Önce dizi yayınlanır, sonra kod; okuyucu kodu gördüğünde dil de görünür olur
+        languages = extended;
+        code = (byte) (extended.length - 1);
+        languageCodes.put(language, code);
+        return code;
+    }
+
+    private void recordEvent(long eventTimestamp) {
+        long now = System.currentTimeMillis();
+        if (eventTimestamp > 0) {
+            lastEventLagMillis = Math.max(0, now - eventTimestamp);
+        }
+        if (ready) {
+            lastSyncMillis = now;
+        }
+    }
+
+    private double stalenessSeconds() {
+        return lastSyncMillis == 0 ? -1 : (System.currentTimeMillis() - lastSyncMillis) / 1000.0;
+    }
+
+    public record SnapshotPage(Map<String, String> languages, String nextCursor) {
     }
 }
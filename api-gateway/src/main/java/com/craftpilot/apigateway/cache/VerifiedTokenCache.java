@@ -0,0 +1,164 @@
+package com.craftpilot.apigateway.cache;
+
+import com.craftpilot.apigateway.security.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Doğrulanmış ID token önbelleği: SHA-256(token) → uid/email/role.
+ * Her girdinin ömrü token'ın exp değerinden (eksi küçük bir pay) uzun olamaz.
+ * Bozuk token'lar isteğe bağlı olarak kısa süreli negatif önbellekte tutulur;
+ * revokeUser ile bir kullanıcının o ana kadar verilmiş tüm token'ları reddedilir.
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache {
+    // Firebase ID token'ları en fazla 1 saat geçerlidir
+    private static final Duration MAX_TOKEN_LIFETIME = Duration.ofHours(1);
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 desteklenmiyor", e);
+        }
+    });
+
+    private final boolean enabled;
+    private final boolean negativeCachingEnabled;
+    private final long expirySkewMillis;
+    private final Cache<String, VerifiedToken> tokens;
+    private final Cache<String, String> invalidTokens;
+    private final Cache<String, Long> revokedBefore;
+
+    public VerifiedTokenCache(
+            @Value("${gateway.auth.token-cache.enabled:true}") boolean enabled,
+            @Value("${gateway.auth.token-cache.maximum-size:100000}") long maximumSize,
+            @Value("${gateway.auth.token-cache.expiry-skew:5s}") Duration expirySkew,
+            @Value("${gateway.auth.token-cache.negative.enabled:true}") boolean negativeCachingEnabled,
+            @Value("${gateway.auth.token-cache.negative.ttl:60s}") Duration negativeTtl,
+            @Value("${gateway.auth.token-cache.negative.maximum-size:10000}") long negativeMaximumSize,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.negativeCachingEnabled = negativeCachingEnabled;
+        this.expirySkewMillis = expirySkew.toMillis();
+
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        this.invalidTokens = Caffeine.newBuilder()
+                .maximumSize(negativeMaximumSize)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+        this.revokedBefore = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(MAX_TOKEN_LIFETIME.plus(expirySkew))
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "gateway.auth.tokens");
+        CaffeineCacheMetrics.monitor(meterRegistry, invalidTokens, "gateway.auth.invalid-tokens");
+        Gauge.builder("gateway.auth.tokens.hit.ratio", tokens, cache -> cache.stats().hitRate())
+                .description("Verified token cache hit ratio since startup")
+                .register(meterRegistry);
+    }
+
+    public String keyOf(String token) {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    /**
+     * Süresi dolmamış ve iptal edilmemiş bir girdi varsa döner, yoksa null.
+     */
+    public VerifiedToken getIfValid(String key) {
+        if (!enabled) {
+            return null;
+        }
+        VerifiedToken token = tokens.getIfPresent(key);
+        if (token == null) {
+            return null;
+        }
+        // Expiry zaten exp'e göre ayarlı; saat kaymalarına karşı okuma anında da kontrol edilir
+        if (token.isExpired(System.currentTimeMillis() + expirySkewMillis) || isRevoked(token)) {
+            tokens.invalidate(key);
+            return null;
+        }
+        return token;
+    }
+
+    public void put(String key, VerifiedToken token) {
+        if (enabled && !isRevoked(token)) {
+            tokens.put(key, token);
+        }
+    }
+
+    public boolean isKnownInvalid(String key) {
+        return enabled && negativeCachingEnabled && invalidTokens.getIfPresent(key) != null;
+    }
+
+    public void rememberInvalid(String key, String reason) {
+        if (enabled && negativeCachingEnabled) {
+            invalidTokens.put(key, reason != null ? reason : "invalid");
+        }
+    }
+
+    /**
+     * İptal kancası: kullanıcının şu ana kadar verilmiş token'ları (önbellekte olsun olmasın)
+     * token ömrü boyunca reddedilir.
+     */
+    public void revokeUser(String uid) {
+        if (uid == null || uid.isEmpty()) {
+            return;
+        }
+        revokedBefore.put(uid, System.currentTimeMillis() / 1000L);
+        tokens.asMap().values().removeIf(token -> uid.equals(token.getUid()));
+        log.info("Kullanıcı {} için doğrulanmış token'lar iptal edildi", uid);
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        Long revokedAt = revokedBefore.getIfPresent(token.getUid());
+        return revokedAt != null && token.getIssuedAtEpochSeconds() <= revokedAt;
+    }
+
+    public void invalidateAll() {
+        tokens.invalidateAll();
+        invalidTokens.invalidateAll();
+    }
+
+    private final class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            long remainingMillis = token.getExpiresAtEpochSeconds() * 1000L - System.currentTimeMillis() - expirySkewMillis;
+            long cappedMillis = Math.min(remainingMillis, MAX_TOKEN_LIFETIME.toMillis());
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, cappedMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.craftpilot.apigateway.config;
 
+import com.craftpilot.apigateway.filter.StreamingPassthroughGatewayFilterFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,6 +10,10 @@ import org.springframework.http.HttpStatus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.util.function.BiPredicate;
 
 @Slf4j
 @Configuration
@@ -45,4 +51,21 @@ public class GatewayConfig {
             return chain.filter(exchange);
         };
     }
+
+    /**
+     * server.compression kuralına ek olarak StreamingPassthrough yanıtlarını sıkıştırmaz;
+     * sıkıştırıcı parçaları biriktirdiği için içerik tipi listede olsa bile stream gecikir
+     */
+    @Bean
+    public NettyServerCustomizer streamingCompressionBypass() {
+        return httpServer -> {
+            BiPredicate<HttpServerRequest, HttpServerResponse> compress = httpServer.configuration().compressPredicate();
+            if (compress == null) {
+                return httpServer;
+            }
+            return httpServer.compress((request, response) ->
+                    !"no".equals(response.responseHeaders().get(StreamingPassthroughGatewayFilterFactory.NO_BUFFERING_HEADER))
+                            && compress.test(request, response));
+        };
+    }
 }
@@ -0,0 +1,13 @@
+package com.craftpilot.apigateway.config;
+
+import com.craftpilot.apigateway.loadbalancer.LatencyAwareLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tüm lb:// route'ları için varsayılan round-robin yerine gecikmeye duyarlı yük dengeleyici
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
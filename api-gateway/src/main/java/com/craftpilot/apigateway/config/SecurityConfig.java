@@ -2,7 +2,7 @@ package com.craftpilot.apigateway.config;
 
 import com.craftpilot.apigateway.filter.FirebaseAuthFilter;
 import com.craftpilot.apigateway.cache.UserPreferenceCache;
-import com.google.firebase.auth.FirebaseAuth;
+import com.craftpilot.apigateway.security.FirebaseTokenVerifier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -30,7 +30,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
-    private final FirebaseAuth firebaseAuth;
+    private final FirebaseTokenVerifier firebaseTokenVerifier;
     private final UserPreferenceCache userPreferenceCache;
     
     private static final List<String> ALLOWED_ORIGINS = Arrays.asList(
@@ -72,7 +72,7 @@ public class SecurityConfig {
                 .pathMatchers(HttpMethod.OPTIONS).permitAll()
                 .pathMatchers(PUBLIC_PATHS.toArray(new String[0])).permitAll()
                 .anyExchange().permitAll())
-            .addFilterAt(new FirebaseAuthFilter(firebaseAuth, userPreferenceCache), SecurityWebFiltersOrder.AUTHENTICATION)
+            .addFilterAt(new FirebaseAuthFilter(firebaseTokenVerifier, userPreferenceCache), SecurityWebFiltersOrder.AUTHENTICATION)
             .exceptionHandling(exceptionHandling -> exceptionHandling
                 .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED))
                 .accessDeniedHandler((exchange, denied) -> {
@@ -10,6 +10,12 @@ import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
+/**
+ * user-service'in tercih olaylarını gateway replikasına upsert olarak uygular. Her gateway
+ * örneği tüm olayları alsın diye örneğe özgü consumer group kullanılır. user-service üç biçimde
+ * yayın yapar: PREFERENCES_UPDATED (preferenceType/value), PREFERENCE_UPDATED (updates) ve
+ * tam tercih belgesi (doğrudan veya preferenceData içinde).
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -17,29 +23,48 @@ public class UserPreferenceEventListener {
 
     private final UserPreferenceCache userPreferenceCache;
     private final ObjectMapper objectMapper;
-    
-    @KafkaListener(topics = "${kafka.topics.user-preferences}", groupId = "${spring.kafka.consumer.group-id}")
+
+    @KafkaListener(topics = {"${kafka.topics.user-preferences}", "${kafka.topics.preference-events}"},
+            groupId = "${spring.kafka.consumer.group-id}-preferences-#{T(java.util.UUID).randomUUID()}")
     public void handleUserPreferenceEvent(ConsumerRecord<String, String> record) {
         try {
-            String key = record.key();
-            String value = record.value();
-            
-            log.debug("Received user preference event: {}", key);
-            
-            Map<String, Object> eventData = objectMapper.readValue(value, Map.class);
+            log.debug("Received user preference event: {}", record.key());
+
+            Map<String, Object> eventData = objectMapper.readValue(record.value(), Map.class);
             String userId = (String) eventData.get("userId");
+            if (userId == null || userId.isEmpty()) {
+                return;
+            }
+            long timestamp = timestampOf(eventData);
             String eventType = (String) eventData.get("eventType");
-            
-            if (userId != null && !userId.isEmpty()) {
-                if ("PREFERENCES_UPDATED".equals(eventType)) {
-                    // Önbelleği güncelle
-                    userPreferenceCache.invalidate(userId);
-                    userPreferenceCache.refreshCache(userId);
-                    log.info("Invalidated and refreshed cache for user: {}", userId);
+
+            if ("PREFERENCES_UPDATED".equals(eventType)) {
+                String preferenceType = (String) eventData.get("preferenceType");
+                if ("deleted".equals(preferenceType)) {
+                    userPreferenceCache.remove(userId, timestamp);
+                } else if ("language".equals(preferenceType)) {
+                    userPreferenceCache.upsert(userId, asString(eventData.get("value")), timestamp);
                 }
+                return;
+            }
+
+            Object document = "PREFERENCE_UPDATED".equals(eventType)
+                    ? eventData.get("updates")
+                    : eventData.getOrDefault("preferenceData", eventData);
+            if (document instanceof Map<?, ?> preferences && preferences.containsKey("language")) {
+                userPreferenceCache.upsert(userId, asString(preferences.get("language")), timestamp);
             }
         } catch (Exception e) {
             log.error("Error processing user preference event: {}", e.getMessage(), e);
         }
     }
+
+    private static long timestampOf(Map<String, Object> eventData) {
+        Object timestamp = eventData.containsKey("timestamp") ? eventData.get("timestamp") : eventData.get("updatedAt");
+        return timestamp instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
 }
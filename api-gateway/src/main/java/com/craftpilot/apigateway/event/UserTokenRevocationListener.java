@@ -0,0 +1,44 @@
+package com.craftpilot.apigateway.event;
+
+import com.craftpilot.apigateway.cache.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kullanıcı silindiğinde/devre dışı bırakıldığında veya oturumları iptal edildiğinde
+ * gateway'deki doğrulanmış token önbelleğini temizler. Her gateway örneği olayı
+ * alsın diye örneğe özgü consumer group kullanılır.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserTokenRevocationListener {
+
+    private static final Set<String> REVOKING_EVENTS = Set.of("USER_DELETED", "USER_DISABLED", "TOKENS_REVOKED");
+
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = "${kafka.topics.user-events}",
+            groupId = "${spring.kafka.consumer.group-id}-auth-#{T(java.util.UUID).randomUUID()}")
+    public void handleUserEvent(ConsumerRecord<String, String> record) {
+        try {
+            Map<String, Object> eventData = objectMapper.readValue(record.value(), Map.class);
+            String userId = (String) eventData.get("userId");
+            String eventType = (String) eventData.get("eventType");
+
+            if (userId != null && !userId.isEmpty() && REVOKING_EVENTS.contains(eventType)) {
+                verifiedTokenCache.revokeUser(userId);
+            }
+        } catch (Exception e) {
+            log.error("Error processing user event for token revocation: {}", e.getMessage(), e);
+        }
+    }
+}
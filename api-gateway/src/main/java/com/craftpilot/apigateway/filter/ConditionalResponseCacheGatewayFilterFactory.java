@@ -0,0 +1,400 @@
+package com.craftpilot.apigateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Okuma ağırlıklı GET uçları için ETag ve koşullu GET desteği. Yanıt gövdesinden güçlü bir ETag
+ * üretilir (downstream kendi ETag'ini verdiyse o kullanılır); If-None-Match eşleşirse gövde yerine 304 döner.
+ * Downstream Cache-Control izin veriyorsa (max-age > 0, no-store/no-cache yok, private ise yalnızca
+ * kullanıcıya göre anahtarlanan route'larda) yanıt sınırlı bir bellek deposunda saklanır ve süresi
+ * dolana kadar downstream'e gidilmeden cevaplanır. no-cache yanıtlar her seferinde downstream'de
+ * doğrulanır ama istemciye yine 304 dönebilir.
+ *
+ * <pre>
+ * - name: ConditionalResponseCache
+ *   args:
+ *     paths: "/users/models/available,/users/{userId}/preferences"
+ *     key-headers: "X-User-Id"
+ * </pre>
+ *
+ * Aynı kullanıcı anahtarıyla gelen GET dışı istekler, o kullanıcının route'taki kayıtlarını bu pod'da geçersiz kılar:
+ * (route, kapsam) başına bir nesil numarası artırılır, eski nesil kayıtları bir daha okunmaz ve süreleri ya da
+ * ağırlık sınırıyla düşer. Vary ile anahtar başlıkları dışındaki bir istek başlığına göre değişen yanıtlar saklanmaz.
+ */
+@Slf4j
+@Component
+public class ConditionalResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ConditionalResponseCacheGatewayFilterFactory.Config> {
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*(s-maxage|max-age)\\s*=\\s*\"?(\\d+)");
+    private static final List<String> STORED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.CONTENT_LANGUAGE, HttpHeaders.LAST_MODIFIED, HttpHeaders.VARY);
+    // Kimliksiz yanıtlar her istemci için geçerlidir; Content-Encoding'li yanıtlar zaten saklanmaz
+    private static final Set<String> VARY_SAFE = Set.of(HttpHeaders.ACCEPT_ENCODING.toLowerCase(Locale.ROOT));
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 desteklenmiyor", e);
+        }
+    });
+
+    private final MeterRegistry meterRegistry;
+    private final long maxEntryBytes;
+    private final Cache<CacheKey, CachedResponse> store;
+    // (route, kapsam) → nesil; kayıt düşerse global sayacın o anki değeriyle yeniden başlar, bu değer daha önce
+    // geçersiz kılınmış hiçbir nesle eşit olamaz
+    private final Cache<String, Long> generations;
+    private final AtomicLong generationCounter = new AtomicLong();
+
+    public ConditionalResponseCacheGatewayFilterFactory(
+            MeterRegistry meterRegistry,
+            @Value("${gateway.response-cache.max-size:64MB}") DataSize maxSize,
+            @Value("${gateway.response-cache.max-entry-size:512KB}") DataSize maxEntrySize,
+            @Value("${gateway.response-cache.max-scopes:100000}") long maxGenerations) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.store = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((CacheKey key, CachedResponse value) -> value.body().length + key.weight())
+                .expireAfter(new Expiry<CacheKey, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(CacheKey key, CachedResponse value, long currentTime) {
+                        return Math.max(0, value.expiresAtNanos() - System.nanoTime());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(CacheKey key, CachedResponse value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(CacheKey key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.generations = Caffeine.newBuilder()
+                .maximumSize(maxGenerations)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+        Gauge.builder("gateway.response-cache.entries", store, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "response-cache";
+        List<PathPattern> patterns = config.getPaths().stream()
+                .filter(path -> !path.isBlank())
+                .map(path -> PathPatternParser.defaultInstance.parse(path.trim()))
+                .toList();
+        List<String> keyHeaders = config.getKeyHeaders().stream()
+                .map(String::trim)
+                .filter(header -> !header.isEmpty())
+                .toList();
+
+        // Yanıt dekoratörü, yanıtı yazan NettyWriteResponseFilter'dan önce zincire girmeli
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            // Anahtar başlıklarının hiçbiri yoksa (ör. anonim istek) yanıt ortak sayılır; private yanıtlar saklanmaz
+            String scope = Objects.requireNonNullElse(RequestScope.of(exchange, keyHeaders), "");
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                if (!HttpMethod.HEAD.equals(request.getMethod()) && !HttpMethod.OPTIONS.equals(request.getMethod())
+                        && !scope.isEmpty()) {
+                    invalidate(routeId, scope);
+                }
+                return chain.filter(exchange);
+            }
+            if (!matches(request.getPath().pathWithinApplication(), patterns)) {
+                return chain.filter(exchange);
+            }
+
+            CacheKey key = new CacheKey(routeId, scope, generation(routeId, scope),
+                    request.getURI().getRawPath(), request.getURI().getRawQuery());
+            String ifNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            CachedResponse cached = store.getIfPresent(key);
+            if (cached != null) {
+                return serveCached(exchange, routeId, cached, ifNoneMatch);
+            }
+            ServerHttpResponse response = exchange.getResponse();
+            CachingResponse decorated = new CachingResponse(response, routeId, key, ifNoneMatch,
+                    !scope.isEmpty(), keyHeaders, config.getDefaultTtl(), config.getMaxTtl());
+            return chain.filter(exchange.mutate().response(decorated).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> serveCached(ServerWebExchange exchange, String routeId, CachedResponse cached, String ifNoneMatch) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().addAll(cached.headers());
+        response.getHeaders().setETag(cached.etag());
+        response.getHeaders().set(HttpHeaders.AGE,
+                String.valueOf(Duration.ofNanos(System.nanoTime() - cached.storedAtNanos()).toSeconds()));
+        // Önbellekten dönen yanıt downstream'e hiç gitmez; 304'te gövde de gönderilmez
+        if (etagMatches(ifNoneMatch, cached.etag())) {
+            record(routeId, "not_modified", cached.body().length, cached.body().length);
+            return notModified(response);
+        }
+        record(routeId, "hit", 0, cached.body().length);
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private long generation(String routeId, String scope) {
+        return generations.get(routeId + '|' + scope, ignored -> generationCounter.get());
+    }
+
+    private void invalidate(String routeId, String scope) {
+        generations.put(routeId + '|' + scope, generationCounter.incrementAndGet());
+    }
+
+    /**
+     * clientBytes: istemciye gönderilmeyen gövde, downstreamBytes: downstream'den hiç istenmeyen gövde
+     */
+    private void record(String routeId, String result, long clientBytes, long downstreamBytes) {
+        meterRegistry.counter("gateway.response-cache.requests", "route", routeId, "result", result).increment();
+        if (clientBytes > 0) {
+            meterRegistry.counter("gateway.response-cache.bytes.saved", "route", routeId, "side", "client").increment(clientBytes);
+        }
+        if (downstreamBytes > 0) {
+            meterRegistry.counter("gateway.response-cache.bytes.saved", "route", routeId, "side", "downstream").increment(downstreamBytes);
+        }
+    }
+
+    private static Mono<Void> notModified(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.NOT_MODIFIED);
+        HttpHeaders headers = response.getHeaders();
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        headers.remove(HttpHeaders.CONTENT_TYPE);
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        return response.setComplete();
+    }
+
+    private static boolean matches(PathContainer path, List<PathPattern> patterns) {
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-None-Match için zayıf karşılaştırma (RFC 9110 13.1.2): W/ öneki yok sayılır, "*" her şeyle eşleşir
+     */
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String target = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || stripWeak(trimmed).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    static String strongEtag(byte[] body) {
+        byte[] digest = SHA256.get().digest(body);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+    }
+
+    /**
+     * Downstream Cache-Control'e göre saklama süresi; saklanmaması gerekiyorsa sıfır
+     */
+    static Duration storableTtl(String cacheControl, boolean keyedPerUser, Duration defaultTtl, Duration maxTtl) {
+        if (cacheControl == null || cacheControl.isBlank()) {
+            return min(defaultTtl, maxTtl);
+        }
+        String directives = cacheControl.toLowerCase(Locale.ROOT);
+        if (directives.contains("no-store") || directives.contains("no-cache")
+                || (directives.contains("private") && !keyedPerUser)) {
+            return Duration.ZERO;
+        }
+        long seconds = -1;
+        Matcher matcher = MAX_AGE.matcher(directives);
+        while (matcher.find()) {
+            long value = Long.parseLong(matcher.group(2));
+            // Paylaşılan önbellek olarak s-maxage önceliklidir
+            if ("s-maxage".equals(matcher.group(1)) || seconds < 0) {
+                seconds = value;
+            }
+        }
+        return seconds < 0 ? min(defaultTtl, maxTtl) : min(Duration.ofSeconds(seconds), maxTtl);
+    }
+
+    /**
+     * Yanıt yalnızca anahtar başlıklarına (ve kimliksiz gövde için Accept-Encoding'e) göre değişiyorsa saklanabilir;
+     * Vary: * ya da başka bir istek başlığı aynı anahtarda farklı yanıtlar demektir
+     */
+    static boolean varyCoveredByKey(List<String> vary, List<String> keyHeaders) {
+        if (vary == null) {
+            return true;
+        }
+        for (String value : vary) {
+            for (String name : value.split(",")) {
+                String header = name.trim().toLowerCase(Locale.ROOT);
+                if (header.isEmpty() || VARY_SAFE.contains(header)) {
+                    continue;
+                }
+                if (keyHeaders.stream().noneMatch(key -> key.equalsIgnoreCase(header))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * Downstream yanıtını toplar, ETag ekler, uygunsa saklar ve If-None-Match eşleşirse 304'e çevirir
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+        private final String routeId;
+        private final CacheKey key;
+        private final String ifNoneMatch;
+        private final boolean keyedPerUser;
+        private final List<String> keyHeaders;
+        private final Duration defaultTtl;
+        private final Duration maxTtl;
+
+        CachingResponse(ServerHttpResponse delegate, String routeId, CacheKey key, String ifNoneMatch,
+                        boolean keyedPerUser, List<String> keyHeaders, Duration defaultTtl, Duration maxTtl) {
+            super(delegate);
+            this.routeId = routeId;
+            this.key = key;
+            this.ifNoneMatch = ifNoneMatch;
+            this.keyedPerUser = keyedPerUser;
+            this.keyHeaders = keyHeaders;
+            this.defaultTtl = defaultTtl;
+            this.maxTtl = maxTtl;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            long contentLength = headers.getContentLength();
+            if (!HttpStatus.OK.equals(getStatusCode())
+                    || headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                    || MediaType.TEXT_EVENT_STREAM.isCompatibleWith(headers.getContentType())
+                    || contentLength > maxEntryBytes) {
+                record(routeId, "bypass", 0, 0);
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+
+                String etag = headers.getETag();
+                if (etag == null) {
+                    etag = strongEtag(bytes);
+                    headers.setETag(etag);
+                }
+                store(etag, bytes);
+                if (etagMatches(ifNoneMatch, etag)) {
+                    record(routeId, "revalidated", bytes.length, 0);
+                    return notModified(getDelegate());
+                }
+                record(routeId, "miss", 0, 0);
+                headers.setContentLength(bytes.length);
+                return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        private void store(String etag, byte[] bytes) {
+            if (bytes.length > maxEntryBytes) {
+                return;
+            }
+            HttpHeaders headers = getHeaders();
+            if (!varyCoveredByKey(headers.get(HttpHeaders.VARY), keyHeaders)) {
+                return;
+            }
+            Duration ttl = storableTtl(headers.getCacheControl(), keyedPerUser, defaultTtl, maxTtl);
+            if (ttl.isZero() || ttl.isNegative()) {
+                return;
+            }
+            HttpHeaders stored = new HttpHeaders();
+            for (String name : STORED_HEADERS) {
+                List<String> values = headers.get(name);
+                if (values != null) {
+                    stored.put(name, List.copyOf(values));
+                }
+            }
+            long now = System.nanoTime();
+            store.put(key, new CachedResponse(etag, HttpHeaders.readOnlyHttpHeaders(stored), bytes, now, now + ttl.toNanos()));
+        }
+    }
+
+    record CacheKey(String routeId, String scope, long generation, String path, String query) {
+        int weight() {
+            return 72 + routeId.length() + scope.length() + path.length() + (query != null ? query.length() : 0);
+        }
+    }
+
+    record CachedResponse(String etag, HttpHeaders headers, byte[] body, long storedAtNanos, long expiresAtNanos) {
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private String routeId;
+        private List<String> paths = new ArrayList<>();
+        // Kullanıcıya/tenant'a özgü yanıtlar için anahtara eklenen istek başlıkları; boşsa yanıt herkese ortaktır
+        private List<String> keyHeaders = new ArrayList<>(List.of("X-User-Id"));
+        // Downstream Cache-Control göndermezse saklama süresi (0: saklanmaz, yalnızca ETag/304)
+        private Duration defaultTtl = Duration.ZERO;
+        private Duration maxTtl = Duration.ofMinutes(10);
+    }
+}
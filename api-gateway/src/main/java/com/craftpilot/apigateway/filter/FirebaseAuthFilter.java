@@ -1,9 +1,7 @@
 package com.craftpilot.apigateway.filter;
 
 import com.craftpilot.apigateway.cache.UserPreferenceCache;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
+import com.craftpilot.apigateway.security.FirebaseTokenVerifier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -15,19 +13,24 @@ import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FirebaseAuthFilter implements WebFilter {
+    public static final String USER_ID_HEADER = "X-User-Id";
+    // Doğrulanmış kullanıcı id'si; yanıt paylaşan filtreler kapsamı istemci başlığından değil buradan alır
+    public static final String VERIFIED_USER_ID_ATTR = FirebaseAuthFilter.class.getName() + ".verifiedUserId";
+    private static final String PROCESSED_ATTR = FirebaseAuthFilter.class.getName() + ".processed";
+    // Yalnızca gateway'in doğrulamadan sonra yazdığı kimlik başlıkları; istemciden gelenler kenarda silinir
+    private static final List<String> IDENTITY_HEADERS = List.of(USER_ID_HEADER, "X-User-Email", "X-User-Role",
+            "X-User-Language", "X-Auth-Processed", "X-Firebase-Verified");
 
-    private final FirebaseAuth firebaseAuth;
+    private final FirebaseTokenVerifier tokenVerifier;
     private final UserPreferenceCache userPreferenceCache;
     
     private static final String BEARER_PREFIX = "Bearer ";
@@ -43,10 +46,12 @@ public class FirebaseAuthFilter implements WebFilter {
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         String path = exchange.getRequest().getPath().value();
         
-        // Filter'ın tek sefer çalışmasını sağlamak için özel bir header ekleyip kontrol ediyoruz
-        if (exchange.getRequest().getHeaders().containsKey("X-Auth-Processed")) {
+        // Filtre hem güvenlik zincirinde hem WebFilter olarak kayıtlı; tek sefer çalışması exchange özniteliğiyle
+        // sağlanır, istemcinin gönderebileceği bir başlıkla değil
+        if (exchange.getAttributes().putIfAbsent(PROCESSED_ATTR, Boolean.TRUE) != null) {
             return chain.filter(exchange);
         }
+        exchange = withoutIdentityHeaders(exchange);
         
         log.debug("Processing request for path: {}", path);
         
@@ -66,6 +71,18 @@ public class FirebaseAuthFilter implements WebFilter {
         return validateTokenAndAddHeaders(token, exchange, chain);
     }
 
+    private static ServerWebExchange withoutIdentityHeaders(ServerWebExchange exchange) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        if (IDENTITY_HEADERS.stream().noneMatch(headers::containsKey)) {
+            return exchange;
+        }
+        log.debug("İstemcinin gönderdiği kimlik başlıkları silindi: {}", exchange.getRequest().getPath());
+        ServerHttpRequest stripped = exchange.getRequest().mutate()
+            .headers(mutable -> IDENTITY_HEADERS.forEach(mutable::remove))
+            .build();
+        return exchange.mutate().request(stripped).build();
+    }
+
     // Mevcut yardımcı metodlar...
     private boolean isPublicPath(String path) {
         return PUBLIC_PATHS.stream().anyMatch(path::startsWith);
@@ -85,15 +102,8 @@ public class FirebaseAuthFilter implements WebFilter {
     }
 
     private Mono<Void> validateTokenAndAddHeaders(String token, ServerWebExchange exchange, WebFilterChain chain) {
-        return Mono.fromCallable(() -> {
-            try {
-                return firebaseAuth.verifyIdToken(token);
-            } catch (FirebaseAuthException e) {
-                log.error("Token doğrulama hatası: {}", e.getMessage());
-                throw new RuntimeException("Token doğrulama hatası: " + e.getMessage());
-            }
-        })
-        .subscribeOn(Schedulers.boundedElastic())
+        // Önbellek isabetinde doğrulama event loop'ta, bloklamadan tamamlanır
+        return tokenVerifier.verify(token)
         .flatMap(decodedToken -> {
             if (decodedToken != null) {
                 String userId = decodedToken.getUid();
@@ -107,13 +117,16 @@ public class FirebaseAuthFilter implements WebFilter {
                         
                         // Yeni bir request oluştur ve header'ları ekle
                         ServerHttpRequest mutatedRequest = exchange.getRequest().mutate()
-                            .header("X-User-Id", userId)
-                            .header("X-User-Email", decodedToken.getEmail() != null ? decodedToken.getEmail() : "")
-                            .header("X-User-Role", extractUserRole(decodedToken.getClaims()))
-                            .header("X-User-Language", language) // Önbellekten alınan dil tercihini ekle
-                            .header("X-Auth-Processed", "true")
-                            .header(HttpHeaders.AUTHORIZATION, originalAuth)
+                            .headers(headers -> {
+                                headers.set(USER_ID_HEADER, userId);
+                                headers.set("X-User-Email", decodedToken.getEmail());
+                                headers.set("X-User-Role", decodedToken.getRole());
+                                headers.set("X-User-Language", language); // Önbellekten alınan dil tercihini ekle
+                                headers.set("X-Auth-Processed", "true");
+                                headers.set(HttpHeaders.AUTHORIZATION, originalAuth);
+                            })
                             .build();
+                        exchange.getAttributes().put(VERIFIED_USER_ID_ATTR, userId);
                         
                         // Response header'larına CSRF token ve diğer bilgileri ekle
                         exchange.getResponse().getHeaders().add("X-CSRF-TOKEN", generateCsrfToken());
@@ -131,11 +144,6 @@ public class FirebaseAuthFilter implements WebFilter {
         });
     }
 
-    private String extractUserRole(Map<String, Object> claims) {
-        Object roleObj = claims.get("role");
-        return roleObj != null ? roleObj.toString() : "USER";
-    }
-
     private Mono<Void> handleError(ServerWebExchange exchange, HttpStatus status, String message) {
         ServerHttpResponse response = exchange.getResponse();
         response.setStatusCode(status);
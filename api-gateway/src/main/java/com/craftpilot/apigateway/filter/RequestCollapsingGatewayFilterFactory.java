@@ -0,0 +1,290 @@
+package com.craftpilot.apigateway.filter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aynı GET isteği (path, query, kullanıcı anahtarı, Accept/Accept-Encoding) zaten downstream'deyken
+ * gelen kopyalar yeni istek açmaz; ilk isteğin ("lider") yanıtı bittiğinde status, başlıklar ve gövde
+ * onlara tekrar oynatılır. Lider yanıtı istemcisine hiç beklemeden akar, yalnızca bir kopyası tutulur.
+ * Yanıt 2xx değilse, stream ise, max-body-size'ı ya da pod genelindeki max-buffered sınırını aşarsa
+ * ya da lider iptal edilirse bekleyenler kendi isteklerini downstream'e gönderir.
+ *
+ * <pre>
+ * - name: RequestCollapsing
+ *   args:
+ *     paths: "/users/models/available,/users/{userId}/preferences"
+ *     key-headers: "X-User-Id"
+ *     max-body-size: 256KB
+ * </pre>
+ *
+ * Aynı route'ta ConditionalResponseCache varsa ondan sonra tanımlanmalıdır; böylece birleştirme
+ * downstream yanıtı üzerinde yapılır ve her istemcinin If-None-Match'i ayrı değerlendirilir.
+ */
+@Slf4j
+@Component
+public class RequestCollapsingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCollapsingGatewayFilterFactory.Config> {
+    // İsteğe ya da gateway'e özgü başlıklar tekrar oynatılmaz
+    private static final Set<String> NOT_REPLAYED = Set.of(HttpHeaders.CONTENT_LENGTH.toLowerCase(),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(), HttpHeaders.SET_COOKIE.toLowerCase(),
+            HttpHeaders.CONNECTION.toLowerCase(), "x-csrf-token");
+
+    private final MeterRegistry meterRegistry;
+    private final long maxBufferedBytes;
+    private final Map<FlightKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    public RequestCollapsingGatewayFilterFactory(
+            MeterRegistry meterRegistry,
+            @Value("${gateway.request-collapsing.max-buffered:32MB}") DataSize maxBuffered) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.maxBufferedBytes = maxBuffered.toBytes();
+        Gauge.builder("gateway.request-collapsing.in-flight", inFlight, Map::size).register(meterRegistry);
+        Gauge.builder("gateway.request-collapsing.buffered.bytes", bufferedBytes, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "request-collapsing";
+        List<PathPattern> patterns = config.getPaths().stream()
+                .filter(path -> !path.isBlank())
+                .map(path -> PathPatternParser.defaultInstance.parse(path.trim()))
+                .toList();
+        List<String> keyHeaders = config.getKeyHeaders().stream()
+                .map(String::trim)
+                .filter(header -> !header.isEmpty())
+                .toList();
+        long maxBodyBytes = config.getMaxBodySize().toBytes();
+
+        // Lider yanıt dekoratörü, yanıtı yazan NettyWriteResponseFilter'dan önce zincire girmeli
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!HttpMethod.GET.equals(request.getMethod())
+                    || !matches(request.getPath().pathWithinApplication(), patterns)) {
+                return chain.filter(exchange);
+            }
+            String scope = RequestScope.of(exchange, keyHeaders);
+            if (scope == null) {
+                // Kullanıcı anahtarı olmayan istekler başkasının yanıtını almasın
+                record(routeId, "bypass");
+                return chain.filter(exchange);
+            }
+
+            HttpHeaders headers = request.getHeaders();
+            FlightKey key = new FlightKey(routeId, scope, request.getURI().getRawPath(), request.getURI().getRawQuery(),
+                    headers.getFirst(HttpHeaders.ACCEPT), headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+            Flight flight = new Flight();
+            Flight leader = inFlight.putIfAbsent(key, flight);
+            if (leader != null) {
+                return leader.result.asMono().flatMap(snapshot -> {
+                    if (snapshot.isPresent()) {
+                        record(routeId, "collapsed");
+                        return replay(exchange, snapshot.get());
+                    }
+                    record(routeId, "fallback");
+                    return chain.filter(exchange);
+                });
+            }
+
+            record(routeId, "leader");
+            RecordingResponse response = new RecordingResponse(exchange.getResponse(), key, flight, maxBodyBytes);
+            return chain.filter(exchange.mutate().response(response).build())
+                    // Yanıt yazılmadan biten, hata veren ya da iptal edilen liderde bekleyenler kendi isteğini yapar
+                    .doFinally(signal -> response.abandon());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> replay(ServerWebExchange exchange, Snapshot snapshot) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(snapshot.status());
+        HttpHeaders target = response.getHeaders();
+        snapshot.headers().forEach((name, values) -> {
+            if (!target.containsKey(name)) {
+                target.put(name, values);
+            }
+        });
+        target.setContentLength(snapshot.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(snapshot.body())));
+    }
+
+    private void record(String routeId, String result) {
+        meterRegistry.counter("gateway.request-collapsing.requests", "route", routeId, "result", result).increment();
+    }
+
+    private static boolean matches(PathContainer path, List<PathPattern> patterns) {
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        for (PathPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Liderin yanıtını istemcisine olduğu gibi iletirken bir kopyasını tutar; bitince bekleyenlere yayınlar
+     */
+    private final class RecordingResponse extends ServerHttpResponseDecorator {
+        private final FlightKey key;
+        private final Flight flight;
+        private final long maxBodyBytes;
+        private ByteArrayOutputStream copy;
+        private long reserved;
+        // Yazma başladığındaki durum; arada bir dış dekoratör (ör. ConditionalResponseCache'in 304'ü) değiştirirse
+        // yanıt bu istemciye özgüdür ve paylaşılmaz
+        private HttpStatusCode status;
+
+        RecordingResponse(ServerHttpResponse delegate, FlightKey key, Flight flight, long maxBodyBytes) {
+            super(delegate);
+            this.key = key;
+            this.flight = flight;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            status = getStatusCode();
+            long contentLength = getHeaders().getContentLength();
+            if (status == null || !status.is2xxSuccessful() || status.value() == 206 || contentLength > maxBodyBytes) {
+                abandon();
+                return super.writeWith(body);
+            }
+            copy = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 1024);
+            Flux<DataBuffer> recorded = Flux.from(body).map(buffer -> {
+                append(buffer);
+                return buffer;
+            });
+            return super.writeWith(recorded).doOnSuccess(v -> publish());
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            // Stream yanıtları paylaşılmaz
+            abandon();
+            return super.writeAndFlushWith(body);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            status = getStatusCode();
+            if (copy == null && status != null && status.is2xxSuccessful()) {
+                copy = new ByteArrayOutputStream(0);
+                return super.setComplete().doOnSuccess(v -> publish());
+            }
+            return super.setComplete();
+        }
+
+        private void append(DataBuffer buffer) {
+            if (copy == null) {
+                return;
+            }
+            int length = buffer.readableByteCount();
+            if (copy.size() + length > maxBodyBytes || bufferedBytes.addAndGet(length) > maxBufferedBytes) {
+                bufferedBytes.addAndGet(-length);
+                abandon();
+                return;
+            }
+            reserved += length;
+            byte[] bytes = new byte[length];
+            int position = buffer.readPosition();
+            buffer.read(bytes);
+            buffer.readPosition(position);
+            copy.writeBytes(bytes);
+        }
+
+        private void publish() {
+            if (copy == null) {
+                return;
+            }
+            if (!status.equals(getStatusCode())) {
+                abandon();
+                return;
+            }
+            Snapshot snapshot = new Snapshot(status, HttpHeaders.readOnlyHttpHeaders(replayable(getHeaders())),
+                    copy.toByteArray());
+            release();
+            flight.result.tryEmitValue(Optional.of(snapshot));
+        }
+
+        void abandon() {
+            release();
+            flight.result.tryEmitValue(Optional.empty());
+        }
+
+        private void release() {
+            copy = null;
+            bufferedBytes.addAndGet(-reserved);
+            reserved = 0;
+            // Yeni gelenler artık yeni bir lider başlatır
+            inFlight.remove(key, flight);
+        }
+
+        private HttpHeaders replayable(HttpHeaders headers) {
+            HttpHeaders replayable = new HttpHeaders();
+            headers.forEach((name, values) -> {
+                if (!NOT_REPLAYED.contains(name.toLowerCase()) && !name.regionMatches(true, 0, "Access-Control-", 0, 15)) {
+                    replayable.put(name, List.copyOf(values));
+                }
+            });
+            return replayable;
+        }
+    }
+
+    private static final class Flight {
+        private final Sinks.One<Optional<Snapshot>> result = Sinks.one();
+    }
+
+    record FlightKey(String routeId, String scope, String path, String query, String accept, String acceptEncoding) {
+    }
+
+    record Snapshot(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private String routeId;
+        // Boşsa route'taki tüm GET'ler birleştirilebilir
+        private List<String> paths = new ArrayList<>();
+        // Yanıtı kullanıcıya özgü kılan istek başlıkları; biri bile yoksa istek birleştirilmez
+        private List<String> keyHeaders = new ArrayList<>(List.of("X-User-Id"));
+        private DataSize maxBodySize = DataSize.ofKilobytes(256);
+    }
+}
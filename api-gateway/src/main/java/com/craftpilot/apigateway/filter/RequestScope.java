@@ -0,0 +1,34 @@
+package com.craftpilot.apigateway.filter;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
+
+/**
+ * Yanıt paylaşan filtrelerin (önbellek, istek birleştirme) kullanıcı kapsamı. X-User-Id istemci başlığından değil,
+ * FirebaseAuthFilter'ın doğruladığı kullanıcıdan alınır; diğer anahtar başlıkları istekten okunur.
+ */
+final class RequestScope {
+
+    private RequestScope() {
+    }
+
+    /**
+     * Anahtar başlığı tanımlanmamışsa yanıt herkese ortaktır (""); tanımlı başlıkların hiçbiri yoksa null
+     */
+    static String of(ServerWebExchange exchange, List<String> keyHeaders) {
+        if (keyHeaders.isEmpty()) {
+            return "";
+        }
+        StringBuilder scope = new StringBuilder();
+        boolean present = false;
+        for (String header : keyHeaders) {
+            String value = FirebaseAuthFilter.USER_ID_HEADER.equalsIgnoreCase(header)
+                    ? exchange.getAttribute(FirebaseAuthFilter.VERIFIED_USER_ID_ATTR)
+                    : exchange.getRequest().getHeaders().getFirst(header);
+            present |= value != null && !value.isEmpty();
+            scope.append(value != null ? value : "").append('|');
+        }
+        return present ? scope.toString() : null;
+    }
+}
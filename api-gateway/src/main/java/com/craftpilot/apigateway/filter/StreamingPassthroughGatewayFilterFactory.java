@@ -0,0 +1,129 @@
+package com.craftpilot.apigateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SSE/stream route'ları için tamponsuz geçiş. Upstream'den gelen her DataBuffer ayrı bir grup olarak
+ * yazılıp hemen flush edilir (içerik tipi ne olursa olsun), gövde yeniden yazılmaz. Upstream'e
+ * Accept-Encoding iletilmez, böylece servis stream'i sıkıştırıp parçaları biriktirmez; gateway tarafındaki
+ * sıkıştırma da X-Accel-Buffering: no işaretli yanıtlar için atlanır (bkz. GatewayConfig).
+ * İstemci bağlantıyı kapatınca iptal sinyali aynı zincirle upstream bağlantısına iletilir.
+ *
+ * Metrikler: gateway.stream.event.delay (parçanın gateway'e gelişi ile yazıcının onu alması arasındaki
+ * bekleme, yani gateway'in eklediği gecikme), gateway.stream.first-event (istekten ilk parçaya),
+ * gateway.stream.events, gateway.stream.cancelled.
+ */
+@Slf4j
+@Component
+public class StreamingPassthroughGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<StreamingPassthroughGatewayFilterFactory.Config> {
+    public static final String NO_BUFFERING_HEADER = "X-Accel-Buffering";
+
+    private final MeterRegistry meterRegistry;
+
+    public StreamingPassthroughGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "stream";
+        Timer eventDelay = Timer.builder("gateway.stream.event.delay")
+                .tag("route", routeId)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        Timer firstEvent = Timer.builder("gateway.stream.first-event")
+                .tag("route", routeId)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Counter events = meterRegistry.counter("gateway.stream.events", "route", routeId);
+        Counter cancelled = meterRegistry.counter("gateway.stream.cancelled", "route", routeId);
+
+        // Yanıt dekoratörü, yanıtı yazan NettyWriteResponseFilter'dan önce zincire girmeli
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest().mutate()
+                    .headers(headers -> headers.remove(HttpHeaders.ACCEPT_ENCODING))
+                    .build();
+            PassthroughResponse response = new PassthroughResponse(exchange.getResponse(), System.nanoTime(),
+                    eventDelay, firstEvent, events, cancelled);
+            return chain.filter(exchange.mutate().request(request).response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static final class PassthroughResponse extends ServerHttpResponseDecorator {
+        private final long startNanos;
+        private final Timer eventDelay;
+        private final Timer firstEvent;
+        private final Counter events;
+        private final Counter cancelled;
+        private final AtomicBoolean first = new AtomicBoolean(true);
+
+        PassthroughResponse(ServerHttpResponse delegate, long startNanos, Timer eventDelay, Timer firstEvent, Counter events,
+                            Counter cancelled) {
+            super(delegate);
+            this.startNanos = startNanos;
+            this.eventDelay = eventDelay;
+            this.firstEvent = firstEvent;
+            this.events = events;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            // Stream olarak işaretlenmemiş içerik tipleri de parça parça flush edilir
+            return writeAndFlushWith(Flux.from(body).map(Flux::just));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            HttpHeaders headers = getHeaders();
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            if (!headers.containsKey(HttpHeaders.CACHE_CONTROL)) {
+                headers.setCacheControl("no-cache");
+            }
+            // Önde nginx vb. bir proxy varsa onun da tamponlamaması için; gateway sıkıştırması da buna bakar
+            headers.set(NO_BUFFERING_HEADER, "no");
+
+            // Yazıcı bir sonraki grubu ancak önceki yazılıp flush edildikten sonra alır;
+            // geliş ile alınma arasındaki süre gateway'de bekleme süresidir
+            Flux<Publisher<? extends DataBuffer>> timed = Flux.from(body).<Publisher<? extends DataBuffer>>map(group -> {
+                long arrived = System.nanoTime();
+                if (first.compareAndSet(true, false)) {
+                    firstEvent.record(arrived - startNanos, TimeUnit.NANOSECONDS);
+                }
+                return Flux.from(group).doOnSubscribe(subscription -> {
+                    eventDelay.record(System.nanoTime() - arrived, TimeUnit.NANOSECONDS);
+                    events.increment();
+                });
+            }).doOnCancel(cancelled::increment); // istemci koptu, iptal upstream bağlantısına da iner
+            return super.writeAndFlushWith(timed);
+        }
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private String routeId;
+    }
+}
@@ -0,0 +1,174 @@
+package com.craftpilot.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gateway'in kendi gözlemlerinden servis örneği başına gecikme ve hata istatistikleri.
+ * Gecikme zamana bağlı EWMA ile tutulur (örnekler arası süre uzadıkça eski değerin ağırlığı azalır);
+ * art arda failure-threshold hata veren örnek ejection-cooldown boyunca seçilmez.
+ * Uzun süre örnek almayan (ör. yavaş olduğu için kaçınılan) örneğe ara sıra deneme isteği gönderilir,
+ * böylece toparlanan örnek tekrar trafik alır. Servis listesinden çıkan örneklerin istatistikleri silinir;
+ * gözlemler yalnızca requestStarted ile açılan kayda yazılır, silinen örnek geç gelen gözlemle geri eklenmez.
+ */
+@Slf4j
+@Component
+public class InstanceStatsRegistry {
+    private final MeterRegistry meterRegistry;
+    private final double decayNanos;
+    private final int failureThreshold;
+    private final long ejectionCooldownNanos;
+    private final long probeAfterNanos;
+    private final double unsampledLatencyNanos;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    public InstanceStatsRegistry(
+            MeterRegistry meterRegistry,
+            @Value("${gateway.load-balancer.ewma-decay:10s}") Duration decay,
+            @Value("${gateway.load-balancer.failure-threshold:3}") int failureThreshold,
+            @Value("${gateway.load-balancer.ejection-cooldown:30s}") Duration ejectionCooldown,
+            @Value("${gateway.load-balancer.probe-after:10s}") Duration probeAfter,
+            @Value("${gateway.load-balancer.unsampled-latency:1s}") Duration unsampledLatency) {
+        this.meterRegistry = meterRegistry;
+        this.decayNanos = decay.toNanos();
+        this.failureThreshold = failureThreshold;
+        this.ejectionCooldownNanos = ejectionCooldown.toNanos();
+        this.probeAfterNanos = probeAfter.toNanos();
+        this.unsampledLatencyNanos = unsampledLatency.toNanos();
+    }
+
+    /**
+     * Henüz ölçülmemiş örneklerin varsayılan gecikmesi: adaylardan ölçülmüş olanların ortalama EWMA'sı,
+     * hiçbiri ölçülmemişse unsampled-latency
+     */
+    public double unsampledLatency(List<ServiceInstance> candidates) {
+        double total = 0;
+        int sampled = 0;
+        for (ServiceInstance candidate : candidates) {
+            InstanceStats instanceStats = stats.get(keyOf(candidate));
+            if (instanceStats != null && instanceStats.sampled) {
+                total += instanceStats.ewmaNanos;
+                sampled++;
+            }
+        }
+        return sampled == 0 ? unsampledLatencyNanos : total / sampled;
+    }
+
+    /**
+     * Seçim maliyeti: EWMA gecikme x (bekleyen istek + 1). Henüz ölçülmemiş örnek unsampledLatency ile aynı
+     * formülle değerlendirilir; ilk yanıtı takılan yeni örnek bekleyen isteği arttıkça pahalılaşır. Deneme
+     * zamanı gelmiş boştaki örnek sıfır maliyetlidir.
+     */
+    public double cost(ServiceInstance instance, double unsampledLatency, long now) {
+        InstanceStats instanceStats = stats.get(keyOf(instance));
+        if (instanceStats == null) {
+            return unsampledLatency;
+        }
+        int inFlight = instanceStats.inFlight.get();
+        if (!instanceStats.sampled) {
+            return unsampledLatency * (inFlight + 1);
+        }
+        if (inFlight == 0 && now - instanceStats.lastSampleNanos > probeAfterNanos) {
+            return 0;
+        }
+        return instanceStats.ewmaNanos * (inFlight + 1);
+    }
+
+    public boolean isEjected(ServiceInstance instance, long now) {
+        InstanceStats instanceStats = stats.get(keyOf(instance));
+        return instanceStats != null && now < instanceStats.ejectedUntilNanos;
+    }
+
+    public void requestStarted(ServiceInstance instance) {
+        statsOf(instance).inFlight.incrementAndGet();
+    }
+
+    public void requestFinished(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(keyOf(instance));
+        if (instanceStats != null) {
+            instanceStats.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Servisin güncel örnek listesinde olmayan örneklerin istatistiklerini siler
+     */
+    public void retain(String serviceId, List<ServiceInstance> instances) {
+        Set<String> current = new HashSet<>(instances.size() * 2);
+        for (ServiceInstance instance : instances) {
+            current.add(keyOf(instance));
+        }
+        String prefix = serviceId + "/";
+        stats.keySet().removeIf(key -> key.startsWith(prefix) && !current.contains(key));
+    }
+
+    /**
+     * İlk yanıt baytına kadar geçen süre; stream yanıtlarında toplam süre yerine bu kullanılır
+     */
+    public void recordLatency(ServiceInstance instance, long latencyNanos) {
+        InstanceStats instanceStats = stats.get(keyOf(instance));
+        if (instanceStats == null) {
+            return;
+        }
+        synchronized (instanceStats) {
+            long now = System.nanoTime();
+            if (!instanceStats.sampled) {
+                instanceStats.ewmaNanos = latencyNanos;
+                instanceStats.sampled = true;
+            } else {
+                double weight = Math.exp(-(now - instanceStats.lastSampleNanos) / decayNanos);
+                instanceStats.ewmaNanos = instanceStats.ewmaNanos * weight + latencyNanos * (1 - weight);
+            }
+            instanceStats.lastSampleNanos = now;
+        }
+    }
+
+    public void recordSuccess(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(keyOf(instance));
+        if (instanceStats != null) {
+            instanceStats.consecutiveFailures.set(0);
+        }
+    }
+
+    public void recordFailure(ServiceInstance instance) {
+        InstanceStats instanceStats = stats.get(keyOf(instance));
+        if (instanceStats == null) {
+            return;
+        }
+        if (instanceStats.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            instanceStats.consecutiveFailures.set(0);
+            instanceStats.ejectedUntilNanos = System.nanoTime() + ejectionCooldownNanos;
+            meterRegistry.counter("gateway.loadbalancer.ejections", "service", instance.getServiceId()).increment();
+            log.warn("{} örneği art arda {} hata verdi, {} ms devre dışı", keyOf(instance), failureThreshold,
+                    ejectionCooldownNanos / 1_000_000);
+        }
+    }
+
+    private InstanceStats statsOf(ServiceInstance instance) {
+        return stats.computeIfAbsent(keyOf(instance), key -> new InstanceStats());
+    }
+
+    private static String keyOf(ServiceInstance instance) {
+        return instance.getServiceId() + "/" + instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static final class InstanceStats {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile double ewmaNanos;
+        private volatile boolean sampled;
+        private volatile long lastSampleNanos;
+        private volatile long ejectedUntilNanos = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,83 @@
+package com.craftpilot.apigateway.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * İki rastgele seçimin iyisi (power of two choices): devre dışı olmayan örneklerden rastgele iki
+ * tanesi alınır ve maliyeti (EWMA gecikme x bekleyen istek) düşük olan seçilir; ölçülmemiş örnekler adayların
+ * ortalama gecikmesiyle değerlendirilir. Tüm örnekler devre dışıysa liste olduğu gibi kullanılır; hiç örnek
+ * bırakmamak, hatalı örneğe gitmekten daha kötüdür.
+ */
+@Slf4j
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final InstanceStatsRegistry stats;
+    // Liste sağlayıcısı yenilenene kadar aynı liste nesnesini döner; değişince kaybolan örnekler temizlenir
+    private volatile List<ServiceInstance> lastInstances;
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                    String serviceId, InstanceStatsRegistry stats) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::select);
+    }
+
+    Response<ServiceInstance> select(List<ServiceInstance> instances) {
+        if (instances != lastInstances) {
+            lastInstances = instances;
+            stats.retain(serviceId, instances);
+        }
+        if (instances.isEmpty()) {
+            log.warn("{} için kullanılabilir örnek yok", serviceId);
+            return new EmptyResponse();
+        }
+        long now = System.nanoTime();
+        List<ServiceInstance> candidates = instances;
+        if (instances.size() > 1) {
+            List<ServiceInstance> healthy = new ArrayList<>(instances.size());
+            for (ServiceInstance instance : instances) {
+                if (!stats.isEjected(instance, now)) {
+                    healthy.add(instance);
+                }
+            }
+            if (!healthy.isEmpty()) {
+                candidates = healthy;
+            }
+        }
+        if (candidates.size() == 1) {
+            return new DefaultResponse(candidates.get(0));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        double unsampledLatency = stats.unsampledLatency(candidates);
+        return new DefaultResponse(stats.cost(a, unsampledLatency, now) <= stats.cost(b, unsampledLatency, now) ? a : b);
+    }
+}
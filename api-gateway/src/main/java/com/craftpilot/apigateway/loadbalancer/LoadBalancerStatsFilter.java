@@ -0,0 +1,67 @@
+package com.craftpilot.apigateway.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Yük dengeleyicinin seçtiği örnek için gözlem toplar: bekleyen istek sayısı, ilk yanıt baytına kadar
+ * geçen süre (stream'lerde toplam süre yanıltıcı olurdu) ve 5xx/bağlantı hataları. LoadBalancerLifecycle
+ * yerine filtre kullanılır çünkü istemci iptalinde lifecycle onComplete çağrılmaz ve bekleyen sayaç sızardı.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoadBalancerStatsFilter implements GlobalFilter, Ordered {
+    private final InstanceStatsRegistry stats;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> lbResponse = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return chain.filter(exchange);
+        }
+        ServiceInstance instance = lbResponse.getServer();
+        long start = System.nanoTime();
+        AtomicBoolean observed = new AtomicBoolean();
+        stats.requestStarted(instance);
+        exchange.getResponse().beforeCommit(() -> {
+            if (observed.compareAndSet(false, true)) {
+                stats.recordLatency(instance, System.nanoTime() - start);
+            }
+            return Mono.empty();
+        });
+
+        return chain.filter(exchange)
+                .doOnSuccess(done -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is5xxServerError()) {
+                        stats.recordFailure(instance);
+                    } else {
+                        stats.recordSuccess(instance);
+                    }
+                })
+                .doOnError(e -> {
+                    // Bağlantı hatası/zaman aşımı: hata yanıtının yazılma süresi gecikme sayılmaz
+                    observed.set(true);
+                    stats.recordFailure(instance);
+                })
+                .doFinally(signal -> stats.requestFinished(instance));
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
@@ -0,0 +1,340 @@
+package com.craftpilot.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * İki seviyeli hız sınırlayıcı: her pod, global Redis kovasından küçük parçalar (lease) kiralar
+ * ve istekleri bu yerel bütçeden ağ çağrısı olmadan karşılar. Redis'e yalnızca yerel bütçe
+ * azaldığında (arka planda, önden) veya tükendiğinde gidilir.
+ * <p>
+ * Kiralanan her jeton global kovadan düşüldüğü için toplam kabul global limiti aşamaz; sapma,
+ * kiralanıp lease süresi içinde geç harcanan jetonlarla sınırlıdır (en fazla pod sayısı × lease boyutu).
+ * Redis erişilemezse pod, fallback süresince aynı limitle yalnızca yerel kova uygular.
+ */
+@Slf4j
+@Primary
+@Component
+public class HybridRateLimiter extends AbstractRateLimiter<HybridRateLimiter.Config> {
+    public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    private static final int MAX_LEASE_ATTEMPTS = 2;
+    private static final RedisScript<List> LEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/hybrid_rate_limiter.lua"), List.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Stripe[] stripes;
+    private final double leaseFraction;
+    private final double lowWatermark;
+    private final long leaseTtlNanos;
+    private final long fallbackNanos;
+    private final Duration redisTimeout;
+    private final Timer redisLatency;
+    private final Map<String, Counter> decisionCounters = new ConcurrentHashMap<>();
+
+    public HybridRateLimiter(
+            ReactiveStringRedisTemplate redisTemplate,
+            ConfigurationService configurationService,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.rate-limiter.stripes:64}") int stripeCount,
+            @Value("${gateway.rate-limiter.max-keys:100000}") int maxKeys,
+            @Value("${gateway.rate-limiter.lease-fraction:0.1}") double leaseFraction,
+            @Value("${gateway.rate-limiter.low-watermark:0.25}") double lowWatermark,
+            @Value("${gateway.rate-limiter.lease-ttl:1s}") Duration leaseTtl,
+            @Value("${gateway.rate-limiter.fallback-duration:5s}") Duration fallbackDuration,
+            @Value("${gateway.rate-limiter.redis-timeout:100ms}") Duration redisTimeout) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount))];
+        int keysPerStripe = Math.max(16, maxKeys / stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(keysPerStripe);
+        }
+        this.leaseFraction = leaseFraction;
+        this.lowWatermark = lowWatermark;
+        this.leaseTtlNanos = leaseTtl.toNanos();
+        this.fallbackNanos = fallbackDuration.toNanos();
+        this.redisTimeout = redisTimeout;
+
+        this.redisLatency = Timer.builder("gateway.ratelimit.redis.latency")
+                .description("Global kovadan lease alma süresi")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("gateway.ratelimit.keys", this, HybridRateLimiter::trackedKeys)
+                .description("Yerel olarak izlenen hız sınırı anahtarı sayısı")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = loadConfiguration(routeId);
+        return isAllowed(routeId, id, config, config.getRequestedTokens());
+    }
+
+    /**
+     * İsteği {@code requested} jeton maliyetiyle değerlendirir; ağırlıklı route'lar (bkz.
+     * WeightedRateLimiterGatewayFilterFactory) kendi yapılandırmalarıyla doğrudan çağırır.
+     */
+    public Mono<Response> isAllowed(String routeId, String id, Config config, int requested) {
+        return evaluate(routeId, routeId + ":" + id, config, requested, 0);
+    }
+
+    private Mono<Response> evaluate(String routeId, String key, Config config, int requested, int attempt) {
+        Stripe stripe = stripeFor(key);
+        long lease = leaseSize(config, requested);
+        long now = System.nanoTime();
+        String source = attempt == 0 ? "local" : "redis";
+
+        Mono<Void> pending;
+        synchronized (stripe) {
+            LocalBucket bucket = stripe.bucket(key);
+            if (bucket.fallbackUntil > now) {
+                bucket.refillLocally(now, config);
+                return Mono.just(decide(routeId, config, requested, bucket, bucket.tryConsume(requested), "fallback"));
+            }
+            if (now >= bucket.leaseExpiresAt) {
+                // Süresi geçmiş lease harcanmaz; aksi halde eski bütçe sınırı aşmaya yol açar
+                bucket.tokens = 0;
+            }
+            if (bucket.tryConsume(requested)) {
+                // Bütçe azaldığında veya lease sona yaklaştığında arka planda tamamlanır; istek beklemez
+                boolean low = bucket.tokens < lease * lowWatermark;
+                boolean expiring = now > bucket.leaseExpiresAt - leaseTtlNanos / 4 && bucket.tokens < lease;
+                if ((low || expiring) && bucket.pendingLease == null && now >= bucket.deniedUntil) {
+                    startLease(stripe, bucket, key, config, lease - (long) bucket.tokens).subscribe();
+                }
+                return Mono.just(decide(routeId, config, requested, bucket, true, source));
+            }
+            if (now < bucket.deniedUntil || attempt >= MAX_LEASE_ATTEMPTS) {
+                return Mono.just(decide(routeId, config, requested, bucket, false, source));
+            }
+            pending = bucket.pendingLease != null
+                    ? bucket.pendingLease
+                    : startLease(stripe, bucket, key, config, Math.max(lease, requested));
+        }
+
+        // Yerel bütçe tükendi: lease sonucunu bekleyip yeniden değerlendir. Aynı lease'i paylaşan
+        // istekler jetonları tükettiyse ve global kovada hâlâ yer varsa bir lease daha denenir.
+        return pending.then(Mono.defer(() -> evaluate(routeId, key, config, requested, attempt + 1)));
+    }
+
+    /**
+     * Aynı anahtar için tek bir lease isteği uçuşta olur; bekleyen istekler aynı sonucu paylaşır.
+     * Çağıran stripe kilidini tutuyor olmalıdır.
+     */
+    private Mono<Void> startLease(Stripe stripe, LocalBucket bucket, String key, Config config, long amount) {
+        long started = System.nanoTime();
+        Mono<Void> lease = acquireLease(key, config, amount)
+                .switchIfEmpty(Mono.error(new IllegalStateException("Lease betiği sonuç döndürmedi")))
+                .timeout(redisTimeout)
+                .doOnNext(result -> {
+                    redisLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    synchronized (stripe) {
+                        bucket.applyLease(result.get(0), amount, result.get(1), System.nanoTime(), leaseTtlNanos, config);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("Global hız sınırı alınamadı, {} yerel sınıra geçiliyor: {}", key, e.getMessage());
+                    meterRegistry.counter("gateway.ratelimit.redis.errors").increment();
+                    synchronized (stripe) {
+                        bucket.startFallback(System.nanoTime(), fallbackNanos, config);
+                    }
+                    return Mono.empty();
+                })
+                .then()
+                // Bekleyenler devam etmeden önce temizlenir ki yeniden değerlendirme yeni bir lease başlatabilsin
+                .doOnTerminate(() -> clearPending(stripe, bucket))
+                .doOnCancel(() -> clearPending(stripe, bucket))
+                .cache();
+        bucket.pendingLease = lease;
+        return lease;
+    }
+
+    private static void clearPending(Stripe stripe, LocalBucket bucket) {
+        synchronized (stripe) {
+            bucket.pendingLease = null;
+        }
+    }
+
+    /**
+     * Global kovadan en fazla {@code amount} jeton kiralar; [verilen, globalde kalan] döner.
+     */
+    @SuppressWarnings("unchecked")
+    protected Mono<List<Long>> acquireLease(String key, Config config, long amount) {
+        List<String> keys = List.of("hybrid_rate_limiter.{" + key + "}.tokens", "hybrid_rate_limiter.{" + key + "}.timestamp");
+        List<String> args = List.of(String.valueOf(config.getReplenishRate()), String.valueOf(config.getBurstCapacity()),
+                String.valueOf(amount));
+        return redisTemplate.execute(LEASE_SCRIPT, keys, args)
+                .next()
+                .map(result -> (List<Long>) result);
+    }
+
+    private Response decide(String routeId, Config config, int requested, LocalBucket bucket, boolean allowed, String source) {
+        String counterKey = routeId + '|' + allowed + '|' + source;
+        decisionCounters.computeIfAbsent(counterKey, k -> Counter.builder("gateway.ratelimit.decisions")
+                        .tag("route", routeId)
+                        .tag("result", allowed ? "allowed" : "denied")
+                        .tag("source", source)
+                        .register(meterRegistry))
+                .increment();
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put(REMAINING_HEADER, String.valueOf((long) bucket.tokens + bucket.globalRemaining));
+        headers.put(REPLENISH_RATE_HEADER, String.valueOf(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, String.valueOf(config.getBurstCapacity()));
+        headers.put(REQUESTED_TOKENS_HEADER, String.valueOf(requested));
+        if (!allowed) {
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(bucket.retryAfterSeconds(requested, config, System.nanoTime())));
+        }
+        return new Response(allowed, headers);
+    }
+
+    private Config loadConfiguration(String routeId) {
+        Config config = getConfig().getOrDefault(routeId, getConfig().get(RouteDefinitionRouteLocator.DEFAULT_FILTERS));
+        if (config == null) {
+            throw new IllegalArgumentException("No Configuration found for route " + routeId);
+        }
+        return config;
+    }
+
+    private long leaseSize(Config config, int requested) {
+        return Math.max(requested, (long) Math.ceil(config.getBurstCapacity() * leaseFraction));
+    }
+
+    private Stripe stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private double trackedKeys() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.size();
+            }
+        }
+        return total;
+    }
+
+    @Data
+    @Validated
+    public static class Config {
+        @Min(1)
+        private int replenishRate;
+
+        @Min(0)
+        private int burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+    }
+
+    /**
+     * LRU sınırlı anahtar → kova haritası; erişim stripe üzerinde senkronize edilir
+     */
+    private static final class Stripe extends LinkedHashMap<String, LocalBucket> {
+        private final int maxKeys;
+
+        Stripe(int maxKeys) {
+            super(64, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        LocalBucket bucket(String key) {
+            return computeIfAbsent(key, k -> new LocalBucket());
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LocalBucket> eldest) {
+            return size() > maxKeys && eldest.getValue().pendingLease == null;
+        }
+    }
+
+    private static final class LocalBucket {
+        private double tokens;
+        private long leaseExpiresAt;
+        private long deniedUntil;
+        private long globalRemaining;
+        private long fallbackUntil;
+        private long lastRefill;
+        private Mono<Void> pendingLease;
+
+        boolean tryConsume(int requested) {
+            if (tokens >= requested) {
+                tokens -= requested;
+                return true;
+            }
+            return false;
+        }
+
+        void applyLease(long granted, long requestedLease, long remaining, long now, long leaseTtlNanos, Config config) {
+            if (now >= leaseExpiresAt) {
+                tokens = 0;
+            }
+            tokens += granted;
+            globalRemaining = remaining;
+            // Lease en az bir jetonun yeniden dolma süresi kadar geçerli kalır
+            long refillNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, config.getReplenishRate());
+            leaseExpiresAt = now + Math.max(leaseTtlNanos, refillNanos * Math.max(1, granted));
+            if (granted < requestedLease) {
+                // Global kova azalmış: tam bir lease dolana kadar bu pod Redis'e gitmez,
+                // elindeki jetonlar bitince yerelde reddeder (aşırı yükte istek başına Redis çağrısını önler)
+                deniedUntil = now + refillNanos * (requestedLease - granted);
+            }
+        }
+
+        /**
+         * Eksik jetonların dolması ve varsa yerel red süresinin bitmesi için gereken süre (en az 1 sn)
+         */
+        long retryAfterSeconds(int requested, Config config, long now) {
+            double deficitSeconds = Math.max(0, requested - tokens) / Math.max(1, config.getReplenishRate());
+            double deniedSeconds = Math.max(0, deniedUntil - now) / 1e9;
+            return Math.max(1L, (long) Math.ceil(Math.max(deficitSeconds, deniedSeconds)));
+        }
+
+        void startFallback(long now, long fallbackNanos, Config config) {
+            if (fallbackUntil <= now) {
+                tokens = Math.max(tokens, config.getBurstCapacity());
+                lastRefill = now;
+            }
+            fallbackUntil = now + fallbackNanos;
+        }
+
+        void refillLocally(long now, Config config) {
+            double elapsedSeconds = (now - lastRefill) / 1e9;
+            tokens = Math.min(config.getBurstCapacity(), tokens + elapsedSeconds * config.getReplenishRate());
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.craftpilot.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Kullanıcı başına eşzamanlı stream sınırı (dağıtık semafor). İzinler Redis'te bir ZSET'te
+ * bitiş zamanlarıyla tutulur; serbest bırakılmayan izinler permit-ttl sonunda kendiliğinden düşer.
+ * Redis erişilemezse aynı sınır pod içinde yerel sayaçla uygulanır.
+ */
+@Slf4j
+@Component
+public class StreamConcurrencyLimiter {
+    private static final RedisScript<Long> ACQUIRE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/stream_semaphore_acquire.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration permitTtl;
+    private final Duration redisTimeout;
+    private final Map<String, Integer> localPermits = new ConcurrentHashMap<>();
+
+    public StreamConcurrencyLimiter(
+            ReactiveStringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.stream-limiter.permit-ttl:10m}") Duration permitTtl,
+            @Value("${gateway.stream-limiter.redis-timeout:100ms}") Duration redisTimeout) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.permitTtl = permitTtl;
+        this.redisTimeout = redisTimeout;
+    }
+
+    /**
+     * Boş yer varsa bir izin verir; sınır doluysa boş döner.
+     */
+    public Mono<Permit> tryAcquire(String key, int limit) {
+        String permitId = UUID.randomUUID().toString();
+        return acquireGlobal(semaphoreKey(key), limit, permitId)
+                .timeout(redisTimeout)
+                .filter(Boolean::booleanValue)
+                .map(acquired -> new Permit(key, permitId, false))
+                .onErrorResume(e -> {
+                    log.warn("Stream semaforu Redis'te alınamadı, {} için yerel sınır uygulanıyor: {}", key, e.getMessage());
+                    meterRegistry.counter("gateway.ratelimit.redis.errors").increment();
+                    // Zaman aşımında script Redis'te yine de çalışmış olabilir; izin TTL'e kadar yer tutmasın
+                    releaseGlobal(semaphoreKey(key), permitId)
+                            .onErrorResume(cleanupError -> Mono.empty())
+                            .subscribe();
+                    return acquireLocal(key, limit, permitId);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    meterRegistry.counter("gateway.ratelimit.streams.rejected").increment();
+                    return Mono.empty();
+                }));
+    }
+
+    /**
+     * İzni bırakır; her izin için bir kez çağrılmalıdır.
+     */
+    public Mono<Void> release(Permit permit) {
+        if (permit.local()) {
+            // Sayaç okuma-azaltma-silme tek adımda yapılır; araya giren acquireLocal silinmiş sayacı artıramaz
+            localPermits.computeIfPresent(permit.key(), (key, count) -> count <= 1 ? null : count - 1);
+            return Mono.empty();
+        }
+        return releaseGlobal(semaphoreKey(permit.key()), permit.id())
+                .timeout(redisTimeout)
+                .doOnError(e -> log.warn("Stream izni bırakılamadı, {} TTL ile düşecek: {}", permit.key(), e.getMessage()))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    protected Mono<Boolean> acquireGlobal(String semaphoreKey, int limit, String permitId) {
+        return redisTemplate.execute(ACQUIRE_SCRIPT, List.of(semaphoreKey),
+                        List.of(String.valueOf(limit), String.valueOf(permitTtl.toMillis()), permitId))
+                .next()
+                .map(result -> result == 1L);
+    }
+
+    protected Mono<Void> releaseGlobal(String semaphoreKey, String permitId) {
+        return redisTemplate.opsForZSet().remove(semaphoreKey, permitId).then();
+    }
+
+    private Mono<Permit> acquireLocal(String key, int limit, String permitId) {
+        AtomicBoolean acquired = new AtomicBoolean();
+        localPermits.compute(key, (k, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= limit) {
+                return count;
+            }
+            acquired.set(true);
+            return current + 1;
+        });
+        return acquired.get() ? Mono.just(new Permit(key, permitId, true)) : Mono.empty();
+    }
+
+    private static String semaphoreKey(String key) {
+        return "stream_semaphore.{" + key + "}";
+    }
+
+    public record Permit(String key, String id, boolean local) {
+    }
+}
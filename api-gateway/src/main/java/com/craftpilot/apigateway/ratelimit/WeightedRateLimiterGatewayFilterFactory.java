@@ -0,0 +1,188 @@
+package com.craftpilot.apigateway.ratelimit;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Route'a özgü, maliyet ağırlıklı hız sınırı. Her istek eşleşen kuralın ağırlığı kadar jeton harcar
+ * (ör. bir dakika bağlantı tutan stream, basit bir GET'ten pahalıdır). Stream istekleri ayrıca
+ * kullanıcı başına eşzamanlı stream semaforuna tabidir; izin stream tamamlandığında, hata verdiğinde
+ * veya istemci iptal ettiğinde bırakılır. Reddedilen isteklere 429 ve Retry-After döner.
+ *
+ * <pre>
+ * - name: WeightedRateLimiter
+ *   args:
+ *     replenish-rate: 10
+ *     burst-capacity: 60
+ *     weights: "POST /ai/chat/completions/stream=10,POST /ai/images/**=8"
+ *     stream-paths: "/ai/chat/completions/stream"
+ *     max-concurrent-streams: 3
+ * </pre>
+ */
+@Slf4j
+@Component
+public class WeightedRateLimiterGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<WeightedRateLimiterGatewayFilterFactory.Config> {
+
+    private final HybridRateLimiter rateLimiter;
+    private final StreamConcurrencyLimiter streamLimiter;
+    private final KeyResolver keyResolver;
+
+    public WeightedRateLimiterGatewayFilterFactory(HybridRateLimiter rateLimiter,
+                                                   StreamConcurrencyLimiter streamLimiter,
+                                                   @Qualifier("userKeyResolver") KeyResolver keyResolver) {
+        super(Config.class);
+        this.rateLimiter = rateLimiter;
+        this.streamLimiter = streamLimiter;
+        this.keyResolver = keyResolver;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "weighted";
+        List<WeightRule> rules = parseRules(config.getWeights(), config.getBurstCapacity());
+        List<PathPattern> streamPatterns = config.getStreamPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        HybridRateLimiter.Config limiterConfig = new HybridRateLimiter.Config();
+        limiterConfig.setReplenishRate(config.getReplenishRate());
+        limiterConfig.setBurstCapacity(config.getBurstCapacity());
+        int defaultWeight = Math.max(1, Math.min(config.getDefaultWeight(), config.getBurstCapacity()));
+
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            PathContainer path = request.getPath().pathWithinApplication();
+            int weight = weightOf(request.getMethod(), path, rules, defaultWeight);
+            boolean stream = config.getMaxConcurrentStreams() > 0 && isStream(request, path, streamPatterns);
+
+            return keyResolver.resolve(exchange)
+                    .flatMap(key -> rateLimiter.isAllowed(routeId, key, limiterConfig, weight)
+                            .flatMap(response -> {
+                                exchange.getResponse().getHeaders().setAll(response.getHeaders());
+                                if (!response.isAllowed()) {
+                                    log.debug("Ağırlıklı hız sınırı aşıldı, route {} key {} ağırlık {}", routeId, key, weight);
+                                    return reject(exchange, "İstek limiti aşıldı");
+                                }
+                                if (!stream) {
+                                    return chain.filter(exchange);
+                                }
+                                return streamLimiter.tryAcquire(routeId + ":" + key, config.getMaxConcurrentStreams())
+                                        .map(Optional::of)
+                                        .defaultIfEmpty(Optional.empty())
+                                        .flatMap(permit -> permit
+                                                .map(p -> withPermit(p, chain.filter(exchange)))
+                                                .orElseGet(() -> {
+                                                    exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER,
+                                                            String.valueOf(Math.max(1, config.getStreamRetryAfter().toSeconds())));
+                                                    return reject(exchange, "Eşzamanlı stream limiti aşıldı");
+                                                }));
+                            }));
+        };
+    }
+
+    /**
+     * İzin stream hangi sinyalle biterse bitsin (tamamlanma, hata, iptal) tam bir kez bırakılır
+     */
+    private Mono<Void> withPermit(StreamConcurrencyLimiter.Permit permit, Mono<Void> stream) {
+        AtomicBoolean released = new AtomicBoolean();
+        return stream.doFinally(signal -> {
+            if (released.compareAndSet(false, true)) {
+                streamLimiter.release(permit).subscribe();
+            }
+        });
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        String errorJson = String.format("{\"error\": \"%s\", \"status\": %d}", message, HttpStatus.TOO_MANY_REQUESTS.value());
+        byte[] bytes = errorJson.getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    static int weightOf(HttpMethod method, PathContainer path, List<WeightRule> rules, int defaultWeight) {
+        for (WeightRule rule : rules) {
+            if ((rule.method() == null || rule.method().equals(method)) && rule.pattern().matches(path)) {
+                return rule.weight();
+            }
+        }
+        return defaultWeight;
+    }
+
+    private static boolean isStream(ServerHttpRequest request, PathContainer path, List<PathPattern> streamPatterns) {
+        for (PathPattern pattern : streamPatterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return request.getHeaders().getAccept().contains(MediaType.TEXT_EVENT_STREAM);
+    }
+
+    /**
+     * "METHOD /path/pattern=ağırlık" veya "/path/pattern=ağırlık" biçimindeki kuralları okur; ilk eşleşen kural geçerlidir.
+     * Ağırlık burst kapasitesini aşamaz, aksi halde istek hiçbir zaman kabul edilemezdi.
+     */
+    static List<WeightRule> parseRules(List<String> definitions, int burstCapacity) {
+        List<WeightRule> rules = new ArrayList<>();
+        for (String definition : definitions) {
+            String trimmed = definition.trim();
+            int equals = trimmed.lastIndexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Geçersiz ağırlık kuralı: " + definition);
+            }
+            String matcher = trimmed.substring(0, equals).trim();
+            int weight = Integer.parseInt(trimmed.substring(equals + 1).trim());
+            HttpMethod method = null;
+            int space = matcher.indexOf(' ');
+            if (space > 0) {
+                method = HttpMethod.valueOf(matcher.substring(0, space).toUpperCase());
+                matcher = matcher.substring(space + 1).trim();
+            }
+            rules.add(new WeightRule(method, PathPatternParser.defaultInstance.parse(matcher),
+                    Math.max(1, Math.min(weight, burstCapacity))));
+        }
+        return rules;
+    }
+
+    record WeightRule(HttpMethod method, PathPattern pattern, int weight) {
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private String routeId;
+        private int replenishRate = 20;
+        private int burstCapacity = 40;
+        private int defaultWeight = 1;
+        private List<String> weights = new ArrayList<>();
+        private List<String> streamPaths = new ArrayList<>();
+        // 0: eşzamanlı stream sınırı yok
+        private int maxConcurrentStreams = 0;
+        private Duration streamRetryAfter = Duration.ofSeconds(5);
+    }
+}
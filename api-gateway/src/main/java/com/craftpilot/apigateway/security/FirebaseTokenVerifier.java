@@ -0,0 +1,101 @@
+package com.craftpilot.apigateway.security;
+
+import com.craftpilot.apigateway.cache.VerifiedTokenCache;
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+
+/**
+ * Firebase ID token doğrulaması. Önce doğrulanmış token önbelleğine bakılır;
+ * ıskalamada imza bellekteki Google anahtarlarıyla event loop'ta doğrulanır.
+ * Firebase Admin SDK yalnızca yerel doğrulayıcının karar veremediği (ör. bilinmeyen kid) durumlarda kullanılır.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FirebaseTokenVerifier {
+
+    private final FirebaseAuth firebaseAuth;
+    private final VerifiedTokenCache tokenCache;
+    private final LocalTokenVerifier localVerifier;
+
+    public Mono<VerifiedToken> verify(String token) {
+        String key = tokenCache.keyOf(token);
+
+        VerifiedToken cached = tokenCache.getIfValid(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        if (tokenCache.isKnownInvalid(key)) {
+            return Mono.error(new RuntimeException("Token doğrulama hatası: geçersiz token"));
+        }
+
+        return Mono.fromCallable(() -> localVerifier.verify(token))
+                .switchIfEmpty(Mono.defer(() -> verifyWithFirebase(token)))
+                .flatMap(verified -> {
+                    if (tokenCache.isRevoked(verified)) {
+                        return Mono.error(new RuntimeException("Token doğrulama hatası: token iptal edilmiş"));
+                    }
+                    tokenCache.put(key, verified);
+                    return Mono.just(verified);
+                })
+                .onErrorMap(e -> {
+                    if (isPermanentlyInvalid(e)) {
+                        tokenCache.rememberInvalid(key, e.getMessage());
+                    }
+                    if (e instanceof FirebaseAuthException) {
+                        log.error("Token doğrulama hatası: {}", e.getMessage());
+                        return new RuntimeException("Token doğrulama hatası: " + e.getMessage());
+                    }
+                    return e;
+                });
+    }
+
+    /**
+     * Firebase Admin SDK ile doğrulama; SDK çağrısı bloklayıcı olduğu için boundedElastic üzerinde çalışır.
+     */
+    protected Mono<VerifiedToken> verifyWithFirebase(String token) {
+        return Mono.fromCallable(() -> toVerifiedToken(firebaseAuth.verifyIdToken(token)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    static VerifiedToken toVerifiedToken(FirebaseToken decodedToken) {
+        Map<String, Object> claims = decodedToken.getClaims();
+        return VerifiedToken.builder()
+                .uid(decodedToken.getUid())
+                .email(decodedToken.getEmail() != null ? decodedToken.getEmail() : "")
+                .role(extractUserRole(claims))
+                .issuedAtEpochSeconds(epochSeconds(claims.get("iat")))
+                .expiresAtEpochSeconds(epochSeconds(claims.get("exp")))
+                .build();
+    }
+
+    static String extractUserRole(Map<String, Object> claims) {
+        Object roleObj = claims.get("role");
+        return roleObj != null ? roleObj.toString() : "USER";
+    }
+
+    private static long epochSeconds(Object claim) {
+        return claim instanceof Number number ? number.longValue() : 0L;
+    }
+
+    /**
+     * Bozuk biçim veya geçersiz imza tekrar denendiğinde de geçersizdir; süresi dolmuş
+     * veya iptal edilmiş token'lar zaten önbelleğe girmez.
+     */
+    private boolean isPermanentlyInvalid(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
+            return true;
+        }
+        return e instanceof FirebaseAuthException authException
+                && authException.getAuthErrorCode() == AuthErrorCode.INVALID_ID_TOKEN;
+    }
+}
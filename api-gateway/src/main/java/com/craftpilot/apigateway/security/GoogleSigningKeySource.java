@@ -0,0 +1,170 @@
+package com.craftpilot.apigateway.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Google'ın securetoken sertifikalarını bellekte tutar ve arka planda yeniler.
+ * Yenileme zamanı yanıtın Cache-Control max-age değerinden biraz önceye kurulur;
+ * hata durumunda eldeki anahtarlarla devam edilip kısa aralıklarla yeniden denenir.
+ * Bilinmeyen kid görüldüğünde (anahtar rotasyonu) erken bir yenileme tetiklenir.
+ */
+@Slf4j
+@Component
+public class GoogleSigningKeySource implements SigningKeySource {
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final boolean enabled;
+    private final String certificatesUrl;
+    private final Duration refreshAhead;
+    private final Duration minRefreshInterval;
+    private final Duration retryInterval;
+    private final WebClient webClient;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile long lastRefreshMillis;
+    private Disposable refreshLoop;
+
+    public GoogleSigningKeySource(
+            @Value("${gateway.auth.local-verification.enabled:true}") boolean enabled,
+            @Value("${gateway.auth.local-verification.certificates-url:https://www.googleapis.com/robot/v1/metadata/x509/securetoken@system.gserviceaccount.com}") String certificatesUrl,
+            @Value("${gateway.auth.local-verification.refresh-ahead:5m}") Duration refreshAhead,
+            @Value("${gateway.auth.local-verification.min-refresh-interval:60s}") Duration minRefreshInterval,
+            @Value("${gateway.auth.local-verification.retry-interval:30s}") Duration retryInterval,
+            WebClient.Builder webClientBuilder) {
+        this.enabled = enabled;
+        this.certificatesUrl = certificatesUrl;
+        this.refreshAhead = refreshAhead;
+        this.minRefreshInterval = minRefreshInterval;
+        this.retryInterval = retryInterval;
+        // Paylaşılan builder başka yerlerde baseUrl ile değiştiriliyor
+        this.webClient = webClientBuilder.clone().build();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        refreshLoop = Mono.defer(this::refresh)
+                .onErrorResume(e -> {
+                    log.warn("Google imza sertifikaları alınamadı, {} sonra tekrar denenecek: {}", retryInterval, e.getMessage());
+                    return Mono.just(retryInterval);
+                })
+                .delayUntil(Mono::delay)
+                .repeat()
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshLoop != null) {
+            refreshLoop.dispose();
+        }
+    }
+
+    @Override
+    public PublicKey findKey(String keyId) {
+        PublicKey key = keys.get(keyId);
+        if (key == null && enabled) {
+            refreshEarly();
+        }
+        return key;
+    }
+
+    public int keyCount() {
+        return keys.size();
+    }
+
+    /**
+     * Sertifikaları indirip anahtar kümesini değiştirir; sonraki yenilemeye kadar beklenecek süreyi döner.
+     */
+    Mono<Duration> refresh() {
+        return webClient.get()
+                .uri(certificatesUrl)
+                .retrieve()
+                .toEntity(String.class)
+                .timeout(Duration.ofSeconds(10))
+                .map(this::applyCertificates);
+    }
+
+    private Duration applyCertificates(ResponseEntity<String> response) {
+        Map<String, PublicKey> parsed = parseCertificates(response.getBody());
+        if (parsed.isEmpty()) {
+            throw new IllegalStateException("Sertifika yanıtı boş");
+        }
+        keys = parsed;
+        lastRefreshMillis = System.currentTimeMillis();
+        Duration next = nextRefreshDelay(response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+        log.info("Google imza sertifikaları yenilendi: {} anahtar, sonraki yenileme {} sonra", parsed.size(), next);
+        return next;
+    }
+
+    /**
+     * Bilinmeyen kid için dakikada en fazla bir kez ek yenileme yapılır
+     */
+    private void refreshEarly() {
+        if (System.currentTimeMillis() - lastRefreshMillis < minRefreshInterval.toMillis()
+                || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refresh()
+                .doFinally(signal -> refreshing.set(false))
+                .subscribe(null, e -> log.warn("Google imza sertifikaları erken yenilenemedi: {}", e.getMessage()));
+    }
+
+    Duration nextRefreshDelay(String cacheControl) {
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                Duration next = Duration.ofSeconds(Long.parseLong(matcher.group(1))).minus(refreshAhead);
+                return next.compareTo(minRefreshInterval) > 0 ? next : minRefreshInterval;
+            }
+        }
+        return minRefreshInterval;
+    }
+
+    static Map<String, PublicKey> parseCertificates(String body) {
+        try {
+            Map<String, String> pems = MAPPER.readValue(body, new TypeReference<Map<String, String>>() {
+            });
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            Map<String, PublicKey> parsed = new HashMap<>();
+            for (Map.Entry<String, String> entry : pems.entrySet()) {
+                X509Certificate certificate = (X509Certificate) factory.generateCertificate(
+                        new ByteArrayInputStream(entry.getValue().getBytes(StandardCharsets.US_ASCII)));
+                parsed.put(entry.getKey(), certificate.getPublicKey());
+            }
+            return Map.copyOf(parsed);
+        } catch (CertificateException e) {
+            throw new IllegalStateException("Sertifika ayrıştırılamadı: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Sertifika yanıtı okunamadı: " + e.getMessage(), e);
+        }
+    }
+}
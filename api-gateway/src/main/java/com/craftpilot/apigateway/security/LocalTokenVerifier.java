@@ -0,0 +1,153 @@
+package com.craftpilot.apigateway.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Firebase ID token'larını ağ çağrısı ve bloklama olmadan doğrular: RS256 imzası bellekteki
+ * Google anahtarlarıyla, iss/aud/exp/iat/sub kuralları Firebase belgelerindeki gibi kontrol edilir.
+ * Kontroller çağıran thread'de (event loop) çalışır; Signature nesnesi thread başına yeniden kullanılır.
+ * Yerel doğrulama kapalıysa, proje kimliği tanımlı değilse veya kid bilinmiyorsa null döner
+ * ve çağıran Firebase Admin SDK'ya düşer.
+ */
+@Slf4j
+@Component
+public class LocalTokenVerifier {
+    private static final String ISSUER_PREFIX = "https://securetoken.google.com/";
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ThreadLocal<Signature> RS256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance("SHA256withRSA");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA256withRSA desteklenmiyor", e);
+        }
+    });
+
+    private final boolean enabled;
+    private final String projectId;
+    private final String issuer;
+    private final long clockSkewSeconds;
+    private final SigningKeySource keySource;
+
+    public LocalTokenVerifier(
+            @Value("${gateway.auth.local-verification.enabled:true}") boolean enabled,
+            @Value("${gateway.auth.local-verification.project-id:}") String projectId,
+            @Value("${gateway.auth.local-verification.clock-skew:5m}") Duration clockSkew,
+            SigningKeySource keySource) {
+        this.enabled = enabled && projectId != null && !projectId.isBlank();
+        this.projectId = projectId;
+        this.issuer = ISSUER_PREFIX + projectId;
+        this.clockSkewSeconds = clockSkew.toSeconds();
+        this.keySource = keySource;
+        if (enabled && !this.enabled) {
+            log.warn("gateway.auth.local-verification.project-id tanımlı değil, token'lar Firebase Admin SDK ile doğrulanacak");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Geçerli token için doğrulanmış bilgileri, yerel olarak karar verilemiyorsa null döner.
+     *
+     * @throws IllegalArgumentException bozuk biçim, yanlış algoritma, geçersiz imza, iss/aud/sub hatası
+     * @throws IllegalStateException    süresi dolmuş veya henüz geçerli olmayan token
+     */
+    public VerifiedToken verify(String token) {
+        if (!enabled) {
+            return null;
+        }
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw new IllegalArgumentException("ID token biçimi geçersiz");
+        }
+
+        JsonNode header = decodeJson(token, 0, firstDot);
+        if (!"RS256".equals(header.path("alg").asText())) {
+            throw new IllegalArgumentException("ID token algoritması RS256 değil");
+        }
+        String keyId = header.path("kid").asText(null);
+        if (keyId == null || keyId.isEmpty()) {
+            throw new IllegalArgumentException("ID token kid başlığı içermiyor");
+        }
+        PublicKey key = keySource.findKey(keyId);
+        if (key == null) {
+            log.debug("Bilinmeyen kid {}, Firebase Admin SDK'ya düşülüyor", keyId);
+            return null;
+        }
+        if (!verifySignature(token, secondDot, key)) {
+            throw new IllegalArgumentException("ID token imzası geçersiz");
+        }
+
+        JsonNode payload = decodeJson(token, firstDot + 1, secondDot);
+        checkClaims(payload);
+        return VerifiedToken.builder()
+                .uid(payload.path("sub").asText())
+                .email(payload.path("email").asText(""))
+                .role(payload.hasNonNull("role") ? payload.get("role").asText() : "USER")
+                .issuedAtEpochSeconds(payload.path("iat").asLong())
+                .expiresAtEpochSeconds(payload.path("exp").asLong())
+                .build();
+    }
+
+    private void checkClaims(JsonNode payload) {
+        if (!projectId.equals(payload.path("aud").asText())) {
+            throw new IllegalArgumentException("ID token aud değeri proje kimliğiyle eşleşmiyor");
+        }
+        if (!issuer.equals(payload.path("iss").asText())) {
+            throw new IllegalArgumentException("ID token iss değeri geçersiz");
+        }
+        String subject = payload.path("sub").asText("");
+        if (subject.isEmpty() || subject.length() > 128) {
+            throw new IllegalArgumentException("ID token sub değeri geçersiz");
+        }
+        if (!payload.path("exp").canConvertToLong() || !payload.path("iat").canConvertToLong()) {
+            throw new IllegalArgumentException("ID token exp/iat içermiyor");
+        }
+
+        long now = System.currentTimeMillis() / 1000L;
+        if (payload.get("exp").asLong() + clockSkewSeconds <= now) {
+            throw new IllegalStateException("ID token süresi dolmuş");
+        }
+        if (payload.get("iat").asLong() - clockSkewSeconds > now) {
+            throw new IllegalStateException("ID token henüz geçerli değil");
+        }
+        if (payload.has("auth_time") && payload.get("auth_time").asLong() - clockSkewSeconds > now) {
+            throw new IllegalStateException("ID token auth_time gelecekte");
+        }
+    }
+
+    private static boolean verifySignature(String token, int signatureDot, PublicKey key) {
+        Signature signature = RS256.get();
+        try {
+            signature.initVerify(key);
+            signature.update(token.substring(0, signatureDot).getBytes(StandardCharsets.US_ASCII));
+            return signature.verify(DECODER.decode(token.substring(signatureDot + 1)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static JsonNode decodeJson(String token, int start, int end) {
+        try {
+            return MAPPER.readTree(DECODER.decode(token.substring(start, end)));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("ID token çözümlenemedi", e);
+        }
+    }
+}
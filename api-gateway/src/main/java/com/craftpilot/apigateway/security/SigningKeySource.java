@@ -0,0 +1,13 @@
+package com.craftpilot.apigateway.security;
+
+import java.security.PublicKey;
+
+/**
+ * ID token imzalarını doğrulamak için kid → açık anahtar kaynağı.
+ * Çağrı event loop'ta yapılır; uygulamalar bloklamamalı, bilinmeyen kid için null dönmelidir.
+ */
+@FunctionalInterface
+public interface SigningKeySource {
+
+    PublicKey findKey(String keyId);
+}
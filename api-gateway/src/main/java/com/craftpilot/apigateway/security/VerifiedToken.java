@@ -0,0 +1,22 @@
+package com.craftpilot.apigateway.security;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Doğrulanmış Firebase ID token'ından gateway'in ihtiyaç duyduğu alanlar.
+ * Ham token saklanmaz; önbellekte yalnızca bu özet tutulur.
+ */
+@Value
+@Builder
+public class VerifiedToken {
+    String uid;
+    String email;
+    String role;
+    long issuedAtEpochSeconds;
+    long expiresAtEpochSeconds;
+
+    public boolean isExpired(long nowEpochMillis) {
+        return expiresAtEpochSeconds * 1000L <= nowEpochMillis;
+    }
+}
@@ -0,0 +1,37 @@
+-- Global token bucket'tan bir pod'a kiralama (lease) verir.
+-- RedisRateLimiter'ın betiğiyle aynı kova matematiği; farkı isteğin tamamı yerine
+-- mevcut kadarının (kısmi) verilmesidir. Saat Redis'ten alınır, tüm pod'lar aynı zamanı görür.
+redis.replicate_commands()
+
+local tokens_key = KEYS[1]
+local timestamp_key = KEYS[2]
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local fill_time = capacity / rate
+local ttl = math.floor(fill_time * 2) + 1
+
+local last_tokens = tonumber(redis.call("get", tokens_key))
+if last_tokens == nil then
+  last_tokens = capacity
+end
+
+local last_refreshed = tonumber(redis.call("get", timestamp_key))
+if last_refreshed == nil then
+  last_refreshed = 0
+end
+
+local delta = math.max(0, now - last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens + (delta * rate / 1000))
+local granted = math.min(math.floor(filled_tokens), requested)
+local new_tokens = filled_tokens - granted
+
+redis.call("setex", tokens_key, ttl, new_tokens)
+redis.call("setex", timestamp_key, ttl, now)
+
+return { granted, math.floor(new_tokens) }
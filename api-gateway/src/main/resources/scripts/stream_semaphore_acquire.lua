@@ -0,0 +1,19 @@
+-- Kullanıcı başına eşzamanlı stream semaforu: ZSET üyeleri izin kimlikleri, skorları bitiş zamanıdır.
+-- Süresi dolan izinler (ör. release gönderemeden kapanan pod) önce temizlenir.
+redis.replicate_commands()
+
+local key = KEYS[1]
+local limit = tonumber(ARGV[1])
+local ttl = tonumber(ARGV[2])
+local permit = ARGV[3]
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', key, '-inf', now)
+if redis.call('ZCARD', key) < limit then
+  redis.call('ZADD', key, now + ttl, permit)
+  redis.call('PEXPIRE', key, ttl)
+  return 1
+end
+return 0
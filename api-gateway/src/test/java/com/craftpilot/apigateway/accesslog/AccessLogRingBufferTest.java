@@ -0,0 +1,105 @@
+package com.craftpilot.apigateway.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccessLogRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(4, new AccessLogRingBuffer(1).capacity());
+        assertEquals(8, new AccessLogRingBuffer(5).capacity());
+        assertEquals(8, new AccessLogRingBuffer(8).capacity());
+    }
+
+    @Test
+    void rejectsWhenFullAndWrapsAround() {
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+        List<AccessLogEntry> offered = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            AccessLogEntry entry = entry("p", i);
+            offered.add(entry);
+            assertTrue(buffer.offer(entry));
+        }
+        assertFalse(buffer.offer(entry("p", 4)));
+        assertEquals(4, buffer.size());
+
+        // Birkaç tur dolaşıp slot sıra numaralarının yeniden kullanıldığını doğrular
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertSame(offered.get(i), buffer.poll());
+                AccessLogEntry entry = entry("p", 4 * (round + 1) + i);
+                offered.set(i, entry);
+                assertTrue(buffer.offer(entry));
+            }
+        }
+        for (AccessLogEntry entry : offered) {
+            assertSame(entry, buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void concurrentProducersDeliverEachEntryOnceInProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 5_000;
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            String producer = "p" + p;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    AccessLogEntry entry = entry(producer, i);
+                    while (!buffer.offer(entry)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        int[] next = new int[producers];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        int received = 0;
+        while (received < producers * perProducer && System.nanoTime() < deadline) {
+            AccessLogEntry entry = buffer.poll();
+            if (entry == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = Integer.parseInt(entry.path().substring(1));
+            assertEquals(next[producer], entry.status());
+            next[producer]++;
+            received++;
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(producers * perProducer, received);
+        assertNull(buffer.poll());
+    }
+
+    private static AccessLogEntry entry(String producer, int sequence) {
+        return new AccessLogEntry(0, "GET", producer, "route", sequence, 0, null, null);
+    }
+}
@@ -0,0 +1,99 @@
+package com.craftpilot.apigateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserPreferenceCacheTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void loadsAllSnapshotPages() {
+        UserPreferenceCache cache = cache(100, cursor -> cursor == null
+                ? new UserPreferenceCache.SnapshotPage(Map.of("user-1", "tr", "user-2", "en"), "next")
+                : new UserPreferenceCache.SnapshotPage(Map.of("user-3", "de"), null));
+        assertFalse(cache.isReady());
+
+        cache.synchronize().block();
+
+        assertTrue(cache.isReady());
+        assertEquals("tr", cache.languageOf("user-1"));
+        assertEquals(UserPreferenceCache.DEFAULT_LANGUAGE, cache.languageOf("user-2"));
+        assertEquals("de", cache.languageOf("user-3"));
+        assertEquals(UserPreferenceCache.DEFAULT_LANGUAGE, cache.languageOf("unknown"));
+        // Varsayılan dildeki kullanıcı replikada yer tutmaz
+        assertEquals(2.0, meterRegistry.get("gateway.preferences.replica.entries").gauge().value());
+    }
+
+    @Test
+    void eventsDuringSyncWinOverSnapshot() {
+        UserPreferenceCache[] holder = new UserPreferenceCache[1];
+        UserPreferenceCache cache = cache(100, cursor -> {
+            if (cursor == null) {
+                return new UserPreferenceCache.SnapshotPage(Map.of("user-1", "tr", "user-2", "fr", "user-3", "es"), "next");
+            }
+            // İlk sayfa okunduktan sonra olaylar gelir; anlık görüntü bu kullanıcılar için eskidir
+            holder[0].upsert("user-1", "de", 0);
+            holder[0].remove("user-2", 0);
+            holder[0].upsert("user-4", "it", 0);
+            return new UserPreferenceCache.SnapshotPage(Map.of("user-4", "pt"), null);
+        });
+        holder[0] = cache;
+
+        cache.synchronize().block();
+
+        assertEquals("de", cache.languageOf("user-1"));
+        assertEquals(UserPreferenceCache.DEFAULT_LANGUAGE, cache.languageOf("user-2"));
+        assertEquals("es", cache.languageOf("user-3"));
+        assertEquals("it", cache.languageOf("user-4"));
+    }
+
+    @Test
+    void resyncDropsUsersMissingFromNewSnapshot() {
+        AtomicReference<Map<String, String>> snapshot = new AtomicReference<>(Map.of("user-1", "tr", "user-2", "fr"));
+        UserPreferenceCache cache = cache(100, cursor -> new UserPreferenceCache.SnapshotPage(snapshot.get(), null));
+        cache.synchronize().block();
+
+        snapshot.set(Map.of("user-2", "fr"));
+        cache.upsert("user-3", "de", 0);
+        cache.synchronize().block();
+
+        assertEquals(UserPreferenceCache.DEFAULT_LANGUAGE, cache.languageOf("user-1"));
+        assertEquals("fr", cache.languageOf("user-2"));
+        // Senkronizasyon dışında gelen olay bir sonraki tam yükleme ile düzelir
+        assertEquals(UserPreferenceCache.DEFAULT_LANGUAGE, cache.languageOf("user-3"));
+    }
+
+    @Test
+    void overflowFallsBackToDefaultLanguage() {
+        UserPreferenceCache cache = cache(1, cursor -> new UserPreferenceCache.SnapshotPage(Map.of("user-1", "tr"), null));
+        cache.synchronize().block();
+
+        cache.upsert("user-2", "de", 0);
+        cache.upsert("user-1", "fr", 0);
+
+        assertEquals("fr", cache.languageOf("user-1"));
+        assertEquals(UserPreferenceCache.DEFAULT_LANGUAGE, cache.languageOf("user-2"));
+        assertEquals(1.0, meterRegistry.counter("gateway.preferences.replica.overflow").count());
+    }
+
+    private UserPreferenceCache cache(int maxEntries, Function<String, UserPreferenceCache.SnapshotPage> pages) {
+        return new UserPreferenceCache(WebClient.builder(), meterRegistry, "http://user-service", maxEntries, 100,
+                Duration.ofHours(6), Duration.ofSeconds(15)) {
+            @Override
+            protected Mono<SnapshotPage> fetchPage(String cursor) {
+                return Mono.fromSupplier(() -> pages.apply(cursor));
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.craftpilot.apigateway.cache;
+
+import com.craftpilot.apigateway.security.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifiedTokenCacheTest {
+
+    private final VerifiedTokenCache cache = cache(true);
+
+    @Test
+    void returnsCachedTokenUntilExpiry() {
+        VerifiedToken token = token("user-1", now() - 60, now() + 3600);
+        cache.put("k1", token);
+
+        assertEquals(token, cache.getIfValid("k1"));
+    }
+
+    @Test
+    void tokenWithinExpirySkewIsNotServed() {
+        cache.put("k1", token("user-1", now() - 3600, now() + 2));
+
+        assertNull(cache.getIfValid("k1"));
+    }
+
+    @Test
+    void revokeRejectsTokensIssuedBeforeItButNotAfter() {
+        cache.put("old", token("user-1", now() - 60, now() + 3600));
+        cache.put("other", token("user-2", now() - 60, now() + 3600));
+
+        cache.revokeUser("user-1");
+
+        assertNull(cache.getIfValid("old"));
+        assertEquals("user-2", cache.getIfValid("other").getUid());
+        // Önbellekte olmayan eski token da yeniden eklenemez
+        VerifiedToken stale = token("user-1", now() - 30, now() + 3600);
+        assertTrue(cache.isRevoked(stale));
+        cache.put("stale", stale);
+        assertNull(cache.getIfValid("stale"));
+        // İptalden sonra verilen token geçerlidir
+        VerifiedToken fresh = token("user-1", now() + 1, now() + 3600);
+        assertFalse(cache.isRevoked(fresh));
+        cache.put("fresh", fresh);
+        assertEquals(fresh, cache.getIfValid("fresh"));
+    }
+
+    @Test
+    void negativeEntriesAreRememberedOnlyWhenEnabled() {
+        cache.rememberInvalid("bad", "ID token imzası geçersiz");
+        assertTrue(cache.isKnownInvalid("bad"));
+        assertFalse(cache.isKnownInvalid("good"));
+
+        VerifiedTokenCache withoutNegative = cache(false);
+        withoutNegative.rememberInvalid("bad", "ID token imzası geçersiz");
+        assertFalse(withoutNegative.isKnownInvalid("bad"));
+    }
+
+    @Test
+    void keyIsStableHashOfToken() {
+        assertEquals(cache.keyOf("a.b.c"), cache.keyOf("a.b.c"));
+        assertFalse(cache.keyOf("a.b.c").contains("a.b.c"));
+    }
+
+    private static VerifiedTokenCache cache(boolean negativeCaching) {
+        return new VerifiedTokenCache(true, 1000, Duration.ofSeconds(5), negativeCaching, Duration.ofSeconds(60), 100,
+                new SimpleMeterRegistry());
+    }
+
+    private static VerifiedToken token(String uid, long issuedAt, long expiresAt) {
+        return VerifiedToken.builder()
+                .uid(uid)
+                .email(uid + "@craftpilot.io")
+                .role("USER")
+                .issuedAtEpochSeconds(issuedAt)
+                .expiresAtEpochSeconds(expiresAt)
+                .build();
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000L;
+    }
+}
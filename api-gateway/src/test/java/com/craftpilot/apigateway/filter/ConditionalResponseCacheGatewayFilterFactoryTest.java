@@ -0,0 +1,112 @@
+package com.craftpilot.apigateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConditionalResponseCacheGatewayFilterFactoryTest {
+    private static final String PATH = "/users/models/available";
+
+    private ConditionalResponseCacheGatewayFilterFactory factory;
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private String vary;
+
+    @BeforeEach
+    void setUp() {
+        factory = new ConditionalResponseCacheGatewayFilterFactory(new SimpleMeterRegistry(),
+                DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), 1000);
+    }
+
+    @Test
+    void writeInvalidatesOnlyTheWritersEntries() {
+        GatewayFilter filter = filter();
+        get(filter, "user-1");
+        get(filter, "user-2");
+        assertEquals(2, downstreamCalls.get());
+
+        send(filter, MockServerHttpRequest.post(PATH).header("X-User-Id", "user-1"));
+        assertEquals(3, downstreamCalls.get());
+
+        get(filter, "user-1");
+        get(filter, "user-2");
+        assertEquals(4, downstreamCalls.get());
+    }
+
+    @Test
+    void responseVaryingOnOtherHeadersIsNotStored() {
+        GatewayFilter filter = filter();
+        vary = HttpHeaders.ACCEPT_LANGUAGE;
+        get(filter, "user-1");
+        get(filter, "user-1");
+        assertEquals(2, downstreamCalls.get());
+
+        vary = "X-User-Id, Accept-Encoding";
+        get(filter, "user-2");
+        get(filter, "user-2");
+        assertEquals(3, downstreamCalls.get());
+    }
+
+    @Test
+    void varyIsCoveredOnlyByKeyHeaders() {
+        List<String> keyHeaders = List.of("X-User-Id");
+        assertTrue(ConditionalResponseCacheGatewayFilterFactory.varyCoveredByKey(null, keyHeaders));
+        assertTrue(ConditionalResponseCacheGatewayFilterFactory.varyCoveredByKey(List.of("x-user-id"), keyHeaders));
+        assertFalse(ConditionalResponseCacheGatewayFilterFactory.varyCoveredByKey(List.of("*"), keyHeaders));
+        assertFalse(ConditionalResponseCacheGatewayFilterFactory.varyCoveredByKey(List.of("Accept-Encoding, Cookie"), keyHeaders));
+    }
+
+    private GatewayFilter filter() {
+        ConditionalResponseCacheGatewayFilterFactory.Config config = new ConditionalResponseCacheGatewayFilterFactory.Config();
+        config.setRouteId("user-service");
+        config.setPaths(List.of(PATH));
+        return factory.apply(config);
+    }
+
+    private void get(GatewayFilter filter, String userId) {
+        MockServerWebExchange exchange = send(filter, MockServerHttpRequest.get(PATH).header("X-User-Id", userId));
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+    }
+
+    private MockServerWebExchange send(GatewayFilter filter, MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        // FirebaseAuthFilter'ın doğruladığı kullanıcı
+        String userId = exchange.getRequest().getHeaders().getFirst("X-User-Id");
+        if (userId != null) {
+            exchange.getAttributes().put(FirebaseAuthFilter.VERIFIED_USER_ID_ATTR, userId);
+        }
+        filter.filter(exchange, downstream()).block();
+        return exchange;
+    }
+
+    private GatewayFilterChain downstream() {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            var response = exchange.getResponse();
+            byte[] body = "{\"models\":[]}".getBytes(StandardCharsets.UTF_8);
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setCacheControl("max-age=60, private");
+            if (vary != null) {
+                response.getHeaders().set(HttpHeaders.VARY, vary);
+            }
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        };
+    }
+}
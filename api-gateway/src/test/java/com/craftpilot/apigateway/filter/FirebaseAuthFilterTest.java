@@ -0,0 +1,88 @@
+package com.craftpilot.apigateway.filter;
+
+import com.craftpilot.apigateway.cache.UserPreferenceCache;
+import com.craftpilot.apigateway.security.FirebaseTokenVerifier;
+import com.craftpilot.apigateway.security.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class FirebaseAuthFilterTest {
+
+    @Mock
+    private FirebaseTokenVerifier tokenVerifier;
+
+    @Mock
+    private UserPreferenceCache userPreferenceCache;
+
+    private FirebaseAuthFilter filter;
+    private final AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        filter = new FirebaseAuthFilter(tokenVerifier, userPreferenceCache);
+        lenient().when(tokenVerifier.verify("valid")).thenReturn(Mono.just(VerifiedToken.builder()
+                .uid("victim-not").email("a@b.c").role("USER").build()));
+        lenient().when(userPreferenceCache.getUserLanguage("victim-not")).thenReturn(Mono.just("tr"));
+    }
+
+    @Test
+    void clientAuthProcessedHeaderDoesNotSkipVerification() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/models/available")
+                .header("X-Auth-Processed", "true")
+                .header("X-User-Id", "victim"));
+
+        filter.filter(exchange, this::forward).block();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertNull(forwarded.get());
+    }
+
+    @Test
+    void spoofedIdentityIsReplacedByVerifiedUser() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/models/available")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer valid")
+                .header("X-User-Id", "victim")
+                .header("X-User-Role", "ADMIN"));
+
+        filter.filter(exchange, this::forward).block();
+
+        HttpHeaders headers = forwarded.get().getRequest().getHeaders();
+        assertEquals(List.of("victim-not"), headers.get("X-User-Id"));
+        assertEquals(List.of("USER"), headers.get("X-User-Role"));
+        assertEquals("victim-not", forwarded.get().getAttribute(FirebaseAuthFilter.VERIFIED_USER_ID_ATTR));
+        assertEquals("victim-not|", RequestScope.of(forwarded.get(), List.of("X-User-Id")));
+    }
+
+    @Test
+    void publicPathForwardsWithoutClientIdentity() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/public/models")
+                .header("X-User-Id", "victim"));
+
+        filter.filter(exchange, this::forward).block();
+
+        assertNull(forwarded.get().getRequest().getHeaders().getFirst("X-User-Id"));
+        assertNull(RequestScope.of(forwarded.get(), List.of("X-User-Id")));
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange) {
+        forwarded.set(exchange);
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,194 @@
+package com.craftpilot.apigateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RequestCollapsingGatewayFilterFactoryTest {
+    private static final String PATH = "/users/models/available";
+    private static final String BODY = "{\"models\":[\"a\",\"b\"]}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+    private final Sinks.Empty<Void> gate = Sinks.empty();
+
+    @Test
+    void waiterReplaysLeaderResponse() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+        MockServerWebExchange leader = exchange("user-1");
+        MockServerWebExchange waiter = exchange("user-1");
+
+        filter.filter(leader, downstream(HttpStatus.OK, BODY)).subscribe();
+        filter.filter(waiter, downstream(HttpStatus.OK, "yeni istek")).subscribe();
+        gate.tryEmitEmpty();
+
+        assertEquals(1, downstreamCalls.get());
+        assertEquals(BODY, leader.getResponse().getBodyAsString().block());
+        assertEquals(HttpStatus.OK, waiter.getResponse().getStatusCode());
+        assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+        HttpHeaders replayed = waiter.getResponse().getHeaders();
+        assertEquals("\"v1\"", replayed.getETag());
+        assertEquals(BODY.length(), replayed.getContentLength());
+        // Oturuma özgü başlıklar bekleyene kopyalanmaz
+        assertNull(replayed.getFirst(HttpHeaders.SET_COOKIE));
+        assertEquals(1.0, count("leader"));
+        assertEquals(1.0, count("collapsed"));
+    }
+
+    @Test
+    void differentUsersDoNotShareResponse() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+
+        filter.filter(exchange("user-1"), downstream(HttpStatus.OK, BODY)).subscribe();
+        filter.filter(exchange("user-2"), downstream(HttpStatus.OK, BODY)).subscribe();
+        gate.tryEmitEmpty();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(2.0, count("leader"));
+    }
+
+    @Test
+    void unverifiedRequestBypassesEvenWithUserHeader() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+        MockServerWebExchange spoofed = MockServerWebExchange.from(MockServerHttpRequest.get(PATH)
+                .header(FirebaseAuthFilter.USER_ID_HEADER, "user-1"));
+
+        filter.filter(exchange("user-1"), downstream(HttpStatus.OK, BODY)).subscribe();
+        filter.filter(spoofed, downstream(HttpStatus.OK, "kendi yanıtı")).subscribe();
+        gate.tryEmitEmpty();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals("kendi yanıtı", spoofed.getResponse().getBodyAsString().block());
+        assertEquals(1.0, count("bypass"));
+    }
+
+    @Test
+    void errorResponseIsNotReplayed() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+        MockServerWebExchange waiter = exchange("user-1");
+
+        filter.filter(exchange("user-1"), downstream(HttpStatus.SERVICE_UNAVAILABLE, "hata")).subscribe();
+        filter.filter(waiter, downstream(HttpStatus.OK, BODY)).subscribe();
+        gate.tryEmitEmpty();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(HttpStatus.OK, waiter.getResponse().getStatusCode());
+        assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+        assertEquals(1.0, count("fallback"));
+    }
+
+    @Test
+    void oversizedBodyIsNotReplayed() {
+        GatewayFilter filter = filter(DataSize.ofBytes(8));
+        MockServerWebExchange leader = exchange("user-1");
+        MockServerWebExchange waiter = exchange("user-1");
+
+        filter.filter(leader, downstream(HttpStatus.OK, BODY)).subscribe();
+        filter.filter(waiter, downstream(HttpStatus.OK, BODY)).subscribe();
+        gate.tryEmitEmpty();
+
+        assertEquals(2, downstreamCalls.get());
+        // Lider yanıtı sınırdan etkilenmeden istemcisine akar
+        assertEquals(BODY, leader.getResponse().getBodyAsString().block());
+        assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+        assertEquals(0.0, meterRegistry.get("gateway.request-collapsing.buffered.bytes").gauge().value());
+    }
+
+    @Test
+    void cancelledLeaderReleasesWaiters() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+        MockServerWebExchange waiter = exchange("user-1");
+
+        Disposable leader = filter.filter(exchange("user-1"), downstream(HttpStatus.OK, BODY)).subscribe();
+        filter.filter(waiter, downstream(HttpStatus.OK, BODY)).subscribe();
+        leader.dispose();
+        gate.tryEmitEmpty();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+        assertEquals(1.0, count("fallback"));
+    }
+
+    @Test
+    void revalidatedLeaderIsNotReplayedToWaiterWithoutIfNoneMatch() {
+        // Javadoc'taki sıra: önbellek önce, birleştirme sonra; liderin If-None-Match'i önbellekte 304'e çevrilir
+        ConditionalResponseCacheGatewayFilterFactory.Config cacheConfig = new ConditionalResponseCacheGatewayFilterFactory.Config();
+        cacheConfig.setRouteId("user-service");
+        cacheConfig.setPaths(List.of(PATH));
+        GatewayFilter cache = new ConditionalResponseCacheGatewayFilterFactory(meterRegistry, DataSize.ofMegabytes(1),
+                DataSize.ofKilobytes(512), 1000).apply(cacheConfig);
+        GatewayFilter collapsing = filter(DataSize.ofKilobytes(256));
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get(PATH)
+                .header(HttpHeaders.ACCEPT, "application/json")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v1\""));
+        leader.getAttributes().put(FirebaseAuthFilter.VERIFIED_USER_ID_ATTR, "user-1");
+        MockServerWebExchange waiter = exchange("user-1");
+
+        cache.filter(leader, exchange -> collapsing.filter(exchange, downstream(HttpStatus.OK, BODY))).subscribe();
+        cache.filter(waiter, exchange -> collapsing.filter(exchange, downstream(HttpStatus.OK, BODY))).subscribe();
+        gate.tryEmitEmpty();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, leader.getResponse().getStatusCode());
+        assertEquals(HttpStatus.OK, waiter.getResponse().getStatusCode());
+        assertEquals(BODY, waiter.getResponse().getBodyAsString().block());
+        assertEquals(2, downstreamCalls.get());
+        assertEquals(1.0, count("fallback"));
+    }
+
+    private GatewayFilter filter(DataSize maxBodySize) {
+        RequestCollapsingGatewayFilterFactory.Config config = new RequestCollapsingGatewayFilterFactory.Config();
+        config.setRouteId("user-service");
+        config.setPaths(List.of(PATH));
+        config.setMaxBodySize(maxBodySize);
+        return new RequestCollapsingGatewayFilterFactory(meterRegistry, DataSize.ofMegabytes(32)).apply(config);
+    }
+
+    /**
+     * Downstream çağrısını sayar; yanıt, kapı açılana kadar bekletilir ki ikinci istek lider uçuştayken gelsin
+     */
+    private GatewayFilterChain downstream(HttpStatus status, String body) {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            return gate.asMono().then(Mono.defer(() -> {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(status);
+                response.getHeaders().setETag("\"v1\"");
+                response.getHeaders().add(HttpHeaders.SET_COOKIE, "session=abc");
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                response.getHeaders().setContentLength(bytes.length);
+                DataBuffer buffer = response.bufferFactory().wrap(bytes);
+                return response.writeWith(Mono.just(buffer));
+            }));
+        };
+    }
+
+    private static MockServerWebExchange exchange(String verifiedUserId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(PATH)
+                .header(HttpHeaders.ACCEPT, "application/json"));
+        exchange.getAttributes().put(FirebaseAuthFilter.VERIFIED_USER_ID_ATTR, verifiedUserId);
+        return exchange;
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("gateway.request-collapsing.requests", "route", "user-service", "result", result).count();
+    }
+}
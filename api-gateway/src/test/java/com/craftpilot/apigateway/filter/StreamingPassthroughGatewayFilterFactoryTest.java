@@ -0,0 +1,93 @@
+package com.craftpilot.apigateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StreamingPassthroughGatewayFilterFactoryTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void writesEachBufferAsSeparateFlushedGroup() {
+        MockServerWebExchange exchange = exchange();
+        ServerWebExchange downstream = filter(exchange);
+        ServerHttpResponse response = downstream.getResponse();
+        response.getHeaders().setContentLength(42);
+
+        response.writeWith(Flux.just(buffer("data: a\n\n"), buffer("data: b\n\n"), buffer("data: c\n\n"))).block();
+
+        // Upstream stream'i sıkıştırmasın diye Accept-Encoding iletilmez
+        assertNull(downstream.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertFalse(headers.containsKey(HttpHeaders.CONTENT_LENGTH));
+        assertEquals("no-cache", headers.getCacheControl());
+        assertEquals("no", headers.getFirst(StreamingPassthroughGatewayFilterFactory.NO_BUFFERING_HEADER));
+        assertEquals("data: a\n\ndata: b\n\ndata: c\n\n", exchange.getResponse().getBodyAsString().block());
+        assertEquals(3.0, meterRegistry.counter("gateway.stream.events", "route", "llm-stream").count());
+        assertEquals(1, meterRegistry.get("gateway.stream.first-event").timer().count());
+    }
+
+    @Test
+    void keepsUpstreamCacheControl() {
+        MockServerWebExchange exchange = exchange();
+        ServerHttpResponse response = filter(exchange).getResponse();
+        response.getHeaders().setCacheControl("private, max-age=0");
+
+        response.writeWith(Flux.just(buffer("x"))).block();
+
+        assertEquals("private, max-age=0", exchange.getResponse().getHeaders().getCacheControl());
+    }
+
+    @Test
+    void clientCancelReachesUpstream() {
+        MockServerWebExchange exchange = exchange();
+        ServerHttpResponse response = filter(exchange).getResponse();
+        AtomicReference<String> upstream = new AtomicReference<>("open");
+
+        Disposable write = response.writeWith(Flux.concat(Flux.just(buffer("data: a\n\n")), Flux.<DataBuffer>never())
+                        .doOnCancel(() -> upstream.set("cancelled")))
+                .subscribe();
+        write.dispose();
+
+        assertEquals("cancelled", upstream.get());
+        assertEquals(1.0, meterRegistry.counter("gateway.stream.cancelled", "route", "llm-stream").count());
+    }
+
+    private ServerWebExchange filter(MockServerWebExchange exchange) {
+        StreamingPassthroughGatewayFilterFactory.Config config = new StreamingPassthroughGatewayFilterFactory.Config();
+        config.setRouteId("llm-stream");
+        GatewayFilter filter = new StreamingPassthroughGatewayFilterFactory(meterRegistry).apply(config);
+        AtomicReference<ServerWebExchange> captured = new AtomicReference<>();
+        filter.filter(exchange, mutated -> {
+            captured.set(mutated);
+            return Mono.empty();
+        }).block();
+        return captured.get();
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/llm/chat/stream")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+    }
+
+    private static DataBuffer buffer(String value) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
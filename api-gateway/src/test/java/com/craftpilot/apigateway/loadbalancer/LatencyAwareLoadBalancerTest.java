@@ -0,0 +1,157 @@
+package com.craftpilot.apigateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyAwareLoadBalancerTest {
+    private static final String SERVICE_ID = "llm-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ServiceInstance fast = instance("10.0.0.1");
+    private final ServiceInstance slow = instance("10.0.0.2");
+    private final ServiceInstance fresh = instance("10.0.0.3");
+
+    @Test
+    void prefersLowerLatencyInstance() {
+        InstanceStatsRegistry stats = stats(Duration.ofMinutes(1));
+        sample(stats, fast, 5);
+        sample(stats, slow, 200);
+
+        assertAlwaysSelects(fast, balancer(stats), List.of(fast, slow));
+    }
+
+    @Test
+    void inFlightRequestsRaiseCost() {
+        InstanceStatsRegistry stats = stats(Duration.ofMinutes(1));
+        sample(stats, fast, 10);
+        sample(stats, slow, 25);
+        for (int i = 0; i < 3; i++) {
+            stats.requestStarted(fast);
+        }
+
+        // 10 ms x 4 > 25 ms x 1
+        assertAlwaysSelects(slow, balancer(stats), List.of(fast, slow));
+
+        for (int i = 0; i < 3; i++) {
+            stats.requestFinished(fast);
+        }
+        assertAlwaysSelects(fast, balancer(stats), List.of(fast, slow));
+    }
+
+    @Test
+    void unsampledInstanceWithHangingRequestLosesToSampledPeers() {
+        InstanceStatsRegistry stats = stats(Duration.ofMinutes(1));
+        sample(stats, fast, 10);
+        sample(stats, slow, 30);
+        LatencyAwareLoadBalancer balancer = balancer(stats);
+
+        // Yeni örnek adayların ortalama gecikmesiyle (20 ms) değerlendirilir; boşken yavaş örnekten ucuzdur
+        double unsampled = stats.unsampledLatency(List.of(fast, slow, fresh));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), unsampled, 1);
+        long now = System.nanoTime();
+        assertTrue(stats.cost(fresh, unsampled, now) < stats.cost(slow, unsampled, now));
+
+        // İlk yanıtı gelmeyen istek maliyetini ikiye katlar; trafiğin tamamını çekmez
+        stats.requestStarted(fresh);
+        assertAlwaysSelects(slow, balancer, List.of(slow, fresh));
+        assertAlwaysSelects(fast, balancer, List.of(fast, fresh));
+    }
+
+    @Test
+    void idleInstanceIsProbedAfterQuietPeriod() throws InterruptedException {
+        InstanceStatsRegistry stats = stats(Duration.ofMillis(20));
+        sample(stats, fast, 5);
+        sample(stats, slow, 200);
+        stats.requestStarted(fast);
+
+        Thread.sleep(40);
+
+        // Yavaş örnek uzun süredir ölçülmedi ve boşta: sıfır maliyetle deneme isteği alır
+        assertAlwaysSelects(slow, balancer(stats), List.of(fast, slow));
+    }
+
+    @Test
+    void consecutiveFailuresEjectInstance() {
+        InstanceStatsRegistry stats = stats(Duration.ofMinutes(1));
+        stats.requestStarted(fast);
+        stats.recordFailure(fast);
+        stats.recordSuccess(fast);
+        stats.recordFailure(fast);
+        assertFalse(stats.isEjected(fast, System.nanoTime()));
+
+        stats.recordFailure(fast);
+
+        assertTrue(stats.isEjected(fast, System.nanoTime()));
+        assertAlwaysSelects(slow, balancer(stats), List.of(fast, slow));
+        assertEquals(1.0, meterRegistry.counter("gateway.loadbalancer.ejections", "service", SERVICE_ID).count());
+    }
+
+    @Test
+    void allEjectedStillSelectsAnInstance() {
+        InstanceStatsRegistry stats = stats(Duration.ofMinutes(1));
+        stats.requestStarted(fast);
+        stats.requestStarted(slow);
+        for (int i = 0; i < 2; i++) {
+            stats.recordFailure(fast);
+            stats.recordFailure(slow);
+        }
+
+        assertTrue(balancer(stats).select(List.of(fast, slow)).hasServer());
+        assertFalse(balancer(stats).select(List.of()).hasServer());
+    }
+
+    @Test
+    void removedInstanceStatsAreEvicted() {
+        InstanceStatsRegistry stats = stats(Duration.ofMinutes(1));
+        stats.requestStarted(slow);
+        stats.recordFailure(slow);
+        stats.recordFailure(slow);
+        assertTrue(stats.isEjected(slow, System.nanoTime()));
+        LatencyAwareLoadBalancer balancer = balancer(stats);
+
+        balancer.select(List.of(fast, fresh));
+        // Geç gelen gözlem silinen kaydı geri getirmez
+        stats.recordLatency(slow, TimeUnit.MILLISECONDS.toNanos(5));
+        stats.requestFinished(slow);
+
+        assertFalse(stats.isEjected(slow, System.nanoTime()));
+        assertEquals(1.0, stats.cost(slow, 1.0, System.nanoTime()));
+    }
+
+    private static void sample(InstanceStatsRegistry stats, ServiceInstance instance, long latencyMillis) {
+        stats.requestStarted(instance);
+        stats.recordLatency(instance, TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        stats.requestFinished(instance);
+    }
+
+    private static void assertAlwaysSelects(ServiceInstance expected, LatencyAwareLoadBalancer balancer,
+                                            List<ServiceInstance> instances) {
+        for (int i = 0; i < 50; i++) {
+            assertSame(expected, balancer.select(instances).getServer());
+        }
+    }
+
+    private InstanceStatsRegistry stats(Duration probeAfter) {
+        return new InstanceStatsRegistry(meterRegistry, Duration.ofSeconds(10), 2, Duration.ofSeconds(30), probeAfter,
+                Duration.ofSeconds(1));
+    }
+
+    private static LatencyAwareLoadBalancer balancer(InstanceStatsRegistry stats) {
+        return new LatencyAwareLoadBalancer(null, SERVICE_ID, stats);
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host, SERVICE_ID, host, 8080, false);
+    }
+}
@@ -0,0 +1,105 @@
+package com.craftpilot.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HybridRateLimiterTest {
+    private static final String ROUTE = "llm-service";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Long> leases = new ArrayList<>();
+
+    @Test
+    void servesFromLocalLeaseAndRefillsBelowWatermark() {
+        HybridRateLimiter limiter = limiter(Duration.ofSeconds(1), amount -> Mono.just(List.of(amount, 90L)));
+        HybridRateLimiter.Config config = config(10, 100);
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(allowed(limiter, config));
+        }
+        // 100 × 0.1 = 10 jetonluk tek lease yedi isteği karşılar
+        assertEquals(List.of(10L), leases);
+
+        // Sekizinci istek bütçeyi filigranın (2,5) altına düşürür; eksik kısım arka planda tamamlanır
+        assertTrue(allowed(limiter, config));
+        assertEquals(List.of(10L, 8L), leases);
+    }
+
+    @Test
+    void expiredLeaseIsNotSpent() throws InterruptedException {
+        HybridRateLimiter limiter = limiter(Duration.ofMillis(50), amount -> Mono.just(List.of(amount, 90L)));
+        HybridRateLimiter.Config config = config(1000, 100);
+
+        assertTrue(allowed(limiter, config));
+        Thread.sleep(80);
+        assertTrue(allowed(limiter, config));
+
+        assertEquals(List.of(10L, 10L), leases);
+    }
+
+    @Test
+    void partialGrantDeniesLocallyWithoutAskingRedisAgain() {
+        HybridRateLimiter limiter = limiter(Duration.ofSeconds(1), amount -> Mono.just(List.of(3L, 0L)));
+        HybridRateLimiter.Config config = config(10, 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(allowed(limiter, config));
+        }
+        RateLimiter.Response denied = limiter.isAllowed(ROUTE, "user-1", config, 1).block();
+        assertFalse(denied.isAllowed());
+        assertEquals("1", denied.getHeaders().get(HttpHeaders.RETRY_AFTER));
+        assertFalse(allowed(limiter, config));
+
+        // Eksik yedi jeton dolana kadar (0,7 sn) Redis'e yeniden gidilmez
+        assertEquals(List.of(10L), leases);
+    }
+
+    @Test
+    void redisFailureFallsBackToLocalBucketWithSameLimit() {
+        HybridRateLimiter limiter = limiter(Duration.ofSeconds(1), amount -> Mono.error(new IllegalStateException("redis down")));
+        HybridRateLimiter.Config config = config(1, 2);
+
+        assertTrue(allowed(limiter, config));
+        assertTrue(allowed(limiter, config));
+        assertFalse(allowed(limiter, config));
+
+        assertEquals(1, leases.size());
+        assertEquals(1.0, meterRegistry.counter("gateway.ratelimit.redis.errors").count());
+        assertEquals(2.0, meterRegistry.get("gateway.ratelimit.decisions")
+                .tags("result", "allowed", "source", "fallback").counter().count());
+    }
+
+    private HybridRateLimiter limiter(Duration leaseTtl, LongFunction<Mono<List<Long>>> redis) {
+        return new HybridRateLimiter(null, null, meterRegistry, 4, 1000, 0.1, 0.25, leaseTtl,
+                Duration.ofSeconds(5), Duration.ofSeconds(1)) {
+            @Override
+            protected Mono<List<Long>> acquireLease(String key, Config config, long amount) {
+                leases.add(amount);
+                return redis.apply(amount);
+            }
+        };
+    }
+
+    private static boolean allowed(HybridRateLimiter limiter, HybridRateLimiter.Config config) {
+        return limiter.isAllowed(ROUTE, "user-1", config, 1).block().isAllowed();
+    }
+
+    private static HybridRateLimiter.Config config(int replenishRate, int burstCapacity) {
+        HybridRateLimiter.Config config = new HybridRateLimiter.Config();
+        config.setReplenishRate(replenishRate);
+        config.setBurstCapacity(burstCapacity);
+        return config;
+    }
+}
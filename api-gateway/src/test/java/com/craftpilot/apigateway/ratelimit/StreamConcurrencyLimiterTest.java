@@ -0,0 +1,107 @@
+package com.craftpilot.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamConcurrencyLimiterTest {
+
+    @Test
+    void timedOutAcquireRemovesItsPermitAndFallsBackLocally() {
+        List<String> released = new CopyOnWriteArrayList<>();
+        StreamConcurrencyLimiter limiter = new StreamConcurrencyLimiter(null, new SimpleMeterRegistry(),
+                Duration.ofMinutes(10), Duration.ofMillis(20)) {
+            @Override
+            protected Mono<Boolean> acquireGlobal(String semaphoreKey, int limit, String permitId) {
+                // Script Redis'te çalıştı ama yanıt zaman aşımından sonra geliyor
+                return Mono.just(true).delayElement(Duration.ofSeconds(1));
+            }
+
+            @Override
+            protected Mono<Void> releaseGlobal(String semaphoreKey, String permitId) {
+                released.add(semaphoreKey + "/" + permitId);
+                return Mono.empty();
+            }
+        };
+
+        StreamConcurrencyLimiter.Permit permit = limiter.tryAcquire("user-1", 2).block();
+
+        assertTrue(permit.local());
+        assertEquals(List.of("stream_semaphore.{user-1}/" + permit.id()), released);
+    }
+
+    @Test
+    void localFallbackEnforcesTheSameLimit() {
+        StreamConcurrencyLimiter limiter = new StreamConcurrencyLimiter(null, new SimpleMeterRegistry(),
+                Duration.ofMinutes(10), Duration.ofMillis(20)) {
+            @Override
+            protected Mono<Boolean> acquireGlobal(String semaphoreKey, int limit, String permitId) {
+                return Mono.error(new IllegalStateException("redis down"));
+            }
+
+            @Override
+            protected Mono<Void> releaseGlobal(String semaphoreKey, String permitId) {
+                return Mono.empty();
+            }
+        };
+
+        StreamConcurrencyLimiter.Permit first = limiter.tryAcquire("user-1", 1).block();
+        assertFalse(limiter.tryAcquire("user-1", 1).blockOptional().isPresent());
+        limiter.release(first).block();
+        assertTrue(limiter.tryAcquire("user-1", 1).blockOptional().isPresent());
+    }
+
+    @Test
+    void concurrentLocalAcquireAndReleaseNeverExceedsLimit() throws InterruptedException {
+        StreamConcurrencyLimiter limiter = redisDown();
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger maxHolders = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    StreamConcurrencyLimiter.Permit permit = limiter.tryAcquire("user-1", 2).block();
+                    if (permit != null) {
+                        maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                        holders.decrementAndGet();
+                        limiter.release(permit).block();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertTrue(maxHolders.get() <= 2);
+        // Bırakılan tüm izinlerden sonra sınır tam olarak yeniden kullanılabilir
+        assertTrue(limiter.tryAcquire("user-1", 2).blockOptional().isPresent());
+        assertTrue(limiter.tryAcquire("user-1", 2).blockOptional().isPresent());
+        assertFalse(limiter.tryAcquire("user-1", 2).blockOptional().isPresent());
+    }
+
+    private static StreamConcurrencyLimiter redisDown() {
+        return new StreamConcurrencyLimiter(null, new SimpleMeterRegistry(), Duration.ofMinutes(10), Duration.ofMillis(20)) {
+            @Override
+            protected Mono<Boolean> acquireGlobal(String semaphoreKey, int limit, String permitId) {
+                return Mono.error(new IllegalStateException("redis down"));
+            }
+
+            @Override
+            protected Mono<Void> releaseGlobal(String semaphoreKey, String permitId) {
+                return Mono.empty();
+            }
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.craftpilot.apigateway.security;
+
+import com.craftpilot.apigateway.cache.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FirebaseTokenVerifierTest {
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(true, 1000, Duration.ofSeconds(5), true,
+            Duration.ofSeconds(60), 100, new SimpleMeterRegistry());
+    private final AtomicInteger localCalls = new AtomicInteger();
+    private final AtomicInteger sdkCalls = new AtomicInteger();
+
+    @Test
+    void cachedTokenSkipsVerification() {
+        FirebaseTokenVerifier verifier = verifier(token -> valid("user-1"));
+
+        verifier.verify("t1").block();
+        VerifiedToken second = verifier.verify("t1").block();
+
+        assertEquals("user-1", second.getUid());
+        assertEquals(1, localCalls.get());
+    }
+
+    @Test
+    void unknownKeyIdFallsBackToAdminSdk() {
+        FirebaseTokenVerifier verifier = verifier(token -> null);
+
+        assertEquals("sdk-user", verifier.verify("t1").block().getUid());
+        assertEquals(1, sdkCalls.get());
+    }
+
+    @Test
+    void invalidTokenIsRejectedFromNegativeCache() {
+        FirebaseTokenVerifier verifier = verifier(token -> {
+            throw new IllegalArgumentException("ID token imzası geçersiz");
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> verifier.verify("bad").block());
+        assertThrows(RuntimeException.class, () -> verifier.verify("bad").block());
+        assertEquals(1, localCalls.get());
+    }
+
+    @Test
+    void tokenIssuedBeforeRevocationIsRejected() {
+        FirebaseTokenVerifier verifier = verifier(token -> valid("user-1"));
+        cache.revokeUser("user-1");
+
+        assertThrows(RuntimeException.class, () -> verifier.verify("t1").block());
+    }
+
+    private FirebaseTokenVerifier verifier(LocalResult local) {
+        LocalTokenVerifier localVerifier = new LocalTokenVerifier(false, "", Duration.ofMinutes(5), keyId -> null) {
+            @Override
+            public VerifiedToken verify(String token) {
+                localCalls.incrementAndGet();
+                return local.verify(token);
+            }
+        };
+        return new FirebaseTokenVerifier(null, cache, localVerifier) {
+            @Override
+            protected Mono<VerifiedToken> verifyWithFirebase(String token) {
+                sdkCalls.incrementAndGet();
+                return Mono.just(valid("sdk-user"));
+            }
+        };
+    }
+
+    private static VerifiedToken valid(String uid) {
+        long now = System.currentTimeMillis() / 1000L;
+        return VerifiedToken.builder()
+                .uid(uid)
+                .email("")
+                .role("USER")
+                .issuedAtEpochSeconds(now - 60)
+                .expiresAtEpochSeconds(now + 3600)
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface LocalResult {
+        VerifiedToken verify(String token);
+    }
+}
@@ -0,0 +1,39 @@
+package com.craftpilot.apigateway.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GoogleSigningKeySourceTest {
+
+    private final GoogleSigningKeySource keySource = new GoogleSigningKeySource(false, "http://localhost/certs",
+            Duration.ofMinutes(5), Duration.ofSeconds(60), Duration.ofSeconds(30), WebClient.builder());
+
+    @Test
+    void refreshIsScheduledAheadOfMaxAge() {
+        assertEquals(Duration.ofSeconds(21600 - 300),
+                keySource.nextRefreshDelay("public, max-age=21600, must-revalidate, no-transform"));
+    }
+
+    @Test
+    void refreshNeverRunsMoreOftenThanMinimumInterval() {
+        assertEquals(Duration.ofSeconds(60), keySource.nextRefreshDelay("public, max-age=120"));
+        assertEquals(Duration.ofSeconds(60), keySource.nextRefreshDelay(null));
+    }
+
+    @Test
+    void unknownKeyIdReturnsNull() {
+        assertNull(keySource.findKey("unknown"));
+    }
+
+    @Test
+    void malformedCertificateResponseIsRejected() {
+        assertThrows(IllegalStateException.class, () -> GoogleSigningKeySource.parseCertificates("{\"kid\":\"not a pem\"}"));
+        assertThrows(IllegalStateException.class, () -> GoogleSigningKeySource.parseCertificates("not json"));
+    }
+}
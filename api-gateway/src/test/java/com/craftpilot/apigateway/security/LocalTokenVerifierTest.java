@@ -0,0 +1,151 @@
+package com.craftpilot.apigateway.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalTokenVerifierTest {
+    private static final String PROJECT_ID = "craftpilot-test";
+    private static final String KEY_ID = "kid-1";
+    private static final long SKEW_SECONDS = Duration.ofMinutes(5).toSeconds();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static KeyPair signingKey;
+    private static KeyPair otherKey;
+
+    private final LocalTokenVerifier verifier = new LocalTokenVerifier(true, PROJECT_ID, Duration.ofMinutes(5),
+            keyId -> KEY_ID.equals(keyId) ? signingKey.getPublic() : null);
+
+    @BeforeAll
+    static void generateKeys() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        signingKey = generator.generateKeyPair();
+        otherKey = generator.generateKeyPair();
+    }
+
+    @Test
+    void acceptsValidToken() {
+        Map<String, Object> claims = claims();
+        claims.put("email", "user@craftpilot.io");
+        claims.put("role", "ADMIN");
+
+        VerifiedToken token = verifier.verify(token(header("RS256", KEY_ID), claims, signingKey.getPrivate()));
+
+        assertEquals("user-1", token.getUid());
+        assertEquals("user@craftpilot.io", token.getEmail());
+        assertEquals("ADMIN", token.getRole());
+        assertEquals(claims.get("exp"), token.getExpiresAtEpochSeconds());
+    }
+
+    @Test
+    void rejectsAlgorithmOtherThanRs256() {
+        String token = token(header("HS256", KEY_ID), claims(), signingKey.getPrivate());
+        assertThrows(IllegalArgumentException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void unknownKeyIdFallsBackToAdminSdk() {
+        assertNull(verifier.verify(token(header("RS256", "rotated"), claims(), signingKey.getPrivate())));
+    }
+
+    @Test
+    void rejectsSignatureFromAnotherKey() {
+        String token = token(header("RS256", KEY_ID), claims(), otherKey.getPrivate());
+        assertThrows(IllegalArgumentException.class, () -> verifier.verify(token));
+    }
+
+    @Test
+    void rejectsWrongAudienceIssuerOrSubject() {
+        Map<String, Object> wrongAudience = claims();
+        wrongAudience.put("aud", "other-project");
+        Map<String, Object> wrongIssuer = claims();
+        wrongIssuer.put("iss", "https://securetoken.google.com/other-project");
+        Map<String, Object> emptySubject = claims();
+        emptySubject.put("sub", "");
+
+        for (Map<String, Object> claims : List.of(wrongAudience, wrongIssuer, emptySubject)) {
+            String token = token(header("RS256", KEY_ID), claims, signingKey.getPrivate());
+            assertThrows(IllegalArgumentException.class, () -> verifier.verify(token));
+        }
+    }
+
+    @Test
+    void timeClaimsAreCheckedWithClockSkew() {
+        long now = now();
+        Map<String, Object> expiredWithinSkew = claims();
+        expiredWithinSkew.put("exp", now - SKEW_SECONDS + 30);
+        verifier.verify(token(header("RS256", KEY_ID), expiredWithinSkew, signingKey.getPrivate()));
+
+        Map<String, Object> expired = claims();
+        expired.put("exp", now - SKEW_SECONDS - 30);
+        Map<String, Object> issuedInFuture = claims();
+        issuedInFuture.put("iat", now + SKEW_SECONDS + 30);
+        Map<String, Object> authTimeInFuture = claims();
+        authTimeInFuture.put("auth_time", now + SKEW_SECONDS + 30);
+
+        for (Map<String, Object> claims : List.of(expired, issuedInFuture, authTimeInFuture)) {
+            String token = token(header("RS256", KEY_ID), claims, signingKey.getPrivate());
+            assertThrows(IllegalStateException.class, () -> verifier.verify(token));
+        }
+    }
+
+    @Test
+    void disabledWithoutProjectId() {
+        LocalTokenVerifier unconfigured = new LocalTokenVerifier(true, "", Duration.ofMinutes(5), keyId -> signingKey.getPublic());
+        assertNull(unconfigured.verify(token(header("RS256", KEY_ID), claims(), signingKey.getPrivate())));
+    }
+
+    private static Map<String, Object> header(String alg, String kid) {
+        Map<String, Object> header = new HashMap<>();
+        header.put("alg", alg);
+        header.put("kid", kid);
+        return header;
+    }
+
+    private static Map<String, Object> claims() {
+        long now = now();
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("iss", "https://securetoken.google.com/" + PROJECT_ID);
+        claims.put("aud", PROJECT_ID);
+        claims.put("sub", "user-1");
+        claims.put("iat", now - 60);
+        claims.put("auth_time", now - 60);
+        claims.put("exp", now + 3600);
+        return claims;
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000L;
+    }
+
+    static String token(Map<String, Object> header, Map<String, Object> claims, PrivateKey key) {
+        try {
+            Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            String signingInput = encoder.encodeToString(MAPPER.writeValueAsBytes(header)) + "."
+                    + encoder.encodeToString(MAPPER.writeValueAsBytes(claims));
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(key);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + encoder.encodeToString(signature.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.craftpilot.creditservice.loadtest;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.idempotency.IdempotencyStore;
+import com.craftpilot.creditservice.ledger.CreditLedger;
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditDebitOutcome;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import com.craftpilot.creditservice.service.CreditService;
+import com.craftpilot.creditservice.usage.CreditUsageRecorder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Toplu düşüm API'sini tek tek processTransaction çağrılarıyla karşılaştırır: aynı N kalem (varsayılan 10k,
+ * idempotency anahtarlı) önce tek tek, sonra --batchSize'lık isteklerle CreditService üzerinden uygulanır.
+ *
+ * <pre>
+ * # Defter kapalı: Firestore commit başına --firestoreMs gecikmeli bellek içi depo (harici bağımlılık yok)
+ * java -cp target/benchmarks.jar com.craftpilot.creditservice.loadtest.BatchDebitLoadHarness --entries=10000
+ * # Defter açık: yerel Redis gerekir
+ * docker run -d -p 6379:6379 redis:7
+ * java -cp target/benchmarks.jar com.craftpilot.creditservice.loadtest.BatchDebitLoadHarness --mode=ledger
+ * </pre>
+ *
+ * Taklit depo aynı belgeye eşzamanlı transaction'ların çakışıp yeniden denenmesini modellemez; tek tek çağrılar
+ * için iyimserdir. Rapor target/batch-debit-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class BatchDebitLoadHarness {
+    private static final BigDecimal DEBIT = new BigDecimal("0.01");
+    private static final BigDecimal BALANCE = new BigDecimal(1000);
+
+    private BatchDebitLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String mode = options.getOrDefault("mode", "firestore");
+        int entries = Integer.parseInt(options.getOrDefault("entries", "10000"));
+        int users = Integer.parseInt(options.getOrDefault("users", "100"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batchSize", "1000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        int firestoreMs = Integer.parseInt(options.getOrDefault("firestoreMs", "30"));
+        String prefix = "batchtest-" + System.currentTimeMillis();
+
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SimulatedFirestore firestore = new SimulatedFirestore(Duration.ofMillis(firestoreMs));
+        LettuceConnectionFactory connectionFactory = null;
+        CreditLedger ledger = null;
+        ReactiveStringRedisTemplate redisTemplate = null;
+        if ("ledger".equals(mode)) {
+            connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                    options.getOrDefault("redisHost", "localhost"), Integer.parseInt(options.getOrDefault("redisPort", "6379"))));
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+            redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+            ledger = new CreditLedger(redisTemplate, objectMapper, meterRegistry,
+                    "credit_ledger:journal:" + prefix, "credit_events:outbox:" + prefix);
+        }
+        CreditService service = service(firestore, ledger, objectMapper, meterRegistry);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", mode);
+        result.put("entries", entries);
+        result.put("users", users);
+        result.put("batchSize", batchSize);
+        result.put("singleCallConcurrency", concurrency);
+        result.put("firestoreCommitMs", firestoreMs);
+        try {
+            for (int user = 0; user < users; user++) {
+                firestore.seed(credit(userId(prefix + "-single", user)));
+                firestore.seed(credit(userId(prefix + "-batch", user)));
+                firestore.seed(credit(userId(prefix + "-warmup", user)));
+            }
+            // JIT ısınması; ayrı kullanıcılarla, sonuçlara dahil edilmez
+            single(service, firestore, prefix + "-warmup", Math.min(entries, 2000), users, concurrency);
+
+            Map<String, Object> single = single(service, firestore, prefix + "-single", entries, users, concurrency);
+            Map<String, Object> batch = batch(service, firestore, prefix + "-batch", entries, users, batchSize);
+            result.put("single", single);
+            result.put("batch", batch);
+            result.put("speedup", Math.round((double) batch.get("entriesPerSecond")
+                    / (double) single.get("entriesPerSecond") * 10) / 10.0);
+            result.put("balancesMatch", verify(service, prefix, users));
+        } finally {
+            if (redisTemplate != null) {
+                ReactiveStringRedisTemplate redis = redisTemplate;
+                CreditLedger hot = ledger;
+                Flux.just(prefix + "-single", prefix + "-batch", prefix + "-warmup")
+                        .flatMap(run -> Flux.range(0, users).flatMap(user -> hot.evict(userId(run, user))))
+                        .thenMany(redis.scan(ScanOptions.scanOptions().match("credit_idem:" + prefix + "*").count(1000).build()))
+                        .flatMap(redis::delete)
+                        .then(redis.delete(hot.journalKey(), hot.outboxKey()))
+                        .block(Duration.ofSeconds(60));
+                connectionFactory.destroy();
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/batch-debit-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+        System.exit(0);
+    }
+
+    static Map<String, Object> single(CreditService service, SimulatedFirestore firestore, String prefix, int entries,
+                                      int users, int concurrency) {
+        LatencyStats latency = new LatencyStats();
+        long commitsBefore = firestore.commits.get();
+        long start = System.nanoTime();
+        Long applied = Flux.range(0, entries)
+                .flatMap(i -> {
+                    long sent = System.nanoTime();
+                    return service.processTransaction(userId(prefix, i % users), "image-service", DEBIT, "DEBIT",
+                                    "render", "STANDARD", "entry-" + i)
+                            .doFinally(signal -> latency.record(System.nanoTime() - sent));
+                }, concurrency)
+                .count()
+                .block(Duration.ofMinutes(10));
+        return summary(entries, applied, start, firestore.commits.get() - commitsBefore, entries, latency);
+    }
+
+    static Map<String, Object> batch(CreditService service, SimulatedFirestore firestore, String prefix, int entries,
+                                     int users, int batchSize) {
+        List<List<CreditTransaction>> requests = new ArrayList<>();
+        for (int start = 0; start < entries; start += batchSize) {
+            List<CreditTransaction> request = new ArrayList<>(batchSize);
+            for (int i = start; i < Math.min(start + batchSize, entries); i++) {
+                request.add(CreditTransaction.builder()
+                        .userId(userId(prefix, i % users))
+                        .serviceId("image-service")
+                        .amount(DEBIT)
+                        .description("render")
+                        .creditType("STANDARD")
+                        .idempotencyKey("entry-" + i)
+                        .build());
+            }
+            requests.add(request);
+        }
+        LatencyStats latency = new LatencyStats();
+        long commitsBefore = firestore.commits.get();
+        long start = System.nanoTime();
+        // Ölçüm yapan servis tek istemci gibi istekleri sırayla gönderir
+        Long applied = Flux.fromIterable(requests)
+                .concatMap(request -> {
+                    long sent = System.nanoTime();
+                    return service.processBatchDebit(request)
+                            .doFinally(signal -> latency.record(System.nanoTime() - sent));
+                })
+                .flatMapIterable(outcomes -> outcomes)
+                .filter(outcome -> outcome.status() == CreditDebitOutcome.Status.APPLIED)
+                .count()
+                .block(Duration.ofMinutes(10));
+        return summary(entries, applied, start, firestore.commits.get() - commitsBefore, requests.size(), latency);
+    }
+
+    /**
+     * Her iki yoldan sonra kullanıcı bakiyeleri aynı olmalı
+     */
+    static boolean verify(CreditService service, String prefix, int users) {
+        for (int user = 0; user < users; user++) {
+            Credit single = service.getUserCredits(userId(prefix + "-single", user)).block();
+            Credit batch = service.getUserCredits(userId(prefix + "-batch", user)).block();
+            if (single == null || batch == null || single.getBalance().compareTo(batch.getBalance()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Object> summary(int entries, Long applied, long start, long commits, int requests,
+                                               LatencyStats latency) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", requests);
+        summary.put("applied", applied);
+        summary.put("seconds", Math.round(seconds * 1000) / 1000.0);
+        summary.put("entriesPerSecond", (double) Math.round(entries / seconds));
+        summary.put("firestoreCommits", commits);
+        summary.put("requestLatency", latency.summary());
+        return summary;
+    }
+
+    private static CreditService service(SimulatedFirestore firestore, CreditLedger ledger, ObjectMapper objectMapper,
+                                         SimpleMeterRegistry meterRegistry) throws ReflectiveOperationException {
+        CreditUsageRecorder usageRecorder = new CreditUsageRecorder(null, meterRegistry, Duration.ofMinutes(1), 100);
+        CreditService service = new CreditService(firestore, null, meterRegistry, ledger, null,
+                usageRecorder, new LocalIdempotencyStore(objectMapper, meterRegistry));
+        // Spring dışında kurulduğu için @Value alanları elle verilir
+        set(service, "ledgerEnabled", ledger != null);
+        return service;
+    }
+
+    private static void set(Object target, String field, Object value) throws ReflectiveOperationException {
+        Field declared = target.getClass().getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(target, value);
+    }
+
+    private static Credit credit(String userId) {
+        return Credit.builder()
+                .id(userId)
+                .userId(userId)
+                .balance(BALANCE)
+                .totalCreditsEarned(BALANCE)
+                .totalCreditsUsed(BigDecimal.ZERO)
+                .advancedBalance(BigDecimal.ZERO)
+                .totalAdvancedCreditsEarned(BigDecimal.ZERO)
+                .totalAdvancedCreditsUsed(BigDecimal.ZERO)
+                .createdAt(LocalDateTime.now())
+                .lastUpdated(LocalDateTime.now())
+                .build();
+    }
+
+    private static String userId(String prefix, int user) {
+        return prefix + "-user-" + user;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Redis'siz idempotency deposu: yalnızca pod içi LRU kullanılır; asıl kontrol depoda yapılır
+     */
+    static final class LocalIdempotencyStore extends IdempotencyStore {
+        LocalIdempotencyStore(ObjectMapper objectMapper, SimpleMeterRegistry meterRegistry) {
+            super(null, objectMapper, meterRegistry, Duration.ofHours(1), 100_000);
+        }
+
+        @Override
+        public Mono<CreditTransaction> find(String userId, String key) {
+            return Mono.justOrEmpty(findLocally(userId, key));
+        }
+
+        @Override
+        public Mono<Void> remember(String userId, String key, CreditTransaction transaction) {
+            rememberLocally(userId, key, transaction);
+            return Mono.empty();
+        }
+    }
+
+    /**
+     * Firestore transaction'ının bellek içi karşılığı; commit başına sabit gecikme ekler. Belgeler, işlem
+     * kayıtları ve outbox olayları tek kilit altında yazılır.
+     */
+    static final class SimulatedFirestore extends CreditRepository {
+        private final Duration commitLatency;
+        private final Map<String, Credit> credits = new ConcurrentHashMap<>();
+        private final Map<String, CreditTransaction> transactions = new ConcurrentHashMap<>();
+        private final Map<String, CreditEvent> outbox = new ConcurrentHashMap<>();
+        private final AtomicLong commits = new AtomicLong();
+
+        SimulatedFirestore(Duration commitLatency) {
+            super(null, new SimpleMeterRegistry());
+            this.commitLatency = commitLatency;
+        }
+
+        void seed(Credit credit) {
+            credits.put(credit.getUserId(), credit);
+        }
+
+        @Override
+        public Mono<Credit> findByUserId(String userId) {
+            return Mono.justOrEmpty(credits.get(userId));
+        }
+
+        @Override
+        public Mono<CreditTransaction> updateOnce(String creditId, UnaryOperator<Credit> mutation, CreditTransaction journal,
+                                                  Supplier<List<CreditEvent>> events) {
+            return Mono.delay(commitLatency)
+                    .map(tick -> commit(creditId, List.of(journal), (current, entry) -> mutation.apply(current),
+                            entry -> events.get()).get(0));
+        }
+
+        @Override
+        public Mono<List<CreditTransaction>> updateBatch(String creditId, List<CreditTransaction> journal,
+                                                         BiFunction<Credit, CreditTransaction, Credit> mutation,
+                                                         Function<CreditTransaction, List<CreditEvent>> events) {
+            return Mono.delay(commitLatency).map(tick -> commit(creditId, journal, mutation, events));
+        }
+
+        @Override
+        public Mono<Void> persistJournal(Collection<CreditTransaction> journal, Collection<Credit> balances) {
+            // Defter modunda flusher çalıştırılmaz
+            return Mono.empty();
+        }
+
+        private synchronized List<CreditTransaction> commit(String creditId, List<CreditTransaction> journal,
+                                                            BiFunction<Credit, CreditTransaction, Credit> mutation,
+                                                            Function<CreditTransaction, List<CreditEvent>> events) {
+            commits.incrementAndGet();
+            Credit current = credits.get(creditId);
+            List<CreditTransaction> results = new ArrayList<>(journal.size());
+            for (CreditTransaction entry : journal) {
+                CreditTransaction previous = transactions.get(entry.getId());
+                if (previous != null) {
+                    results.add(previous);
+                    continue;
+                }
+                Credit updated = mutation.apply(current, entry);
+                if (updated != null) {
+                    current = updated;
+                    transactions.put(entry.getId(), entry);
+                    events.apply(entry).forEach(event -> outbox.put(event.getEventId(), event));
+                }
+                results.add(updated == null ? null : entry);
+            }
+            credits.put(creditId, current);
+            return results;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.craftpilot.creditservice.loadtest;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.ledger.CreditEventRelay;
+import com.craftpilot.creditservice.ledger.CreditLedger;
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import reactor.core.publisher.Flux;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox relay'ini yerel bir Redis ve Kafka'ya karşı ölçer: defter script'i üzerinden yazılan olayların
+ * Kafka'ya aktarım hızı, outbox'a yazılmasından broker onayına kadar geçen gecikme ve yük ortasında relay
+ * değiştiğinde (lease devri) hiçbir olayın kaybolmadığı, tekrarlanmadığı ve kullanıcı bazında sıranın korunduğu.
+ *
+ * <pre>
+ * docker run -d -p 6379:6379 redis:7
+ * docker run -d -p 9092:9092 apache/kafka:3.7.0
+ * java -cp target/benchmarks.jar com.craftpilot.creditservice.loadtest.EventRelayLoadHarness --events=200000 --users=1000
+ * </pre>
+ *
+ * Olaylar her kullanıcı için sırayla, kullanıcılar arasında paralel yazılır; olay id'sindeki sıra numarası
+ * tüketici tarafında kullanıcı bazında artan olmalıdır. Rapor target/event-relay-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class EventRelayLoadHarness {
+    private static final BigDecimal DEBIT = new BigDecimal("0.01");
+
+    private EventRelayLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int events = Integer.parseInt(options.getOrDefault("events", "200000"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int batchSize = Integer.parseInt(options.getOrDefault("batchSize", "500"));
+        String bootstrap = options.getOrDefault("bootstrap", "localhost:9092");
+        String prefix = "relaytest-" + System.currentTimeMillis();
+        String topic = options.getOrDefault("topic", prefix);
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                options.getOrDefault("redisHost", "localhost"), Integer.parseInt(options.getOrDefault("redisPort", "6379"))));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        ReactiveStringRedisTemplate redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Relay aynı isimle kaydettiğinde bu tanım (yüzdelikleriyle) kullanılır
+        Timer.builder("credit.outbox.lag").publishPercentiles(0.5, 0.99, 0.999).register(meterRegistry);
+        CreditLedger ledger = new CreditLedger(redisTemplate, objectMapper, meterRegistry,
+                "credit_ledger:journal:" + prefix, "credit_events:outbox:" + prefix);
+        DefaultKafkaProducerFactory<String, CreditEvent> producerFactory = producerFactory(bootstrap);
+        KafkaTemplate<String, CreditEvent> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("events", events);
+        result.put("users", users);
+        result.put("batchSize", batchSize);
+
+        try (KafkaConsumer<String, String> consumer = consumer(bootstrap, prefix)) {
+            consumer.subscribe(List.of(topic));
+            Flux.range(0, users)
+                    .flatMap(user -> ledger.seed(credit(prefix, user)), 64)
+                    .blockLast(Duration.ofSeconds(30));
+
+            CreditEventRelay relay = relay(redisTemplate, ledger, kafkaTemplate, objectMapper, meterRegistry,
+                    topic, "relay-a", batchSize);
+            relay.start();
+
+            long start = System.nanoTime();
+            int perUser = events / users;
+            // Kullanıcı içinde sıralı, kullanıcılar arasında paralel yazım
+            Flux.range(0, users)
+                    .flatMap(user -> Flux.range(0, perUser)
+                            .concatMap(sequence -> ledger.apply(userId(prefix, user), debit(userId(prefix, user)),
+                                    event(prefix, user, sequence))), 256)
+                    .index()
+                    .filter(indexed -> indexed.getT1() == (long) perUser * users / 2)
+                    // Yük ortasında lider değişimi: eski relay lease'i bırakır, yenisi devralır
+                    .doOnNext(half -> Thread.ofVirtual().start(() -> {
+                        relay.stop();
+                        relay(redisTemplate, ledger, kafkaTemplate, objectMapper, meterRegistry,
+                                topic, "relay-b", batchSize).start();
+                    }))
+                    .blockLast(Duration.ofMinutes(10));
+            long written = (long) perUser * users;
+            result.put("writeSeconds", (System.nanoTime() - start) / 1e9);
+
+            Map<String, Object> delivery = consume(consumer, objectMapper, written, prefix);
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            result.put("relayedPerSecond", Math.round(written / elapsedSeconds));
+            result.put("delivery", delivery);
+            result.put("lagMillis", lag(meterRegistry));
+        } finally {
+            redisTemplate.delete(ledger.journalKey(), ledger.outboxKey(), ledger.outboxKey() + ":lease")
+                    .thenMany(Flux.range(0, users).flatMap(user -> ledger.evict(userId(prefix, user)), 64))
+                    .blockLast(Duration.ofSeconds(30));
+            producerFactory.destroy();
+            connectionFactory.destroy();
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/event-relay-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+        System.exit(0);
+    }
+
+    /**
+     * Beklenen sayıda farklı olay gelene kadar (en fazla 2 dk) topic'i okur; kayıp, tekrar ve kullanıcı
+     * bazında sıra ihlallerini sayar
+     */
+    static Map<String, Object> consume(KafkaConsumer<String, String> consumer, ObjectMapper objectMapper,
+                                       long expected, String prefix) throws Exception {
+        Map<String, Integer> lastSequence = new HashMap<>();
+        Map<String, Boolean> seen = new HashMap<>();
+        long duplicates = 0;
+        long outOfOrder = 0;
+        long keyMismatches = 0;
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (seen.size() < expected && System.nanoTime() < deadline) {
+            for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                CreditEvent event = objectMapper.readValue(record.value(), CreditEvent.class);
+                if (!event.getEventId().startsWith(prefix)) {
+                    continue;
+                }
+                if (!event.getUserId().equals(record.key())) {
+                    keyMismatches++;
+                }
+                if (seen.put(event.getEventId(), Boolean.TRUE) != null) {
+                    duplicates++;
+                    continue;
+                }
+                int sequence = Integer.parseInt(event.getEventId().substring(event.getEventId().lastIndexOf('-') + 1));
+                Integer previous = lastSequence.put(event.getUserId(), sequence);
+                if (previous != null && sequence <= previous) {
+                    outOfOrder++;
+                }
+            }
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("expected", expected);
+        summary.put("delivered", seen.size());
+        summary.put("lost", expected - seen.size());
+        summary.put("duplicates", duplicates);
+        summary.put("outOfOrder", outOfOrder);
+        summary.put("keyMismatches", keyMismatches);
+        return summary;
+    }
+
+    private static Map<String, Object> lag(SimpleMeterRegistry meterRegistry) {
+        Timer timer = meterRegistry.get("credit.outbox.lag").timer();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("mean", timer.mean(TimeUnit.MILLISECONDS));
+        summary.put("max", timer.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            summary.put("p" + percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return summary;
+    }
+
+    private static CreditEventRelay relay(ReactiveStringRedisTemplate redisTemplate, CreditLedger ledger,
+                                          KafkaTemplate<String, CreditEvent> kafkaTemplate, ObjectMapper objectMapper,
+                                          SimpleMeterRegistry meterRegistry, String topic, String owner, int batchSize) {
+        return new CreditEventRelay(redisTemplate, ledger, kafkaTemplate, objectMapper, meterRegistry,
+                topic, true, owner, batchSize, Duration.ofMillis(5), Duration.ofSeconds(5));
+    }
+
+    /**
+     * Servisin application.yml'deki üretici ayarlarıyla aynı
+     */
+    private static DefaultKafkaProducerFactory<String, CreditEvent> producerFactory(String bootstrap) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, 65536);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, 10);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    private static KafkaConsumer<String, String> consumer(String bootstrap, String group) {
+        Properties config = new Properties();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, group);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        return new KafkaConsumer<>(config, new StringDeserializer(), new StringDeserializer());
+    }
+
+    private static CreditEvent event(String prefix, int user, int sequence) {
+        return CreditEvent.builder()
+                .eventId(prefix + "-" + user + "-" + sequence)
+                .userId(userId(prefix, user))
+                .type("DEBIT")
+                .creditType("STANDARD")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static CreditTransaction debit(String userId) {
+        return CreditTransaction.builder()
+                .userId(userId)
+                .serviceId("llm-service")
+                .amount(DEBIT)
+                .type("DEBIT")
+                .creditType("STANDARD")
+                .description("chat")
+                .status(CreditTransaction.TransactionStatus.COMPLETED)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    private static Credit credit(String prefix, int user) {
+        BigDecimal balance = new BigDecimal(1_000_000);
+        return Credit.builder()
+                .id(userId(prefix, user))
+                .userId(userId(prefix, user))
+                .balance(balance)
+                .totalCreditsEarned(balance)
+                .totalCreditsUsed(BigDecimal.ZERO)
+                .advancedBalance(BigDecimal.ZERO)
+                .totalAdvancedCreditsEarned(BigDecimal.ZERO)
+                .totalAdvancedCreditsUsed(BigDecimal.ZERO)
+                .createdAt(LocalDateTime.now())
+                .lastUpdated(LocalDateTime.now())
+                .build();
+    }
+
+    private static String userId(String prefix, int user) {
+        return prefix + "-user-" + user;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,317 @@
+package com.craftpilot.creditservice.loadtest;
+
+import com.craftpilot.creditservice.ledger.CreditLedger;
+import com.craftpilot.creditservice.ledger.CreditLedgerFlusher;
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Redis kredi defterini yerel bir Redis'e karşı açık döngü yük altında ölçer: düşüm gecikmesi
+ * (hedef: 10k işlem/sn'de p99 &lt; 1 ms), write-behind flusher'ın yüke yetişip yetişmediği ve
+ * yük ortasında flusher'ın çökertilip yeniden başlatılmasından sonra hiçbir işlemin kaybolmadığı.
+ *
+ * <pre>
+ * docker run -d -p 6379:6379 redis:7 redis-server --appendonly yes
+ * java -cp target/benchmarks.jar com.craftpilot.creditservice.loadtest.LedgerLoadHarness --rate=10000 --seconds=20
+ * </pre>
+ *
+ * Firestore, commit başına --firestoreMs gecikmeli bellek içi bir depoyla taklit edilir. Her onuncu
+ * kullanıcının bakiyesi az tutulur; bu kullanıcılar için bakiyenin hiçbir zaman eksiye düşmediği doğrulanır.
+ * Rapor target/ledger-result.json dosyasına yazılır.
+ */
+@Slf4j
+public final class LedgerLoadHarness {
+    private static final BigDecimal DEBIT = new BigDecimal("0.01");
+    private static final BigDecimal RICH_BALANCE = new BigDecimal(1000);
+    private static final BigDecimal POOR_BALANCE = new BigDecimal("0.5");
+
+    private LedgerLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "10000"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int firestoreMs = Integer.parseInt(options.getOrDefault("firestoreMs", "30"));
+        String prefix = "loadtest-" + System.currentTimeMillis();
+
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                options.getOrDefault("redisHost", "localhost"), Integer.parseInt(options.getOrDefault("redisPort", "6379"))));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        ReactiveStringRedisTemplate redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        CreditLedger ledger = new CreditLedger(redisTemplate, objectMapper, meterRegistry, "credit_ledger:journal:" + prefix,
+                "credit_events:outbox:" + prefix);
+        SimulatedFirestore firestore = new SimulatedFirestore(Duration.ofMillis(firestoreMs));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rate", rate);
+        result.put("seconds", seconds);
+        result.put("users", users);
+        result.put("firestoreCommitMs", firestoreMs);
+
+        try {
+            Flux.range(0, users)
+                    .flatMap(user -> ledger.seed(credit(prefix, user)).then(ledger.seed(credit(prefix + "-warmup", user))), 64)
+                    .blockLast(Duration.ofSeconds(30));
+
+            // JIT ve bağlantı ısınması; ayrı kullanıcılarla, sonuçlara dahil edilmez
+            run(ledger, prefix + "-warmup", users, rate, 3, null);
+
+            CreditLedgerFlusher flusher = flusher(redisTemplate, ledger, firestore, objectMapper, meterRegistry);
+            flusher.start();
+            long crashAtOp = (long) rate * seconds / 2;
+            Runnable crash = () -> {
+                // Yük ortasında pod çöküşü: ACK'lenmemiş kayıtlar pending kalır, aynı consumer adıyla yeniden başlatılır
+                flusher.stop();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(500));
+                flusher(redisTemplate, ledger, firestore, objectMapper, meterRegistry).start();
+            };
+            RunResult load = run(ledger, prefix, users, rate, seconds, new Crash(crashAtOp, crash));
+            result.put("debit", load.summary());
+
+            long drainStart = System.nanoTime();
+            while (redisTemplate.opsForStream().size(ledger.journalKey()).block() > 0
+                    && System.nanoTime() - drainStart < TimeUnit.SECONDS.toNanos(60)) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+            result.put("drainAfterLoadMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart));
+            result.put("writeBehind", verify(ledger, firestore, prefix, users, load));
+            result.put("firestoreCommits", firestore.commits.get());
+            result.put("replayedEntries", meterRegistry.counter("credit.ledger.replayed").count());
+        } finally {
+            cleanup(redisTemplate, ledger, prefix, users);
+            connectionFactory.destroy();
+        }
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/ledger-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+        System.exit(0);
+    }
+
+    static RunResult run(CreditLedger ledger, String prefix, int users, int rate, int seconds, Crash crash)
+            throws InterruptedException {
+        LatencyStats latency = new LatencyStats();
+        AtomicLongArray accepted = new AtomicLongArray(users);
+        AtomicLong insufficient = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long total = (long) rate * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        CountDownLatch done = new CountDownLatch((int) total);
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            if (crash != null && i == crash.atOp()) {
+                Thread.ofVirtual().start(crash.action());
+            }
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int user = (int) (i % users);
+            ledger.apply(userId(prefix, user), debit(userId(prefix, user)))
+                    .doOnNext(applied -> {
+                        if (applied.accepted()) {
+                            accepted.incrementAndGet(user);
+                        } else {
+                            insufficient.incrementAndGet();
+                        }
+                    })
+                    .doOnError(e -> errors.incrementAndGet())
+                    .doFinally(signal -> {
+                        latency.record(System.nanoTime() - intended);
+                        done.countDown();
+                    })
+                    .onErrorResume(e -> Mono.empty())
+                    .subscribe();
+        }
+        done.await(seconds + 30L, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        return new RunResult(total, elapsedSeconds, accepted, insufficient.get(), errors.get(), latency);
+    }
+
+    /**
+     * Her kullanıcı için: defterdeki bakiye = başlangıç - kabul edilen düşümler, bakiye eksiye düşmemiş,
+     * kabul edilen her işlem Firestore'a yazılmış ve Firestore'daki bakiye defterle aynı
+     */
+    static Map<String, Object> verify(CreditLedger ledger, SimulatedFirestore firestore, String prefix, int users,
+                                      RunResult load) {
+        long ledgerMismatches = 0;
+        long negativeBalances = 0;
+        long firestoreMismatches = 0;
+        for (int user = 0; user < users; user++) {
+            String userId = userId(prefix, user);
+            Credit hot = ledger.find(userId).block();
+            BigDecimal expected = initialBalance(user).subtract(DEBIT.multiply(BigDecimal.valueOf(load.accepted().get(user))));
+            if (hot == null || hot.getBalance().compareTo(expected) != 0) {
+                ledgerMismatches++;
+            }
+            if (hot != null && hot.getBalance().signum() < 0) {
+                negativeBalances++;
+            }
+            Credit durable = firestore.balances.get(userId(prefix, user));
+            if (hot != null && (durable == null || durable.getBalance().compareTo(hot.getBalance()) != 0
+                    || durable.getLedgerSequence() != hot.getLedgerSequence())) {
+                firestoreMismatches++;
+            }
+        }
+        long acceptedTotal = 0;
+        for (int user = 0; user < users; user++) {
+            acceptedTotal += load.accepted().get(user);
+        }
+
+        // Isınma turunun işlemleri de aynı journal'dan yazılır; yalnızca ölçülen turunkiler sayılır
+        long persisted = firestore.transactions.values().stream()
+                .filter(transaction -> transaction.getUserId().startsWith(prefix + "-user-"))
+                .count();
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("acceptedDebits", acceptedTotal);
+        summary.put("persistedTransactions", persisted);
+        summary.put("lostTransactions", acceptedTotal - persisted);
+        summary.put("ledgerBalanceMismatches", ledgerMismatches);
+        summary.put("negativeBalances", negativeBalances);
+        summary.put("firestoreBalanceMismatches", firestoreMismatches);
+        return summary;
+    }
+
+    private static CreditLedgerFlusher flusher(ReactiveStringRedisTemplate redisTemplate, CreditLedger ledger,
+                                               SimulatedFirestore firestore, ObjectMapper objectMapper,
+                                               SimpleMeterRegistry meterRegistry) {
+        return new CreditLedgerFlusher(redisTemplate, ledger, firestore, objectMapper, meterRegistry,
+                true, "loadtest-flusher", "loadtest-consumer", 200, Duration.ofMillis(20), Duration.ofSeconds(5));
+    }
+
+    private static void cleanup(ReactiveStringRedisTemplate redisTemplate, CreditLedger ledger, String prefix, int users) {
+        Flux.range(0, users)
+                .flatMap(user -> Flux.just(userId(prefix, user), userId(prefix + "-warmup", user)))
+                .flatMap(ledger::evict, 64)
+                .then(redisTemplate.delete(ledger.journalKey(), ledger.outboxKey()))
+                .block(Duration.ofSeconds(30));
+    }
+
+    private static CreditTransaction debit(String userId) {
+        return CreditTransaction.builder()
+                .userId(userId)
+                .serviceId("llm-service")
+                .amount(DEBIT)
+                .type("DEBIT")
+                .creditType("STANDARD")
+                .description("chat")
+                .status(CreditTransaction.TransactionStatus.COMPLETED)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    private static Credit credit(String prefix, int user) {
+        BigDecimal balance = initialBalance(user);
+        return Credit.builder()
+                .id(userId(prefix, user))
+                .userId(userId(prefix, user))
+                .balance(balance)
+                .totalCreditsEarned(balance)
+                .totalCreditsUsed(BigDecimal.ZERO)
+                .advancedBalance(BigDecimal.ZERO)
+                .totalAdvancedCreditsEarned(BigDecimal.ZERO)
+                .totalAdvancedCreditsUsed(BigDecimal.ZERO)
+                .createdAt(LocalDateTime.now())
+                .lastUpdated(LocalDateTime.now())
+                .build();
+    }
+
+    private static BigDecimal initialBalance(int user) {
+        return user % 10 == 0 ? POOR_BALANCE : RICH_BALANCE;
+    }
+
+    private static String userId(String prefix, int user) {
+        return prefix + "-user-" + user;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    record Crash(long atOp, Runnable action) {
+    }
+
+    record RunResult(long total, double elapsedSeconds, AtomicLongArray accepted, long insufficient, long errors,
+                     LatencyStats latency) {
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("operations", total);
+            summary.put("achievedOpsPerSecond", Math.round(total / elapsedSeconds));
+            summary.put("insufficient", insufficient);
+            summary.put("errors", errors);
+            summary.put("latency", latency.summary());
+            return summary;
+        }
+    }
+
+    /**
+     * Firestore batch commit'inin bellek içi karşılığı; commit başına sabit gecikme ekler
+     */
+    static final class SimulatedFirestore extends CreditRepository {
+        private final Duration commitLatency;
+        private final Map<String, CreditTransaction> transactions = new ConcurrentHashMap<>();
+        private final Map<String, Credit> balances = new ConcurrentHashMap<>();
+        private final AtomicLong commits = new AtomicLong();
+
+        SimulatedFirestore(Duration commitLatency) {
+            super(null, new SimpleMeterRegistry());
+            this.commitLatency = commitLatency;
+        }
+
+        @Override
+        public Mono<Void> persistJournal(Collection<CreditTransaction> journal, Collection<Credit> snapshots) {
+            return Mono.delay(commitLatency)
+                    .doOnNext(tick -> {
+                        journal.forEach(transaction -> transactions.put(transaction.getId(), transaction));
+                        snapshots.forEach(credit -> balances.put(credit.getUserId(), credit));
+                        commits.incrementAndGet();
+                    })
+                    .then();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.craftpilot.creditservice.loadtest;
+
+import com.craftpilot.creditservice.repository.CreditUsageRepository;
+import com.craftpilot.creditservice.usage.CreditUsageRecorder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Kullanım metriklerinin bellek ve scrape maliyetini N farklı kullanıcı için karşılaştırır:
+ * eski userId etiketli sayaç (kullanıcı başına bir Prometheus serisi) ile CreditUsageRecorder.
+ *
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar com.craftpilot.creditservice.loadtest.UsageMetricsMemoryBenchmark --users=1000000
+ * </pre>
+ *
+ * Recorder için iki değer raporlanır: flush öncesi (kullanıcı toplamları bellekte) ve flush sonrası (yalnızca
+ * sayaçlar ve top-K özeti). Firestore yazması bu ölçümde devre dışıdır. Rapor target/usage-memory-result.json
+ * dosyasına yazılır.
+ */
+@Slf4j
+public final class UsageMetricsMemoryBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("0.25");
+
+    private UsageMetricsMemoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "1000000"));
+        String[] userIds = new String[users];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = "user-" + i;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("perUserCounters", perUserCounters(userIds));
+        result.putAll(usageRecorder(userIds));
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        log.info("Sonuç:\n{}", mapper.writeValueAsString(result));
+        File output = new File(options.getOrDefault("output", "target/usage-memory-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        mapper.writeValue(output, result);
+    }
+
+    /**
+     * Eski davranış: her kullanıcı için userId etiketli bir sayaç
+     */
+    private static Map<String, Object> perUserCounters(String[] userIds) {
+        long baseline = usedHeap();
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        for (String userId : userIds) {
+            registry.counter("credits.used", "userId", userId).increment(AMOUNT.doubleValue());
+        }
+        Map<String, Object> measurement = measure(registry, baseline);
+        registry.close();
+        return measurement;
+    }
+
+    private static Map<String, Object> usageRecorder(String[] userIds) {
+        long baseline = usedHeap();
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        CreditUsageRecorder recorder = new CreditUsageRecorder(new DiscardingUsageRepository(), registry,
+                Duration.ofMinutes(1), 1000);
+        long start = System.nanoTime();
+        for (String userId : userIds) {
+            recorder.record(userId, AMOUNT, "DEBIT", "STANDARD");
+        }
+        long recordNanos = (System.nanoTime() - start) / userIds.length;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> beforeFlush = measure(registry, baseline);
+        beforeFlush.put("recordNanosPerCall", recordNanos);
+        result.put("usageRecorderBeforeFlush", beforeFlush);
+        recorder.stop();
+        result.put("usageRecorderAfterFlush", measure(registry, baseline));
+        result.put("topSpenders", recorder.topSpenders("STANDARD", 1000).size());
+        registry.close();
+        return result;
+    }
+
+    private static Map<String, Object> measure(PrometheusMeterRegistry registry, long baseline) {
+        Map<String, Object> measurement = new LinkedHashMap<>();
+        measurement.put("retainedHeapMb", Math.round((usedHeap() - baseline) / 1024.0 / 1024.0));
+        measurement.put("meters", registry.getMeters().size());
+        measurement.put("scrapeBytes", registry.scrape().length());
+        return measurement;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Flush'ı Firestore'a gitmeden tamamlayan depo
+     */
+    static final class DiscardingUsageRepository extends CreditUsageRepository {
+        DiscardingUsageRepository() {
+            super(null);
+        }
+
+        @Override
+        public Mono<Void> incrementTotals(LocalDate day, Map<String, long[]> totals) {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.craftpilot.creditservice.command;
+
+import com.craftpilot.creditservice.repository.CreditRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rastgele id ile yazılmış kredi belgelerini userId anahtarına taşır. Taşınmamış belgeler ilk okumada da
+ * taşındığı için komut zorunlu değildir; tamamlandıktan sonra credit.migration.legacy-lookup kapatılabilir.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "credit.migration.rekey-on-startup", havingValue = "true")
+public class CreditKeyMigrationCommand implements CommandLineRunner {
+
+    private final CreditRepository creditRepository;
+
+    @Value("${credit.migration.page-size:200}")
+    private int pageSize;
+
+    @Override
+    public void run(String... args) {
+        log.info("Kredi belgeleri userId anahtarına taşınıyor...");
+
+        creditRepository.migrateLegacyDocuments(pageSize)
+            .doOnSuccess(count -> {
+                log.info("Kredi belgesi taşıma işlemi tamamlandı: {} belge taşındı", count);
+            })
+            .doOnError(error -> {
+                log.error("Kredi belgesi taşıma sırasında hata: {}", error.getMessage(), error);
+            })
+            .subscribe();
+    }
+}
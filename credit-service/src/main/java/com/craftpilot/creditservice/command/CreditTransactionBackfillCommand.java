@@ -0,0 +1,44 @@
+package com.craftpilot.creditservice.command;
+
+import com.craftpilot.creditservice.repository.CreditTransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * timestampMillis alanı olmayan eski işlemleri sayfalı geçmişe ve aylık özetlere dahil eder.
+ * Varsayılan olarak açılışta çalışır; tamamlanınca işaret belgesi yazılır ve sayfalama sıralı sorguya geçer,
+ * sonraki açılışlarda komut hiçbir şey okumadan atlanır. Tekrar veya eşzamanlı çalıştırılması güvenlidir.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "credit.migration.backfill-transactions", havingValue = "true", matchIfMissing = true)
+public class CreditTransactionBackfillCommand implements CommandLineRunner {
+
+    private final CreditTransactionRepository transactionRepository;
+
+    @Value("${credit.migration.page-size:200}")
+    private int pageSize;
+
+    @Override
+    public void run(String... args) {
+        transactionRepository.isTimestampsBackfilled()
+            .filter(backfilled -> !backfilled)
+            .doOnNext(pending -> log.info("Eski kredi işlemleri aylık özetlere işleniyor..."))
+            .flatMap(pending -> transactionRepository.backfillTimestamps(pageSize))
+            .flatMap(count -> transactionRepository.markTimestampsBackfilled(count).thenReturn(count))
+            .doOnSuccess(count -> {
+                if (count != null) {
+                    log.info("Kredi işlemi backfill tamamlandı: {} işlem güncellendi", count);
+                }
+            })
+            .doOnError(error -> {
+                log.error("Kredi işlemi backfill sırasında hata: {}", error.getMessage(), error);
+            })
+            .subscribe();
+    }
+}
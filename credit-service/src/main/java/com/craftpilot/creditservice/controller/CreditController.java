@@ -1,24 +1,40 @@
 package com.craftpilot.creditservice.controller;
 
+import com.craftpilot.creditservice.controller.dto.CreditHoldDto;
+import com.craftpilot.creditservice.controller.dto.CreditHoldRequest;
+import com.craftpilot.creditservice.controller.dto.CreditHoldSettleRequest;
 import com.craftpilot.creditservice.controller.dto.CreditTransactionRequest;
 import com.craftpilot.creditservice.controller.dto.CreditDto;
 import com.craftpilot.creditservice.controller.dto.CreditTransactionDto;
+import com.craftpilot.creditservice.controller.dto.CreditUsageRollupDto;
+import com.craftpilot.creditservice.controller.dto.LowBalanceAlertRequest;
 import com.craftpilot.creditservice.service.CreditService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import jakarta.validation.Valid;
 
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
 @RestController
 @RequestMapping("/credits")
 @RequiredArgsConstructor
 @Tag(name = "Credits", description = "Credit management endpoints")
 public class CreditController {
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final CreditService creditService;
 
     @GetMapping("/user")
@@ -30,9 +46,11 @@ public class CreditController {
 
     @PostMapping("/transactions")
     @ResponseStatus(HttpStatus.CREATED)
-    @Operation(summary = "Process credit transaction", description = "Process a credit transaction (credit or debit)")
+    @Operation(summary = "Process credit transaction", description = "Process a credit transaction (credit or debit). "
+            + "Requests repeated with the same Idempotency-Key header return the original transaction without changing the balance.")
     public Mono<CreditTransactionDto> processTransaction(
             @RequestHeader("X-User-Id") String userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody CreditTransactionRequest request) {
         return creditService.processTransaction(
                 userId,
@@ -40,14 +58,98 @@ public class CreditController {
                 request.getAmount(),
                 request.getType(),
                 request.getDescription(),
-                request.getCreditType() // Kredi tipini ekleyin
+                request.getCreditType(), // Kredi tipini ekleyin
+                idempotencyKey // Tekrar eden istek ilk işlemi döner, bakiyeye dokunmaz
         ).map(CreditTransactionDto::fromEntity);
     }
 
     @GetMapping("/transactions")
-    @Operation(summary = "Get user transactions", description = "Retrieve credit transaction history for the current user")
-    public Flux<CreditTransactionDto> getUserTransactions(@RequestHeader("X-User-Id") String userId) {
-        return creditService.getUserTransactions(userId)
+    @Operation(summary = "Get user transactions",
+            description = "Retrieve credit transaction history for the current user, newest first. "
+                    + "The next page is linked in the Link header (rel=\"next\").")
+    public Mono<ResponseEntity<List<CreditTransactionDto>>> getUserTransactions(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit,
+            ServerHttpRequest httpRequest) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return creditService.getUserTransactions(userId, cursor, pageSize)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.nextCursor() != null) {
+                        String next = UriComponentsBuilder.fromPath(httpRequest.getPath().value())
+                                .queryParam("cursor", page.nextCursor())
+                                .queryParam("limit", pageSize)
+                                .build()
+                                .toUriString();
+                        response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+                    }
+                    return response.body(page.transactions().stream().map(CreditTransactionDto::fromEntity).toList());
+                });
+    }
+
+    @GetMapping("/usage/monthly")
+    @Operation(summary = "Get monthly usage", description = "Monthly earned/used totals by credit type and service (UTC months, at most 24)")
+    public Flux<CreditUsageRollupDto> getMonthlyUsage(
+            @RequestHeader("X-User-Id") String userId,
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now(ZoneOffset.UTC);
+        YearMonth start = from != null ? from : end.minusMonths(11);
+        return creditService.getMonthlyUsage(userId, start, end)
+                .map(CreditUsageRollupDto::fromEntity);
+    }
+
+    @PutMapping("/alerts/low-balance")
+    @Operation(summary = "Configure low-balance alert",
+            description = "Publish a single LOW_BALANCE credit event when the standard balance falls to the threshold. "
+                    + "The alert re-arms once the balance rises to threshold + hysteresis.")
+    public Mono<CreditDto> configureLowBalanceAlert(
+            @RequestHeader("X-User-Id") String userId,
+            @Valid @RequestBody LowBalanceAlertRequest request) {
+        return creditService.configureLowBalanceAlert(userId, request.getThreshold(), request.getHysteresis())
+                .map(CreditDto::fromEntity);
+    }
+
+    @DeleteMapping("/alerts/low-balance")
+    @Operation(summary = "Disable low-balance alert")
+    public Mono<CreditDto> disableLowBalanceAlert(@RequestHeader("X-User-Id") String userId) {
+        return creditService.configureLowBalanceAlert(userId, null, null)
+                .map(CreditDto::fromEntity);
+    }
+
+    @PostMapping("/holds")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Reserve credits", description = "Hold an estimated amount until the final cost is known. "
+            + "Requires the Redis ledger (credit.ledger.enabled); returns 501 when it is disabled.")
+    public Mono<CreditHoldDto> reserve(
+            @RequestHeader("X-User-Id") String userId,
+            @Valid @RequestBody CreditHoldRequest request) {
+        return creditService.reserve(
+                userId,
+                request.getServiceId(),
+                request.getAmount(),
+                request.getCreditType(),
+                request.getTtlSeconds() == null ? null : Duration.ofSeconds(request.getTtlSeconds())
+        ).map(CreditHoldDto::fromEntity);
+    }
+
+    @PostMapping("/holds/{holdId}/settle")
+    @Operation(summary = "Settle reserved credits", description = "Charge the actual amount and close the hold")
+    public Mono<CreditTransactionDto> settle(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String holdId,
+            @Valid @RequestBody CreditHoldSettleRequest request) {
+        return creditService.settle(userId, holdId, request.getAmount(), request.getDescription())
                 .map(CreditTransactionDto::fromEntity);
     }
+
+    @DeleteMapping("/holds/{holdId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Release reserved credits", description = "Close the hold without charging")
+    public Mono<Void> release(
+            @RequestHeader("X-User-Id") String userId,
+            @PathVariable String holdId) {
+        return creditService.release(userId, holdId);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.craftpilot.creditservice.controller;
+
+import com.craftpilot.creditservice.controller.dto.CreditBatchDebitRequest;
+import com.craftpilot.creditservice.controller.dto.CreditDebitOutcomeDto;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.service.CreditService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Servisler arası kredi API'leri. Gateway üzerinden yönlendirilmez (/internal/** için route yok); kalemlerdeki
+ * userId istek sahibiyle karşılaştırılmadığı için yalnızca servis ve yönetici rolleri çağırabilir.
+ */
+@RestController
+@RequestMapping("/internal/credits")
+@RequiredArgsConstructor
+@Tag(name = "Internal Credits", description = "Servisler arası kredi API'leri")
+public class InternalCreditController {
+    private static final Set<String> BATCH_ROLES = Set.of("SERVICE", "ADMIN");
+
+    private final CreditService creditService;
+
+    @PostMapping("/transactions/batch")
+    @Operation(summary = "Process batch debit",
+            description = "Debit many metered usage entries at once. Entries are grouped by user and each user's entries "
+                    + "are applied atomically in request order. Results are returned per entry in request order; "
+                    + "insufficient credits, a repeated idempotency key or an unknown user only affect that entry.")
+    public Mono<List<CreditDebitOutcomeDto>> processBatchDebit(
+            @RequestHeader("X-User-Role") String userRole,
+            @Valid @RequestBody CreditBatchDebitRequest request) {
+        if (!BATCH_ROLES.contains(userRole)) {
+            return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Toplu düşüm yalnızca servis çağrılarına açıktır"));
+        }
+        List<CreditTransaction> debits = request.getEntries().stream()
+                .map(entry -> CreditTransaction.builder()
+                        .userId(entry.getUserId())
+                        .serviceId(entry.getServiceId())
+                        .amount(entry.getAmount())
+                        .description(entry.getDescription())
+                        .creditType(entry.getCreditType())
+                        .idempotencyKey(entry.getIdempotencyKey())
+                        .build())
+                .toList();
+        return creditService.processBatchDebit(debits)
+                .map(outcomes -> outcomes.stream().map(CreditDebitOutcomeDto::fromEntity).toList());
+    }
+}
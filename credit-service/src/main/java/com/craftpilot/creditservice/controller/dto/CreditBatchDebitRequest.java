@@ -0,0 +1,47 @@
+package com.craftpilot.creditservice.controller.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditBatchDebitRequest {
+    @NotEmpty(message = "Kalem listesi boş olamaz")
+    @Size(max = 1000, message = "Bir istekte en fazla 1000 kalem olabilir")
+    private List<@Valid @NotNull Entry> entries;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        @NotEmpty(message = "User ID boş olamaz")
+        private String userId;
+
+        @NotNull(message = "Miktar boş olamaz")
+        @Positive(message = "Miktar pozitif olmalı")
+        private BigDecimal amount;
+
+        @NotEmpty(message = "Service ID boş olamaz")
+        private String serviceId;
+
+        private String idempotencyKey; // Tekrar gönderilen kalem ilk işlemi döner
+
+        private String description;
+
+        @Builder.Default
+        private String creditType = "STANDARD";
+    }
+}
@@ -0,0 +1,27 @@
+package com.craftpilot.creditservice.controller.dto;
+
+import com.craftpilot.creditservice.model.CreditDebitOutcome;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CreditDebitOutcomeDto {
+    private int index;
+    private String userId;
+    private String idempotencyKey;
+    private CreditDebitOutcome.Status status;
+    private CreditTransactionDto transaction;
+    private String error;
+
+    public static CreditDebitOutcomeDto fromEntity(CreditDebitOutcome outcome) {
+        return CreditDebitOutcomeDto.builder()
+                .index(outcome.index())
+                .userId(outcome.userId())
+                .idempotencyKey(outcome.idempotencyKey())
+                .status(outcome.status())
+                .transaction(outcome.transaction() == null ? null : CreditTransactionDto.fromEntity(outcome.transaction()))
+                .error(outcome.error())
+                .build();
+    }
+}
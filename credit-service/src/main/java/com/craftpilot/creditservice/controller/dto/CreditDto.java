@@ -22,6 +22,17 @@ public class CreditDto {
     private BigDecimal advancedBalance;
     private BigDecimal totalAdvancedCreditsEarned;
     private BigDecimal totalAdvancedCreditsUsed;
+
+    // Açık rezervasyonlar ve rezervasyonlar düşüldükten sonra kullanılabilir bakiye
+    private BigDecimal heldBalance;
+    private BigDecimal availableBalance;
+    private BigDecimal advancedHeldBalance;
+    private BigDecimal availableAdvancedBalance;
+
+    // Düşük bakiye uyarısı; eşik boşsa kapalı
+    private BigDecimal lowBalanceThreshold;
+    private BigDecimal lowBalanceRearm;
+    private boolean lowBalanceAlerted;
     
     private LocalDateTime lastUpdated;
     private LocalDateTime createdAt;
@@ -36,8 +47,23 @@ public class CreditDto {
                 .advancedBalance(credit.getAdvancedBalance())
                 .totalAdvancedCreditsEarned(credit.getTotalAdvancedCreditsEarned())
                 .totalAdvancedCreditsUsed(credit.getTotalAdvancedCreditsUsed())
+                .heldBalance(orZero(credit.getHeldBalance()))
+                .availableBalance(available(credit.getBalance(), credit.getHeldBalance()))
+                .advancedHeldBalance(orZero(credit.getAdvancedHeldBalance()))
+                .availableAdvancedBalance(available(credit.getAdvancedBalance(), credit.getAdvancedHeldBalance()))
+                .lowBalanceThreshold(credit.getLowBalanceThreshold())
+                .lowBalanceRearm(credit.getLowBalanceRearm())
+                .lowBalanceAlerted(credit.isLowBalanceAlerted())
                 .lastUpdated(credit.getLastUpdated())
                 .createdAt(credit.getCreatedAt())
                 .build();
     }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    private static BigDecimal available(BigDecimal balance, BigDecimal held) {
+        return balance == null ? null : balance.subtract(orZero(held));
+    }
 }
\ No newline at end of file
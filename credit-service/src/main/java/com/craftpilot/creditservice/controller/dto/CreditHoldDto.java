@@ -0,0 +1,32 @@
+package com.craftpilot.creditservice.controller.dto;
+
+import com.craftpilot.creditservice.model.CreditHold;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class CreditHoldDto {
+    private String id;
+    private String userId;
+    private String serviceId;
+    private BigDecimal amount;
+    private String creditType;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+
+    public static CreditHoldDto fromEntity(CreditHold hold) {
+        return CreditHoldDto.builder()
+                .id(hold.getId())
+                .userId(hold.getUserId())
+                .serviceId(hold.getServiceId())
+                .amount(hold.getAmount())
+                .creditType(hold.getCreditType())
+                .createdAt(hold.getCreatedAt())
+                .expiresAt(hold.getExpiresAt())
+                .build();
+    }
+}
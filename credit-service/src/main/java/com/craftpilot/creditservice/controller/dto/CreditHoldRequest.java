@@ -0,0 +1,30 @@
+package com.craftpilot.creditservice.controller.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditHoldRequest {
+    @NotEmpty(message = "Service ID boş olamaz")
+    private String serviceId;
+
+    @NotNull(message = "Tahmini miktar boş olamaz")
+    @Positive(message = "Tahmini miktar pozitif olmalı")
+    private BigDecimal amount;
+
+    @Builder.Default
+    private String creditType = "STANDARD";
+
+    @Positive(message = "Süre pozitif olmalı")
+    private Long ttlSeconds; // Boşsa credit.holds.default-ttl
+}
@@ -0,0 +1,22 @@
+package com.craftpilot.creditservice.controller.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditHoldSettleRequest {
+    @NotNull(message = "Gerçek miktar boş olamaz")
+    @PositiveOrZero(message = "Gerçek miktar negatif olamaz")
+    private BigDecimal amount;
+
+    private String description;
+}
@@ -0,0 +1,53 @@
+package com.craftpilot.creditservice.controller.dto;
+
+import com.craftpilot.creditservice.model.CreditUsageRollup;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Data
+@Builder
+public class CreditUsageRollupDto {
+    private String month;
+    private Map<String, Totals> creditTypes;
+    private Map<String, Map<String, Totals>> services;
+
+    @Data
+    @Builder
+    public static class Totals {
+        private BigDecimal earned;
+        private BigDecimal used;
+        private long count;
+
+        static Totals fromEntity(CreditUsageRollup.Totals totals) {
+            return Totals.builder()
+                    .earned(BigDecimal.valueOf(totals.getEarnedUnits(), 4))
+                    .used(BigDecimal.valueOf(totals.getUsedUnits(), 4))
+                    .count(totals.getCount())
+                    .build();
+        }
+    }
+
+    public static CreditUsageRollupDto fromEntity(CreditUsageRollup rollup) {
+        Map<String, Totals> creditTypes = new TreeMap<>();
+        if (rollup.getCreditTypes() != null) {
+            rollup.getCreditTypes().forEach((creditType, totals) -> creditTypes.put(creditType, Totals.fromEntity(totals)));
+        }
+        Map<String, Map<String, Totals>> services = new TreeMap<>();
+        if (rollup.getServices() != null) {
+            rollup.getServices().forEach((serviceId, byCreditType) -> {
+                Map<String, Totals> service = new TreeMap<>();
+                byCreditType.forEach((creditType, totals) -> service.put(creditType, Totals.fromEntity(totals)));
+                services.put(serviceId, service);
+            });
+        }
+        return CreditUsageRollupDto.builder()
+                .month(rollup.getMonth())
+                .creditTypes(creditTypes)
+                .services(services)
+                .build();
+    }
+}
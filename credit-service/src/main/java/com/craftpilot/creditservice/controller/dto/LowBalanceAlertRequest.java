@@ -0,0 +1,24 @@
+package com.craftpilot.creditservice.controller.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowBalanceAlertRequest {
+    @NotNull(message = "Eşik boş olamaz")
+    @PositiveOrZero(message = "Eşik negatif olamaz")
+    private BigDecimal threshold;
+
+    @Positive(message = "Hysteresis pozitif olmalı")
+    private BigDecimal hysteresis; // Boşsa eşiğin credit.alerts.low-balance.default-hysteresis-ratio oranı
+}
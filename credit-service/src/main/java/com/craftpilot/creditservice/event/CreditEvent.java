@@ -1,16 +1,23 @@
 package com.craftpilot.creditservice.event;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class CreditEvent {
+    private String eventId; // Outbox en az bir kez teslim eder; tüketiciler tekrarları bununla ayıklar
     private String userId;
     private BigDecimal amount;
     private String type;
     private String creditType;
+    private String holdId; // HOLD, HOLD_RELEASED, HOLD_EXPIRED ve settle DEBIT olaylarında
+    private BigDecimal threshold; // LOW_BALANCE olaylarında; amount o anki bakiyedir
     private long timestamp;
-}
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package com.craftpilot.creditservice.event;
+
+import com.craftpilot.creditservice.ledger.CreditLedger;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Defter kapalıyken bakiye güncellemesiyle aynı Firestore commit'inde credit_outbox koleksiyonuna yazılan olayları
+ * Kafka'ya yayınlar. Defter açıkken aynı işi Redis stream'i üzerinden CreditEventRelay yapar; iki relay aynı Redis
+ * lease'ini kullanır ve yalnızca biri etkindir. Belgeler batch'in tamamı broker tarafından onaylandıktan sonra
+ * silinir; gönderim yarıda kalırsa batch yeniden gönderilir (en az bir kez), tüketiciler tekrarları
+ * {@link CreditEvent#getEventId()} ile ayıklar.
+ */
+@Slf4j
+@Component
+public class CreditOutboxRelay {
+    private final CreditRepository creditRepository;
+    private final CreditLedger ledger;
+    private final KafkaTemplate<String, CreditEvent> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String creditEventsTopic;
+    private final boolean enabled;
+    private final String owner;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final Timer lag;
+
+    private volatile Disposable subscription;
+
+    public CreditOutboxRelay(
+            CreditRepository creditRepository,
+            CreditLedger ledger,
+            KafkaTemplate<String, CreditEvent> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.topics.credit-events:credit-events}") String creditEventsTopic,
+            @Value("${credit.ledger.enabled:false}") boolean ledgerEnabled,
+            @Value("${credit.ledger.consumer-name:${HOSTNAME:credit-service}}") String owner,
+            @Value("${credit.outbox.batch-size:500}") int batchSize,
+            @Value("${credit.outbox.firestore-poll-interval:250ms}") Duration pollInterval,
+            @Value("${credit.outbox.lease:10s}") Duration lease) {
+        this.creditRepository = creditRepository;
+        this.ledger = ledger;
+        this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.creditEventsTopic = creditEventsTopic;
+        this.enabled = !ledgerEnabled;
+        this.owner = owner;
+        // Silme tek batch'tir; Firestore commit başına 500 yazma
+        this.batchSize = Math.min(batchSize, 500);
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        // Olayın Firestore'a yazılmasından broker onayına kadar geçen süre
+        this.lag = Timer.builder("credit.outbox.firestore.lag")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = Mono.defer(this::relayOnce)
+                // Boş outbox her sorguda okuma ücreti doğurur; dolu batch'ten sonra beklemeden devam edilir
+                .flatMap(relayed -> relayed >= batchSize ? Mono.just(relayed) : Mono.delay(pollInterval).thenReturn(relayed))
+                .onErrorResume(e -> {
+                    log.warn("Firestore outbox olayları yayınlanamadı, yeniden denenecek: {}", e.getMessage());
+                    meterRegistry.counter("credit.outbox.firestore.errors").increment();
+                    return Mono.delay(pollInterval.multipliedBy(4)).thenReturn(0);
+                })
+                .repeat()
+                .subscribe();
+        log.info("Firestore outbox relay'i başlatıldı: owner={}, batchSize={}", owner, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable current = subscription;
+        if (current == null) {
+            return;
+        }
+        current.dispose();
+        ledger.outboxLease(owner, Duration.ZERO)
+                .onErrorResume(e -> Mono.empty())
+                .block(Duration.ofSeconds(2));
+    }
+
+    /**
+     * Lider bu pod ise bir batch yayınlar ve yayınlanan olay sayısını döner; değilse lease süresinin
+     * bir kısmı kadar bekler
+     */
+    Mono<Integer> relayOnce() {
+        return ledger.outboxLease(owner, lease).flatMap(leader -> leader
+                ? relayBatch()
+                : Mono.delay(lease.dividedBy(3)).thenReturn(0));
+    }
+
+    private Mono<Integer> relayBatch() {
+        return creditRepository.findOutbox(batchSize).flatMap(events -> {
+            if (events.isEmpty()) {
+                return Mono.just(0);
+            }
+            return publish(events)
+                    .then(Mono.defer(() -> creditRepository.deleteOutbox(
+                            events.stream().map(CreditEvent::getEventId).toList())))
+                    .thenReturn(events.size());
+        });
+    }
+
+    private Mono<Void> publish(List<CreditEvent> events) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+        for (CreditEvent event : events) {
+            long writtenAt = event.getTimestamp();
+            // Olaylar zaman sırasıyla ve userId anahtarıyla gönderilir; aynı kullanıcının olayları aynı partition'a düşer
+            sends.add(kafkaTemplate.send(creditEventsTopic, event.getUserId(), event)
+                    .whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            lag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - writtenAt)));
+                        }
+                    }));
+        }
+        return Mono.fromFuture(CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)))
+                .doOnSuccess(ignored -> meterRegistry.counter("credit.outbox.firestore.relayed").increment(sends.size()));
+    }
+}
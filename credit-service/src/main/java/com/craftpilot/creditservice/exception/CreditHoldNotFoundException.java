@@ -0,0 +1,10 @@
+package com.craftpilot.creditservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class CreditHoldNotFoundException extends ResponseStatusException {
+    public CreditHoldNotFoundException(String holdId) {
+        super(HttpStatus.NOT_FOUND, "Kredi rezervasyonu bulunamadı veya süresi doldu: " + holdId);
+    }
+}
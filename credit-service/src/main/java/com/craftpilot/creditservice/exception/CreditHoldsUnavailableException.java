@@ -0,0 +1,10 @@
+package com.craftpilot.creditservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class CreditHoldsUnavailableException extends ResponseStatusException {
+    public CreditHoldsUnavailableException() {
+        super(HttpStatus.NOT_IMPLEMENTED, "Kredi rezervasyonu Redis defteri gerektirir (credit.ledger.enabled kapalı)");
+    }
+}
@@ -0,0 +1,10 @@
+package com.craftpilot.creditservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class CreditNotFoundException extends ResponseStatusException {
+    public CreditNotFoundException(String userId) {
+        super(HttpStatus.NOT_FOUND, "Kredi kaydı bulunamadı: " + userId);
+    }
+}
@@ -0,0 +1,10 @@
+package com.craftpilot.creditservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class InvalidCursorException extends ResponseStatusException {
+    public InvalidCursorException(String cursor) {
+        super(HttpStatus.BAD_REQUEST, "Geçersiz sayfa imleci: " + cursor);
+    }
+}
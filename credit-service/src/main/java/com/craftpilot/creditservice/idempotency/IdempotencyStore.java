@@ -0,0 +1,131 @@
+package com.craftpilot.creditservice.idempotency;
+
+import com.craftpilot.creditservice.ledger.CreditLedger;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Idempotency anahtarıyla yapılmış işlemlerin sonuçlarını tutar. Tekrar eden istekler önce bu pod'daki LRU'dan,
+ * sonra Redis'ten (TTL'li) karşılanır; ikisinde de yoksa istek normal yoldan işlenir. Bu depo hızlı yoldur,
+ * tek başına garanti vermez: asıl kontrol defter script'inde (aynı adımda) ya da defter kapalıysa işlem id'si
+ * anahtardan türetilen Firestore transaction'ında yapılır. Bu yüzden Redis hataları ıskalama sayılır.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Map<String, Entry> recent;
+
+    public IdempotencyStore(
+            ReactiveStringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${credit.idempotency.ttl:24h}") Duration ttl,
+            @Value("${credit.idempotency.max-entries:100000}") int maxEntries) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        meterRegistry.gaugeMapSize("credit.idempotency.local.size", Tags.empty(), recent);
+    }
+
+    /**
+     * Anahtarla daha önce yapılmış işlemi döner; bilinmiyorsa boş döner
+     */
+    public Mono<CreditTransaction> find(String userId, String key) {
+        CreditTransaction local = findLocally(userId, key);
+        if (local != null) {
+            meterRegistry.counter("credit.idempotency.lookups", "result", "local").increment();
+            return Mono.just(local);
+        }
+        return redisTemplate.opsForValue().get(CreditLedger.idempotencyKey(userId, key))
+                .map(this::read)
+                .doOnNext(transaction -> {
+                    meterRegistry.counter("credit.idempotency.lookups", "result", "redis").increment();
+                    rememberLocally(userId, key, transaction);
+                })
+                .switchIfEmpty(Mono.fromRunnable(
+                        () -> meterRegistry.counter("credit.idempotency.lookups", "result", "miss").increment()))
+                .onErrorResume(e -> {
+                    log.warn("Idempotency kaydı okunamadı, istek normal yoldan işlenecek: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Yalnızca bu pod'daki LRU'ya bakar; toplu düşümde kalem başına Redis okuması yapılmaz
+     */
+    public CreditTransaction findLocally(String userId, String key) {
+        Entry entry = recent.get(CreditLedger.idempotencyKey(userId, key));
+        return entry != null && entry.expiresAt() > System.nanoTime() ? entry.transaction() : null;
+    }
+
+    /**
+     * İşlemi LRU'ya ve Redis'e yazar; Redis'e yazılamazsa tekrar Firestore transaction'ında yakalanır
+     */
+    public Mono<Void> remember(String userId, String key, CreditTransaction transaction) {
+        rememberLocally(userId, key, transaction);
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(transaction);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        return redisTemplate.opsForValue().set(CreditLedger.idempotencyKey(userId, key), payload, ttl)
+                .onErrorResume(e -> {
+                    log.warn("Idempotency kaydı Redis'e yazılamadı: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Yalnızca LRU'ya yazar; defter script'i kaydı Redis'e zaten yazmıştır
+     */
+    public void rememberLocally(String userId, String key, CreditTransaction transaction) {
+        recent.put(CreditLedger.idempotencyKey(userId, key), new Entry(transaction, System.nanoTime() + ttl.toNanos()));
+    }
+
+    /**
+     * Anahtardan türetilen işlem id'si; aynı anahtarın tekrarı Firestore'da aynı belgeye yazar
+     */
+    public static String transactionId(String userId, String key) {
+        return UUID.nameUUIDFromBytes((userId + ":" + key).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private CreditTransaction read(String payload) {
+        try {
+            return objectMapper.readValue(payload, CreditTransaction.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Idempotency kaydı okunamadı", e);
+        }
+    }
+
+    private record Entry(CreditTransaction transaction, long expiresAt) {
+    }
+}
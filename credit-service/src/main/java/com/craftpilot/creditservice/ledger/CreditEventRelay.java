@@ -0,0 +1,184 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Defter script'lerinin outbox stream'ine eklediği kredi olaylarını Kafka'ya yayınlar. Stream'i Redis
+ * lease'ine sahip tek bir pod okur; kayıtlar stream sırasıyla ve userId anahtarıyla gönderildiği için aynı
+ * kullanıcının olayları aynı partition'a sırayla düşer. Kayıtlar ancak batch'in tamamı broker tarafından
+ * onaylandıktan sonra silinir; gönderim yarıda kalırsa batch yeniden gönderilir (en az bir kez). Tüketiciler
+ * tekrarları {@link CreditEvent#getEventId()} ile ayıklar.
+ */
+@Slf4j
+@Component
+public class CreditEventRelay {
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final CreditLedger ledger;
+    private final KafkaTemplate<String, CreditEvent> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String creditEventsTopic;
+    private final boolean enabled;
+    private final String owner;
+    private final int batchSize;
+    private final Duration idleWait;
+    private final Duration lease;
+    private final AtomicLong backlog = new AtomicLong();
+    private final Timer lag;
+
+    private volatile Disposable subscription;
+
+    public CreditEventRelay(
+            ReactiveStringRedisTemplate redisTemplate,
+            CreditLedger ledger,
+            KafkaTemplate<String, CreditEvent> kafkaTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.topics.credit-events:credit-events}") String creditEventsTopic,
+            @Value("${credit.ledger.enabled:false}") boolean enabled,
+            @Value("${credit.ledger.consumer-name:${HOSTNAME:credit-service}}") String owner,
+            @Value("${credit.outbox.batch-size:500}") int batchSize,
+            @Value("${credit.outbox.idle-wait:20ms}") Duration idleWait,
+            @Value("${credit.outbox.lease:10s}") Duration lease) {
+        this.redisTemplate = redisTemplate;
+        this.ledger = ledger;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.creditEventsTopic = creditEventsTopic;
+        this.enabled = enabled;
+        this.owner = owner;
+        this.batchSize = batchSize;
+        this.idleWait = idleWait;
+        this.lease = lease;
+        meterRegistry.gauge("credit.outbox.backlog", backlog);
+        // Olayın outbox'a yazılmasından broker onayına kadar geçen süre
+        this.lag = Timer.builder("credit.outbox.lag")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = Mono.defer(this::relayOnce)
+                .flatMap(relayed -> relayed > 0 ? Mono.just(relayed) : Mono.delay(idleWait).thenReturn(0))
+                .onErrorResume(e -> {
+                    log.warn("Kredi olayları yayınlanamadı, outbox kayıtları yeniden denenecek: {}", e.getMessage());
+                    meterRegistry.counter("credit.outbox.errors").increment();
+                    return Mono.delay(idleWait.multipliedBy(10)).thenReturn(0);
+                })
+                .repeat()
+                .subscribe();
+        log.info("Kredi olayı relay'i başlatıldı: owner={}, batchSize={}", owner, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable current = subscription;
+        if (current == null) {
+            return;
+        }
+        current.dispose();
+        // Liderlik bırakılır; diğer pod lease süresini beklemeden devralır
+        ledger.outboxLease(owner, Duration.ZERO)
+                .onErrorResume(e -> Mono.empty())
+                .block(Duration.ofSeconds(2));
+    }
+
+    /**
+     * Lider bu pod ise bir batch yayınlar ve yayınlanan kayıt sayısını döner; değilse lease süresinin
+     * bir kısmı kadar bekler
+     */
+    Mono<Integer> relayOnce() {
+        return ledger.outboxLease(owner, lease).flatMap(leader -> leader
+                ? relayBatch()
+                : Mono.delay(lease.dividedBy(3)).thenReturn(0));
+    }
+
+    private Mono<Integer> relayBatch() {
+        return redisTemplate.opsForStream()
+                .range(ledger.outboxKey(), Range.unbounded(), Limit.limit().count(batchSize))
+                .collectList()
+                .flatMap(records -> {
+                    if (records.isEmpty()) {
+                        backlog.set(0);
+                        return Mono.just(0);
+                    }
+                    return publish(records)
+                            .then(Mono.defer(() -> redisTemplate.opsForStream().delete(ledger.outboxKey(),
+                                    records.stream().map(MapRecord::getId).toArray(RecordId[]::new))))
+                            .then(Mono.defer(() -> redisTemplate.opsForStream().size(ledger.outboxKey())))
+                            .map(remaining -> {
+                                backlog.set(remaining);
+                                return records.size();
+                            });
+                });
+    }
+
+    private Mono<Void> publish(List<MapRecord<String, Object, Object>> records) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            CreditEvent event = readEvent(record);
+            if (event == null) {
+                continue;
+            }
+            long writtenAt = record.getId().getTimestamp();
+            // Producer linger/batch ayarlarıyla aynı partition'a giden olaylar tek istekte gönderilir
+            sends.add(kafkaTemplate.send(creditEventsTopic, event.getUserId(), event)
+                    .whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            lag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - writtenAt)));
+                        }
+                    }));
+        }
+        return Mono.fromFuture(CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)))
+                .doOnSuccess(ignored -> meterRegistry.counter("credit.outbox.relayed").increment(sends.size()));
+    }
+
+    private CreditEvent readEvent(MapRecord<String, Object, Object> record) {
+        Object payload = record.getValue().get("event");
+        if (payload == null) {
+            return null;
+        }
+        try {
+            CreditEvent event = objectMapper.readValue(payload.toString(), CreditEvent.class);
+            Object charged = record.getValue().get("amount");
+            if (charged != null) {
+                // Hold settle'ında düşülen tutar script içinde belirlenir
+                event.setAmount(CreditLedger.fromUnits(charged.toString()));
+            }
+            return event;
+        } catch (IOException e) {
+            // Okunamayan kayıt yeniden denemeyle düzelmez; atlanır ve batch ile birlikte silinir
+            log.error("Outbox kaydı okunamadı, atlanıyor: id={}, {}", record.getId(), e.getMessage());
+            meterRegistry.counter("credit.outbox.dropped").increment();
+            return null;
+        }
+    }
+}
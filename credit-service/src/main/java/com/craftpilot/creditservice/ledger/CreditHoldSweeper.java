@@ -0,0 +1,144 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.model.CreditHold;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Süresi dolan hold'ları geri alır. Bu pod'da açılan hold'lar bir timer wheel'e (O(1) ekleme/iptal)
+ * kaydedilir ve süre dolduğunda hemen bırakılır; pod çöktüğünde kaybolan zamanlayıcılar için Redis'teki
+ * bitiş zamanı sıralı kümesi periyodik olarak taranır. Bırakma script'i idempotent olduğu için aynı hold'un
+ * iki yoldan da ele alınması sorun değildir.
+ */
+@Slf4j
+@Component
+public class CreditHoldSweeper {
+    private final CreditLedger ledger;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration sweepInterval;
+    private final int sweepBatchSize;
+    private final HashedWheelTimer timer;
+    private final Map<String, Timeout> scheduled = new ConcurrentHashMap<>();
+
+    private volatile Disposable subscription;
+
+    public CreditHoldSweeper(
+            CreditLedger ledger,
+            MeterRegistry meterRegistry,
+            @Value("${credit.ledger.enabled:false}") boolean enabled,
+            @Value("${credit.holds.timer-tick:100ms}") Duration timerTick,
+            @Value("${credit.holds.sweep-interval:30s}") Duration sweepInterval,
+            @Value("${credit.holds.sweep-batch-size:200}") int sweepBatchSize) {
+        this.ledger = ledger;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.sweepInterval = sweepInterval;
+        this.sweepBatchSize = sweepBatchSize;
+        this.timer = new HashedWheelTimer(runnable -> {
+            Thread thread = new Thread(runnable, "credit-hold-timer");
+            thread.setDaemon(true);
+            return thread;
+        }, timerTick.toMillis(), TimeUnit.MILLISECONDS, 512);
+        meterRegistry.gaugeMapSize("credit.holds.scheduled", Tags.empty(), scheduled);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = Flux.interval(sweepInterval)
+                .concatMap(tick -> sweep()
+                        .onErrorResume(e -> {
+                            log.warn("Süresi dolan hold'lar taranamadı: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+        // Bekleyen zamanlayıcılar kaybolur; hold'lar Redis taramasıyla geri alınır
+        timer.stop();
+    }
+
+    /**
+     * Hold'un bitiş zamanında bırakılmasını planlar
+     */
+    public void schedule(CreditHold hold) {
+        long delay = Math.max(0, hold.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                - System.currentTimeMillis());
+        scheduled.put(hold.getId(), timer.newTimeout(timeout -> expire(hold), delay, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Settle/release edilen hold'un zamanlayıcısını iptal eder
+     */
+    public void cancel(String holdId) {
+        Timeout timeout = scheduled.remove(holdId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    Mono<Long> sweep() {
+        return ledger.expiredHolds(System.currentTimeMillis(), sweepBatchSize)
+                .concatMap(holdId -> ledger.findHold(holdId)
+                        .flatMap(this::release)
+                        // Hold kaydı yoksa yalnızca sıralı kümedeki artık kayıt temizlenir
+                        .switchIfEmpty(Mono.defer(() -> ledger.release(holdId, "", null, null).thenReturn(false))))
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    private void expire(CreditHold hold) {
+        scheduled.remove(hold.getId());
+        release(hold).subscribe(
+                released -> {
+                },
+                e -> log.warn("Süresi dolan hold bırakılamadı, Redis taramasında yeniden denenecek: holdId={}, {}",
+                        hold.getId(), e.getMessage()));
+    }
+
+    private Mono<Boolean> release(CreditHold hold) {
+        CreditEvent event = CreditEvent.builder()
+                .userId(hold.getUserId())
+                .amount(hold.getAmount())
+                .type("HOLD_EXPIRED")
+                .creditType(hold.getCreditType())
+                .holdId(hold.getId())
+                .timestamp(System.currentTimeMillis())
+                .build();
+        // Olay bırakma script'i içinde outbox'a eklenir; hold zaten bırakılmışsa olay da yazılmaz
+        return ledger.release(hold.getId(), hold.getUserId(), null, event)
+                .doOnNext(released -> {
+                    if (!released) {
+                        return;
+                    }
+                    log.debug("Süresi dolan hold bırakıldı: holdId={}, userId={}", hold.getId(), hold.getUserId());
+                    meterRegistry.counter("credit.holds.expired").increment();
+                });
+    }
+}
@@ -0,0 +1,585 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditHold;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sıcak bakiye defteri. Bakiyeler Redis'te kullanıcı başına bir hash'te tutulur; kontrol, düşüm ve
+ * journal (Redis Stream) kaydı tek bir Lua script'iyle atomik yapılır. Firestore'a yazma istek yolunda
+ * değildir, {@link CreditLedgerFlusher} journal'ı toplu olarak kalıcılaştırır.
+ * <p>
+ * Kabul edilen işlemin Kafka olayı da aynı script'te outbox stream'ine eklenir (transactional outbox);
+ * {@link CreditEventRelay} outbox'ı yayınlar. Bakiyesi değişmeyen bir olay yayınlanmaz, yayınlanmayan bir
+ * bakiye değişikliği de kalmaz. Standart bakiyeyi değiştiren script'ler düşük bakiye eşiğini de aynı adımda
+ * değerlendirir; eşiğe inişte outbox'a tek bir LOW_BALANCE olayı eklenir.
+ * <p>
+ * Tek script birden fazla anahtara (defter, journal, outbox) dokunduğu için Redis standalone/sentinel varsayılır.
+ * Journal Firestore'a yazılmadan silinmez; Redis'in AOF ile kalıcı çalışması beklenir.
+ */
+@Component
+public class CreditLedger {
+    /** Redis'te tutarlar bu ölçekte tam sayıya çevrilir (0.0001 kredi) */
+    public static final int SCALE = 4;
+
+    static final String BALANCE = "balance";
+    static final String TOTAL_EARNED = "totalCreditsEarned";
+    static final String TOTAL_USED = "totalCreditsUsed";
+    static final String ADVANCED_BALANCE = "advancedBalance";
+    static final String TOTAL_ADVANCED_EARNED = "totalAdvancedCreditsEarned";
+    static final String TOTAL_ADVANCED_USED = "totalAdvancedCreditsUsed";
+    static final String HELD = "held";
+    static final String ADVANCED_HELD = "advancedHeld";
+    static final String HOLD_EXPIRY_KEY = "credit_hold:expiry";
+    static final String LOW_BALANCE_THRESHOLD = "lowBalanceThreshold";
+    static final String LOW_BALANCE_REARM = "lowBalanceRearm";
+    static final String LOW_BALANCE_ALERTED = "lowBalanceAlerted";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> APPLY_SCRIPT =
+            withLowBalanceCheck("scripts/credit_ledger_apply.lua");
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> APPLY_BATCH_SCRIPT =
+            withLowBalanceCheck("scripts/credit_ledger_apply_batch.lua");
+    private static final RedisScript<Long> SEED_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/credit_ledger_seed.lua"), Long.class);
+    private static final RedisScript<Long> RESEED_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/credit_ledger_reseed.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/credit_hold_reserve.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SETTLE_SCRIPT =
+            withLowBalanceCheck("scripts/credit_hold_settle.lua");
+    private static final RedisScript<Long> RELEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/credit_hold_release.lua"), Long.class);
+    private static final RedisScript<Long> LOW_BALANCE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/credit_low_balance_configure.lua"), Long.class);
+    private static final RedisScript<Long> LEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/credit_outbox_lease.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String journalKey;
+    private final String outboxKey;
+
+    @Value("${credit.idempotency.ttl:24h}")
+    private Duration idempotencyTtl = Duration.ofHours(24);
+
+    /**
+     * Bakiyeyi değiştiren script'ler düşük bakiye kuralını tek kaynaktan alır: ortak başlık gövdenin önüne eklenir
+     */
+    @SuppressWarnings("rawtypes")
+    static RedisScript<List> withLowBalanceCheck(String path) {
+        try {
+            String prefix = new ClassPathResource("scripts/lib/credit_low_balance.lua").getContentAsString(StandardCharsets.UTF_8);
+            String body = new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+            return RedisScript.of(prefix + body, List.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lua script'i okunamadı: " + path, e);
+        }
+    }
+
+    public CreditLedger(
+            ReactiveStringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${credit.ledger.journal-key:credit_ledger:journal}") String journalKey,
+            @Value("${credit.outbox.stream-key:credit_events:outbox}") String outboxKey) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.journalKey = journalKey;
+        this.outboxKey = outboxKey;
+    }
+
+    /**
+     * İşlemi defterde uygular ve kabul edilirse journal'a ekler. Kullanıcının defter kaydı yoksa boş döner;
+     * çağıran Firestore'daki belgeyle {@link #seed(Credit)} yapıp tekrar denemelidir.
+     * İşlem id'si yoksa atanır ve tutar defter ölçeğine yuvarlanır; journal'daki kayıt bu haliyle yazılır.
+     */
+    public Mono<Result> apply(String userId, CreditTransaction transaction) {
+        return apply(userId, transaction, null);
+    }
+
+    /**
+     * {@link #apply(String, CreditTransaction)} ile aynı; işlem kabul edilirse event aynı adımda outbox'a eklenir.
+     * Olayın tutarı yuvarlanmış işlem tutarıdır. İşlemin idempotency anahtarı varsa kontrol ve kayıt da aynı
+     * script'te yapılır; anahtar daha önce kullanıldıysa sonuç {@link Status#DUPLICATE} ve kayıtlı işlemdir.
+     */
+    public Mono<Result> apply(String userId, CreditTransaction transaction, CreditEvent event) {
+        boolean isDebit = "DEBIT".equals(transaction.getType());
+        boolean advanced = "ADVANCED".equals(transaction.getCreditType());
+        if (transaction.getId() == null) {
+            transaction.setId(UUID.randomUUID().toString());
+        }
+        transaction.setAmount(transaction.getAmount().setScale(SCALE, RoundingMode.HALF_UP));
+        long amount = toUnits(transaction.getAmount());
+        if (event != null) {
+            event.setAmount(transaction.getAmount());
+        }
+
+        String payload;
+        String eventPayload;
+        try {
+            payload = objectMapper.writeValueAsString(transaction);
+            eventPayload = serialize(event);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+
+        List<String> args = List.of(
+                advanced ? ADVANCED_BALANCE : BALANCE,
+                advanced ? (isDebit ? TOTAL_ADVANCED_USED : TOTAL_ADVANCED_EARNED) : (isDebit ? TOTAL_USED : TOTAL_EARNED),
+                String.valueOf(isDebit ? -amount : amount),
+                String.valueOf(amount),
+                userId,
+                payload,
+                String.valueOf(System.currentTimeMillis()),
+                advanced ? ADVANCED_HELD : HELD,
+                eventPayload,
+                transaction.getIdempotencyKey() == null ? "" : String.valueOf(idempotencyTtl.toMillis()));
+        String idempotencyKey = transaction.getIdempotencyKey() == null
+                ? ledgerKey(userId) : idempotencyKey(userId, transaction.getIdempotencyKey());
+
+        return execute(APPLY_SCRIPT, List.of(ledgerKey(userId), journalKey, outboxKey, idempotencyKey), args, "credit.ledger.apply")
+                .filter(result -> result.status() != Status.MISSING);
+    }
+
+    /**
+     * Aynı kullanıcının düşümlerini tek script çağrısında sırayla uygular; her kalem {@link #apply} ile aynı
+     * kurallara tabidir ve sonuçlar kalemlerle aynı sıradadır. Yetersiz bakiye ya da tekrar eden idempotency
+     * anahtarı yalnızca ilgili kalemi etkiler. Defter kaydı yoksa boş döner (apply ile aynı seed akışı).
+     * events kalemlerle aynı sıradadır; elemanları null olabilir.
+     */
+    public Mono<List<Result>> applyBatch(String userId, List<CreditTransaction> debits, List<CreditEvent> events) {
+        List<String> keys = new ArrayList<>(3 + debits.size());
+        keys.add(ledgerKey(userId));
+        keys.add(journalKey);
+        keys.add(outboxKey);
+        List<String> args = new ArrayList<>(4 + debits.size() * 7);
+        args.add(userId);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(String.valueOf(idempotencyTtl.toMillis()));
+        args.add(String.valueOf(debits.size()));
+        try {
+            for (int i = 0; i < debits.size(); i++) {
+                CreditTransaction transaction = debits.get(i);
+                boolean advanced = "ADVANCED".equals(transaction.getCreditType());
+                if (transaction.getId() == null) {
+                    transaction.setId(UUID.randomUUID().toString());
+                }
+                transaction.setAmount(transaction.getAmount().setScale(SCALE, RoundingMode.HALF_UP));
+                CreditEvent event = events.get(i);
+                if (event != null) {
+                    event.setAmount(transaction.getAmount());
+                }
+                boolean keyed = transaction.getIdempotencyKey() != null;
+                keys.add(keyed ? idempotencyKey(userId, transaction.getIdempotencyKey()) : ledgerKey(userId));
+                args.add(advanced ? ADVANCED_BALANCE : BALANCE);
+                args.add(advanced ? TOTAL_ADVANCED_USED : TOTAL_USED);
+                args.add(advanced ? ADVANCED_HELD : HELD);
+                args.add(String.valueOf(toUnits(transaction.getAmount())));
+                args.add(objectMapper.writeValueAsString(transaction));
+                args.add(serialize(event));
+                args.add(keyed ? "1" : "0");
+            }
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+
+        long start = System.nanoTime();
+        return redisTemplate.execute(APPLY_BATCH_SCRIPT, keys, args)
+                .cast(Object.class)
+                .collectList()
+                .flatMap(reply -> {
+                    List<Object> values = reply.size() == 1 && reply.get(0) instanceof List<?> nested ? new ArrayList<>(nested) : reply;
+                    if (((Number) values.get(0)).longValue() != 1) {
+                        return Mono.empty();
+                    }
+                    long sequence = ((Number) values.get(1)).longValue();
+                    List<Result> results = new ArrayList<>(debits.size());
+                    for (int i = 2; i + 1 < values.size(); i += 2) {
+                        String previous = String.valueOf(values.get(i + 1));
+                        Status status = switch ((int) ((Number) values.get(i)).longValue()) {
+                            case 1 -> Status.ACCEPTED;
+                            case 2 -> Status.DUPLICATE;
+                            default -> Status.INSUFFICIENT;
+                        };
+                        results.add(new Result(status, sequence, null, null,
+                                previous.isEmpty() ? null : readTransaction(previous)));
+                    }
+                    Timer.builder("credit.ledger.apply.batch")
+                            .publishPercentileHistogram()
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return Mono.just(results);
+                });
+    }
+
+    /**
+     * Kullanılabilir bakiyeden hold tutarını ayırır; defter kaydı yoksa boş döner (apply ile aynı seed akışı).
+     * Hold id'si yoksa atanır, tutar defter ölçeğine yuvarlanır. Hold açılırsa event outbox'a eklenir.
+     */
+    public Mono<Result> reserve(CreditHold hold, CreditEvent event) {
+        boolean advanced = "ADVANCED".equals(hold.getCreditType());
+        if (hold.getId() == null) {
+            hold.setId(UUID.randomUUID().toString());
+        }
+        hold.setAmount(hold.getAmount().setScale(SCALE, RoundingMode.HALF_UP));
+        String eventPayload;
+        try {
+            if (event != null) {
+                event.setHoldId(hold.getId());
+                event.setAmount(hold.getAmount());
+            }
+            eventPayload = serialize(event);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        List<String> args = List.of(
+                advanced ? ADVANCED_BALANCE : BALANCE,
+                advanced ? ADVANCED_HELD : HELD,
+                String.valueOf(toUnits(hold.getAmount())),
+                hold.getId(),
+                hold.getUserId(),
+                advanced ? "ADVANCED" : "STANDARD",
+                String.valueOf(hold.getServiceId()),
+                String.valueOf(toMillis(hold.getCreatedAt())),
+                String.valueOf(toMillis(hold.getExpiresAt())),
+                eventPayload);
+        return execute(RESERVE_SCRIPT, List.of(ledgerKey(hold.getUserId()), holdKey(hold.getId()), HOLD_EXPIRY_KEY, outboxKey),
+                args, "credit.ledger.hold.reserve")
+                .filter(result -> result.status() != Status.MISSING);
+    }
+
+    /**
+     * Hold'u kapatıp gerçek tutarı düşer ve işlemi journal'a ekler. Journal'daki tutar fiilen düşülen tutardır
+     * (gerçek tutar ayrılandan fazlaysa kullanılabilir bakiyeyle sınırlanır); sonuç da bu tutarı taşır.
+     * Tutar düşüldüyse event aynı adımda ve aynı tutarla outbox'a eklenir.
+     */
+    public Mono<Result> settle(CreditHold hold, CreditTransaction transaction, CreditEvent event) {
+        boolean advanced = "ADVANCED".equals(hold.getCreditType());
+        if (transaction.getId() == null) {
+            transaction.setId(UUID.randomUUID().toString());
+        }
+        transaction.setAmount(transaction.getAmount().setScale(SCALE, RoundingMode.HALF_UP));
+        String payload;
+        String eventPayload;
+        try {
+            payload = objectMapper.writeValueAsString(transaction);
+            eventPayload = serialize(event);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        List<String> args = List.of(
+                hold.getId(),
+                String.valueOf(toUnits(transaction.getAmount())),
+                hold.getUserId(),
+                payload,
+                advanced ? TOTAL_ADVANCED_USED : TOTAL_USED,
+                String.valueOf(System.currentTimeMillis()),
+                eventPayload);
+        return execute(SETTLE_SCRIPT, List.of(ledgerKey(hold.getUserId()), holdKey(hold.getId()), HOLD_EXPIRY_KEY, journalKey, outboxKey),
+                args, "credit.ledger.hold.settle");
+    }
+
+    /**
+     * Hold'u düşüm yapmadan kapatır. requesterId null ise sahiplik kontrolü yapılmaz (süresi dolan hold'lar).
+     * Hold bırakılırsa event (null değilse) outbox'a eklenir.
+     */
+    public Mono<Boolean> release(String holdId, String holdUserId, String requesterId, CreditEvent event) {
+        String eventPayload;
+        try {
+            eventPayload = serialize(event);
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        return redisTemplate.execute(RELEASE_SCRIPT, List.of(ledgerKey(holdUserId), holdKey(holdId), HOLD_EXPIRY_KEY, outboxKey),
+                        List.of(holdId, requesterId == null ? "" : requesterId, eventPayload))
+                .next()
+                .map(released -> released == 1L);
+    }
+
+    /**
+     * Açık hold'u okur; kapatılmışsa boş döner
+     */
+    public Mono<CreditHold> findHold(String holdId) {
+        return redisTemplate.<String, String>opsForHash().entries(holdKey(holdId))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .filter(fields -> !fields.isEmpty())
+                .map(fields -> CreditHold.builder()
+                        .id(holdId)
+                        .userId(fields.get("userId"))
+                        .serviceId(fields.get("serviceId"))
+                        .amount(fromUnits(fields.get("amount")))
+                        .creditType(fields.get("creditType"))
+                        .createdAt(fromMillis(fields.get("createdAt")))
+                        .expiresAt(fromMillis(fields.get("expiresAt")))
+                        .build());
+    }
+
+    /**
+     * Bitiş zamanı geçmiş hold id'leri (sweeper'ın kalıcı yedeği; pod çökse de hold'lar geri alınır)
+     */
+    public Flux<String> expiredHolds(long nowMillis, int limit) {
+        return redisTemplate.opsForZSet().rangeByScore(HOLD_EXPIRY_KEY,
+                Range.closed(0.0, (double) nowMillis), Limit.limit().count(limit));
+    }
+
+    /**
+     * Defter kaydını Firestore belgesinden oluşturur; kayıt zaten varsa dokunmaz
+     */
+    public Mono<Void> seed(Credit credit) {
+        List<String> fields = balanceFields(credit);
+        if (credit.getLowBalanceThreshold() != null) {
+            add(fields, LOW_BALANCE_THRESHOLD, toUnits(credit.getLowBalanceThreshold()));
+            add(fields, LOW_BALANCE_REARM, toUnits(credit.getLowBalanceRearm()));
+            // Firestore'daki işaret flusher'ın gerisinde olabilir; eşikteki bakiye için olay yeniden yayınlanmaz
+            boolean alerted = credit.isLowBalanceAlerted() || credit.getBalance().compareTo(credit.getLowBalanceThreshold()) <= 0;
+            add(fields, LOW_BALANCE_ALERTED, alerted ? "1" : "0");
+        }
+        return redisTemplate.execute(SEED_SCRIPT, List.of(ledgerKey(credit.getUserId())), fields)
+                .next()
+                .doOnNext(seeded -> {
+                    if (seeded == 1L) {
+                        meterRegistry.counter("credit.ledger.seeded").increment();
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * Firestore'un gerisinde kalan defter kaydının bakiyelerini ve sıra numarasını belgeden yeniden yazar. Kayıt
+     * silinmez; hold ayırmaları ve düşük bakiye uyarısı korunur. Defterin sıra numarası expectedSequence'tan
+     * ilerlemişse (arada işlem uygulandıysa) dokunmaz ve false döner; kayıt yoksa da false döner.
+     */
+    public Mono<Boolean> reseed(Credit durable, long expectedSequence) {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(expectedSequence));
+        args.addAll(balanceFields(durable));
+        return redisTemplate.execute(RESEED_SCRIPT, List.of(ledgerKey(durable.getUserId())), args)
+                .next()
+                .map(result -> result == 1L);
+    }
+
+    /**
+     * Düşük bakiye eşiğini ve uyarının yeniden kurulacağı seviyeyi ayarlar; threshold null ise uyarıyı kapatır.
+     * Bakiye zaten eşikteyse uyarı verilmiş sayılır (true döner). Defter kaydı yoksa boş döner (apply ile aynı seed akışı).
+     */
+    public Mono<Boolean> configureLowBalance(String userId, BigDecimal threshold, BigDecimal rearm) {
+        List<String> args = threshold == null
+                ? List.of("", "")
+                : List.of(String.valueOf(toUnits(threshold)), String.valueOf(toUnits(rearm)));
+        return redisTemplate.execute(LOW_BALANCE_SCRIPT, List.of(ledgerKey(userId)), args)
+                .next()
+                .filter(result -> result != -1L)
+                .map(result -> result == 2L);
+    }
+
+    /**
+     * Kullanıcının defterdeki güncel bakiyesi; kayıt yoksa boş döner
+     */
+    public Mono<Credit> find(String userId) {
+        return redisTemplate.<String, String>opsForHash().entries(ledgerKey(userId))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .filter(fields -> !fields.isEmpty())
+                .map(CreditLedger::toCredit);
+    }
+
+    /**
+     * Defter kaydını siler; sonraki erişim Firestore'dan yeniden seed eder
+     */
+    public Mono<Boolean> evict(String userId) {
+        return redisTemplate.delete(ledgerKey(userId)).map(deleted -> deleted > 0);
+    }
+
+    public String journalKey() {
+        return journalKey;
+    }
+
+    public String outboxKey() {
+        return outboxKey;
+    }
+
+    /**
+     * Outbox relay liderliğini alır veya uzatır; ttl sıfırsa bu pod'daki liderliği bırakır
+     */
+    public Mono<Boolean> outboxLease(String owner, Duration ttl) {
+        return redisTemplate.execute(LEASE_SCRIPT, List.of(outboxKey + ":lease"), List.of(owner, String.valueOf(ttl.toMillis())))
+                .next()
+                .map(leader -> leader == 1L);
+    }
+
+    private String serialize(CreditEvent event) throws JsonProcessingException {
+        if (event == null) {
+            return "";
+        }
+        if (event.getEventId() == null) {
+            event.setEventId(UUID.randomUUID().toString());
+        }
+        return objectMapper.writeValueAsString(event);
+    }
+
+    static String ledgerKey(String userId) {
+        return "credit_ledger:" + userId;
+    }
+
+    /**
+     * İşlem sonucunun idempotency anahtarıyla saklandığı Redis anahtarı; anahtarlar kullanıcıya özeldir
+     */
+    public static String idempotencyKey(String userId, String key) {
+        return "credit_idem:" + userId + ":" + key;
+    }
+
+    static String holdKey(String holdId) {
+        return "credit_hold:" + holdId;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Mono<Result> execute(RedisScript<List> script, List<String> keys, List<String> args, String metric) {
+        long start = System.nanoTime();
+        return redisTemplate.execute(script, keys, args)
+                .cast(Object.class)
+                .collectList()
+                .map(this::toResult)
+                .doOnNext(result -> Timer.builder(metric)
+                        .tag("result", result.status().name().toLowerCase())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    static Credit toCredit(Map<String, String> fields) {
+        return Credit.builder()
+                .id(fields.get("creditId"))
+                .userId(fields.get("userId"))
+                .balance(fromUnits(fields.get(BALANCE)))
+                .totalCreditsEarned(fromUnits(fields.get(TOTAL_EARNED)))
+                .totalCreditsUsed(fromUnits(fields.get(TOTAL_USED)))
+                .advancedBalance(fromUnits(fields.get(ADVANCED_BALANCE)))
+                .totalAdvancedCreditsEarned(fromUnits(fields.get(TOTAL_ADVANCED_EARNED)))
+                .totalAdvancedCreditsUsed(fromUnits(fields.get(TOTAL_ADVANCED_USED)))
+                .heldBalance(fromUnits(fields.get(HELD)))
+                .advancedHeldBalance(fromUnits(fields.get(ADVANCED_HELD)))
+                .lowBalanceThreshold(fields.containsKey(LOW_BALANCE_THRESHOLD) ? fromUnits(fields.get(LOW_BALANCE_THRESHOLD)) : null)
+                .lowBalanceRearm(fields.containsKey(LOW_BALANCE_REARM) ? fromUnits(fields.get(LOW_BALANCE_REARM)) : null)
+                .lowBalanceAlerted("1".equals(fields.get(LOW_BALANCE_ALERTED)))
+                .ledgerSequence(Long.parseLong(fields.getOrDefault("seq", "0")))
+                .createdAt(fromMillis(fields.get("createdAt")))
+                .lastUpdated(fromMillis(fields.get("lastUpdated")))
+                .build();
+    }
+
+    static long toUnits(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromUnits(String units) {
+        return units == null ? BigDecimal.ZERO.setScale(SCALE) : BigDecimal.valueOf(Long.parseLong(units), SCALE);
+    }
+
+    private Result toResult(List<Object> reply) {
+        // Lettuce çok değerli script cevabını elemanlarına ayırarak yayınlar; ayırmadığı sürümler için düzleştirilir
+        List<Object> values = reply.size() == 1 && reply.get(0) instanceof List<?> nested ? new ArrayList<>(nested) : reply;
+        Status outcome = switch ((int) ((Number) values.get(0)).longValue()) {
+            case 1 -> Status.ACCEPTED;
+            case 0 -> Status.INSUFFICIENT;
+            case 2 -> Status.DUPLICATE;
+            case -2 -> Status.HOLD_NOT_FOUND;
+            default -> Status.MISSING;
+        };
+        BigDecimal amount = values.size() > 3 ? BigDecimal.valueOf(((Number) values.get(3)).longValue(), SCALE) : null;
+        CreditTransaction previous = values.size() > 4 ? readTransaction(String.valueOf(values.get(4))) : null;
+        return new Result(outcome, ((Number) values.get(1)).longValue(),
+                BigDecimal.valueOf(((Number) values.get(2)).longValue(), SCALE), amount, previous);
+    }
+
+    private CreditTransaction readTransaction(String payload) {
+        try {
+            return objectMapper.readValue(payload, CreditTransaction.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> balanceFields(Credit credit) {
+        List<String> fields = new ArrayList<>();
+        add(fields, "creditId", credit.getId());
+        add(fields, "userId", credit.getUserId());
+        add(fields, BALANCE, toUnits(credit.getBalance()));
+        add(fields, TOTAL_EARNED, toUnits(credit.getTotalCreditsEarned()));
+        add(fields, TOTAL_USED, toUnits(credit.getTotalCreditsUsed()));
+        add(fields, ADVANCED_BALANCE, toUnits(credit.getAdvancedBalance()));
+        add(fields, TOTAL_ADVANCED_EARNED, toUnits(credit.getTotalAdvancedCreditsEarned()));
+        add(fields, TOTAL_ADVANCED_USED, toUnits(credit.getTotalAdvancedCreditsUsed()));
+        add(fields, "seq", credit.getLedgerSequence());
+        add(fields, "createdAt", toMillis(credit.getCreatedAt()));
+        add(fields, "lastUpdated", toMillis(credit.getLastUpdated()));
+        return fields;
+    }
+
+    private static void add(List<String> fields, String name, Object value) {
+        if (value != null) {
+            fields.add(name);
+            fields.add(String.valueOf(value));
+        }
+    }
+
+    private static Long toMillis(LocalDateTime time) {
+        return time == null ? null : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(String millis) {
+        return millis == null ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(millis)), ZoneId.systemDefault());
+    }
+
+    public enum Status {
+        ACCEPTED,
+        INSUFFICIENT,
+        MISSING,
+        HOLD_NOT_FOUND,
+        DUPLICATE
+    }
+
+    /**
+     * Script sonucu: işlemin durumu, defterin sıra numarası, ilgili bakiyenin (hold'da kullanılabilir bakiyenin)
+     * işlem sonrası değeri, settle'da fiilen düşülen tutar ve tekrar edilen istekte ilk işlem
+     */
+    public record Result(Status status, long sequence, BigDecimal balance, BigDecimal amount,
+                         CreditTransaction previous) {
+        public boolean accepted() {
+            return status == Status.ACCEPTED;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Defter journal'ını (Redis Stream) consumer group ile okuyup Firestore'a toplu yazar (write-behind).
+ * Kayıtlar ancak Firestore commit'inden sonra ACK'lenip silinir; commit'ten önce çöken pod'un kayıtları
+ * pending listesinde kalır ve aynı consumer adıyla açılışta, başka pod tarafından claim-idle süresi sonunda
+ * yeniden oynatılır. Firestore'da zaten bulunan işlemler atlandığı için tekrar oynatma idempotenttir.
+ */
+@Slf4j
+@Component
+public class CreditLedgerFlusher {
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final CreditLedger ledger;
+    private final CreditRepository creditRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String group;
+    private final String consumerName;
+    private final int batchSize;
+    private final Duration idleWait;
+    private final Duration claimIdle;
+
+    private final Set<String> recentlyFlushed = ConcurrentHashMap.newKeySet();
+    private volatile boolean groupReady;
+    private volatile boolean replayPending = true;
+    private volatile long lastClaimCheck;
+    private volatile Disposable subscription;
+
+    public CreditLedgerFlusher(
+            ReactiveStringRedisTemplate redisTemplate,
+            CreditLedger ledger,
+            CreditRepository creditRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${credit.ledger.enabled:false}") boolean enabled,
+            @Value("${credit.ledger.consumer-group:credit-ledger-flusher}") String group,
+            @Value("${credit.ledger.consumer-name:${HOSTNAME:credit-service}}") String consumerName,
+            @Value("${credit.ledger.batch-size:160}") int batchSize,
+            @Value("${credit.ledger.idle-wait:50ms}") Duration idleWait,
+            @Value("${credit.ledger.claim-idle:30s}") Duration claimIdle) {
+        this.redisTemplate = redisTemplate;
+        this.ledger = ledger;
+        this.creditRepository = creditRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.group = group;
+        this.consumerName = consumerName;
+        // Commit başına 500 yazma sınırı: işlem başına bir kayıt, kullanıcı başına bir bakiye ve bir aylık özet
+        this.batchSize = Math.min(batchSize, 160);
+        this.idleWait = idleWait;
+        this.claimIdle = claimIdle;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = Mono.defer(() -> groupReady ? flushOnce() : ensureGroup().then(Mono.defer(this::flushOnce)))
+                .flatMap(flushed -> flushed > 0 ? Mono.just(flushed) : Mono.delay(idleWait).thenReturn(0))
+                .onErrorResume(e -> {
+                    log.warn("Kredi journal'ı Firestore'a yazılamadı, pending kayıtlar yeniden denenecek: {}", e.getMessage());
+                    meterRegistry.counter("credit.ledger.flush.errors").increment();
+                    replayPending = true;
+                    return Mono.delay(idleWait.multipliedBy(10)).thenReturn(0);
+                })
+                .repeat()
+                .subscribe();
+        log.info("Kredi defteri flusher başlatıldı: group={}, consumer={}, batchSize={}", group, consumerName, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // ACK'lenmemiş kayıtlar pending kalır; sonraki açılışta veya başka pod tarafından oynatılır
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    /**
+     * Bir batch işler: önce (varsa) bu consumer'ın pending kayıtları, sonra yeni kayıtlar, boşta kalınca
+     * başka pod'lardan sahipsiz kalmış kayıtlar. Yazılan kayıt sayısını döner.
+     */
+    Mono<Integer> flushOnce() {
+        if (replayPending) {
+            return read(ReadOffset.from("0")).flatMap(records -> {
+                if (records.isEmpty()) {
+                    replayPending = false;
+                    return Mono.just(0);
+                }
+                meterRegistry.counter("credit.ledger.replayed").increment(records.size());
+                return persist(records);
+            });
+        }
+        return read(ReadOffset.lastConsumed()).flatMap(records -> {
+            if (!records.isEmpty()) {
+                return persist(records);
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastClaimCheck < claimIdle.toMillis()) {
+                return Mono.just(0);
+            }
+            lastClaimCheck = now;
+            return claimStale();
+        });
+    }
+
+    /**
+     * Son mutabakattan beri Firestore'a yazılan kullanıcıları verir ve listeden çıkarır
+     */
+    public List<String> drainRecentlyFlushed(int limit) {
+        List<String> drained = new ArrayList<>(Math.min(limit, recentlyFlushed.size()));
+        for (String userId : recentlyFlushed) {
+            if (drained.size() >= limit) {
+                break;
+            }
+            if (recentlyFlushed.remove(userId)) {
+                drained.add(userId);
+            }
+        }
+        return drained;
+    }
+
+    public String group() {
+        return group;
+    }
+
+    private Mono<String> ensureGroup() {
+        return redisTemplate.opsForStream().createGroup(ledger.journalKey(), ReadOffset.from("0"), group)
+                .onErrorResume(e -> String.valueOf(e.getMessage()).contains("BUSYGROUP")
+                        || (e.getCause() != null && String.valueOf(e.getCause().getMessage()).contains("BUSYGROUP")),
+                        e -> Mono.just("OK"))
+                .doOnNext(ok -> groupReady = true);
+    }
+
+    private Mono<List<MapRecord<String, Object, Object>>> read(ReadOffset offset) {
+        return redisTemplate.opsForStream()
+                .read(Consumer.from(group, consumerName), StreamReadOptions.empty().count(batchSize),
+                        StreamOffset.create(ledger.journalKey(), offset))
+                .collectList();
+    }
+
+    private Mono<Integer> claimStale() {
+        return redisTemplate.opsForStream()
+                .pending(ledger.journalKey(), group, Range.unbounded(), batchSize)
+                .flatMapMany(Flux::fromIterable)
+                .filter(message -> !consumerName.equals(message.getConsumerName())
+                        && message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) >= 0)
+                .map(PendingMessage::getId)
+                .collectList()
+                .flatMap(ids -> {
+                    if (ids.isEmpty()) {
+                        return Mono.just(0);
+                    }
+                    log.warn("Sahipsiz kalan {} journal kaydı devralınıyor", ids.size());
+                    meterRegistry.counter("credit.ledger.claimed").increment(ids.size());
+                    return redisTemplate.opsForStream()
+                            .claim(ledger.journalKey(), group, consumerName, claimIdle, ids.toArray(RecordId[]::new))
+                            .collectList()
+                            .flatMap(this::persist);
+                });
+    }
+
+    private Mono<Integer> persist(List<MapRecord<String, Object, Object>> records) {
+        long start = System.nanoTime();
+        List<CreditTransaction> transactions = new ArrayList<>(records.size());
+        Set<String> userIds = new LinkedHashSet<>();
+        for (MapRecord<String, Object, Object> record : records) {
+            Object payload = record.getValue().get("tx");
+            if (payload == null) {
+                // Silinmiş ama ACK'lenmemiş kayıt: yalnızca ACK'lenir
+                continue;
+            }
+            CreditTransaction transaction = readTransaction(payload.toString());
+            Object charged = record.getValue().get("amount");
+            if (charged != null) {
+                // Hold settle'ında düşülen tutar script içinde belirlenir
+                transaction.setAmount(CreditLedger.fromUnits(charged.toString()));
+            }
+            transactions.add(transaction);
+            userIds.add(String.valueOf(record.getValue().get("userId")));
+        }
+        RecordId[] ids = records.stream().map(MapRecord::getId).toArray(RecordId[]::new);
+
+        // Bakiyenin journal'daki anlık değeri yerine defterin güncel hali yazılır; geç oynatılan eski bir kayıt
+        // Firestore'daki bakiyeyi geriye götüremez
+        return Flux.fromIterable(userIds)
+                .flatMap(ledger::find)
+                .filter(credit -> credit.getUserId() != null)
+                .collectList()
+                .flatMap(balances -> creditRepository.persistJournal(transactions, balances))
+                .then(redisTemplate.opsForStream().acknowledge(ledger.journalKey(), group, ids))
+                .then(redisTemplate.opsForStream().delete(ledger.journalKey(), ids))
+                .then(Mono.fromCallable(() -> {
+                    recentlyFlushed.addAll(userIds);
+                    meterRegistry.counter("credit.ledger.flushed").increment(transactions.size());
+                    Timer.builder("credit.ledger.flush")
+                            .publishPercentileHistogram()
+                            .register(meterRegistry)
+                            .record(Duration.ofNanos(System.nanoTime() - start));
+                    return records.size();
+                }));
+    }
+
+    private CreditTransaction readTransaction(String payload) {
+        try {
+            return objectMapper.readValue(payload, CreditTransaction.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis defteri ile Firestore'u periyodik olarak karşılaştırır. Son turdan beri Firestore'a yazılan
+ * kullanıcılar için:
+ * <ul>
+ *   <li>sıra numaraları eşitse bakiyeler de eşit olmalıdır; fark varsa defterin hali Firestore'a yeniden yazılır,</li>
+ *   <li>Firestore ilerideyse Redis veri kaybetmiştir (ör. AOF'suz yeniden başlatma); defterin bakiyeleri ve sıra
+ *       numarası belgeden atomik olarak yeniden yazılır. Kayıt silinmez, hold ayırmaları ve uyarı alanları korunur;
+ *       karşılaştırmadan sonra işlem uygulandıysa kayıt değiştirilmez ve sonraki tura kalır,</li>
+ *   <li>Redis ilerideyse fark henüz yazılmamış journal kayıtlarıdır ve gecikme olarak raporlanır.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class CreditLedgerReconciler {
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final CreditLedger ledger;
+    private final CreditLedgerFlusher flusher;
+    private final CreditRepository creditRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration interval;
+    private final int sampleSize;
+    private final AtomicLong journalBacklog = new AtomicLong();
+    private final AtomicLong journalPending = new AtomicLong();
+    private final DistributionSummary sequenceLag;
+
+    private volatile Disposable subscription;
+
+    public CreditLedgerReconciler(
+            ReactiveStringRedisTemplate redisTemplate,
+            CreditLedger ledger,
+            CreditLedgerFlusher flusher,
+            CreditRepository creditRepository,
+            MeterRegistry meterRegistry,
+            @Value("${credit.ledger.enabled:false}") boolean enabled,
+            @Value("${credit.ledger.reconcile-interval:1m}") Duration interval,
+            @Value("${credit.ledger.reconcile-sample-size:100}") int sampleSize) {
+        this.redisTemplate = redisTemplate;
+        this.ledger = ledger;
+        this.flusher = flusher;
+        this.creditRepository = creditRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.sampleSize = sampleSize;
+        // Journal'da bekleyen (henüz okunmamış + ACK bekleyen) kayıt sayısı; kalıcılaştırma gecikmesinin göstergesi
+        meterRegistry.gauge("credit.ledger.journal.backlog", journalBacklog);
+        meterRegistry.gauge("credit.ledger.journal.pending", journalPending);
+        this.sequenceLag = DistributionSummary.builder("credit.ledger.reconcile.lag")
+                .description("Redis defteri ile Firestore arasındaki işlem sırası farkı")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = Flux.interval(interval)
+                .concatMap(tick -> reconcile()
+                        .onErrorResume(e -> {
+                            log.warn("Kredi defteri mutabakatı başarısız: {}", e.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    Mono<Void> reconcile() {
+        List<String> userIds = flusher.drainRecentlyFlushed(sampleSize);
+        Mono<Void> journal = redisTemplate.opsForStream().size(ledger.journalKey())
+                .doOnNext(journalBacklog::set)
+                .then(redisTemplate.opsForStream().pending(ledger.journalKey(), flusher.group())
+                        .doOnNext(summary -> journalPending.set(summary.getTotalPendingMessages())))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+        return journal.thenMany(Flux.fromIterable(userIds))
+                .concatMap(this::reconcileUser)
+                .then();
+    }
+
+    private Mono<Void> reconcileUser(String userId) {
+        return Mono.zip(ledger.find(userId), creditRepository.findById(userId))
+                .flatMap(pair -> {
+                    Credit hot = pair.getT1();
+                    Credit durable = pair.getT2();
+                    long lag = hot.getLedgerSequence() - durable.getLedgerSequence();
+                    if (lag > 0) {
+                        sequenceLag.record(lag);
+                        return Mono.empty();
+                    }
+                    if (lag < 0) {
+                        log.error("Kredi defteri Firestore'un gerisinde, belgeden yeniden yazılacak: userId={}, redisSeq={}, firestoreSeq={}",
+                                userId, hot.getLedgerSequence(), durable.getLedgerSequence());
+                        return ledger.reseed(durable, hot.getLedgerSequence())
+                                .doOnNext(reseeded -> meterRegistry.counter("credit.ledger.reconcile.reseeded",
+                                        "result", reseeded ? "rewritten" : "skipped").increment())
+                                .then();
+                    }
+                    sequenceLag.record(0);
+                    if (sameBalances(hot, durable)) {
+                        return Mono.empty();
+                    }
+                    log.error("Kredi defteri ile Firestore bakiyesi uyuşmuyor, defter yeniden yazılıyor: userId={}, redis={}/{}, firestore={}/{}",
+                            userId, hot.getBalance(), hot.getAdvancedBalance(), durable.getBalance(), durable.getAdvancedBalance());
+                    meterRegistry.counter("credit.ledger.reconcile.mismatch").increment();
+                    return creditRepository.persistJournal(List.of(), List.of(hot));
+                });
+    }
+
+    private static boolean sameBalances(Credit hot, Credit durable) {
+        return equal(hot.getBalance(), durable.getBalance())
+                && equal(hot.getTotalCreditsEarned(), durable.getTotalCreditsEarned())
+                && equal(hot.getTotalCreditsUsed(), durable.getTotalCreditsUsed())
+                && equal(hot.getAdvancedBalance(), durable.getAdvancedBalance())
+                && equal(hot.getTotalAdvancedCreditsEarned(), durable.getTotalAdvancedCreditsEarned())
+                && equal(hot.getTotalAdvancedCreditsUsed(), durable.getTotalAdvancedCreditsUsed());
+    }
+
+    private static boolean equal(BigDecimal left, BigDecimal right) {
+        return left == null || right == null ? left == right : left.compareTo(right) == 0;
+    }
+}
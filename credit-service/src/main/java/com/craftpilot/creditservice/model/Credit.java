@@ -1,15 +1,18 @@
 package com.craftpilot.creditservice.model;
 
+import com.google.cloud.firestore.annotation.Exclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Credit {
@@ -26,6 +29,23 @@ public class Credit {
     private BigDecimal totalAdvancedCreditsEarned;
     private BigDecimal totalAdvancedCreditsUsed;
     
+    // Açık rezervasyonlarda (hold) ayrılmış tutarlar; yalnızca Redis defterinde tutulur, Firestore'a yazılmaz
+    @Getter(onMethod_ = @Exclude)
+    @Setter(onMethod_ = @Exclude)
+    private BigDecimal heldBalance;
+    @Getter(onMethod_ = @Exclude)
+    @Setter(onMethod_ = @Exclude)
+    private BigDecimal advancedHeldBalance;
+
+    // Düşük bakiye uyarısı (standart bakiye): bakiye eşiğe inince bir kez LOW_BALANCE olayı yayınlanır,
+    // bakiye rearm seviyesine çıkana kadar tekrar yayınlanmaz. Eşik boşsa uyarı kapalıdır.
+    private BigDecimal lowBalanceThreshold;
+    private BigDecimal lowBalanceRearm;
+    private boolean lowBalanceAlerted;
+
+    // Redis defterinin bu belgeye yansıtılan son işlem sıra numarası
+    private long ledgerSequence;
+
     private LocalDateTime lastUpdated;
     private LocalDateTime createdAt;
     private boolean deleted;
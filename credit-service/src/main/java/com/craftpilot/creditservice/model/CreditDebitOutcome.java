@@ -0,0 +1,16 @@
+package com.craftpilot.creditservice.model;
+
+/**
+ * Toplu düşümde bir kalemin sonucu; index istekteki sırasıdır. transaction uygulanan kalemde yeni işlem,
+ * tekrar edilen kalemde ilk işlemdir; diğer durumlarda null'dır.
+ */
+public record CreditDebitOutcome(int index, String userId, String idempotencyKey, Status status,
+                                 CreditTransaction transaction, String error) {
+
+    public enum Status {
+        APPLIED,
+        DUPLICATE,
+        INSUFFICIENT_CREDITS,
+        FAILED
+    }
+}
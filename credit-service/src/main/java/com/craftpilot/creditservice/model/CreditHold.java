@@ -0,0 +1,27 @@
+package com.craftpilot.creditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sonucu sonradan belli olan kullanım (ör. stream edilen LLM cevabı) için ayrılmış kredi.
+ * Yalnızca Redis defterinde yaşar; settle edildiğinde gerçek tutar normal bir DEBIT işlemi olarak yazılır.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditHold {
+    private String id;
+    private String userId;
+    private String serviceId;
+    private BigDecimal amount;
+    private String creditType; // STANDARD veya ADVANCED
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
@@ -23,7 +23,12 @@ public class CreditTransaction {
     private String creditType; // STANDARD veya ADVANCED
     private LocalDateTime timestamp;
     private LocalDateTime createdAt;
+    // Sayfalama ve aylık özetler için sıralanabilir zaman (epoch ms); LocalDateTime alanlarına göre sıralanamaz
+    @Builder.Default
+    private long timestampMillis = System.currentTimeMillis();
     private TransactionStatus status;
+    // Çağıranın Idempotency-Key başlığı; aynı anahtarla tekrarlanan istek ilk işlemi döner
+    private String idempotencyKey;
     private boolean deleted;
     
     public enum TransactionType {
@@ -0,0 +1,9 @@
+package com.craftpilot.creditservice.model;
+
+import java.util.List;
+
+/**
+ * İşlem geçmişinin bir sayfası; nextCursor son sayfada null'dır
+ */
+public record CreditTransactionPage(List<CreditTransaction> transactions, String nextCursor) {
+}
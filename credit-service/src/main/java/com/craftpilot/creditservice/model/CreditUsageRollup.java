@@ -0,0 +1,36 @@
+package com.craftpilot.creditservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Kullanıcının bir aylık (UTC) kredi hareketlerinin özeti: credit_usage_monthly/{userId}_{yyyy-MM}.
+ * İşlem kayıtlarıyla aynı commit'te artırılır. Tutarlar 1/10000 kredi biriminde tamsayıdır.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreditUsageRollup {
+    private String userId;
+    private String month;
+
+    // creditType -> toplamlar
+    private Map<String, Totals> creditTypes;
+
+    // serviceId -> creditType -> toplamlar
+    private Map<String, Map<String, Totals>> services;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Totals {
+        private long earnedUnits;
+        private long usedUnits;
+        private long count;
+    }
+}
@@ -1,78 +1,480 @@
 package com.craftpilot.creditservice.repository;
 
+import com.craftpilot.creditservice.event.CreditEvent;
 import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
-import lombok.RequiredArgsConstructor;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.TransactionOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
+@Slf4j
 @Repository
-@RequiredArgsConstructor
 public class CreditRepository {
     private final Firestore firestore;
+    private final MeterRegistry meterRegistry;
     private static final String COLLECTION_NAME = "credits";
+    private static final String TRANSACTIONS_COLLECTION_NAME = "credit_transactions";
+    // Defter kapalıyken kredi olaylarının outbox'ı; belge id'si eventId'dir, CreditOutboxRelay Kafka'ya aktarır
+    private static final String OUTBOX_COLLECTION_NAME = "credit_outbox";
+    // Redis defterinin sahip olduğu alanlar; createdAt/deleted gibi diğer alanlara write-behind dokunmaz
+    private static final List<String> LEDGER_FIELDS = List.of("userId", "balance", "totalCreditsEarned",
+            "totalCreditsUsed", "advancedBalance", "totalAdvancedCreditsEarned", "totalAdvancedCreditsUsed",
+            "lowBalanceAlerted", "ledgerSequence", "lastUpdated");
 
+    // Kısa ömürlü okuma önbelleği: aynı istek dalgasında tekrar eden bakiye okumalarını Firestore'a göndermez
+    private final Map<String, CachedCredit> cache = new ConcurrentHashMap<>();
+
+    @Value("${credit.transaction.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${credit.cache.ttl:2s}")
+    private Duration cacheTtl;
+
+    @Value("${credit.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${credit.migration.legacy-lookup:true}")
+    private boolean legacyLookup;
+
+    public CreditRepository(Firestore firestore, MeterRegistry meterRegistry) {
+        this.firestore = firestore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Kredi belgesinin id'si userId'dir; okuma tek bir belge get'idir ve TTL süresince önbellekten karşılanır.
+     * Belge yoksa ve eski (rastgele id'li) belgelere bakma açıksa bir kez userId sorgusu yapılır, bulunan belge
+     * userId anahtarına taşınır.
+     */
     public Mono<Credit> findByUserId(String userId) {
-        return Mono.fromFuture(() -> {
-            CompletableFuture<Credit> future = new CompletableFuture<>();
-            firestore.collection(COLLECTION_NAME)
-                    .whereEqualTo("userId", userId)
-                    .whereEqualTo("deleted", false)
-                    .get()
-                    .addListener(() -> {
-                        try {
-                            var querySnapshot = firestore.collection(COLLECTION_NAME)
-                                    .whereEqualTo("userId", userId)
-                                    .whereEqualTo("deleted", false)
-                                    .get()
-                                    .get();
-                            var credit = querySnapshot.getDocuments().stream()
-                                    .findFirst()
-                                    .map(document -> document.toObject(Credit.class))
-                                    .orElse(null);
-                            future.complete(credit);
-                        } catch (Exception e) {
-                            future.completeExceptionally(e);
-                        }
-                    }, Runnable::run);
-            return future;
-        });
+        Credit cached = cached(userId);
+        if (cached != null) {
+            meterRegistry.counter("credit.cache.requests", "result", "hit").increment();
+            return Mono.just(cached);
+        }
+        meterRegistry.counter("credit.cache.requests", "result", "miss").increment();
+        return findById(userId)
+                .switchIfEmpty(Mono.defer(() -> legacyLookup ? findLegacy(userId).flatMap(this::rekey) : Mono.empty()))
+                .doOnNext(this::cache);
+    }
+
+    /**
+     * Belgeyi önbelleği atlayarak tek get ile okur; silinmiş belge yok sayılır
+     */
+    public Mono<Credit> findById(String id) {
+        return read("get", () -> firestore.collection(COLLECTION_NAME).document(id).get())
+                .mapNotNull(snapshot -> snapshot.exists() ? snapshot.toObject(Credit.class) : null)
+                .filter(credit -> !credit.isDeleted());
     }
 
     public Mono<Credit> save(Credit credit) {
-        if (credit.getId() == null) {
-            credit.setId(firestore.collection(COLLECTION_NAME).document().getId());
+        credit.setId(credit.getUserId());
+        return write(() -> firestore.collection(COLLECTION_NAME).document(credit.getId()).set(credit))
+                .thenReturn(credit)
+                .doOnNext(this::cache);
+    }
+
+    /**
+     * Kullanıcının ilk kredi belgesini oluşturur. Aynı kullanıcı için eşzamanlı iki ilk istekten yalnızca biri
+     * belgeyi yazar; diğeri oluşmuş belgeyi okuyup döner, böylece başlangıç kredisi iki kez verilmez.
+     */
+    public Mono<Credit> create(Credit credit) {
+        credit.setId(credit.getUserId());
+        return write(() -> firestore.collection(COLLECTION_NAME).document(credit.getId()).create(credit))
+                .thenReturn(credit)
+                .onErrorResume(CreditRepository::isAlreadyExists, e -> findById(credit.getId()))
+                .doOnNext(this::cache);
+    }
+
+    /**
+     * Rastgele id ile yazılmış belgeleri userId anahtarına taşır; taşınan belge sayısını döner.
+     * Belgeler id sırasıyla sayfa sayfa okunur, her taşıma ayrı bir transaction'dır ve tekrar çalıştırılabilir.
+     */
+    public Mono<Long> migrateLegacyDocuments(int pageSize) {
+        return Mono.defer(() -> migratePage(null, pageSize, 0L));
+    }
+
+    private Mono<Long> migratePage(DocumentSnapshot after, int pageSize, long migrated) {
+        Query page = firestore.collection(COLLECTION_NAME).orderBy(FieldPath.documentId()).limit(pageSize);
+        Query query = after == null ? page : page.startAfter(after);
+        return read("scan", query::get).flatMap(snapshot -> {
+            List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+            return Flux.fromIterable(documents)
+                    .filter(document -> {
+                        String userId = document.getString("userId");
+                        return userId != null && !userId.equals(document.getId())
+                                && !Boolean.TRUE.equals(document.getBoolean("deleted"));
+                    })
+                    .concatMap(this::rekey)
+                    .count()
+                    .flatMap(count -> documents.size() < pageSize
+                            ? Mono.just(migrated + count)
+                            : migratePage(documents.get(documents.size() - 1), pageSize, migrated + count));
+        });
+    }
+
+    private Mono<DocumentSnapshot> findLegacy(String userId) {
+        return read("query", () -> firestore.collection(COLLECTION_NAME)
+                .whereEqualTo("userId", userId)
+                .whereEqualTo("deleted", false)
+                .limit(1)
+                .get())
+                .mapNotNull(snapshot -> snapshot.isEmpty() ? null : snapshot.getDocuments().get(0));
+    }
+
+    /**
+     * Eski belgeyi tek transaction'da credits/{userId} altına kopyalar ve siler. Hedef belge zaten varsa
+     * (ör. write-behind yazdıysa) bakiyeler hedefte kalır, yalnızca eksik createdAt eski belgeden tamamlanır.
+     */
+    private Mono<Credit> rekey(DocumentSnapshot legacy) {
+        Credit legacyCredit = legacy.toObject(Credit.class);
+        if (legacyCredit == null) {
+            return Mono.empty();
         }
-        return Mono.fromFuture(() -> {
-            CompletableFuture<Credit> future = new CompletableFuture<>();
-            firestore.collection(COLLECTION_NAME)
-                    .document(credit.getId())
-                    .set(credit)
-                    .addListener(() -> future.complete(credit), Runnable::run);
-            return future;
+        String userId = legacyCredit.getUserId();
+        DocumentReference target = firestore.collection(COLLECTION_NAME).document(userId);
+        return transaction(transaction -> {
+            DocumentSnapshot existing = transaction.get(target).get();
+            Credit migrated = existing.exists() ? existing.toObject(Credit.class) : legacyCredit;
+            if (migrated.getCreatedAt() == null) {
+                migrated.setCreatedAt(legacyCredit.getCreatedAt());
+            }
+            migrated.setId(userId);
+            transaction.set(target, migrated);
+            transaction.delete(legacy.getReference());
+            return migrated;
+        }).doOnNext(credit -> {
+            log.info("Kredi belgesi userId anahtarına taşındı: userId={}, eskiId={}", userId, legacy.getId());
+            meterRegistry.counter("credit.migration.rekeyed").increment();
         });
     }
 
-    public Mono<Credit> findById(String id) {
-        return Mono.fromFuture(() -> {
-            CompletableFuture<Credit> future = new CompletableFuture<>();
-            firestore.collection(COLLECTION_NAME)
-                    .document(id)
-                    .get()
-                    .addListener(() -> {
-                        try {
-                            var documentSnapshot = firestore.collection(COLLECTION_NAME)
-                                    .document(id)
-                                    .get()
-                                    .get();
-                            future.complete(documentSnapshot.toObject(Credit.class));
-                        } catch (Exception e) {
-                            future.completeExceptionally(e);
-                        }
-                    }, Runnable::run);
-            return future;
+    /**
+     * Bakiyeyi tek bir Firestore transaction'ı içinde okur, mutation ile günceller ve işlem kaydını
+     * aynı commit'te yazar. Eşzamanlı bir yazma commit'i bozarsa Firestore transaction'ı baştan çalıştırır;
+     * bu yüzden mutation yan etkisiz olmalı ve her seferinde güncel belgeyle yeniden hesaplanmalıdır.
+     * Mutation'ın fırlattığı hata (ör. yetersiz bakiye) transaction'ı geri alır ve olduğu gibi iletilir.
+     * events mutation'dan sonra aynı denemede çağrılır; dönen olaylar outbox'a aynı commit'te yazılır.
+     */
+    public Mono<Credit> updateAtomically(String creditId, UnaryOperator<Credit> mutation, CreditTransaction journal,
+                                         Supplier<List<CreditEvent>> events) {
+        if (journal.getId() == null) {
+            journal.setId(firestore.collection(TRANSACTIONS_COLLECTION_NAME).document().getId());
+        }
+        DocumentReference creditRef = firestore.collection(COLLECTION_NAME).document(creditId);
+        DocumentReference journalRef = firestore.collection(TRANSACTIONS_COLLECTION_NAME).document(journal.getId());
+        return transaction(transaction -> {
+            Credit current = transaction.get(creditRef).get().toObject(Credit.class);
+            if (current == null) {
+                throw new IllegalStateException("Kredi kaydı bulunamadı: " + creditId);
+            }
+            Credit updated = mutation.apply(current);
+            transaction.set(creditRef, updated);
+            transaction.set(journalRef, journal);
+            CreditRollups.increments(List.of(journal)).forEach((id, fields) -> transaction.set(
+                    firestore.collection(CreditRollups.COLLECTION_NAME).document(id), fields, SetOptions.merge()));
+            enqueue(transaction, events.get());
+            return updated;
+        }).doOnNext(this::cache);
+    }
+
+    /**
+     * {@link #updateAtomically} ile aynı; çağıran işlem id'sini idempotency anahtarından türetir. Aynı id'li işlem
+     * daha önce yazılmışsa (ör. cevabı kaybolan isteğin tekrarı) bakiyeye dokunulmaz, olay yazılmaz ve kayıtlı
+     * işlem döner.
+     */
+    public Mono<CreditTransaction> updateOnce(String creditId, UnaryOperator<Credit> mutation, CreditTransaction journal,
+                                              Supplier<List<CreditEvent>> events) {
+        DocumentReference creditRef = firestore.collection(COLLECTION_NAME).document(creditId);
+        DocumentReference journalRef = firestore.collection(TRANSACTIONS_COLLECTION_NAME).document(journal.getId());
+        return transaction(transaction -> {
+            // Transaction'da tüm okumalar yazmalardan önce yapılmalı
+            DocumentSnapshot previous = transaction.get(journalRef).get();
+            Credit current = transaction.get(creditRef).get().toObject(Credit.class);
+            if (previous.exists()) {
+                return previous.toObject(CreditTransaction.class);
+            }
+            if (current == null) {
+                throw new IllegalStateException("Kredi kaydı bulunamadı: " + creditId);
+            }
+            transaction.set(creditRef, mutation.apply(current));
+            transaction.set(journalRef, journal);
+            CreditRollups.increments(List.of(journal)).forEach((id, fields) -> transaction.set(
+                    firestore.collection(CreditRollups.COLLECTION_NAME).document(id), fields, SetOptions.merge()));
+            enqueue(transaction, events.get());
+            return journal;
+        }).doOnNext(saved -> cache.remove(creditId));
+    }
+
+    /**
+     * Aynı kullanıcının işlemlerini tek transaction'da sırayla uygular: kredi belgesi bir kez okunup bir kez yazılır,
+     * işlem kayıtları ve aylık özetler aynı commit'te eklenir. mutation null dönerse (ör. yetersiz bakiye) o kalem
+     * atlanır, diğerleri uygulanır. Sonuç kalemlerle aynı sıradadır: uygulanan kalemde kalemin kendisi, id'si daha
+     * önce yazılmış kalemde (idempotency tekrarı) kayıtlı işlem, atlanan kalemde null. Uygulanan kalemlerin
+     * events ile üretilen olayları outbox'a aynı commit'te yazılır. Commit başına 500 yazma sınırı nedeniyle
+     * çağıran kalemleri bölmelidir.
+     */
+    public Mono<List<CreditTransaction>> updateBatch(String creditId, List<CreditTransaction> journal,
+                                                     BiFunction<Credit, CreditTransaction, Credit> mutation,
+                                                     Function<CreditTransaction, List<CreditEvent>> events) {
+        DocumentReference creditRef = firestore.collection(COLLECTION_NAME).document(creditId);
+        DocumentReference[] journalRefs = journal.stream()
+                .map(entry -> firestore.collection(TRANSACTIONS_COLLECTION_NAME).document(entry.getId()))
+                .toArray(DocumentReference[]::new);
+        return transaction(transaction -> {
+            Map<String, CreditTransaction> written = new HashMap<>();
+            for (DocumentSnapshot snapshot : transaction.getAll(journalRefs).get()) {
+                if (snapshot.exists()) {
+                    written.put(snapshot.getId(), snapshot.toObject(CreditTransaction.class));
+                }
+            }
+            Credit current = transaction.get(creditRef).get().toObject(Credit.class);
+            if (current == null) {
+                throw new IllegalStateException("Kredi kaydı bulunamadı: " + creditId);
+            }
+            List<CreditTransaction> results = new ArrayList<>(journal.size());
+            List<CreditTransaction> applied = new ArrayList<>();
+            for (CreditTransaction entry : journal) {
+                CreditTransaction previous = written.get(entry.getId());
+                if (previous != null) {
+                    results.add(previous);
+                    continue;
+                }
+                Credit updated = mutation.apply(current, entry);
+                if (updated == null) {
+                    results.add(null);
+                    continue;
+                }
+                current = updated;
+                written.put(entry.getId(), entry);
+                applied.add(entry);
+                results.add(entry);
+            }
+            if (!applied.isEmpty()) {
+                transaction.set(creditRef, current);
+                applied.forEach(entry -> transaction.set(
+                        firestore.collection(TRANSACTIONS_COLLECTION_NAME).document(entry.getId()), entry));
+                CreditRollups.increments(applied).forEach((id, fields) -> transaction.set(
+                        firestore.collection(CreditRollups.COLLECTION_NAME).document(id), fields, SetOptions.merge()));
+                applied.forEach(entry -> enqueue(transaction, events.apply(entry)));
+            }
+            return results;
+        }).doOnNext(results -> cache.remove(creditId));
+    }
+
+    /**
+     * Düşük bakiye eşiğini belgeye yazar; threshold null ise uyarıyı kapatır. Uyarı işareti belgedeki bakiyeye göre
+     * kurulur: bakiye zaten eşikteyse uyarı verilmiş sayılır ve ayar anında olay üretilmez.
+     */
+    public Mono<Credit> configureLowBalanceAlert(String creditId, BigDecimal threshold, BigDecimal rearm) {
+        DocumentReference creditRef = firestore.collection(COLLECTION_NAME).document(creditId);
+        return transaction(transaction -> {
+            Credit current = transaction.get(creditRef).get().toObject(Credit.class);
+            if (current == null) {
+                throw new IllegalStateException("Kredi kaydı bulunamadı: " + creditId);
+            }
+            Credit updated = current.toBuilder()
+                    .lowBalanceThreshold(threshold)
+                    .lowBalanceRearm(rearm)
+                    .lowBalanceAlerted(threshold != null && current.getBalance().compareTo(threshold) <= 0)
+                    .build();
+            transaction.set(creditRef, updated);
+            return updated;
+        }).doOnNext(this::cache);
+    }
+
+    /**
+     * Redis defterinin journal'ından okunan işlemleri, aylık özet artışlarını ve bakiyelerin son halini tek bir
+     * transaction'da yazar. Journal kaydı commit'ten sonra ACK'lenemezse aynı işlemler yeniden oynatılır; özet
+     * artışları idempotent olmadığı için Firestore'da zaten bulunan işlemler transaction içinde okunup atlanır.
+     */
+    public Mono<Void> persistJournal(Collection<CreditTransaction> transactions, Collection<Credit> balances) {
+        return transaction(transaction -> {
+            List<CreditTransaction> fresh = new ArrayList<>(transactions.size());
+            if (!transactions.isEmpty()) {
+                DocumentReference[] refs = transactions.stream()
+                        .map(journal -> firestore.collection(TRANSACTIONS_COLLECTION_NAME).document(journal.getId()))
+                        .toArray(DocumentReference[]::new);
+                Set<String> written = new HashSet<>();
+                for (DocumentSnapshot snapshot : transaction.getAll(refs).get()) {
+                    if (snapshot.exists()) {
+                        written.add(snapshot.getId());
+                    }
+                }
+                transactions.stream().filter(journal -> !written.contains(journal.getId())).forEach(fresh::add);
+            }
+            fresh.forEach(journal -> transaction.set(
+                    firestore.collection(TRANSACTIONS_COLLECTION_NAME).document(journal.getId()), journal));
+            CreditRollups.increments(fresh).forEach((id, fields) -> transaction.set(
+                    firestore.collection(CreditRollups.COLLECTION_NAME).document(id), fields, SetOptions.merge()));
+            balances.forEach(credit -> transaction.set(
+                    firestore.collection(COLLECTION_NAME).document(credit.getUserId()), credit, SetOptions.mergeFields(LEDGER_FIELDS)));
+            return fresh.size();
+        })
+                // Yazılan alanlar belgenin tamamı değil; önbellekteki kopya güncellenmek yerine düşürülür
+                .doOnNext(written -> balances.forEach(credit -> cache.remove(credit.getUserId())))
+                .then();
+    }
+
+    /**
+     * Outbox'taki en eski olaylar; sıra olayın zaman damgası, eşitlikte eventId'dir
+     */
+    public Mono<List<CreditEvent>> findOutbox(int limit) {
+        return read("outbox", () -> firestore.collection(OUTBOX_COLLECTION_NAME)
+                .orderBy("timestamp")
+                .orderBy(FieldPath.documentId())
+                .limit(limit)
+                .get())
+                .map(snapshot -> snapshot.getDocuments().stream()
+                        .map(document -> document.toObject(CreditEvent.class))
+                        .toList());
+    }
+
+    /**
+     * Yayınlanan olayları outbox'tan tek batch'te siler; limit commit başına 500 yazmadır
+     */
+    public Mono<Void> deleteOutbox(Collection<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return write(() -> {
+            WriteBatch batch = firestore.batch();
+            eventIds.forEach(id -> batch.delete(firestore.collection(OUTBOX_COLLECTION_NAME).document(id)));
+            return batch.commit();
+        }).then();
+    }
+
+    private void enqueue(Transaction transaction, List<CreditEvent> events) {
+        for (CreditEvent event : events) {
+            transaction.set(firestore.collection(OUTBOX_COLLECTION_NAME).document(event.getEventId()), event);
+        }
+    }
+
+    private Credit cached(String userId) {
+        if (cacheTtl == null || cacheTtl.isZero()) {
+            return null;
+        }
+        CachedCredit entry = cache.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() < System.nanoTime()) {
+            cache.remove(userId, entry);
+            return null;
+        }
+        return entry.credit().toBuilder().build();
+    }
+
+    private void cache(Credit credit) {
+        if (cacheTtl == null || cacheTtl.isZero() || credit.getUserId() == null) {
+            return;
+        }
+        if (cache.size() >= cacheMaxEntries) {
+            // TTL kısa olduğu için dolu önbellekte ayrı bir LRU tutmak yerine süresi dolanlar temizlenir
+            long now = System.nanoTime();
+            cache.values().removeIf(entry -> entry.expiresAt() < now);
+            if (cache.size() >= cacheMaxEntries) {
+                return;
+            }
+        }
+        cache.put(credit.getUserId(), new CachedCredit(credit.toBuilder().build(), System.nanoTime() + cacheTtl.toNanos()));
+    }
+
+    private <T> Mono<T> read(String operation, Supplier<ApiFuture<T>> call) {
+        return Mono.defer(() -> {
+            meterRegistry.counter("credit.firestore.reads", "operation", operation).increment();
+            return toMono(call.get());
         });
     }
-} 
\ No newline at end of file
+
+    private <T> Mono<T> write(Supplier<ApiFuture<T>> call) {
+        return Mono.defer(() -> toMono(call.get()));
+    }
+
+    private <T> Mono<T> transaction(Transaction.Function<T> function) {
+        return Mono.defer(() -> toMono(firestore.runTransaction(function,
+                TransactionOptions.createReadWriteOptionsBuilder().setNumberOfAttempts(maxAttempts).build())));
+    }
+
+    private static <T> Mono<T> toMono(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(rootCause(t));
+            }
+        }, MoreExecutors.directExecutor());
+        return Mono.fromFuture(future);
+    }
+
+    private static boolean isAlreadyExists(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof ApiException apiException
+                    && apiException.getStatusCode().getCode() == StatusCode.Code.ALREADY_EXISTS) {
+                return true;
+            }
+            if (cause instanceof FirestoreException firestoreException && firestoreException.getStatus() != null
+                    && firestoreException.getStatus().getCode() == Status.Code.ALREADY_EXISTS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable rootCause(Throwable t) {
+        // Transaction fonksiyonundan çıkan hata ExecutionException/FirestoreException içine sarılı gelir
+        Throwable cause = t;
+        while (cause.getCause() != null && cause.getCause() != cause
+                && (cause instanceof ExecutionException
+                || cause instanceof FirestoreException)) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private record CachedCredit(Credit credit, long expiresAt) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.craftpilot.creditservice.repository;
+
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.google.cloud.firestore.FieldValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * İşlemlerden aylık özet belgelerine yazılacak artışları üretir. Aynı (kullanıcı, ay) belgesine düşen işlemler
+ * önce bellekte toplanır; belge başına tek bir merge yazması çıkar.
+ */
+final class CreditRollups {
+    static final String COLLECTION_NAME = "credit_usage_monthly";
+    private static final int SCALE = 4;
+    private static final String UNKNOWN_SERVICE = "unknown";
+
+    private CreditRollups() {
+    }
+
+    static String documentId(String userId, YearMonth month) {
+        return userId + "_" + month;
+    }
+
+    static YearMonth month(long timestampMillis) {
+        return YearMonth.from(Instant.ofEpochMilli(timestampMillis).atZone(ZoneOffset.UTC));
+    }
+
+    static long toUnits(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Belge id'si -> SetOptions.merge() ile yazılacak alanlar
+     */
+    static Map<String, Map<String, Object>> increments(Collection<CreditTransaction> transactions) {
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        for (CreditTransaction transaction : transactions) {
+            if (transaction.getUserId() == null || transaction.getAmount() == null) {
+                continue;
+            }
+            YearMonth month = month(transaction.getTimestampMillis());
+            String creditType = "ADVANCED".equals(transaction.getCreditType()) ? "ADVANCED" : "STANDARD";
+            String serviceId = transaction.getServiceId() == null ? UNKNOWN_SERVICE : transaction.getServiceId();
+            boolean debit = "DEBIT".equals(transaction.getType());
+            long units = toUnits(transaction.getAmount());
+            Delta delta = deltas.computeIfAbsent(documentId(transaction.getUserId(), month),
+                    id -> new Delta(transaction.getUserId(), month.toString()));
+            add(delta.creditTypes.computeIfAbsent(creditType, key -> new long[3]), debit, units);
+            add(delta.services.computeIfAbsent(serviceId, key -> new HashMap<>())
+                    .computeIfAbsent(creditType, key -> new long[3]), debit, units);
+        }
+        Map<String, Map<String, Object>> writes = new LinkedHashMap<>();
+        deltas.forEach((id, delta) -> {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("userId", delta.userId);
+            fields.put("month", delta.month);
+            Map<String, Object> creditTypes = new HashMap<>();
+            delta.creditTypes.forEach((creditType, totals) -> creditTypes.put(creditType, fields(totals)));
+            fields.put("creditTypes", creditTypes);
+            Map<String, Object> services = new HashMap<>();
+            delta.services.forEach((serviceId, byCreditType) -> {
+                Map<String, Object> service = new HashMap<>();
+                byCreditType.forEach((creditType, totals) -> service.put(creditType, fields(totals)));
+                services.put(serviceId, service);
+            });
+            fields.put("services", services);
+            writes.put(id, fields);
+        });
+        return writes;
+    }
+
+    private static void add(long[] totals, boolean debit, long units) {
+        totals[debit ? 1 : 0] += units;
+        totals[2]++;
+    }
+
+    private static Map<String, Object> fields(long[] totals) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("earnedUnits", FieldValue.increment(totals[0]));
+        fields.put("usedUnits", FieldValue.increment(totals[1]));
+        fields.put("count", FieldValue.increment(totals[2]));
+        return fields;
+    }
+
+    private static final class Delta {
+        private final String userId;
+        private final String month;
+        private final Map<String, long[]> creditTypes = new HashMap<>();
+        private final Map<String, Map<String, long[]>> services = new HashMap<>();
+
+        private Delta(String userId, String month) {
+            this.userId = userId;
+            this.month = month;
+        }
+    }
+}
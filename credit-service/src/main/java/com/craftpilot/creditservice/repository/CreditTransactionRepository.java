@@ -1,13 +1,34 @@
 package com.craftpilot.creditservice.repository;
 
+import com.craftpilot.creditservice.exception.InvalidCursorException;
 import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.model.CreditTransactionPage;
+import com.craftpilot.creditservice.model.CreditUsageRollup;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 @Repository
@@ -15,6 +36,16 @@ import java.util.concurrent.CompletableFuture;
 public class CreditTransactionRepository {
     private final Firestore firestore;
     private static final String COLLECTION_NAME = "credit_transactions";
+    private static final String MIGRATIONS_COLLECTION = "credit_migrations";
+    private static final String TIMESTAMP_BACKFILL_MARKER = "transaction-timestamps";
+    // Yeniden eskiye: zaman, aynı milisaniyede belge id'si
+    static final Comparator<CreditTransaction> PAGE_ORDER = Comparator
+            .comparingLong(CreditTransaction::getTimestampMillis)
+            .thenComparing(CreditTransaction::getId)
+            .reversed();
+
+    // Backfill bittiğinde bir kez true olur; öncesinde timestampMillis'siz kayıtlar sıralı sorguda görünmez
+    private volatile boolean timestampsBackfilled;
 
     public Mono<CreditTransaction> save(CreditTransaction transaction) {
         if (transaction.getId() == null) {
@@ -31,75 +62,242 @@ public class CreditTransactionRepository {
     }
 
     public Flux<CreditTransaction> findByUserId(String userId) {
-        return Mono.fromFuture(() -> {
-            CompletableFuture<List<CreditTransaction>> future = new CompletableFuture<>();
-            firestore.collection(COLLECTION_NAME)
-                    .whereEqualTo("userId", userId)
-                    .whereEqualTo("deleted", false)
-                    .get()
-                    .addListener(() -> {
-                        try {
-                            var querySnapshot = firestore.collection(COLLECTION_NAME)
-                                    .whereEqualTo("userId", userId)
-                                    .whereEqualTo("deleted", false)
-                                    .get()
-                                    .get();
-                            var transactions = querySnapshot.getDocuments().stream()
-                                    .map(document -> document.toObject(CreditTransaction.class))
-                                    .toList();
-                            future.complete(transactions);
-                        } catch (Exception e) {
-                            future.completeExceptionally(e);
+        return query(firestore.collection(COLLECTION_NAME)
+                .whereEqualTo("userId", userId)
+                .whereEqualTo("deleted", false));
+    }
+
+    /**
+     * Kullanıcının işlemlerini yeniden eskiye sayfa sayfa döner. İmleç son kaydın (timestampMillis, id)
+     * değeridir; aynı milisaniyedeki kayıtlar belge id'siyle sıralanır. Bileşik indeks gerektirir
+     * (firestore.indexes.json): userId ASC, deleted ASC, timestampMillis DESC, __name__ DESC.
+     * timestampMillis backfill'i tamamlanana kadar eski sorguyla okunup bellekte sayfalanır.
+     */
+    public Mono<CreditTransactionPage> findPage(String userId, String cursor, int limit) {
+        return isTimestampsBackfilled().flatMap(backfilled -> backfilled
+                ? findIndexedPage(userId, cursor, limit)
+                : findLegacyPage(userId, cursor, limit));
+    }
+
+    private Mono<CreditTransactionPage> findIndexedPage(String userId, String cursor, int limit) {
+        Query query = firestore.collection(COLLECTION_NAME)
+                .whereEqualTo("userId", userId)
+                .whereEqualTo("deleted", false)
+                .orderBy("timestampMillis", Query.Direction.DESCENDING)
+                .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING);
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = decodeCursor(cursor);
+            query = query.startAfter(position[0], position[1]);
+        }
+        // Bir fazla kayıt istenir; gelirse sonraki sayfa vardır
+        return query(query.limit(limit + 1))
+                .collectList()
+                .map(transactions -> {
+                    if (transactions.size() <= limit) {
+                        return new CreditTransactionPage(transactions, null);
+                    }
+                    List<CreditTransaction> page = transactions.subList(0, limit);
+                    CreditTransaction last = page.get(limit - 1);
+                    return new CreditTransactionPage(page, encodeCursor(last.getTimestampMillis(), last.getId()));
+                });
+    }
+
+    /**
+     * Alanı eksik eski kayıtlar sıralı sorguya girmediği için tüm işlemler okunur; eksik zaman backfill'in
+     * yazacağı değerle (belgenin oluşturulma zamanı) doldurulur, böylece imleçler geçişten sonra da geçerlidir.
+     */
+    private Mono<CreditTransactionPage> findLegacyPage(String userId, String cursor, int limit) {
+        Object[] position = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : null;
+        Query query = firestore.collection(COLLECTION_NAME)
+                .whereEqualTo("userId", userId)
+                .whereEqualTo("deleted", false);
+        return Mono.defer(() -> toMono(query.get()))
+                .map(snapshot -> {
+                    List<CreditTransaction> transactions = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : snapshot.getDocuments()) {
+                        CreditTransaction transaction = document.toObject(CreditTransaction.class);
+                        transaction.setId(document.getId());
+                        if (document.get("timestampMillis") == null) {
+                            transaction.setTimestampMillis(document.getCreateTime().toDate().getTime());
                         }
-                    }, Runnable::run);
-            return future;
-        }).flatMapMany(Flux::fromIterable);
+                        transactions.add(transaction);
+                    }
+                    return page(transactions, position, limit);
+                });
+    }
+
+    /**
+     * Sıralanmamış işlemlerden imleçten sonraki sayfayı üretir; sıralı sorguyla aynı sırayı ve imleci kullanır
+     */
+    static CreditTransactionPage page(List<CreditTransaction> transactions, Object[] position, int limit) {
+        List<CreditTransaction> remaining = transactions.stream()
+                .filter(transaction -> position == null || isAfter(transaction, (Long) position[0], (String) position[1]))
+                .sorted(PAGE_ORDER)
+                .toList();
+        if (remaining.size() <= limit) {
+            return new CreditTransactionPage(remaining, null);
+        }
+        List<CreditTransaction> page = remaining.subList(0, limit);
+        CreditTransaction last = page.get(limit - 1);
+        return new CreditTransactionPage(page, encodeCursor(last.getTimestampMillis(), last.getId()));
+    }
+
+    private static boolean isAfter(CreditTransaction transaction, long timestampMillis, String id) {
+        return transaction.getTimestampMillis() < timestampMillis
+                || transaction.getTimestampMillis() == timestampMillis && transaction.getId().compareTo(id) < 0;
+    }
+
+    /**
+     * Backfill işaret belgesi yazıldıysa true döner; sonuç true olduktan sonra bir daha okunmaz
+     */
+    public Mono<Boolean> isTimestampsBackfilled() {
+        if (timestampsBackfilled) {
+            return Mono.just(true);
+        }
+        return Mono.defer(() -> toMono(firestore.collection(MIGRATIONS_COLLECTION).document(TIMESTAMP_BACKFILL_MARKER).get()))
+                .map(DocumentSnapshot::exists)
+                .doOnNext(exists -> timestampsBackfilled = exists);
+    }
+
+    public Mono<Void> markTimestampsBackfilled(long processed) {
+        return Mono.defer(() -> toMono(firestore.collection(MIGRATIONS_COLLECTION).document(TIMESTAMP_BACKFILL_MARKER)
+                        .set(Map.of("completedAt", System.currentTimeMillis(), "processed", processed))))
+                .doOnSuccess(result -> timestampsBackfilled = true)
+                .then();
+    }
+
+    /**
+     * Verilen ayların özet belgelerini tek bir getAll ile okur; işlem olmayan aylar atlanır
+     */
+    public Flux<CreditUsageRollup> findRollups(String userId, List<YearMonth> months) {
+        if (months.isEmpty()) {
+            return Flux.empty();
+        }
+        DocumentReference[] refs = months.stream()
+                .map(month -> firestore.collection(CreditRollups.COLLECTION_NAME)
+                        .document(CreditRollups.documentId(userId, month)))
+                .toArray(DocumentReference[]::new);
+        return Mono.defer(() -> toMono(firestore.getAll(refs)))
+                .flatMapMany(Flux::fromIterable)
+                .filter(DocumentSnapshot::exists)
+                .map(snapshot -> snapshot.toObject(CreditUsageRollup.class));
+    }
+
+    /**
+     * timestampMillis alanı olmayan eski işlemlere alanı ekler ve aylık özetlere işler. Zaman, işlemin
+     * Firestore'daki oluşturulma zamanından alınır. Her sayfa bir transaction'dır; alanı eklenmiş kayıt
+     * atlandığı için komut tekrar veya eşzamanlı çalıştırılabilir. İşlenen kayıt sayısını döner.
+     */
+    public Mono<Long> backfillTimestamps(int pageSize) {
+        return Mono.defer(() -> backfillPage(null, pageSize, 0L));
+    }
+
+    private Mono<Long> backfillPage(DocumentSnapshot after, int pageSize, long processed) {
+        Query page = firestore.collection(COLLECTION_NAME).orderBy(FieldPath.documentId()).limit(pageSize);
+        Query query = after == null ? page : page.startAfter(after);
+        return Mono.defer(() -> toMono(query.get())).flatMap(snapshot -> {
+            List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+            DocumentReference[] missing = documents.stream()
+                    .filter(document -> document.get("timestampMillis") == null)
+                    .map(DocumentSnapshot::getReference)
+                    .toArray(DocumentReference[]::new);
+            Mono<Integer> backfilled = missing.length == 0 ? Mono.just(0) : backfill(missing);
+            return backfilled.flatMap(count -> documents.size() < pageSize
+                    ? Mono.just(processed + count)
+                    : backfillPage(documents.get(documents.size() - 1), pageSize, processed + count));
+        });
+    }
+
+    private Mono<Integer> backfill(DocumentReference[] refs) {
+        return Mono.defer(() -> toMono(firestore.runTransaction(transaction -> {
+            List<CreditTransaction> backfilled = new ArrayList<>();
+            for (DocumentSnapshot document : transaction.getAll(refs).get()) {
+                if (!document.exists() || document.get("timestampMillis") != null) {
+                    continue;
+                }
+                long millis = document.getCreateTime().toDate().getTime();
+                transaction.update(document.getReference(), "timestampMillis", millis);
+                Object amount = document.get("amount");
+                backfilled.add(CreditTransaction.builder()
+                        .userId(document.getString("userId"))
+                        .serviceId(document.getString("serviceId"))
+                        .type(document.getString("type"))
+                        .creditType(document.getString("creditType"))
+                        .amount(amount == null ? null : new BigDecimal(String.valueOf(amount)))
+                        .timestampMillis(millis)
+                        .build());
+            }
+            CreditRollups.increments(backfilled).forEach((id, fields) -> transaction.set(
+                    firestore.collection(CreditRollups.COLLECTION_NAME).document(id), fields, SetOptions.merge()));
+            return backfilled.size();
+        })));
     }
 
     public Mono<CreditTransaction> findById(String id) {
-        return Mono.fromFuture(() -> {
-            CompletableFuture<CreditTransaction> future = new CompletableFuture<>();
-            firestore.collection(COLLECTION_NAME)
-                    .document(id)
-                    .get()
-                    .addListener(() -> {
-                        try {
-                            var documentSnapshot = firestore.collection(COLLECTION_NAME)
-                                    .document(id)
-                                    .get()
-                                    .get();
-                            future.complete(documentSnapshot.toObject(CreditTransaction.class));
-                        } catch (Exception e) {
-                            future.completeExceptionally(e);
+        return Mono.defer(() -> toMono(firestore.collection(COLLECTION_NAME).document(id).get()))
+                .mapNotNull(snapshot -> snapshot.toObject(CreditTransaction.class));
+    }
+
+    /**
+     * Verilen id'lerden Firestore'da yazılmış olanları tek getAll ile okur; id → işlem
+     */
+    public Mono<Map<String, CreditTransaction>> findAllById(List<String> ids) {
+        DocumentReference[] refs = ids.stream()
+                .map(id -> firestore.collection(COLLECTION_NAME).document(id))
+                .toArray(DocumentReference[]::new);
+        return Mono.defer(() -> toMono(firestore.getAll(refs)))
+                .map(snapshots -> {
+                    Map<String, CreditTransaction> written = new HashMap<>();
+                    for (DocumentSnapshot snapshot : snapshots) {
+                        if (snapshot.exists()) {
+                            written.put(snapshot.getId(), snapshot.toObject(CreditTransaction.class));
                         }
-                    }, Runnable::run);
-            return future;
-        });
+                    }
+                    return written;
+                });
     }
 
     public Flux<CreditTransaction> findPendingTransactions() {
-        return Mono.fromFuture(() -> {
-            CompletableFuture<List<CreditTransaction>> future = new CompletableFuture<>();
-            firestore.collection(COLLECTION_NAME)
-                    .whereEqualTo("status", CreditTransaction.TransactionStatus.PENDING)
-                    .whereEqualTo("deleted", false)
-                    .get()
-                    .addListener(() -> {
-                        try {
-                            var querySnapshot = firestore.collection(COLLECTION_NAME)
-                                    .whereEqualTo("status", CreditTransaction.TransactionStatus.PENDING)
-                                    .whereEqualTo("deleted", false)
-                                    .get()
-                                    .get();
-                            var transactions = querySnapshot.getDocuments().stream()
-                                    .map(document -> document.toObject(CreditTransaction.class))
-                                    .toList();
-                            future.complete(transactions);
-                        } catch (Exception e) {
-                            future.completeExceptionally(e);
-                        }
-                    }, Runnable::run);
-            return future;
-        }).flatMapMany(Flux::fromIterable);
+        return query(firestore.collection(COLLECTION_NAME)
+                .whereEqualTo("status", CreditTransaction.TransactionStatus.PENDING)
+                .whereEqualTo("deleted", false));
+    }
+
+    // Sorgu tek kez çalıştırılır; sonucu tamamlanan future'dan okunur
+    private Flux<CreditTransaction> query(Query query) {
+        return Mono.defer(() -> toMono(query.get()))
+                .flatMapMany(snapshot -> Flux.fromIterable(snapshot.getDocuments()))
+                .map(document -> document.toObject(CreditTransaction.class));
+    }
+
+    static String encodeCursor(long timestampMillis, String id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((timestampMillis + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            return new Object[] {Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1)};
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    private static <T> Mono<T> toMono(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return Mono.fromFuture(future);
     }
-} 
\ No newline at end of file
+}
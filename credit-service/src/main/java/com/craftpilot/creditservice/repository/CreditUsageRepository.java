@@ -0,0 +1,74 @@
+package com.craftpilot.creditservice.repository;
+
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Kullanıcı başına günlük kredi kullanım toplamları: credit_usage/{userId}_{gün}. Tutarlar 1/10000 kredi
+ * biriminde tamsayı olarak tutulur ve FieldValue.increment ile eklenir; aynı günün birden fazla flush'ı
+ * ve birden fazla pod'un yazmaları birbirini ezmez.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CreditUsageRepository {
+    private final Firestore firestore;
+    private static final String COLLECTION_NAME = "credit_usage";
+    // Firestore batch'i en fazla 500 yazma alır
+    private static final int BATCH_LIMIT = 500;
+    static final List<String> FIELDS = List.of("usedUnits", "addedUnits", "advancedUsedUnits", "advancedAddedUnits");
+
+    public Mono<Void> incrementTotals(LocalDate day, Map<String, long[]> totals) {
+        return Flux.fromIterable(totals.entrySet())
+                .buffer(BATCH_LIMIT)
+                .concatMap(chunk -> commit(day, chunk))
+                .then();
+    }
+
+    private Mono<Void> commit(LocalDate day, List<Map.Entry<String, long[]>> chunk) {
+        return Mono.defer(() -> {
+            WriteBatch batch = firestore.batch();
+            for (Map.Entry<String, long[]> entry : chunk) {
+                Map<String, Object> fields = new HashMap<>();
+                fields.put("userId", entry.getKey());
+                fields.put("date", day.toString());
+                long[] units = entry.getValue();
+                for (int i = 0; i < FIELDS.size(); i++) {
+                    if (units[i] != 0) {
+                        fields.put(FIELDS.get(i), FieldValue.increment(units[i]));
+                    }
+                }
+                batch.set(firestore.collection(COLLECTION_NAME).document(entry.getKey() + "_" + day),
+                        fields, SetOptions.merge());
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            ApiFutures.addCallback(batch.commit(), new ApiFutureCallback<>() {
+                @Override
+                public void onSuccess(List<WriteResult> results) {
+                    future.complete(null);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }, MoreExecutors.directExecutor());
+            return Mono.fromFuture(future);
+        });
+    }
+}
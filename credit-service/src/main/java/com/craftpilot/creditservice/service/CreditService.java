@@ -1,34 +1,75 @@
 package com.craftpilot.creditservice.service;
 
 import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.exception.CreditHoldNotFoundException;
+import com.craftpilot.creditservice.exception.CreditHoldsUnavailableException;
+import com.craftpilot.creditservice.exception.CreditNotFoundException;
 import com.craftpilot.creditservice.exception.InsufficientCreditsException;
+import com.craftpilot.creditservice.idempotency.IdempotencyStore;
+import com.craftpilot.creditservice.ledger.CreditHoldSweeper;
+import com.craftpilot.creditservice.ledger.CreditLedger;
 import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditDebitOutcome;
+import com.craftpilot.creditservice.model.CreditHold;
 import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.model.CreditTransactionPage;
+import com.craftpilot.creditservice.model.CreditUsageRollup;
 import com.craftpilot.creditservice.repository.CreditRepository;
 import com.craftpilot.creditservice.repository.CreditTransactionRepository;
+import com.craftpilot.creditservice.usage.CreditUsageRecorder;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CreditService {
+    // Firestore commit başına 500 yazma: kalem başına bir işlem kaydı ve bir outbox olayı, kredi belgesi, aylık özetler
+    // ve en fazla bir LOW_BALANCE olayı
+    private static final int BATCH_CHUNK_SIZE = 200;
+
     private final CreditRepository creditRepository;
     private final CreditTransactionRepository transactionRepository;
-    private final KafkaTemplate<String, CreditEvent> kafkaTemplate;
     private final MeterRegistry meterRegistry;
+    private final CreditLedger creditLedger;
+    private final CreditHoldSweeper holdSweeper;
+    private final CreditUsageRecorder usageRecorder;
+    private final IdempotencyStore idempotencyStore;
+
+    @Value("${credit.ledger.enabled:false}")
+    private boolean ledgerEnabled;
+
+    @Value("${credit.batch.user-concurrency:32}")
+    private int batchUserConcurrency = 32;
 
-    @Value("${kafka.topics.credit-events:credit-events}")
-    private String creditEventsTopic;
+    @Value("${credit.alerts.low-balance.default-hysteresis-ratio:0.1}")
+    private BigDecimal defaultHysteresisRatio = new BigDecimal("0.1");
+
+    @Value("${credit.holds.default-ttl:10m}")
+    private Duration defaultHoldTtl;
+
+    @Value("${credit.holds.max-ttl:1h}")
+    private Duration maxHoldTtl;
 
     @Value("${initial.credit.amount:100}")  // Varsayılan değer: 100
     private String initialCreditAmount;
@@ -37,57 +78,52 @@ public class CreditService {
     private String initialAdvancedCreditAmount;
 
     public Mono<Credit> getUserCredits(String userId) {
+        if (ledgerEnabled) {
+            // Defterdeki bakiye Firestore'dakinden yenidir; kayıt yoksa Firestore belgesiyle oluşturulur
+            return creditLedger.find(userId)
+                    .switchIfEmpty(Mono.defer(() -> loadCredits(userId)
+                            .flatMap(credit -> creditLedger.seed(credit).then(creditLedger.find(userId)))));
+        }
+        return loadCredits(userId);
+    }
+
+    private Mono<Credit> loadCredits(String userId) {
         return creditRepository.findByUserId(userId)
-                .switchIfEmpty(createInitialCredit(userId));
+                .switchIfEmpty(Mono.defer(() -> createInitialCredit(userId)));
+    }
+
+    /**
+     * getUserCredits gibi, ancak kaydı olmayan kullanıcı için başlangıç kredisi oluşturmaz; toplu düşümdeki
+     * userId istekten geldiği için bilinmeyen kullanıcı CreditNotFoundException ile reddedilir
+     */
+    private Mono<Credit> findExistingCredits(String userId) {
+        Mono<Credit> durable = creditRepository.findByUserId(userId)
+                .switchIfEmpty(Mono.error(() -> new CreditNotFoundException(userId)));
+        if (ledgerEnabled) {
+            return creditLedger.find(userId)
+                    .switchIfEmpty(Mono.defer(() -> durable
+                            .flatMap(credit -> creditLedger.seed(credit).then(creditLedger.find(userId)))));
+        }
+        return durable;
     }
 
     public Mono<CreditTransaction> processTransaction(String userId, String serviceId, BigDecimal amount, 
             CreditTransaction.TransactionType type, String description) {
-        return getUserCredits(userId)
-                .flatMap(credit -> {
-                    // String tipini TransactionType enum'a dönüştür
-                    boolean isDebit = type == CreditTransaction.TransactionType.DEBIT;
-                    
-                    if (isDebit && credit.getBalance().compareTo(amount) < 0) {
-                        return Mono.error(new InsufficientCreditsException("Insufficient credits"));
-                    }
-
-                    CreditTransaction transaction = CreditTransaction.builder()
-                            .userId(userId)
-                            .serviceId(serviceId)
-                            .type(isDebit ? "DEBIT" : "CREDIT") // String olarak ayarla
-                            .type2(type) // Enum değerini yeni alana kaydet
-                            .amount(amount)
-                            .description(description)
-                            .status(CreditTransaction.TransactionStatus.PENDING)
-                            .createdAt(LocalDateTime.now())
-                            .build();
+        boolean isDebit = type == CreditTransaction.TransactionType.DEBIT;
+        CreditTransaction transaction = CreditTransaction.builder()
+                .userId(userId)
+                .serviceId(serviceId)
+                .type(isDebit ? "DEBIT" : "CREDIT") // String olarak ayarla
+                .type2(type) // Enum değerini yeni alana kaydet
+                .amount(amount)
+                .description(description)
+                // Bakiye ve işlem kaydı aynı commit'te yazıldığı için ara PENDING durumu yok
+                .status(CreditTransaction.TransactionStatus.COMPLETED)
+                .createdAt(LocalDateTime.now())
+                .build();
 
-                    return transactionRepository.save(transaction)
-                            .flatMap(savedTransaction -> updateCreditBalance(credit, savedTransaction)
-                                    .flatMap(updatedCredit -> {
-                                        savedTransaction.setStatus(CreditTransaction.TransactionStatus.COMPLETED);
-                                        return transactionRepository.save(savedTransaction);
-                                    }));
-                })
-                .doOnSuccess(transaction -> {
-                    meterRegistry.counter("credit.transactions", "type", transaction.getType()).increment();
-                    CreditEvent event = CreditEvent.builder()
-                            .userId(userId)
-                            .amount(transaction.getAmount())
-                            .type(transaction.getType())
-                            .creditType(transaction.getCreditType())
-                            .timestamp(System.currentTimeMillis())
-                            .build();
-                    kafkaTemplate.send(creditEventsTopic, userId, event)
-                        .whenComplete((result, ex) -> {
-                            if (ex != null) {
-                                log.error("Failed to send credit event for user: {}", userId, ex);
-                            } else {
-                                log.debug("Credit event sent successfully for user: {}", userId);
-                            }
-                        });
-                })
+        return applyTransaction(userId, transaction)
+                .doOnSuccess(saved -> meterRegistry.counter("credit.transactions", "type", saved.getType()).increment())
                 .doOnError(error -> log.error("Error processing credit transaction", error));
     }
 
@@ -101,65 +137,485 @@ public class CreditService {
             String type,
             String description,
             String creditType) {
-        
-        return getUserCredits(userId)
-                .flatMap(credit -> {
-                    // Kredi tipine göre bakiyeyi kontrol et
-                    if ("ADVANCED".equals(creditType)) {
-                        if (type.equals("DEBIT") && credit.getAdvancedBalance().compareTo(amount) < 0) {
-                            return Mono.error(new InsufficientCreditsException("Yetersiz gelişmiş kredi bakiyesi"));
+        return processTransaction(userId, serviceId, amount, type, description, creditType, null);
+    }
+
+    /**
+     * Idempotency anahtarı verilirse aynı anahtarla tekrarlanan istek bakiyeye dokunmadan ilk işlemi döner;
+     * tekrar için olay ve metrik üretilmez
+     */
+    public Mono<CreditTransaction> processTransaction(
+            String userId,
+            String serviceId,
+            BigDecimal amount,
+            String type,
+            String description,
+            String creditType,
+            String idempotencyKey) {
+
+        // İşlem kaydı oluştur
+        CreditTransaction transaction = CreditTransaction.builder()
+                .userId(userId)
+                .serviceId(serviceId)
+                .amount(amount)
+                .type(type)
+                .description(description)
+                .creditType(creditType)
+                .status(CreditTransaction.TransactionStatus.COMPLETED)
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        if (idempotencyKey == null) {
+            return applyTransaction(userId, transaction)
+                    .doOnSuccess(t -> recordCreditMetrics(userId, t.getAmount(), type, creditType));
+        }
+        transaction.setId(IdempotencyStore.transactionId(userId, idempotencyKey));
+        transaction.setIdempotencyKey(idempotencyKey);
+        return idempotencyStore.find(userId, idempotencyKey)
+                .switchIfEmpty(Mono.defer(() -> findWrittenOnLedger(userId, idempotencyKey, transaction.getId())))
+                .doOnNext(previous -> meterRegistry.counter("credit.idempotency.replayed").increment())
+                .switchIfEmpty(Mono.defer(() -> applyTransaction(userId, transaction)
+                        .flatMap(saved -> {
+                            // Farklı bir kayıt döndüyse anahtar bu istekle eşzamanlı ya da hızlı yol ıskalandıktan
+                            // sonra kullanılmıştır
+                            if (saved == transaction) {
+                                recordCreditMetrics(userId, saved.getAmount(), type, creditType);
+                            } else {
+                                meterRegistry.counter("credit.idempotency.replayed").increment();
+                            }
+                            if (ledgerEnabled) {
+                                idempotencyStore.rememberLocally(userId, idempotencyKey, saved);
+                                return Mono.just(saved);
+                            }
+                            return idempotencyStore.remember(userId, idempotencyKey, saved).thenReturn(saved);
+                        })));
+    }
+
+    /**
+     * Defter açıkken script yalnızca 24 saat yaşayan Redis anahtarına bakar; anahtar düştükten sonra gelen tekrar
+     * Firestore'a yazılmış işlem belgesinden yakalanır. Defter kapalıyken bu kontrolü Firestore transaction'ı yapar.
+     */
+    private Mono<CreditTransaction> findWrittenOnLedger(String userId, String idempotencyKey, String transactionId) {
+        if (!ledgerEnabled) {
+            return Mono.empty();
+        }
+        return transactionRepository.findById(transactionId)
+                .doOnNext(previous -> idempotencyStore.rememberLocally(userId, idempotencyKey, previous));
+    }
+
+    /**
+     * Toplu düşüm: kalemler kullanıcıya göre gruplanır ve her kullanıcının kalemleri tek atomik adımda (defter
+     * açıkken tek script çağrısı, kapalıyken tek Firestore transaction'ı) istekteki sırayla uygulanır. Sonuçlar
+     * istekteki sırayla döner; yetersiz bakiye, tekrar eden anahtar ya da bir kullanıcının grubunun hata alması
+     * yalnızca ilgili kalemleri etkiler. Kredi kaydı olmayan kullanıcının kalemleri FAILED döner; bu yolda
+     * başlangıç kredisi oluşturulmaz.
+     */
+    public Mono<List<CreditDebitOutcome>> processBatchDebit(List<CreditTransaction> debits) {
+        List<CreditDebitOutcome> replayed = new ArrayList<>();
+        Map<String, List<Integer>> byUser = new LinkedHashMap<>();
+        for (int i = 0; i < debits.size(); i++) {
+            CreditTransaction debit = debits.get(i);
+            debit.setType("DEBIT");
+            debit.setStatus(CreditTransaction.TransactionStatus.COMPLETED);
+            debit.setTimestamp(LocalDateTime.now());
+            String key = debit.getIdempotencyKey();
+            debit.setId(key == null ? UUID.randomUUID().toString() : IdempotencyStore.transactionId(debit.getUserId(), key));
+            if (key != null) {
+                CreditTransaction previous = idempotencyStore.findLocally(debit.getUserId(), key);
+                if (previous != null) {
+                    meterRegistry.counter("credit.idempotency.replayed").increment();
+                    replayed.add(new CreditDebitOutcome(i, debit.getUserId(), key, CreditDebitOutcome.Status.DUPLICATE, previous, null));
+                    continue;
+                }
+            }
+            byUser.computeIfAbsent(debit.getUserId(), userId -> new ArrayList<>()).add(i);
+        }
+        meterRegistry.summary("credit.batch.users").record(byUser.size());
+
+        return Flux.fromIterable(byUser.entrySet())
+                .flatMap(group -> Flux.fromIterable(chunks(group.getValue()))
+                                .concatMap(indexes -> applyBatch(group.getKey(), indexes, debits)),
+                        batchUserConcurrency)
+                .concatWith(Flux.fromIterable(replayed))
+                .collectSortedList(Comparator.comparingInt(CreditDebitOutcome::index));
+    }
+
+    private Flux<CreditDebitOutcome> applyBatch(String userId, List<Integer> indexes, List<CreditTransaction> debits) {
+        List<CreditTransaction> chunk = indexes.stream().map(debits::get).toList();
+        // Defter kapalıyken eşiğe inen kalemin LOW_BALANCE olayı; transaction tekrar denenirse yeniden hesaplanır
+        Map<String, CreditEvent> lowBalance = new ConcurrentHashMap<>();
+        Mono<List<CreditTransaction>> saved;
+        if (ledgerEnabled) {
+            saved = applyBatchToLedger(userId, chunk);
+        } else {
+            saved = findExistingCredits(userId)
+                    .flatMap(credit -> creditRepository.updateBatch(credit.getId(), chunk, (current, debit) -> {
+                        lowBalance.remove(debit.getId());
+                        try {
+                            Credit updated = applyTo(current, debit.getAmount(), true, "ADVANCED".equals(debit.getCreditType()));
+                            CreditEvent alert = lowBalanceEvent(current, updated, debit.getId());
+                            if (alert != null) {
+                                lowBalance.put(debit.getId(), alert);
+                            }
+                            return updated;
+                        } catch (InsufficientCreditsException e) {
+                            return null;
                         }
+                    }, debit -> events(transactionEvent(userId, debit), lowBalance.get(debit.getId()))));
+        }
+        return saved
+                .flatMapIterable(results -> {
+                    List<CreditDebitOutcome> outcomes = new ArrayList<>(results.size());
+                    for (int i = 0; i < results.size(); i++) {
+                        CreditTransaction debit = chunk.get(i);
+                        outcomes.add(outcome(indexes.get(i), debit, results.get(i)));
+                    }
+                    return outcomes;
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof CreditNotFoundException) {
+                        log.warn("Toplu düşümde bilinmeyen kullanıcı: userId={}, kalem={}", userId, chunk.size());
                     } else {
-                        if (type.equals("DEBIT") && credit.getBalance().compareTo(amount) < 0) {
-                            return Mono.error(new InsufficientCreditsException("Yetersiz kredi bakiyesi"));
-                        }
+                        log.error("Toplu düşüm uygulanamadı: userId={}, kalem={}", userId, chunk.size(), e);
+                    }
+                    return Flux.fromIterable(indexes).map(index -> new CreditDebitOutcome(index, userId,
+                            debits.get(index).getIdempotencyKey(), CreditDebitOutcome.Status.FAILED, null, e.getMessage()));
+                });
+    }
+
+    /**
+     * Kalemleri tek script çağrısında uygular; sonuç updateBatch ile aynı biçimdedir (uygulanan kalemde kalemin
+     * kendisi, tekrarda ilk işlem, yetersiz bakiyede null). Olaylar script içinde outbox'a eklenir. Anahtarlı
+     * kalemlerin işlem belgeleri önce tek getAll ile okunur; Redis anahtarı süresi dolmuş olsa da Firestore'a
+     * yazılmış bir kalem yeniden uygulanmaz. Anahtarı düşmüş ama journal'ı henüz yazılmamış kalem bu kontrolden
+     * kaçabilir; flusher gecikmesi anahtar ömründen çok kısa tutulmalıdır.
+     */
+    private Mono<List<CreditTransaction>> applyBatchToLedger(String userId, List<CreditTransaction> chunk) {
+        List<String> keyed = chunk.stream()
+                .filter(debit -> debit.getIdempotencyKey() != null)
+                .map(CreditTransaction::getId)
+                .toList();
+        Mono<Map<String, CreditTransaction>> written = keyed.isEmpty()
+                ? Mono.just(Map.of())
+                : transactionRepository.findAllById(keyed);
+        return written.flatMap(previous -> {
+            List<CreditTransaction> pending = chunk.stream()
+                    .filter(debit -> !previous.containsKey(debit.getId()))
+                    .toList();
+            Mono<List<CreditTransaction>> applied = pending.isEmpty()
+                    ? Mono.just(List.of())
+                    : applyPendingToLedger(userId, pending);
+            return applied.map(results -> {
+                List<CreditTransaction> saved = new ArrayList<>(chunk.size());
+                int next = 0;
+                for (CreditTransaction debit : chunk) {
+                    CreditTransaction duplicate = previous.get(debit.getId());
+                    saved.add(duplicate != null ? duplicate : results.get(next++));
+                }
+                return saved;
+            });
+        });
+    }
+
+    private Mono<List<CreditTransaction>> applyPendingToLedger(String userId, List<CreditTransaction> chunk) {
+        List<CreditEvent> events = chunk.stream().map(debit -> transactionEvent(userId, debit)).toList();
+        return creditLedger.applyBatch(userId, chunk, events)
+                .switchIfEmpty(Mono.defer(() -> findExistingCredits(userId)
+                        .then(creditLedger.applyBatch(userId, chunk, events))))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Kredi defteri kaydı oluşturulamadı: " + userId)))
+                .map(results -> {
+                    List<CreditTransaction> saved = new ArrayList<>(results.size());
+                    for (int i = 0; i < results.size(); i++) {
+                        CreditLedger.Result result = results.get(i);
+                        saved.add(switch (result.status()) {
+                            case ACCEPTED -> chunk.get(i);
+                            case DUPLICATE -> result.previous();
+                            default -> null;
+                        });
+                    }
+                    return saved;
+                });
+    }
+
+    private CreditDebitOutcome outcome(int index, CreditTransaction debit, CreditTransaction saved) {
+        String key = debit.getIdempotencyKey();
+        if (saved == null) {
+            return new CreditDebitOutcome(index, debit.getUserId(), key, CreditDebitOutcome.Status.INSUFFICIENT_CREDITS, null,
+                    "ADVANCED".equals(debit.getCreditType()) ? "Yetersiz gelişmiş kredi bakiyesi" : "Yetersiz kredi bakiyesi");
+        }
+        if (key != null) {
+            // Kalem başına Redis yazması yapılmaz; başka pod'dan gelen tekrar script'te ya da transaction'da yakalanır
+            idempotencyStore.rememberLocally(debit.getUserId(), key, saved);
+        }
+        if (saved != debit) {
+            meterRegistry.counter("credit.idempotency.replayed").increment();
+            return new CreditDebitOutcome(index, debit.getUserId(), key, CreditDebitOutcome.Status.DUPLICATE, saved, null);
+        }
+        recordCreditMetrics(debit.getUserId(), debit.getAmount(), "DEBIT", debit.getCreditType());
+        return new CreditDebitOutcome(index, debit.getUserId(), key, CreditDebitOutcome.Status.APPLIED, debit, null);
+    }
+
+    private static List<List<Integer>> chunks(List<Integer> indexes) {
+        List<List<Integer>> chunks = new ArrayList<>((indexes.size() + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE);
+        for (int start = 0; start < indexes.size(); start += BATCH_CHUNK_SIZE) {
+            chunks.add(indexes.subList(start, Math.min(start + BATCH_CHUNK_SIZE, indexes.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Bakiye kontrolü, bakiye güncellemesi ve işlem kaydı tek bir atomik işlemde yapılır;
+     * eşzamanlı işlemler birbirinin güncellemesini ezemez ve bakiye eksiye düşemez.
+     * Kredi olayı defter yazmasıyla birlikte outbox'a eklenir; defter kapalıysa Firestore outbox'ına aynı commit'te yazılır.
+     * İşlemin idempotency anahtarı varsa tekrar kontrolü de aynı atomik adımdadır; tekrar durumunda verilen
+     * işlem yerine ilk kaydedilen işlem döner.
+     */
+    private Mono<CreditTransaction> applyTransaction(String userId, CreditTransaction transaction) {
+        boolean isDebit = "DEBIT".equals(transaction.getType());
+        boolean advanced = "ADVANCED".equals(transaction.getCreditType());
+        if (ledgerEnabled) {
+            return applyToLedger(userId, transaction, advanced, transactionEvent(userId, transaction));
+        }
+        // Transaction tekrar denenirse mutation yeniden çalışır; son denemenin eşik sonucu geçerlidir
+        AtomicReference<CreditEvent> lowBalance = new AtomicReference<>();
+        UnaryOperator<Credit> mutation = current -> {
+            Credit updated = applyTo(current, transaction.getAmount(), isDebit, advanced);
+            lowBalance.set(lowBalanceEvent(current, updated, transaction.getId()));
+            return updated;
+        };
+        // İşlem id'si repository'de atanır; olaylar mutation'dan sonra id ile birlikte üretilir
+        Supplier<List<CreditEvent>> events = () -> events(transactionEvent(userId, transaction), lowBalance.get());
+        if (transaction.getIdempotencyKey() != null) {
+            return getUserCredits(userId)
+                    .flatMap(credit -> creditRepository.updateOnce(credit.getId(), mutation, transaction, events));
+        }
+        return getUserCredits(userId)
+                .flatMap(credit -> creditRepository.updateAtomically(credit.getId(), mutation, transaction, events))
+                .thenReturn(transaction);
+    }
+
+    /**
+     * İşlemi Redis defterinde atomik olarak uygular; Firestore'a yazma CreditLedgerFlusher ile istek yolunun
+     * dışında yapılır. Defterde kayıt yoksa bir kez Firestore'dan seed edilip tekrar denenir.
+     */
+    private Mono<CreditTransaction> applyToLedger(String userId, CreditTransaction transaction, boolean advanced,
+                                                  CreditEvent event) {
+        return creditLedger.apply(userId, transaction, event)
+                .switchIfEmpty(Mono.defer(() -> getUserCredits(userId)
+                        .then(creditLedger.apply(userId, transaction, event))))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Kredi defteri kaydı oluşturulamadı: " + userId)))
+                .flatMap(result -> {
+                    if (result.status() == CreditLedger.Status.DUPLICATE) {
+                        return Mono.just(result.previous());
                     }
+                    return result.accepted()
+                            ? Mono.just(transaction)
+                            : Mono.error(new InsufficientCreditsException(advanced
+                                    ? "Yetersiz gelişmiş kredi bakiyesi" : "Yetersiz kredi bakiyesi"));
+                });
+    }
+
+    /**
+     * Güncel kredi kaydına işlemi uygular; transaction tekrar denendiğinde yeniden çağrılabilmesi için
+     * girdiyi değiştirmeden yeni bir kayıt döner. Standart bakiye değişirse düşük bakiye işareti de güncellenir
+     * (defter script'leriyle aynı kural).
+     */
+    static Credit applyTo(Credit current, BigDecimal amount, boolean isDebit, boolean advanced) {
+        Credit.CreditBuilder updated = current.toBuilder().lastUpdated(LocalDateTime.now());
+        if (advanced) {
+            if (isDebit) {
+                if (current.getAdvancedBalance().compareTo(amount) < 0) {
+                    throw new InsufficientCreditsException("Yetersiz gelişmiş kredi bakiyesi");
+                }
+                updated.advancedBalance(current.getAdvancedBalance().subtract(amount))
+                        .totalAdvancedCreditsUsed(current.getTotalAdvancedCreditsUsed().add(amount));
+            } else {
+                updated.advancedBalance(current.getAdvancedBalance().add(amount))
+                        .totalAdvancedCreditsEarned(current.getTotalAdvancedCreditsEarned().add(amount));
+            }
+        } else {
+            BigDecimal balance;
+            if (isDebit) {
+                if (current.getBalance().compareTo(amount) < 0) {
+                    throw new InsufficientCreditsException("Yetersiz kredi bakiyesi");
+                }
+                balance = current.getBalance().subtract(amount);
+                updated.balance(balance)
+                        .totalCreditsUsed(current.getTotalCreditsUsed().add(amount));
+            } else {
+                balance = current.getBalance().add(amount);
+                updated.balance(balance)
+                        .totalCreditsEarned(current.getTotalCreditsEarned().add(amount));
+            }
+            if (current.getLowBalanceThreshold() != null) {
+                if (!current.isLowBalanceAlerted() && balance.compareTo(current.getLowBalanceThreshold()) <= 0) {
+                    updated.lowBalanceAlerted(true);
+                } else if (current.isLowBalanceAlerted() && balance.compareTo(current.getLowBalanceRearm()) >= 0) {
+                    updated.lowBalanceAlerted(false);
+                }
+            }
+        }
+        return updated.build();
+    }
+
+    /**
+     * applyTo uyarıyı bu işlemde verdiyse LOW_BALANCE olayı, vermediyse null. Olay id'si işlemden türetilir;
+     * aynı işlemin tekrar denemesi aynı id'yi üretir.
+     */
+    static CreditEvent lowBalanceEvent(Credit before, Credit after, String transactionId) {
+        if (before.isLowBalanceAlerted() || !after.isLowBalanceAlerted()) {
+            return null;
+        }
+        return CreditEvent.builder()
+                .eventId("low-balance:" + after.getUserId() + ":" + transactionId)
+                .userId(after.getUserId())
+                .amount(after.getBalance())
+                .threshold(after.getLowBalanceThreshold())
+                .type("LOW_BALANCE")
+                .creditType("STANDARD")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
 
-                    // İşlem kaydı oluştur
+    /**
+     * Düşük bakiye uyarısını ayarlar; threshold null ise kapatır. Standart bakiye eşiğe indiğinde bakiye güncellemesiyle
+     * aynı atomik adımda tek bir LOW_BALANCE olayı yayınlanır; bakiye eşik + hysteresis seviyesine çıkana kadar olay
+     * tekrarlanmaz. hysteresis verilmezse eşiğin credit.alerts.low-balance.default-hysteresis-ratio oranı (en az 1 kredi)
+     * kullanılır. Bakiye ayar anında zaten eşikteyse olay yayınlanmaz.
+     */
+    public Mono<Credit> configureLowBalanceAlert(String userId, BigDecimal threshold, BigDecimal hysteresis) {
+        BigDecimal rearm = threshold == null ? null : threshold.add(hysteresis != null
+                ? hysteresis : threshold.multiply(defaultHysteresisRatio).max(BigDecimal.ONE));
+        // Önce Firestore'a yazılır; defter yeniden seed edilirse eşik belgeden gelir
+        Mono<Credit> persisted = loadCredits(userId)
+                .flatMap(credit -> creditRepository.configureLowBalanceAlert(credit.getId(), threshold, rearm));
+        if (!ledgerEnabled) {
+            return persisted;
+        }
+        return persisted
+                .then(creditLedger.configureLowBalance(userId, threshold, rearm)
+                        .switchIfEmpty(Mono.defer(() -> getUserCredits(userId)
+                                .then(creditLedger.configureLowBalance(userId, threshold, rearm)))))
+                .then(Mono.defer(() -> getUserCredits(userId)));
+    }
+
+    /**
+     * Tahmini tutarı kullanılabilir bakiyeden ayırır; ayrılan tutar settle ya da release edilene kadar
+     * başka düşümlerde kullanılamaz. Süresi dolan hold otomatik olarak bırakılır; ttl verilmezse varsayılan
+     * süre, üst sınırı aşarsa üst sınır kullanılır.
+     */
+    public Mono<CreditHold> reserve(String userId, String serviceId, BigDecimal estimate, String creditType, Duration ttl) {
+        if (!ledgerEnabled) {
+            return Mono.error(new CreditHoldsUnavailableException());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Duration holdTtl = ttl == null ? defaultHoldTtl : ttl.compareTo(maxHoldTtl) > 0 ? maxHoldTtl : ttl;
+        CreditHold hold = CreditHold.builder()
+                .userId(userId)
+                .serviceId(serviceId)
+                .amount(estimate)
+                .creditType("ADVANCED".equals(creditType) ? "ADVANCED" : "STANDARD")
+                .createdAt(now)
+                .expiresAt(now.plus(holdTtl))
+                .build();
+
+        CreditEvent event = holdEvent(hold, "HOLD");
+        return creditLedger.reserve(hold, event)
+                .switchIfEmpty(Mono.defer(() -> getUserCredits(userId).then(creditLedger.reserve(hold, event))))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Kredi defteri kaydı oluşturulamadı: " + userId)))
+                .flatMap(result -> {
+                    if (!result.accepted()) {
+                        return Mono.error(new InsufficientCreditsException("ADVANCED".equals(hold.getCreditType())
+                                ? "Yetersiz gelişmiş kredi bakiyesi" : "Yetersiz kredi bakiyesi"));
+                    }
+                    holdSweeper.schedule(hold);
+                    meterRegistry.counter("credit.holds", "result", "reserved").increment();
+                    return Mono.just(hold);
+                });
+    }
+
+    /**
+     * Hold'u gerçek tutarla kapatır: ayrılan tutar serbest kalır ve gerçek tutar DEBIT işlemi olarak düşülür.
+     * Gerçek tutar ayrılandan fazlaysa fark kullanılabilir bakiyeden karşılandığı kadar düşülür.
+     */
+    public Mono<CreditTransaction> settle(String userId, String holdId, BigDecimal actual, String description) {
+        if (!ledgerEnabled) {
+            return Mono.error(new CreditHoldsUnavailableException());
+        }
+        return creditLedger.findHold(holdId)
+                .filter(hold -> userId.equals(hold.getUserId()))
+                .switchIfEmpty(Mono.error(() -> new CreditHoldNotFoundException(holdId)))
+                .flatMap(hold -> {
                     CreditTransaction transaction = CreditTransaction.builder()
                             .userId(userId)
-                            .serviceId(serviceId)
-                            .amount(amount)
-                            .type(type)
+                            .serviceId(hold.getServiceId())
+                            .amount(actual)
+                            .type("DEBIT")
                             .description(description)
-                            .creditType(creditType)
+                            .creditType(hold.getCreditType())
+                            .status(CreditTransaction.TransactionStatus.COMPLETED)
                             .timestamp(LocalDateTime.now())
                             .build();
-
-                    // Krediyi güncelle
-                    if ("ADVANCED".equals(creditType)) {
-                        if (type.equals("DEBIT")) {
-                            credit.setAdvancedBalance(credit.getAdvancedBalance().subtract(amount));
-                            credit.setTotalAdvancedCreditsUsed(credit.getTotalAdvancedCreditsUsed().add(amount));
-                        } else {
-                            credit.setAdvancedBalance(credit.getAdvancedBalance().add(amount));
-                            credit.setTotalAdvancedCreditsEarned(credit.getTotalAdvancedCreditsEarned().add(amount));
-                        }
-                    } else {
-                        if (type.equals("DEBIT")) {
-                            credit.setBalance(credit.getBalance().subtract(amount));
-                            credit.setTotalCreditsUsed(credit.getTotalCreditsUsed().add(amount));
-                        } else {
-                            credit.setBalance(credit.getBalance().add(amount));
-                            credit.setTotalCreditsEarned(credit.getTotalCreditsEarned().add(amount));
-                        }
-                    }
-
-                    credit.setLastUpdated(LocalDateTime.now());
-
-                    // Kredi ve işlemi kaydet
-                    return creditRepository.save(credit)
-                            .then(transactionRepository.save(transaction))
-                            .doOnSuccess(t -> {
-                                // Metrik ve olay gönderimi
-                                publishCreditEvent(userId, amount, type, creditType);
-                                recordCreditMetrics(userId, amount, type, creditType);
+                    CreditEvent event = holdEvent(hold, "DEBIT");
+                    // Defter kaydı yoksa hold korunur; kayıt Firestore'dan seed edilip bir kez yeniden denenir
+                    return creditLedger.settle(hold, transaction, event)
+                            .flatMap(result -> result.status() != CreditLedger.Status.MISSING ? Mono.just(result)
+                                    : getUserCredits(userId).then(creditLedger.settle(hold, transaction, event)))
+                            .flatMap(result -> {
+                                if (result.status() == CreditLedger.Status.HOLD_NOT_FOUND) {
+                                    return Mono.error(new CreditHoldNotFoundException(holdId));
+                                }
+                                if (result.status() == CreditLedger.Status.MISSING) {
+                                    return Mono.error(new IllegalStateException("Kredi defteri kaydı oluşturulamadı: " + userId));
+                                }
+                                holdSweeper.cancel(holdId);
+                                meterRegistry.counter("credit.holds", "result", "settled").increment();
+                                transaction.setAmount(result.amount());
+                                if (result.amount().signum() > 0) {
+                                    recordCreditMetrics(userId, result.amount(), "DEBIT", hold.getCreditType());
+                                }
+                                return Mono.just(transaction);
                             });
                 });
     }
 
-    public Flux<CreditTransaction> getUserTransactions(String userId) {
-        return transactionRepository.findByUserId(userId);
+    /**
+     * Hold'u düşüm yapmadan kapatır ve ayrılan tutarı kullanılabilir bakiyeye geri verir
+     */
+    public Mono<Void> release(String userId, String holdId) {
+        if (!ledgerEnabled) {
+            return Mono.error(new CreditHoldsUnavailableException());
+        }
+        return creditLedger.findHold(holdId)
+                .filter(hold -> userId.equals(hold.getUserId()))
+                .switchIfEmpty(Mono.error(() -> new CreditHoldNotFoundException(holdId)))
+                .flatMap(hold -> creditLedger.release(holdId, userId, userId, holdEvent(hold, "HOLD_RELEASED"))
+                        .flatMap(released -> {
+                            if (!released) {
+                                return Mono.error(new CreditHoldNotFoundException(holdId));
+                            }
+                            holdSweeper.cancel(holdId);
+                            meterRegistry.counter("credit.holds", "result", "released").increment();
+                            return Mono.<Void>empty();
+                        }));
+    }
+
+    /**
+     * İşlem geçmişini yeniden eskiye, imleçle sayfalı döner
+     */
+    public Mono<CreditTransactionPage> getUserTransactions(String userId, String cursor, int limit) {
+        return transactionRepository.findPage(userId, cursor, limit);
+    }
+
+    /**
+     * from..to aralığındaki aylık özetler (en fazla 24 ay); işlem olmayan aylar dönmez
+     */
+    public Flux<CreditUsageRollup> getMonthlyUsage(String userId, YearMonth from, YearMonth to) {
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month = to; !month.isBefore(from) && months.size() < 24; month = month.minusMonths(1)) {
+            months.add(month);
+        }
+        return transactionRepository.findRollups(userId, months);
     }
 
     /**
@@ -182,65 +638,40 @@ public class CreditService {
                 .deleted(false)
                 .build();
         
-        return creditRepository.save(credit);
+        return creditRepository.create(credit);
     }
 
-    private Mono<Credit> updateCreditBalance(Credit credit, CreditTransaction transaction) {
-        // Check if type is a String or enum and handle accordingly
-        BigDecimal newBalance;
-        if (transaction.getType2() != null) {
-            // Use enum type2 field
-            newBalance = transaction.getType2() == CreditTransaction.TransactionType.CREDIT
-                    ? credit.getBalance().add(transaction.getAmount())
-                    : credit.getBalance().subtract(transaction.getAmount()); // Fazla nokta kaldırıldı
-
-            credit.setBalance(newBalance);
-            credit.setLastUpdated(LocalDateTime.now());
-
-            if (transaction.getType2() == CreditTransaction.TransactionType.CREDIT) {
-                credit.setTotalCreditsEarned(credit.getTotalCreditsEarned().add(transaction.getAmount()));
-            } else {
-                credit.setTotalCreditsUsed(credit.getTotalCreditsUsed().add(transaction.getAmount()));
-            }
-        } else {
-            // Use string type field
-            newBalance = "CREDIT".equals(transaction.getType())
-                    ? credit.getBalance().add(transaction.getAmount())
-                    : credit.getBalance().subtract(transaction.getAmount());
-                    
-            credit.setBalance(newBalance);
-            credit.setLastUpdated(LocalDateTime.now());
-
-            if ("CREDIT".equals(transaction.getType())) {
-                credit.setTotalCreditsEarned(credit.getTotalCreditsEarned().add(transaction.getAmount()));
-            } else {
-                credit.setTotalCreditsUsed(credit.getTotalCreditsUsed().add(transaction.getAmount()));
-            }
-        }
-
-        return creditRepository.save(credit);
+    private static List<CreditEvent> events(CreditEvent event, CreditEvent lowBalance) {
+        return lowBalance == null ? List.of(event) : List.of(event, lowBalance);
     }
 
-    // Kredi olayını yayınlama ve metrik kayıt fonksiyonlarını güncelle
-    private void publishCreditEvent(String userId, BigDecimal amount, String type, String creditType) {
-        CreditEvent event = CreditEvent.builder()
+    /**
+     * Olay id'si işlem id'sinden türetilir; aynı işlemin yeniden yayını tüketicide aynı id ile ayıklanır
+     */
+    static CreditEvent transactionEvent(String userId, CreditTransaction transaction) {
+        return CreditEvent.builder()
+                .eventId(transaction.getId() == null ? null : "transaction:" + transaction.getId())
                 .userId(userId)
-                .amount(amount)
+                .amount(transaction.getAmount())
+                .type(transaction.getType())
+                .creditType(transaction.getCreditType())
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static CreditEvent holdEvent(CreditHold hold, String type) {
+        return CreditEvent.builder()
+                .userId(hold.getUserId())
+                .amount(hold.getAmount())
                 .type(type)
-                .creditType(creditType)
+                .creditType(hold.getCreditType())
+                .holdId(hold.getId())
                 .timestamp(System.currentTimeMillis())
                 .build();
-        
-        kafkaTemplate.send("credit-events", event);
     }
 
     private void recordCreditMetrics(String userId, BigDecimal amount, String type, String creditType) {
-        String metricName = type.equals("DEBIT") ? "credits.used" : "credits.added";
-        if ("ADVANCED".equals(creditType)) {
-            metricName = "advanced." + metricName;
-        }
-        
-        meterRegistry.counter(metricName, "userId", userId)
-                .increment(amount.doubleValue());
+        // Kullanıcı başına Micrometer serisi açılmaz; kullanıcı toplamları CreditUsageRecorder'da tutulur
+        usageRecorder.record(userId, amount, type, creditType);
     }
-}
\ No newline at end of file
+}
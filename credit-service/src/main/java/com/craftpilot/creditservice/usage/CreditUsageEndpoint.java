@@ -0,0 +1,40 @@
+package com.craftpilot.creditservice.usage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/creditusage: en çok harcayan kullanıcılar. Kullanıcı bazlı veri Prometheus serisi olarak
+ * yayınlanmadığı için operasyon ekibi bu uç noktayı kullanır.
+ */
+@Component
+@Endpoint(id = "creditusage")
+@RequiredArgsConstructor
+public class CreditUsageEndpoint {
+    private final CreditUsageRecorder usageRecorder;
+
+    @ReadOperation
+    public Map<String, List<Map<String, Object>>> topSpenders(@Nullable Integer limit) {
+        int size = limit == null ? 20 : Math.max(1, Math.min(limit, 1000));
+        Map<String, List<Map<String, Object>>> result = new LinkedHashMap<>();
+        for (String creditType : List.of("STANDARD", "ADVANCED")) {
+            result.put(creditType, usageRecorder.topSpenders(creditType, size).stream()
+                    .map(estimate -> {
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("userId", estimate.key());
+                        entry.put("spent", CreditUsageRecorder.fromUnits(estimate.count()));
+                        entry.put("maxOverestimate", CreditUsageRecorder.fromUnits(estimate.error()));
+                        return entry;
+                    })
+                    .toList());
+        }
+        return result;
+    }
+}
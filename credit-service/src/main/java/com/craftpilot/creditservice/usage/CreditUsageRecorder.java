@@ -0,0 +1,148 @@
+package com.craftpilot.creditservice.usage;
+
+import com.craftpilot.creditservice.repository.CreditUsageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kredi kullanımını sınırlı kardinaliteyle kaydeder:
+ * <ul>
+ *   <li>Micrometer'a yalnızca type/creditType etiketli toplam sayaçlar yazılır (en fazla 4 seri),</li>
+ *   <li>kullanıcı başına toplamlar flush aralığı boyunca bellekte 4 elemanlı long dizilerinde biriktirilir ve
+ *       periyodik olarak Firestore'a eklenir; harita her flush'ta boşaltıldığı için boyutu aralıktaki aktif
+ *       kullanıcı sayısıyla sınırlıdır,</li>
+ *   <li>en çok harcayan kullanıcılar credit type başına bir Space-Saving özetiyle izlenir.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class CreditUsageRecorder {
+    private static final int SCALE = 4;
+    private static final String STANDARD = "STANDARD";
+    private static final String ADVANCED = "ADVANCED";
+
+    private final CreditUsageRepository usageRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration flushInterval;
+    private final Map<String, long[]> pending = new ConcurrentHashMap<>();
+    private final Map<String, SpaceSavingTopK> topSpenders;
+
+    // Yazılamayan toplamlar; bir sonraki flush'ta yeni toplamlarla birlikte tekrar denenir
+    private Map<String, long[]> unflushed = new HashMap<>();
+    private volatile Disposable subscription;
+
+    public CreditUsageRecorder(
+            CreditUsageRepository usageRepository,
+            MeterRegistry meterRegistry,
+            @Value("${credit.usage.flush-interval:1m}") Duration flushInterval,
+            @Value("${credit.usage.top-k-capacity:1000}") int topKCapacity) {
+        this.usageRepository = usageRepository;
+        this.meterRegistry = meterRegistry;
+        this.flushInterval = flushInterval;
+        this.topSpenders = Map.of(
+                STANDARD, new SpaceSavingTopK(topKCapacity),
+                ADVANCED, new SpaceSavingTopK(topKCapacity));
+        meterRegistry.gaugeMapSize("credit.usage.pending.users", Tags.empty(), pending);
+    }
+
+    @PostConstruct
+    public void start() {
+        subscription = Flux.interval(flushInterval)
+                .concatMap(tick -> flush()
+                        .onErrorResume(e -> {
+                            log.warn("Kredi kullanım toplamları yazılamadı, sonraki turda tekrar denenecek: {}", e.getMessage());
+                            meterRegistry.counter("credit.usage.flush.errors").increment();
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+        // Kapanışta biriken toplamlar son kez yazılır
+        flush().onErrorResume(e -> Mono.empty()).block(Duration.ofSeconds(10));
+    }
+
+    public void record(String userId, BigDecimal amount, String type, String creditType) {
+        boolean debit = "DEBIT".equals(type);
+        boolean advanced = ADVANCED.equals(creditType);
+        meterRegistry.counter("credit.usage.amount",
+                        "type", debit ? "DEBIT" : "CREDIT",
+                        "creditType", advanced ? ADVANCED : STANDARD)
+                .increment(amount.doubleValue());
+        long units = amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        int slot = (advanced ? 2 : 0) + (debit ? 0 : 1);
+        pending.compute(userId, (key, totals) -> {
+            long[] updated = totals != null ? totals : new long[4];
+            updated[slot] += units;
+            return updated;
+        });
+    }
+
+    /**
+     * creditType için tahmini en çok harcayan kullanıcılar (son flush'a kadar olan harcamalarla)
+     */
+    public List<SpaceSavingTopK.Estimate> topSpenders(String creditType, int limit) {
+        return topSpenders.get(ADVANCED.equals(creditType) ? ADVANCED : STANDARD).top(limit);
+    }
+
+    public static BigDecimal fromUnits(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    /**
+     * Biriken toplamları haritadan çıkarır, top-K özetine ekler ve Firestore'a yazar. Anahtarlar tek tek
+     * remove edildiği için flush sırasında gelen kayıtlar kaybolmaz; bir sonraki flush'a kalır.
+     */
+    synchronized Mono<Void> flush() {
+        Map<String, long[]> batch = unflushed;
+        unflushed = new HashMap<>();
+        for (String userId : pending.keySet()) {
+            long[] totals = pending.remove(userId);
+            if (totals == null) {
+                continue;
+            }
+            topSpenders.get(STANDARD).offer(userId, totals[0]);
+            topSpenders.get(ADVANCED).offer(userId, totals[2]);
+            batch.merge(userId, totals, CreditUsageRecorder::add);
+        }
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        return usageRepository.incrementTotals(LocalDate.now(), batch)
+                .doOnSuccess(done -> meterRegistry.counter("credit.usage.flushed.users").increment(batch.size()))
+                .doOnError(e -> {
+                    synchronized (this) {
+                        batch.forEach((userId, totals) -> unflushed.merge(userId, totals, CreditUsageRecorder::add));
+                    }
+                });
+    }
+
+    private static long[] add(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+}
@@ -0,0 +1,88 @@
+package com.craftpilot.creditservice.usage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Ağırlıklı Space-Saving: en fazla capacity anahtar tutar, dolduğunda en küçük sayaç yeni anahtara devredilir.
+ * Toplam ağırlığın 1/capacity'sinden fazlasına sahip her anahtar listede kalır; tahmin gerçek değerden en fazla
+ * error kadar büyüktür. Bellek kullanıcı sayısından bağımsız olarak capacity ile sınırlıdır.
+ */
+public final class SpaceSavingTopK {
+    private static final Comparator<Counter> BY_COUNT = Comparator.<Counter>comparingLong(counter -> counter.count)
+            .thenComparing(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSavingTopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity pozitif olmalı: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public synchronized void offer(String key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += weight;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, weight, 0);
+        } else {
+            Counter evicted = byCount.pollFirst();
+            counters.remove(evicted.key);
+            counter = new Counter(key, evicted.count + weight, evicted.count);
+        }
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * Tahmini en büyük limit anahtarı, büyükten küçüğe
+     */
+    public synchronized List<Estimate> top(int limit) {
+        List<Estimate> top = new ArrayList<>(Math.min(limit, counters.size()));
+        for (Counter counter : byCount.descendingSet()) {
+            if (top.size() >= limit) {
+                break;
+            }
+            top.add(new Estimate(counter.key, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    /**
+     * count tahmini üst sınırdır; gerçek değer en az count - error'dır
+     */
+    public record Estimate(String key, long count, long error) {
+    }
+
+    private static final class Counter {
+        private final String key;
+        private final long error;
+        private long count;
+
+        private Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+-- Hold'u düşüm yapmadan kapatır ve ayrılan tutarı kullanılabilir bakiyeye geri verir.
+-- ARGV[2] boş değilse hold'un bu kullanıcıya ait olduğu doğrulanır (sweeper boş gönderir).
+-- ARGV[3] boş değilse bırakma olayı aynı adımda outbox'a eklenir.
+-- Dönüş: 1 bırakıldı, 0 hold yok
+local ledger = KEYS[1]
+local hold = KEYS[2]
+local expiry = KEYS[3]
+local outbox = KEYS[4]
+local holdId = ARGV[1]
+
+if redis.call('EXISTS', hold) == 0 then
+  redis.call('ZREM', expiry, holdId)
+  return 0
+end
+if ARGV[2] ~= '' and redis.call('HGET', hold, 'userId') ~= ARGV[2] then
+  return 0
+end
+
+local reserved = tonumber(redis.call('HGET', hold, 'amount'))
+local heldField = redis.call('HGET', hold, 'heldField')
+local userId = redis.call('HGET', hold, 'userId')
+redis.call('DEL', hold)
+redis.call('ZREM', expiry, holdId)
+if redis.call('EXISTS', ledger) == 1 then
+  -- Defter hold açıldıktan sonra yeniden seed edildiyse ayrılan tutar kayıtta yoktur; held eksiye düşürülmez
+  local releasable = math.min(reserved, tonumber(redis.call('HGET', ledger, heldField) or '0'))
+  if releasable > 0 then
+    redis.call('HINCRBY', ledger, heldField, -releasable)
+  end
+end
+if ARGV[3] ~= '' then
+  redis.call('XADD', outbox, '*', 'userId', userId, 'event', ARGV[3])
+end
+return 1
@@ -0,0 +1,30 @@
+-- Kredi rezervasyonu (hold): kullanılabilir bakiye (bakiye - açık hold'lar) yetiyorsa tutarı ayırır.
+-- Hold kaydı süre dolunca silinmez; ayrılan tutarı geri vermek için sweeper'ın release çalıştırması gerekir.
+-- ARGV[10] boş değilse hold olayı aynı adımda outbox'a eklenir.
+-- Dönüş: {1, 0, kalan kullanılabilir bakiye} ayrıldı, {0, 0, kullanılabilir bakiye} yetersiz, {-1, 0, 0} defterde kayıt yok
+local ledger = KEYS[1]
+local hold = KEYS[2]
+local expiry = KEYS[3]
+local outbox = KEYS[4]
+local balanceField = ARGV[1]
+local heldField = ARGV[2]
+local amount = tonumber(ARGV[3])
+local holdId = ARGV[4]
+
+if redis.call('EXISTS', ledger) == 0 then
+  return {-1, 0, 0}
+end
+
+local available = tonumber(redis.call('HGET', ledger, balanceField)) - tonumber(redis.call('HGET', ledger, heldField) or '0')
+if available < amount then
+  return {0, 0, available}
+end
+
+redis.call('HINCRBY', ledger, heldField, amount)
+redis.call('HSET', hold, 'userId', ARGV[5], 'amount', amount, 'creditType', ARGV[6], 'serviceId', ARGV[7],
+  'balanceField', balanceField, 'heldField', heldField, 'createdAt', ARGV[8], 'expiresAt', ARGV[9])
+redis.call('ZADD', expiry, ARGV[9], holdId)
+if ARGV[10] ~= '' then
+  redis.call('XADD', outbox, '*', 'userId', ARGV[5], 'event', ARGV[10])
+end
+return {1, 0, available - amount}
@@ -0,0 +1,50 @@
+-- Hold'u kapatır ve gerçek tutarı düşer. Gerçek tutar ayrılandan fazlaysa fark kullanılabilir bakiyeden
+-- karşılandığı kadar düşülür; bakiye hiçbir durumda eksiye düşmez. Düşüm, işlem olarak journal'a ve
+-- ARGV[7] boş değilse olay olarak outbox'a eklenir; ikisinde de tutar fiilen düşülen tutardır.
+-- Düşümden sonra düşük bakiye eşiği değerlendirilir (lib/credit_low_balance.lua, ortak başlık).
+-- Dönüş: {1, seq, bakiye, düşülen} kapatıldı, {-2, 0, 0, 0} hold yok (süresi dolmuş/kapatılmış ya da başka kullanıcının),
+-- {-1, 0, 0, 0} defterde kayıt yok; hold dokunulmadan kalır, çağıran defteri seed edip yeniden dener
+local ledger = KEYS[1]
+local hold = KEYS[2]
+local expiry = KEYS[3]
+local journal = KEYS[4]
+local outbox = KEYS[5]
+local holdId = ARGV[1]
+local actual = tonumber(ARGV[2])
+
+if redis.call('EXISTS', hold) == 0 or redis.call('HGET', hold, 'userId') ~= ARGV[3] then
+  return {-2, 0, 0, 0}
+end
+
+if redis.call('EXISTS', ledger) == 0 then
+  return {-1, 0, 0, 0}
+end
+
+local reserved = tonumber(redis.call('HGET', hold, 'amount'))
+local balanceField = redis.call('HGET', hold, 'balanceField')
+local heldField = redis.call('HGET', hold, 'heldField')
+redis.call('DEL', hold)
+redis.call('ZREM', expiry, holdId)
+-- Defter hold açıldıktan sonra yeniden seed edildiyse ayrılan tutar kayıtta yoktur; held eksiye düşürülmez
+local releasable = math.min(reserved, tonumber(redis.call('HGET', ledger, heldField) or '0'))
+if releasable > 0 then
+  redis.call('HINCRBY', ledger, heldField, -releasable)
+end
+
+local balance = tonumber(redis.call('HGET', ledger, balanceField))
+local available = balance - tonumber(redis.call('HGET', ledger, heldField) or '0')
+local charged = math.min(actual, math.max(available, 0))
+if charged <= 0 then
+  return {1, tonumber(redis.call('HGET', ledger, 'seq') or '0'), balance, 0}
+end
+
+balance = redis.call('HINCRBY', ledger, balanceField, -charged)
+redis.call('HINCRBY', ledger, ARGV[5], charged)
+redis.call('HSET', ledger, 'lastUpdated', ARGV[6])
+local seq = redis.call('HINCRBY', ledger, 'seq', 1)
+redis.call('XADD', journal, '*', 'userId', ARGV[3], 'seq', seq, 'tx', ARGV[4], 'amount', charged)
+if ARGV[7] ~= '' then
+  redis.call('XADD', outbox, '*', 'userId', ARGV[3], 'event', ARGV[7], 'amount', charged)
+end
+checkLowBalance(ledger, outbox, ARGV[3], balanceField, balance, seq, ARGV[6])
+return {1, seq, balance, charged}
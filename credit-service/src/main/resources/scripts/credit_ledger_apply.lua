@@ -0,0 +1,50 @@
+-- Kredi defteri: bakiye kontrolü, bakiye güncellemesi ve journal kaydı tek atomik adımda yapılır.
+-- Tutarlar 10^-4 kredi birimine ölçeklenmiş tam sayılardır; HINCRBY kesin sonuç verir.
+-- Düşümde açık rezervasyonlar (hold) kullanılabilir bakiyeden sayılmaz.
+-- ARGV[9] boş değilse kabul edilen işlemin olayı aynı adımda outbox'a eklenir (CreditEventRelay yayınlar).
+-- Standart bakiye düşük bakiye eşiğine inerse LOW_BALANCE olayı da aynı adımda outbox'a eklenir.
+-- checkLowBalance ortak başlıktan gelir (lib/credit_low_balance.lua).
+-- ARGV[10] boş değilse KEYS[4] idempotency anahtarıdır: kabul edilen işlem bu anahtarda ARGV[10] ms saklanır,
+-- aynı anahtarla gelen tekrar bakiyeye dokunmadan kayıtlı işlemi döner.
+-- Dönüş: {1, seq, bakiye} kabul, {0, seq, bakiye} yetersiz bakiye, {-1, 0, 0} defterde kayıt yok (önce seed edilmeli),
+-- {2, 0, 0, 0, işlem} tekrar
+local ledger = KEYS[1]
+local journal = KEYS[2]
+local outbox = KEYS[3]
+local balanceField = ARGV[1]
+local totalField = ARGV[2]
+local delta = ARGV[3]
+local amount = ARGV[4]
+local heldField = ARGV[8]
+local idempotencyTtl = ARGV[10]
+
+if idempotencyTtl ~= '' then
+  local previous = redis.call('GET', KEYS[4])
+  if previous then
+    return {2, 0, 0, 0, previous}
+  end
+end
+
+if redis.call('EXISTS', ledger) == 0 then
+  return {-1, 0, 0}
+end
+
+local balance = tonumber(redis.call('HGET', ledger, balanceField))
+local held = tonumber(redis.call('HGET', ledger, heldField) or '0')
+if tonumber(delta) < 0 and balance - held + tonumber(delta) < 0 then
+  return {0, tonumber(redis.call('HGET', ledger, 'seq')), balance}
+end
+
+balance = redis.call('HINCRBY', ledger, balanceField, delta)
+redis.call('HINCRBY', ledger, totalField, amount)
+redis.call('HSET', ledger, 'lastUpdated', ARGV[7])
+local seq = redis.call('HINCRBY', ledger, 'seq', 1)
+redis.call('XADD', journal, '*', 'userId', ARGV[5], 'seq', seq, 'tx', ARGV[6])
+if ARGV[9] ~= '' then
+  redis.call('XADD', outbox, '*', 'userId', ARGV[5], 'event', ARGV[9])
+end
+if idempotencyTtl ~= '' then
+  redis.call('SET', KEYS[4], ARGV[6], 'PX', idempotencyTtl)
+end
+checkLowBalance(ledger, outbox, ARGV[5], balanceField, balance, seq, ARGV[7])
+return {1, seq, balance}
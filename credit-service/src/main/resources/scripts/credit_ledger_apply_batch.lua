@@ -0,0 +1,67 @@
+-- Bir kullanıcının birden fazla düşümünü tek atomik adımda sırayla uygular (toplu ölçümlü kullanım).
+-- Her kalem credit_ledger_apply.lua ile aynı kurallara tabidir; yetersiz bakiye ya da tekrar eden idempotency
+-- anahtarı yalnızca o kalemi etkiler, diğer kalemler uygulanır. Düşük bakiye eşiği her kalemden sonra değerlendirilir
+-- (lib/credit_low_balance.lua, ortak başlık).
+-- KEYS[3 + i]: i. kalemin idempotency anahtarı (anahtarsız kalemlerde kullanılmaz).
+-- ARGV: userId, lastUpdated, idempotency ttl (ms), kalem sayısı; ardından kalem başına 7 değer:
+--   bakiye alanı, toplam alanı, hold alanı, tutar (birim), işlem, olay (boş olabilir), anahtar var mı (1/0)
+-- Dönüş: {1, seq, durum1, önceki1, durum2, önceki2, ...} (durum: 1 kabul, 0 yetersiz bakiye, 2 tekrar;
+-- önceki: tekrar edilen kalemde ilk işlem, diğerlerinde boş), {-1} defterde kayıt yok (önce seed edilmeli)
+local ledger = KEYS[1]
+local journal = KEYS[2]
+local outbox = KEYS[3]
+local userId = ARGV[1]
+local idempotencyTtl = ARGV[3]
+local count = tonumber(ARGV[4])
+
+if redis.call('EXISTS', ledger) == 0 then
+  return {-1}
+end
+
+local reply = {1, 0}
+local seq = tonumber(redis.call('HGET', ledger, 'seq') or '0')
+local changed = false
+for i = 1, count do
+  local base = 4 + (i - 1) * 7
+  local balanceField = ARGV[base + 1]
+  local amount = tonumber(ARGV[base + 4])
+  local payload = ARGV[base + 5]
+  local keyed = ARGV[base + 7] == '1'
+  local status = 1
+  local previous = ''
+
+  if keyed then
+    previous = redis.call('GET', KEYS[3 + i]) or ''
+    if previous ~= '' then
+      status = 2
+    end
+  end
+  if status == 1 then
+    local balance = tonumber(redis.call('HGET', ledger, balanceField))
+    local held = tonumber(redis.call('HGET', ledger, ARGV[base + 3]) or '0')
+    if balance - held - amount < 0 then
+      status = 0
+    else
+      local balance = redis.call('HINCRBY', ledger, balanceField, -amount)
+      redis.call('HINCRBY', ledger, ARGV[base + 2], amount)
+      seq = redis.call('HINCRBY', ledger, 'seq', 1)
+      redis.call('XADD', journal, '*', 'userId', userId, 'seq', seq, 'tx', payload)
+      if ARGV[base + 6] ~= '' then
+        redis.call('XADD', outbox, '*', 'userId', userId, 'event', ARGV[base + 6])
+      end
+      if keyed then
+        redis.call('SET', KEYS[3 + i], payload, 'PX', idempotencyTtl)
+      end
+      checkLowBalance(ledger, outbox, userId, balanceField, balance, seq, ARGV[2])
+      changed = true
+    end
+  end
+  reply[#reply + 1] = status
+  reply[#reply + 1] = previous
+end
+
+if changed then
+  redis.call('HSET', ledger, 'lastUpdated', ARGV[2])
+end
+reply[2] = seq
+return reply
@@ -0,0 +1,16 @@
+-- Firestore'un gerisinde kalan defter kaydının bakiyelerini ve sıra numarasını belgedeki değerlerle değiştirir.
+-- Kayıt silinmez: açık hold'ların ayırdığı tutarlar (held, advancedHeld) ve düşük bakiye uyarısı alanları korunur,
+-- böylece sonraki settle/release doğru kayıt üzerinde çalışır.
+-- ARGV[1]: mutabakatın okuduğu defter sıra numarası; arada işlem uygulandıysa kayıt değiştirilmez (sonraki tura kalır).
+-- ARGV[2..]: alan/değer çiftleri
+-- Dönüş: 1 yeniden yazıldı, 0 defter ilerlemiş, -1 defterde kayıt yok
+local ledger = KEYS[1]
+
+if redis.call('EXISTS', ledger) == 0 then
+  return -1
+end
+if redis.call('HGET', ledger, 'seq') ~= ARGV[1] then
+  return 0
+end
+redis.call('HSET', ledger, unpack(ARGV, 2))
+return 1
@@ -0,0 +1,7 @@
+-- Defter kaydını Firestore'daki belgeden yalnızca kayıt yoksa oluşturur; Redis'teki kayıt daha yenidir ve ezilmez.
+local ledger = KEYS[1]
+if redis.call('EXISTS', ledger) == 1 then
+  return 0
+end
+redis.call('HSET', ledger, unpack(ARGV))
+return 1
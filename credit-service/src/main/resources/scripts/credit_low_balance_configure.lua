@@ -0,0 +1,19 @@
+-- Düşük bakiye eşiğini ayarlar (tutarlar birim cinsinden). Bakiye zaten eşikteyse ya da altındaysa uyarı verilmiş
+-- sayılır: olay ayar anında değil, bakiye rearm seviyesine çıkıp eşiğe yeniden indiğinde yayınlanır.
+-- ARGV[1] boşsa uyarı kapatılır.
+-- Dönüş: 1 uyarı kurulu, 2 uyarı verilmiş sayıldı, -1 defterde kayıt yok (önce seed edilmeli)
+local ledger = KEYS[1]
+
+if redis.call('EXISTS', ledger) == 0 then
+  return -1
+end
+if ARGV[1] == '' then
+  redis.call('HDEL', ledger, 'lowBalanceThreshold', 'lowBalanceRearm', 'lowBalanceAlerted')
+  return 1
+end
+
+local balance = tonumber(redis.call('HGET', ledger, 'balance'))
+local alerted = balance <= tonumber(ARGV[1])
+redis.call('HSET', ledger, 'lowBalanceThreshold', ARGV[1], 'lowBalanceRearm', ARGV[2],
+  'lowBalanceAlerted', alerted and '1' or '0')
+return alerted and 2 or 1
@@ -0,0 +1,19 @@
+-- Outbox relay liderliği: tek bir pod yayınlar, böylece kullanıcı başına olay sırası korunur.
+-- ARGV[2] > 0: anahtar bu pod'daysa süresi uzatılır, boşsa alınır. ARGV[2] = 0: bu pod'daysa bırakılır.
+-- Dönüş: 1 lider, 0 değil
+local lease = KEYS[1]
+local owner = ARGV[1]
+local ttl = tonumber(ARGV[2])
+
+if redis.call('GET', lease) == owner then
+  if ttl == 0 then
+    redis.call('DEL', lease)
+    return 0
+  end
+  redis.call('PEXPIRE', lease, ttl)
+  return 1
+end
+if ttl > 0 and redis.call('SET', lease, owner, 'NX', 'PX', ttl) then
+  return 1
+end
+return 0
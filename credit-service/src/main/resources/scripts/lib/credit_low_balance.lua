@@ -0,0 +1,32 @@
+-- Defteri değiştiren script'lerin ortak başlığı; CreditLedger script gövdesinin önüne ekler.
+-- Düşük bakiye eşiği (yalnızca standart bakiye, bakiyeyi değiştiren her kabulde O(1)): kurulu uyarı bakiye eşiğe
+-- inince bir kez LOW_BALANCE olayı olarak outbox'a eklenir; bakiye rearm seviyesine çıkınca yeniden kurulur.
+-- Olay id'si defter sıra numarasından türetilir, relay'in tekrar teslimi tüketicide ayıklanabilir.
+local function decimal(units)
+  return string.format('%d.%04d', math.floor(units / 10000), units % 10000)
+end
+
+local function checkLowBalance(ledger, outbox, userId, balanceField, balance, seq, now)
+  if balanceField ~= 'balance' then
+    return
+  end
+  local alert = redis.call('HMGET', ledger, 'lowBalanceThreshold', 'lowBalanceRearm', 'lowBalanceAlerted')
+  if not alert[1] then
+    return
+  end
+  if alert[3] ~= '1' and balance <= tonumber(alert[1]) then
+    redis.call('HSET', ledger, 'lowBalanceAlerted', '1')
+    redis.call('XADD', outbox, '*', 'userId', userId, 'event', cjson.encode({
+      eventId = 'low-balance:' .. userId .. ':' .. seq,
+      userId = userId,
+      amount = decimal(balance),
+      threshold = decimal(tonumber(alert[1])),
+      type = 'LOW_BALANCE',
+      creditType = 'STANDARD',
+      timestamp = tonumber(now)
+    }))
+  elseif alert[3] == '1' and balance >= tonumber(alert[2]) then
+    redis.call('HSET', ledger, 'lowBalanceAlerted', '0')
+  end
+end
+
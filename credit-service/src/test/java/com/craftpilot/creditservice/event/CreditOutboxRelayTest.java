@@ -0,0 +1,98 @@
+package com.craftpilot.creditservice.event;
+
+import com.craftpilot.creditservice.ledger.CreditLedger;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CreditOutboxRelayTest {
+    @Mock
+    private CreditRepository creditRepository;
+
+    @Mock
+    private CreditLedger ledger;
+
+    @Mock
+    private KafkaTemplate<String, CreditEvent> kafkaTemplate;
+
+    private CreditOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        when(ledger.outboxLease(anyString(), any())).thenReturn(Mono.just(true));
+        relay = new CreditOutboxRelay(creditRepository, ledger, kafkaTemplate, new SimpleMeterRegistry(),
+                "credit-events", false, "pod-1", 500, Duration.ofMillis(250), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void publishesInOutboxOrderKeyedByUserAndDeletesAfterAck() {
+        when(creditRepository.findOutbox(500)).thenReturn(Mono.just(List.of(
+                event("transaction:t1", "user-a"), event("transaction:t2", "user-b"), event("low-balance:user-a:t3", "user-a"))));
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(creditRepository.deleteOutbox(any())).thenReturn(Mono.empty());
+
+        assertEquals(3, relay.relayOnce().block());
+
+        InOrder order = inOrder(kafkaTemplate, creditRepository);
+        order.verify(kafkaTemplate).send(eq("credit-events"), eq("user-a"), any());
+        order.verify(kafkaTemplate).send(eq("credit-events"), eq("user-b"), any());
+        order.verify(kafkaTemplate).send(eq("credit-events"), eq("user-a"), any());
+        order.verify(creditRepository).deleteOutbox(List.of("transaction:t1", "transaction:t2", "low-balance:user-a:t3"));
+    }
+
+    @Test
+    void keepsOutboxWhenBrokerRejects() {
+        when(creditRepository.findOutbox(500)).thenReturn(Mono.just(List.of(event("transaction:t1", "user-a"))));
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relayOnce().onErrorResume(e -> Mono.just(-1)).block();
+
+        verify(creditRepository, never()).deleteOutbox(any());
+    }
+
+    @Test
+    void followerDoesNotReadOutbox() {
+        when(ledger.outboxLease(anyString(), any())).thenReturn(Mono.just(false));
+        relay = new CreditOutboxRelay(creditRepository, ledger, kafkaTemplate, new SimpleMeterRegistry(),
+                "credit-events", false, "pod-2", 500, Duration.ofMillis(250), Duration.ofMillis(30));
+
+        assertEquals(0, relay.relayOnce().block());
+
+        verify(creditRepository, never()).findOutbox(anyInt());
+    }
+
+    private static CreditEvent event(String eventId, String userId) {
+        return CreditEvent.builder()
+                .eventId(eventId)
+                .userId(userId)
+                .amount(BigDecimal.TEN)
+                .type("DEBIT")
+                .creditType("STANDARD")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+}
@@ -0,0 +1,132 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.ReactiveStreamOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CreditEventRelayTest {
+    private static final String OUTBOX = "credit_events:outbox";
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveStreamOperations<String, Object, Object> streams;
+
+    @Mock
+    private CreditLedger ledger;
+
+    @Mock
+    private KafkaTemplate<String, CreditEvent> kafkaTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CreditEventRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doReturn(streams).when(redisTemplate).opsForStream();
+        lenient().when(ledger.outboxKey()).thenReturn(OUTBOX);
+        when(ledger.outboxLease(anyString(), any())).thenReturn(Mono.just(true));
+        relay = new CreditEventRelay(redisTemplate, ledger, kafkaTemplate, objectMapper, new SimpleMeterRegistry(),
+                "credit-events", true, "pod-1", 500, Duration.ofMillis(20), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void publishesInStreamOrderKeyedByUserAndDeletesAfterAck() throws Exception {
+        MapRecord<String, Object, Object> first = record(1, event("e1", "user-a", "DEBIT"), null);
+        MapRecord<String, Object, Object> second = record(2, event("e2", "user-b", "CREDIT"), null);
+        MapRecord<String, Object, Object> third = record(3, event("e3", "user-a", "DEBIT"), "1250000");
+        when(streams.range(eq(OUTBOX), any(), any())).thenReturn(Flux.just(first, second, third));
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(streams.delete(eq(OUTBOX), any(RecordId[].class))).thenReturn(Mono.just(3L));
+        when(streams.size(OUTBOX)).thenReturn(Mono.just(0L));
+
+        assertEquals(3, relay.relayOnce().block());
+
+        ArgumentCaptor<CreditEvent> events = ArgumentCaptor.forClass(CreditEvent.class);
+        InOrder order = inOrder(kafkaTemplate, streams);
+        order.verify(kafkaTemplate).send(eq("credit-events"), eq("user-a"), events.capture());
+        order.verify(kafkaTemplate).send(eq("credit-events"), eq("user-b"), events.capture());
+        order.verify(kafkaTemplate).send(eq("credit-events"), eq("user-a"), events.capture());
+        order.verify(streams).delete(OUTBOX, first.getId(), second.getId(), third.getId());
+        assertEquals("e1", events.getAllValues().get(0).getEventId());
+        // Settle'da script'in düştüğü tutar olaydaki tahmini tutarın yerine geçer
+        assertEquals(0, CreditLedger.fromUnits("1250000").compareTo(events.getAllValues().get(2).getAmount()));
+    }
+
+    @Test
+    void keepsBatchWhenBrokerRejects() throws Exception {
+        when(streams.range(eq(OUTBOX), any(), any()))
+                .thenReturn(Flux.just(record(1, event("e1", "user-a", "DEBIT"), null)));
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relayOnce().onErrorResume(e -> Mono.just(-1)).block();
+
+        verify(streams, never()).delete(anyString(), any(RecordId[].class));
+    }
+
+    @Test
+    void followerDoesNotReadOutbox() {
+        when(ledger.outboxLease(anyString(), any())).thenReturn(Mono.just(false));
+        relay = new CreditEventRelay(redisTemplate, ledger, kafkaTemplate, objectMapper, new SimpleMeterRegistry(),
+                "credit-events", true, "pod-2", 500, Duration.ofMillis(20), Duration.ofMillis(30));
+
+        assertEquals(0, relay.relayOnce().block());
+
+        verify(streams, never()).range(anyString(), any(), any());
+        verify(ledger, times(1)).outboxLease("pod-2", Duration.ofMillis(30));
+    }
+
+    private MapRecord<String, Object, Object> record(long sequence, CreditEvent event, String chargedUnits)
+            throws Exception {
+        Map<Object, Object> fields = chargedUnits == null
+                ? Map.of("userId", event.getUserId(), "event", objectMapper.writeValueAsString(event))
+                : Map.of("userId", event.getUserId(), "event", objectMapper.writeValueAsString(event), "amount", chargedUnits);
+        return StreamRecords.newRecord().in(OUTBOX).withId(RecordId.of(System.currentTimeMillis(), sequence)).ofMap(fields);
+    }
+
+    private static CreditEvent event(String eventId, String userId, String type) {
+        return CreditEvent.builder()
+                .eventId(eventId)
+                .userId(userId)
+                .amount(BigDecimal.TEN)
+                .type(type)
+                .creditType("STANDARD")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditHold;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * credit_hold_*.lua: ayırma, kapatma ve bırakma gerçek Redis üzerinde.
+ */
+class CreditHoldScriptsTest extends EmbeddedRedisTestSupport {
+    private static final String USER_ID = "user-1";
+
+    private final CreditLedger ledger = ledger();
+
+    @Test
+    void reserveHoldsAmountAgainstAvailableBalance() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+
+        CreditLedger.Result first = ledger.reserve(hold("6"), event()).block();
+        CreditLedger.Result second = ledger.reserve(hold("5"), event()).block();
+
+        assertEquals(CreditLedger.Status.ACCEPTED, first.status());
+        assertEquals(0, new BigDecimal("4").compareTo(first.balance()));
+        assertEquals(CreditLedger.Status.INSUFFICIENT, second.status());
+        Credit hot = ledger.find(USER_ID).block();
+        assertEquals(0, new BigDecimal("6").compareTo(hot.getHeldBalance()));
+        assertEquals(0, new BigDecimal("10").compareTo(hot.getBalance()));
+        assertEquals(1, streamLength(OUTBOX_KEY));
+    }
+
+    @Test
+    void settleChargesActualAmountCappedAtAvailableBalance() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        CreditHold hold = hold("4");
+        ledger.reserve(hold, event()).block();
+        ledger.reserve(hold("5"), event()).block();
+
+        // Gerçek tutar 8; kendi ayırması (4) + diğer hold dışında kalan 1 kredi karşılanabilir
+        CreditLedger.Result result = ledger.settle(hold, debit("8"), event()).block();
+
+        assertEquals(CreditLedger.Status.ACCEPTED, result.status());
+        assertEquals(0, new BigDecimal("5").compareTo(result.amount()));
+        Credit hot = ledger.find(USER_ID).block();
+        assertEquals(0, new BigDecimal("5").compareTo(hot.getBalance()));
+        assertEquals(0, new BigDecimal("5").compareTo(hot.getHeldBalance()));
+        assertEquals(0, new BigDecimal("5").compareTo(hot.getTotalCreditsUsed()));
+        assertEquals(1, streamLength(JOURNAL_KEY));
+        assertNull(ledger.findHold(hold.getId()).block());
+    }
+
+    @Test
+    void settleWithoutLedgerKeepsHoldForRetry() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        CreditHold hold = hold("4");
+        ledger.reserve(hold, event()).block();
+        ledger.evict(USER_ID).block();
+
+        CreditLedger.Result missing = ledger.settle(hold, debit("3"), event()).block();
+
+        assertEquals(CreditLedger.Status.MISSING, missing.status());
+        assertNotNull(ledger.findHold(hold.getId()).block());
+        assertEquals(0, streamLength(JOURNAL_KEY));
+
+        // Yeniden seed edilen defterde ayrılan tutar yoktur; held eksiye düşmeden kapatılır
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        CreditLedger.Result settled = ledger.settle(hold, debit("3"), event()).block();
+
+        assertEquals(CreditLedger.Status.ACCEPTED, settled.status());
+        Credit hot = ledger.find(USER_ID).block();
+        assertEquals(0, new BigDecimal("7").compareTo(hot.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(hot.getHeldBalance()));
+    }
+
+    @Test
+    void settleByAnotherUserDoesNotCloseHold() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        CreditHold hold = hold("4");
+        ledger.reserve(hold, event()).block();
+        CreditHold foreign = hold("4");
+        foreign.setId(hold.getId());
+        foreign.setUserId("user-2");
+
+        CreditLedger.Result result = ledger.settle(foreign, debit("1"), event()).block();
+
+        assertEquals(CreditLedger.Status.HOLD_NOT_FOUND, result.status());
+        assertNotNull(ledger.findHold(hold.getId()).block());
+    }
+
+    @Test
+    void releaseReturnsReservedAmountOnce() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        CreditHold hold = hold("4");
+        ledger.reserve(hold, event()).block();
+
+        assertTrue(ledger.release(hold.getId(), USER_ID, USER_ID, event()).block());
+        assertFalse(ledger.release(hold.getId(), USER_ID, USER_ID, event()).block());
+
+        Credit hot = ledger.find(USER_ID).block();
+        assertEquals(0, BigDecimal.ZERO.compareTo(hot.getHeldBalance()));
+        assertEquals(0, new BigDecimal("10").compareTo(hot.getBalance()));
+        assertTrue(ledger.expiredHolds(Long.MAX_VALUE, 10).collectList().block().isEmpty());
+        // HOLD + HOLD_RELEASED
+        assertEquals(2, streamLength(OUTBOX_KEY));
+    }
+
+    private static CreditHold hold(String amount) {
+        LocalDateTime now = LocalDateTime.now();
+        return CreditHold.builder()
+                .userId(USER_ID)
+                .serviceId("llm-service")
+                .amount(new BigDecimal(amount))
+                .creditType("STANDARD")
+                .createdAt(now)
+                .expiresAt(now.plusMinutes(10))
+                .build();
+    }
+
+    private static CreditTransaction debit(String amount) {
+        return CreditTransaction.builder()
+                .userId(USER_ID)
+                .serviceId("llm-service")
+                .amount(new BigDecimal(amount))
+                .type("DEBIT")
+                .creditType("STANDARD")
+                .build();
+    }
+
+    private static CreditEvent event() {
+        return CreditEvent.builder().userId(USER_ID).type("HOLD").creditType("STANDARD").build();
+    }
+}
@@ -0,0 +1,206 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditHold;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Range;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * credit_ledger_*.lua, düşük bakiye ayarı ve outbox lease'i gerçek Redis üzerinde.
+ */
+class CreditLedgerApplyScriptsTest extends EmbeddedRedisTestSupport {
+    private static final String USER_ID = "user-1";
+
+    private final CreditLedger ledger = ledger();
+
+    @Test
+    void applyJournalsAcceptedTransactionsAndRejectsOverdraft() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+
+        CreditLedger.Result debit = ledger.apply(USER_ID, transaction("DEBIT", "3", null), event("DEBIT")).block();
+        CreditLedger.Result credit = ledger.apply(USER_ID, transaction("CREDIT", "2", null), event("CREDIT")).block();
+        CreditLedger.Result overdraft = ledger.apply(USER_ID, transaction("DEBIT", "20", null), event("DEBIT")).block();
+
+        assertEquals(CreditLedger.Status.ACCEPTED, debit.status());
+        assertEquals(1, debit.sequence());
+        assertEquals(0, new BigDecimal("7").compareTo(debit.balance()));
+        assertEquals(CreditLedger.Status.ACCEPTED, credit.status());
+        assertEquals(2, credit.sequence());
+        assertEquals(CreditLedger.Status.INSUFFICIENT, overdraft.status());
+        Credit hot = ledger.find(USER_ID).block();
+        assertEquals(0, new BigDecimal("9").compareTo(hot.getBalance()));
+        assertEquals(0, new BigDecimal("3").compareTo(hot.getTotalCreditsUsed()));
+        assertEquals(0, new BigDecimal("12").compareTo(hot.getTotalCreditsEarned()));
+        assertEquals(2, hot.getLedgerSequence());
+        // Reddedilen işlem ne journal'a ne outbox'a yazılır
+        assertEquals(2, streamLength(JOURNAL_KEY));
+        assertEquals(2, streamLength(OUTBOX_KEY));
+    }
+
+    @Test
+    void applyWithoutLedgerReturnsEmptyAndWritesNothing() {
+        assertNull(ledger.apply(USER_ID, transaction("DEBIT", "1", null), event("DEBIT")).block());
+
+        assertEquals(0, streamLength(JOURNAL_KEY));
+        assertEquals(0, streamLength(OUTBOX_KEY));
+    }
+
+    @Test
+    void debitCannotSpendHeldAmount() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        LocalDateTime now = LocalDateTime.now();
+        ledger.reserve(CreditHold.builder().userId(USER_ID).serviceId("llm-service").amount(new BigDecimal("8"))
+                .creditType("STANDARD").createdAt(now).expiresAt(now.plusMinutes(10)).build(), null).block();
+
+        CreditLedger.Result result = ledger.apply(USER_ID, transaction("DEBIT", "3", null), null).block();
+
+        assertEquals(CreditLedger.Status.INSUFFICIENT, result.status());
+        assertEquals(0, new BigDecimal("10").compareTo(ledger.find(USER_ID).block().getBalance()));
+    }
+
+    @Test
+    void keyedRetryReturnsFirstTransactionWithoutDebitingAgain() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        CreditTransaction first = transaction("DEBIT", "4", "key-1");
+
+        ledger.apply(USER_ID, first, event("DEBIT")).block();
+        CreditLedger.Result retry = ledger.apply(USER_ID, transaction("DEBIT", "4", "key-1"), event("DEBIT")).block();
+
+        assertEquals(CreditLedger.Status.DUPLICATE, retry.status());
+        assertEquals(first.getId(), retry.previous().getId());
+        assertEquals(0, new BigDecimal("6").compareTo(ledger.find(USER_ID).block().getBalance()));
+        assertEquals(1, streamLength(JOURNAL_KEY));
+        assertEquals(1, streamLength(OUTBOX_KEY));
+    }
+
+    @Test
+    void batchAppliesEntriesInOrderAndFailsOnlyTheAffectedEntry() {
+        ledger.seed(credit(USER_ID, "5", "0")).block();
+        List<CreditTransaction> debits = List.of(
+                transaction("DEBIT", "2", "a"),
+                transaction("DEBIT", "2", null),
+                transaction("DEBIT", "2", null),
+                transaction("DEBIT", "1", "a"),
+                transaction("DEBIT", "1", null));
+        List<CreditEvent> events = debits.stream().map(debit -> event("DEBIT")).toList();
+
+        List<CreditLedger.Result> results = ledger.applyBatch(USER_ID, debits, events).block();
+
+        assertEquals(List.of(CreditLedger.Status.ACCEPTED, CreditLedger.Status.ACCEPTED, CreditLedger.Status.INSUFFICIENT,
+                        CreditLedger.Status.DUPLICATE, CreditLedger.Status.ACCEPTED),
+                results.stream().map(CreditLedger.Result::status).toList());
+        assertEquals(debits.get(0).getId(), results.get(3).previous().getId());
+        Credit hot = ledger.find(USER_ID).block();
+        assertEquals(0, BigDecimal.ZERO.compareTo(hot.getBalance()));
+        assertEquals(3, hot.getLedgerSequence());
+        assertEquals(3, streamLength(JOURNAL_KEY));
+        assertEquals(3, streamLength(OUTBOX_KEY));
+        assertNull(ledger.applyBatch("unknown", List.of(transaction("DEBIT", "1", null)), events.subList(0, 1)).block());
+    }
+
+    @Test
+    void lowBalanceEventIsEmittedOncePerCrossing() {
+        ledger.seed(credit(USER_ID, "100", "0")).block();
+        assertFalse(ledger.configureLowBalance(USER_ID, new BigDecimal("20"), new BigDecimal("30")).block());
+
+        ledger.apply(USER_ID, transaction("DEBIT", "85", null), event("DEBIT")).block();
+        ledger.apply(USER_ID, transaction("DEBIT", "1", null), event("DEBIT")).block();
+        // Rearm (30) altında kalan yükseliş uyarıyı yeniden kurmaz
+        ledger.apply(USER_ID, transaction("CREDIT", "10", null), event("CREDIT")).block();
+        ledger.apply(USER_ID, transaction("DEBIT", "5", null), event("DEBIT")).block();
+        assertEquals(1, lowBalanceEvents().size());
+
+        ledger.apply(USER_ID, transaction("CREDIT", "11", null), event("CREDIT")).block();
+        ledger.apply(USER_ID, transaction("DEBIT", "12", null), event("DEBIT")).block();
+
+        List<CreditEvent> alerts = lowBalanceEvents();
+        assertEquals(2, alerts.size());
+        assertEquals("low-balance:" + USER_ID + ":1", alerts.get(0).getEventId());
+        assertEquals(0, new BigDecimal("15").compareTo(alerts.get(0).getAmount()));
+        assertEquals(0, new BigDecimal("18").compareTo(alerts.get(1).getAmount()));
+        assertEquals(0, new BigDecimal("20").compareTo(alerts.get(1).getThreshold()));
+        // Bakiye zaten eşikteyken yapılan ayar uyarı verilmiş sayılır
+        assertTrue(ledger.configureLowBalance(USER_ID, new BigDecimal("50"), new BigDecimal("60")).block());
+        assertNull(ledger.configureLowBalance("unknown", BigDecimal.ONE, BigDecimal.TEN).block());
+    }
+
+    @Test
+    void seedKeepsNewerLedgerAndReseedChecksSequenceAndKeepsHolds() {
+        ledger.seed(credit(USER_ID, "10", "0")).block();
+        ledger.apply(USER_ID, transaction("DEBIT", "3", null), null).block();
+        LocalDateTime now = LocalDateTime.now();
+        ledger.reserve(CreditHold.builder().userId(USER_ID).serviceId("llm-service").amount(new BigDecimal("2"))
+                .creditType("STANDARD").createdAt(now).expiresAt(now.plusMinutes(10)).build(), null).block();
+
+        // Redis'teki kayıt Firestore belgesinden yenidir; seed ezmez
+        ledger.seed(credit(USER_ID, "50", "0")).block();
+        Credit hot = ledger.find(USER_ID).block();
+        assertEquals(0, new BigDecimal("7").compareTo(hot.getBalance()));
+
+        Credit durable = credit(USER_ID, "40", "0");
+        durable.setLedgerSequence(hot.getLedgerSequence());
+        assertFalse(ledger.reseed(durable, hot.getLedgerSequence() - 1).block());
+        assertTrue(ledger.reseed(durable, hot.getLedgerSequence()).block());
+
+        Credit reseeded = ledger.find(USER_ID).block();
+        assertEquals(0, new BigDecimal("40").compareTo(reseeded.getBalance()));
+        assertEquals(0, new BigDecimal("2").compareTo(reseeded.getHeldBalance()));
+        assertFalse(ledger.reseed(credit("unknown", "1", "0"), 0).block());
+    }
+
+    @Test
+    void outboxLeaseHasSingleOwnerUntilReleased() {
+        assertTrue(ledger.outboxLease("pod-1", Duration.ofSeconds(10)).block());
+        assertFalse(ledger.outboxLease("pod-2", Duration.ofSeconds(10)).block());
+        assertTrue(ledger.outboxLease("pod-1", Duration.ofSeconds(10)).block());
+
+        assertFalse(ledger.outboxLease("pod-1", Duration.ZERO).block());
+
+        assertTrue(ledger.outboxLease("pod-2", Duration.ofSeconds(10)).block());
+    }
+
+    private List<CreditEvent> lowBalanceEvents() {
+        List<CreditEvent> events = new ArrayList<>();
+        redisTemplate.opsForStream().range(OUTBOX_KEY, Range.unbounded()).toStream().forEach(record -> {
+            try {
+                CreditEvent event = objectMapper.readValue(String.valueOf(record.getValue().get("event")), CreditEvent.class);
+                if ("LOW_BALANCE".equals(event.getType())) {
+                    events.add(event);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return events;
+    }
+
+    private static CreditTransaction transaction(String type, String amount, String idempotencyKey) {
+        return CreditTransaction.builder()
+                .userId(USER_ID)
+                .serviceId("llm-service")
+                .amount(new BigDecimal(amount))
+                .type(type)
+                .creditType("STANDARD")
+                .idempotencyKey(idempotencyKey)
+                .build();
+    }
+
+    private static CreditEvent event(String type) {
+        return CreditEvent.builder().userId(USER_ID).type(type).creditType("STANDARD").build();
+    }
+}
@@ -0,0 +1,166 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Journal'dan Firestore'a write-behind: yazma, çöken pod'un pending kayıtlarının yeniden oynatılması ve başka
+ * pod'un sahipsiz kayıtları devralması gerçek Redis stream'i ve consumer group'u üzerinde.
+ */
+class CreditLedgerFlusherTest extends EmbeddedRedisTestSupport {
+    private static final String GROUP = "credit-ledger-flusher";
+
+    private final CreditLedger ledger = ledger();
+    private final RecordingFirestore firestore = new RecordingFirestore();
+
+    @BeforeEach
+    void applyDebits() {
+        ledger.seed(credit("user-a", "10", "0")).then(ledger.seed(credit("user-b", "10", "0"))).block();
+        ledger.apply("user-a", debit("user-a", "1")).block();
+        ledger.apply("user-b", debit("user-b", "2")).block();
+        ledger.apply("user-a", debit("user-a", "3")).block();
+        redisTemplate.opsForStream().createGroup(JOURNAL_KEY, ReadOffset.from("0"), GROUP).block();
+    }
+
+    @Test
+    void flushPersistsJournalAndLedgerBalancesThenDeletesEntries() {
+        CreditLedgerFlusher flusher = flusher("pod-1", Duration.ofSeconds(30));
+
+        // İlk tur kendi pending listesini oynatır (boş), ikinci tur yeni kayıtları yazar
+        assertEquals(0, flusher.flushOnce().block());
+        assertEquals(3, flusher.flushOnce().block());
+
+        assertEquals(3, firestore.transactions.size());
+        assertEquals(0, new BigDecimal("6").compareTo(firestore.balances.get("user-a").getBalance()));
+        assertEquals(0, new BigDecimal("8").compareTo(firestore.balances.get("user-b").getBalance()));
+        assertEquals(2, firestore.balances.get("user-a").getLedgerSequence());
+        assertEquals(0, streamLength(JOURNAL_KEY));
+        assertEquals(0, pendingCount());
+        assertEquals(2, flusher.drainRecentlyFlushed(10).size());
+    }
+
+    @Test
+    void restartedPodReplaysEntriesItReadButNeverCommitted() {
+        firestore.failures.set(1);
+        CreditLedgerFlusher crashed = flusher("pod-1", Duration.ofSeconds(30));
+        crashed.flushOnce().block();
+        assertThrows(IllegalStateException.class, () -> crashed.flushOnce().block());
+        assertEquals(3, pendingCount());
+
+        CreditLedgerFlusher restarted = flusher("pod-1", Duration.ofSeconds(30));
+        assertEquals(3, restarted.flushOnce().block());
+
+        assertEquals(3, firestore.transactions.size());
+        assertEquals(0, new BigDecimal("6").compareTo(firestore.balances.get("user-a").getBalance()));
+        assertEquals(0, pendingCount());
+        assertEquals(0, streamLength(JOURNAL_KEY));
+    }
+
+    @Test
+    void otherPodClaimsEntriesLeftByDeadConsumer() {
+        firestore.failures.set(1);
+        CreditLedgerFlusher dead = flusher("pod-1", Duration.ofSeconds(30));
+        dead.flushOnce().block();
+        assertThrows(IllegalStateException.class, () -> dead.flushOnce().block());
+
+        CreditLedgerFlusher survivor = flusher("pod-2", Duration.ZERO);
+        assertEquals(0, survivor.flushOnce().block());
+        assertEquals(3, survivor.flushOnce().block());
+
+        assertEquals(3, firestore.transactions.size());
+        assertEquals(0, pendingCount());
+        assertEquals(1, firestore.commits.get());
+    }
+
+    @Test
+    void replayOfAlreadyCommittedEntriesDoesNotDuplicateTransactions() {
+        CreditLedgerFlusher flusher = flusher("pod-1", Duration.ofSeconds(30));
+        flusher.flushOnce().block();
+        flusher.flushOnce().block();
+        // Commit başarılı ama ACK'ten önce çöktü: aynı kayıtlar journal'a yeniden eklenmiş gibi
+        firestore.transactions.values().forEach(transaction -> redisTemplate.opsForStream()
+                .add(JOURNAL_KEY, Map.of("userId", transaction.getUserId(), "tx", write(transaction))).block());
+
+        assertEquals(3, flusher.flushOnce().block());
+
+        assertEquals(3, firestore.transactions.size());
+        assertEquals(3, firestore.persisted.get());
+        assertEquals(0, streamLength(JOURNAL_KEY));
+    }
+
+    private CreditLedgerFlusher flusher(String consumer, Duration claimIdle) {
+        return new CreditLedgerFlusher(redisTemplate, ledger, firestore, objectMapper, meterRegistry, true, GROUP,
+                consumer, 160, Duration.ofMillis(50), claimIdle);
+    }
+
+    private long pendingCount() {
+        return redisTemplate.opsForStream().pending(JOURNAL_KEY, GROUP).block().getTotalPendingMessages();
+    }
+
+    private String write(CreditTransaction transaction) {
+        try {
+            return objectMapper.writeValueAsString(transaction);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static CreditTransaction debit(String userId, String amount) {
+        return CreditTransaction.builder()
+                .userId(userId)
+                .serviceId("llm-service")
+                .amount(new BigDecimal(amount))
+                .type("DEBIT")
+                .creditType("STANDARD")
+                .build();
+    }
+
+    /**
+     * persistJournal'ın bellek içi karşılığı: zaten yazılmış işlemleri atlar, bakiyeleri defterdeki haliyle yazar.
+     * failures kadar commit hata verir.
+     */
+    static final class RecordingFirestore extends CreditRepository {
+        private final Map<String, CreditTransaction> transactions = new ConcurrentHashMap<>();
+        private final Map<String, Credit> balances = new ConcurrentHashMap<>();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger persisted = new AtomicInteger();
+
+        RecordingFirestore() {
+            super(null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public Mono<Void> persistJournal(Collection<CreditTransaction> journal, Collection<Credit> credits) {
+            return Mono.fromRunnable(() -> {
+                if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                    throw new IllegalStateException("deadline exceeded");
+                }
+                List<CreditTransaction> fresh = journal.stream()
+                        .filter(transaction -> !transactions.containsKey(transaction.getId()))
+                        .toList();
+                fresh.forEach(transaction -> transactions.put(transaction.getId(), transaction));
+                credits.forEach(credit -> balances.put(credit.getUserId(), credit));
+                persisted.addAndGet(fresh.size());
+                commits.incrementAndGet();
+            });
+        }
+    }
+}
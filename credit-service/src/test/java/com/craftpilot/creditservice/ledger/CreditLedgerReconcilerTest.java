@@ -0,0 +1,101 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStreamOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CreditLedgerReconcilerTest {
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveStreamOperations<String, Object, Object> streams;
+
+    @Mock
+    private CreditLedger ledger;
+
+    @Mock
+    private CreditLedgerFlusher flusher;
+
+    @Mock
+    private CreditRepository creditRepository;
+
+    private CreditLedgerReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doReturn(streams).when(redisTemplate).opsForStream();
+        lenient().when(ledger.journalKey()).thenReturn("credit_ledger:journal");
+        lenient().when(flusher.group()).thenReturn("credit-ledger-flusher");
+        lenient().when(streams.size(anyString())).thenReturn(Mono.just(0L));
+        lenient().when(streams.pending(anyString(), anyString())).thenReturn(Mono.empty());
+        reconciler = new CreditLedgerReconciler(redisTemplate, ledger, flusher, creditRepository, new SimpleMeterRegistry(),
+                true, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void ledgerBehindFirestoreIsRewrittenInPlaceInsteadOfEvicted() {
+        Credit hot = credit(40, 7);
+        Credit durable = credit(55, 9);
+        when(flusher.drainRecentlyFlushed(100)).thenReturn(List.of("user-1"));
+        when(ledger.find("user-1")).thenReturn(Mono.just(hot));
+        when(creditRepository.findById("user-1")).thenReturn(Mono.just(durable));
+        when(ledger.reseed(durable, 7)).thenReturn(Mono.just(true));
+
+        reconciler.reconcile().block();
+
+        // Sıra karşılaştırması script'te yapılır; okunan sıra numarası iletilir, kayıt silinmez
+        verify(ledger).reseed(durable, 7);
+        verify(ledger, never()).evict(anyString());
+        verify(creditRepository, never()).persistJournal(any(), any());
+    }
+
+    @Test
+    void ledgerAheadOfFirestoreIsLeftToTheFlusher() {
+        when(flusher.drainRecentlyFlushed(100)).thenReturn(List.of("user-1"));
+        when(ledger.find("user-1")).thenReturn(Mono.just(credit(40, 12)));
+        when(creditRepository.findById("user-1")).thenReturn(Mono.just(credit(55, 9)));
+
+        reconciler.reconcile().block();
+
+        verify(ledger, never()).reseed(any(), anyLong());
+        verify(ledger, never()).evict(anyString());
+        verify(creditRepository, never()).persistJournal(any(), any());
+    }
+
+    private static Credit credit(int balance, long sequence) {
+        return Credit.builder()
+                .id("user-1")
+                .userId("user-1")
+                .balance(new BigDecimal(balance))
+                .totalCreditsEarned(new BigDecimal(100))
+                .totalCreditsUsed(new BigDecimal(100 - balance))
+                .advancedBalance(BigDecimal.ZERO)
+                .totalAdvancedCreditsEarned(BigDecimal.ZERO)
+                .totalAdvancedCreditsUsed(BigDecimal.ZERO)
+                .ledgerSequence(sequence)
+                .build();
+    }
+}
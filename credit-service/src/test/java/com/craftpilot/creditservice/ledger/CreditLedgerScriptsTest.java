@@ -0,0 +1,35 @@
+package com.craftpilot.creditservice.ledger;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Düşük bakiye kuralı script'lerde tek kopya olarak kalmalı; gövdeler ortak başlığı çağırır, yeniden tanımlamaz.
+ */
+class CreditLedgerScriptsTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "scripts/credit_ledger_apply.lua",
+            "scripts/credit_ledger_apply_batch.lua",
+            "scripts/credit_hold_settle.lua"})
+    void lowBalanceRuleIsDefinedOnceInTheSharedPrefix(String path) {
+        String script = CreditLedger.withLowBalanceCheck(path).getScriptAsString();
+
+        assertEquals(1, occurrences(script, "local function checkLowBalance("));
+        assertEquals(1, occurrences(script, "local function decimal("));
+        assertTrue(script.indexOf("local function checkLowBalance(") < script.indexOf("local ledger = KEYS[1]"));
+        assertTrue(script.contains("checkLowBalance(ledger, outbox, "));
+    }
+
+    private static int occurrences(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + needle.length())) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,84 @@
+package com.craftpilot.creditservice.ledger;
+
+import com.craftpilot.creditservice.model.Credit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+
+/**
+ * Defter script'lerini gerçek bir Redis sürecine (embedded-redis, Redis 6.2) karşı çalıştıran testlerin ortak
+ * kurulumu. Sunucu sınıf başına bir kez açılır, her testten önce boşaltılır.
+ */
+abstract class EmbeddedRedisTestSupport {
+    protected static final String JOURNAL_KEY = "credit_ledger:journal";
+    protected static final String OUTBOX_KEY = "credit_events:outbox";
+
+    private static RedisServer server;
+    private static LettuceConnectionFactory connectionFactory;
+    protected static ReactiveStringRedisTemplate redisTemplate;
+
+    protected final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    protected final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new RedisServer(port);
+        server.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        connectionFactory.getConnection().serverCommands().flushAll();
+    }
+
+    protected CreditLedger ledger() {
+        return new CreditLedger(redisTemplate, objectMapper, meterRegistry, JOURNAL_KEY, OUTBOX_KEY);
+    }
+
+    protected static Credit credit(String userId, String balance, String advancedBalance) {
+        return Credit.builder()
+                .id(userId)
+                .userId(userId)
+                .balance(new BigDecimal(balance))
+                .totalCreditsEarned(new BigDecimal(balance))
+                .totalCreditsUsed(BigDecimal.ZERO)
+                .advancedBalance(new BigDecimal(advancedBalance))
+                .totalAdvancedCreditsEarned(new BigDecimal(advancedBalance))
+                .totalAdvancedCreditsUsed(BigDecimal.ZERO)
+                .createdAt(LocalDateTime.now())
+                .lastUpdated(LocalDateTime.now())
+                .build();
+    }
+
+    protected static long streamLength(String key) {
+        return redisTemplate.opsForStream().size(key).block();
+    }
+}
@@ -0,0 +1,181 @@
+package com.craftpilot.creditservice.repository;
+
+import com.craftpilot.creditservice.model.Credit;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.Transaction;
+import com.google.cloud.firestore.TransactionOptions;
+import com.google.cloud.firestore.WriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CreditRepositoryTest {
+    private static final String USER_ID = "user-1";
+
+    @Mock
+    private Firestore firestore;
+
+    @Mock
+    private CollectionReference collection;
+
+    @Mock
+    private DocumentReference document;
+
+    @Mock
+    private DocumentSnapshot snapshot;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CreditRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        repository = new CreditRepository(firestore, meterRegistry);
+        ReflectionTestUtils.setField(repository, "cacheTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(repository, "cacheMaxEntries", 100);
+        ReflectionTestUtils.setField(repository, "legacyLookup", true);
+        ReflectionTestUtils.setField(repository, "maxAttempts", 5);
+
+        when(firestore.collection("credits")).thenReturn(collection);
+        when(collection.document(USER_ID)).thenReturn(document);
+        when(document.get()).thenReturn(ApiFutures.immediateFuture(snapshot));
+    }
+
+    @Test
+    void findByUserIdIsSingleDocumentGet() {
+        existing(credit(USER_ID, 100));
+
+        Credit credit = repository.findByUserId(USER_ID).block();
+
+        assertNotNull(credit);
+        assertEquals(0, credit.getBalance().compareTo(new BigDecimal(100)));
+        // Önceden: userId sorgusu iki kez çalıştırılıyordu (listener içinde tekrar get)
+        verify(document, times(1)).get();
+        verify(collection, never()).whereEqualTo(anyString(), any());
+        assertEquals(1.0, reads("get"));
+        assertEquals(0.0, reads("query"));
+    }
+
+    @Test
+    void repeatedReadsWithinTtlAreServedFromCache() {
+        existing(credit(USER_ID, 100));
+
+        for (int i = 0; i < 10; i++) {
+            repository.findByUserId(USER_ID).block();
+        }
+
+        verify(document, times(1)).get();
+        assertEquals(9.0, meterRegistry.counter("credit.cache.requests", "result", "hit").count());
+    }
+
+    @Test
+    void cachedCopyIsNotSharedWithCallers() {
+        existing(credit(USER_ID, 100));
+
+        repository.findByUserId(USER_ID).block().setBalance(BigDecimal.ZERO);
+
+        assertEquals(0, repository.findByUserId(USER_ID).block().getBalance().compareTo(new BigDecimal(100)));
+    }
+
+    @Test
+    void saveWritesThroughCacheUnderUserIdKey() {
+        when(document.set(any(Credit.class))).thenReturn(ApiFutures.immediateFuture(mock(WriteResult.class)));
+        Credit credit = credit(null, 50);
+
+        repository.save(credit).block();
+        Credit read = repository.findByUserId(USER_ID).block();
+
+        assertEquals(USER_ID, credit.getId());
+        assertEquals(0, read.getBalance().compareTo(new BigDecimal(50)));
+        verify(document, never()).get();
+    }
+
+    @Test
+    void legacyDocumentIsRekeyedOnFirstRead() throws Exception {
+        when(snapshot.exists()).thenReturn(false);
+        Credit legacyCredit = credit("legacy-id", 70);
+        DocumentReference legacyRef = mock(DocumentReference.class);
+        QueryDocumentSnapshot legacy = mock(QueryDocumentSnapshot.class);
+        when(legacy.toObject(Credit.class)).thenReturn(legacyCredit);
+        when(legacy.getReference()).thenReturn(legacyRef);
+        QuerySnapshot result = mock(QuerySnapshot.class);
+        when(result.isEmpty()).thenReturn(false);
+        when(result.getDocuments()).thenReturn(List.of(legacy));
+        Query query = mock(Query.class);
+        when(collection.whereEqualTo("userId", USER_ID)).thenReturn(query);
+        when(query.whereEqualTo("deleted", false)).thenReturn(query);
+        when(query.limit(1)).thenReturn(query);
+        when(query.get()).thenReturn(ApiFutures.immediateFuture(result));
+        Transaction transaction = mock(Transaction.class);
+        when(transaction.get(document)).thenReturn(ApiFutures.immediateFuture(snapshot));
+        when(firestore.runTransaction(any(Transaction.Function.class), any(TransactionOptions.class)))
+                .thenAnswer(invocation -> ApiFutures.immediateFuture(
+                        invocation.<Transaction.Function<Credit>>getArgument(0).updateCallback(transaction)));
+
+        Credit credit = repository.findByUserId(USER_ID).block();
+
+        assertEquals(USER_ID, credit.getId());
+        verify(transaction).set(document, credit);
+        verify(transaction).delete(legacyRef);
+        assertEquals(1.0, reads("query"));
+
+        // Taşınan belge önbellekte; sonraki okuma Firestore'a gitmez
+        repository.findByUserId(USER_ID).block();
+        verify(document, times(1)).get();
+        assertEquals(1.0, reads("query"));
+    }
+
+    private void existing(Credit credit) {
+        when(snapshot.exists()).thenReturn(true);
+        when(snapshot.toObject(Credit.class)).thenAnswer(invocation -> credit.toBuilder().build());
+    }
+
+    private double reads(String operation) {
+        return meterRegistry.counter("credit.firestore.reads", "operation", operation).count();
+    }
+
+    private static Credit credit(String id, int balance) {
+        return Credit.builder()
+                .id(id)
+                .userId(USER_ID)
+                .balance(new BigDecimal(balance))
+                .totalCreditsEarned(new BigDecimal(balance))
+                .totalCreditsUsed(BigDecimal.ZERO)
+                .advancedBalance(BigDecimal.ZERO)
+                .totalAdvancedCreditsEarned(BigDecimal.ZERO)
+                .totalAdvancedCreditsUsed(BigDecimal.ZERO)
+                .createdAt(LocalDateTime.now())
+                .lastUpdated(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.craftpilot.creditservice.repository;
+
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.google.cloud.firestore.FieldValue;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CreditRollupsTest {
+
+    @Test
+    void transactionsAreFoldedIntoOneWritePerUserAndMonth() {
+        long october = millis(2026, 10, 5);
+        long november = millis(2026, 11, 1);
+        List<CreditTransaction> transactions = List.of(
+                transaction("user-1", "llm-service", "DEBIT", "STANDARD", "1.5", october),
+                transaction("user-1", "llm-service", "DEBIT", "STANDARD", "0.25", october),
+                transaction("user-1", "image-service", "DEBIT", "ADVANCED", "2", october),
+                transaction("user-1", "subscription-service", "CREDIT", "STANDARD", "100", october),
+                transaction("user-1", "llm-service", "DEBIT", "STANDARD", "3", november),
+                transaction("user-2", null, "DEBIT", "STANDARD", "1", october));
+
+        Map<String, Map<String, Object>> writes = CreditRollups.increments(transactions);
+
+        assertEquals(List.of("user-1_2026-10", "user-1_2026-11", "user-2_2026-10"), List.copyOf(writes.keySet()));
+        Map<String, Object> rollup = writes.get("user-1_2026-10");
+        assertEquals("2026-10", rollup.get("month"));
+        Map<?, ?> standard = (Map<?, ?>) ((Map<?, ?>) rollup.get("creditTypes")).get("STANDARD");
+        assertEquals(FieldValue.increment(17_500L), standard.get("usedUnits"));
+        assertEquals(FieldValue.increment(1_000_000L), standard.get("earnedUnits"));
+        assertEquals(FieldValue.increment(3L), standard.get("count"));
+        Map<?, ?> services = (Map<?, ?>) rollup.get("services");
+        Map<?, ?> image = (Map<?, ?>) ((Map<?, ?>) services.get("image-service")).get("ADVANCED");
+        assertEquals(FieldValue.increment(20_000L), image.get("usedUnits"));
+        Map<?, ?> unknown = (Map<?, ?>) ((Map<?, ?>) writes.get("user-2_2026-10").get("services")).get("unknown");
+        assertEquals(FieldValue.increment(1L), ((Map<?, ?>) unknown.get("STANDARD")).get("count"));
+    }
+
+    private static long millis(int year, int month, int day) {
+        return LocalDateTime.of(year, month, day, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static CreditTransaction transaction(String userId, String serviceId, String type, String creditType,
+                                                 String amount, long timestampMillis) {
+        return CreditTransaction.builder()
+                .userId(userId)
+                .serviceId(serviceId)
+                .type(type)
+                .creditType(creditType)
+                .amount(new BigDecimal(amount))
+                .timestampMillis(timestampMillis)
+                .build();
+    }
+}
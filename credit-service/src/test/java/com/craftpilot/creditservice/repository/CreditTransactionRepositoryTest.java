@@ -0,0 +1,53 @@
+package com.craftpilot.creditservice.repository;
+
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.model.CreditTransactionPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Backfill tamamlanmadan kullanılan bellek içi sayfalama: sıralı sorguyla aynı sıra ve imleç.
+ */
+class CreditTransactionRepositoryTest {
+
+    @Test
+    void legacyPagesFollowIndexedOrderAcrossCursor() {
+        // Aynı milisaniyedeki kayıtlar id'ye göre ters sırada gelir
+        List<CreditTransaction> transactions = new ArrayList<>(List.of(
+                transaction("a", 1_000), transaction("d", 3_000), transaction("b", 2_000),
+                transaction("c", 2_000), transaction("e", 500)));
+
+        CreditTransactionPage first = CreditTransactionRepository.page(transactions, null, 2);
+        assertEquals(List.of("d", "c"), ids(first));
+
+        CreditTransactionPage second = CreditTransactionRepository.page(transactions,
+                CreditTransactionRepository.decodeCursor(first.nextCursor()), 2);
+        assertEquals(List.of("b", "a"), ids(second));
+
+        CreditTransactionPage last = CreditTransactionRepository.page(transactions,
+                CreditTransactionRepository.decodeCursor(second.nextCursor()), 2);
+        assertEquals(List.of("e"), ids(last));
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void cursorMatchesIndexedQueryFormat() {
+        CreditTransactionPage page = CreditTransactionRepository.page(
+                List.of(transaction("x", 42), transaction("y", 41)), null, 1);
+
+        assertEquals(CreditTransactionRepository.encodeCursor(42, "x"), page.nextCursor());
+    }
+
+    private static CreditTransaction transaction(String id, long timestampMillis) {
+        return CreditTransaction.builder().id(id).userId("user-1").timestampMillis(timestampMillis).build();
+    }
+
+    private static List<String> ids(CreditTransactionPage page) {
+        return page.transactions().stream().map(CreditTransaction::getId).toList();
+    }
+}
@@ -0,0 +1,470 @@
+package com.craftpilot.creditservice.service;
+
+import com.craftpilot.creditservice.event.CreditEvent;
+import com.craftpilot.creditservice.exception.InsufficientCreditsException;
+import com.craftpilot.creditservice.idempotency.IdempotencyStore;
+import com.craftpilot.creditservice.model.Credit;
+import com.craftpilot.creditservice.model.CreditDebitOutcome;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import com.craftpilot.creditservice.repository.CreditTransactionRepository;
+import com.craftpilot.creditservice.usage.CreditUsageRecorder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class CreditServiceConcurrencyTest {
+    private static final String USER_ID = "user-1";
+    private static final int PARALLEL_REQUESTS = 1000;
+
+    @Mock
+    private CreditTransactionRepository transactionRepository;
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, String> redisValues;
+
+    private InMemoryCreditRepository creditRepository;
+    private CreditUsageRecorder usageRecorder;
+    private CreditService creditService;
+    private Scheduler callers;
+
+    @BeforeEach
+    void setUp() {
+        creditRepository = new InMemoryCreditRepository();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        usageRecorder = new CreditUsageRecorder(null, meterRegistry, Duration.ofMinutes(1), 100);
+        // Idempotency deposunun Redis'i her çağrıda %10 olasılıkla hata verir; hata ıskalama sayılmalı
+        lenient().doReturn(redisValues).when(redisTemplate).opsForValue();
+        lenient().when(redisValues.get(anyString())).thenAnswer(invocation -> flaky(Mono.empty()));
+        lenient().when(redisValues.set(anyString(), anyString(), any(Duration.class)))
+                .thenAnswer(invocation -> flaky(Mono.just(true)));
+        IdempotencyStore idempotencyStore = new IdempotencyStore(redisTemplate, new ObjectMapper().findAndRegisterModules(),
+                meterRegistry, Duration.ofHours(1), 1000);
+        creditService = new CreditService(creditRepository, transactionRepository, meterRegistry, null, null,
+                usageRecorder, idempotencyStore);
+        // Paralel LLM isteklerini taklit eden çağıran thread'leri
+        callers = Schedulers.fromExecutorService(Executors.newFixedThreadPool(32));
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.dispose();
+    }
+
+    @Test
+    void parallelDebitsNeverOverdrawBalance() {
+        creditRepository.seed(credit(600));
+
+        List<String> results = runParallel(i -> debit(BigDecimal.ONE));
+
+        assertEquals(600, count(results, "ok"));
+        assertEquals(400, count(results, "insufficient"));
+        Credit credit = creditRepository.current();
+        assertEquals(0, credit.getBalance().compareTo(BigDecimal.ZERO));
+        assertEquals(0, credit.getTotalCreditsUsed().compareTo(new BigDecimal(600)));
+        assertEquals(600, creditRepository.journal.size());
+    }
+
+    @Test
+    void parallelDebitsAndCreditsLoseNoUpdates() {
+        creditRepository.seed(credit(1000));
+
+        List<String> results = runParallel(i -> i % 2 == 0 ? debit(new BigDecimal(3)) : credit(new BigDecimal(2)));
+
+        assertEquals(PARALLEL_REQUESTS, count(results, "ok"));
+        Credit credit = creditRepository.current();
+        // 1000 - 500 x 3 + 500 x 2
+        assertEquals(0, credit.getBalance().compareTo(new BigDecimal(500)));
+        assertEquals(0, credit.getTotalCreditsUsed().compareTo(new BigDecimal(1500)));
+        assertEquals(0, credit.getTotalCreditsEarned().compareTo(new BigDecimal(2000)));
+        assertEquals(PARALLEL_REQUESTS, creditRepository.journal.size());
+        assertTrue(creditRepository.retries.get() > 0, "Test eşzamanlı çakışma üretmedi");
+    }
+
+    @Test
+    void retriedDebitsWithIdempotencyKeyAreAppliedOnce() {
+        int requests = 10_000;
+        creditRepository.seed(credit(2 * requests));
+        creditRepository.failureRate = 0.2;
+
+        // İstemci her isteği hata aldıkça aynı anahtarla tekrarlar; başarılı cevaptan sonra da bir kez daha gönderir
+        // (ör. resilience4j zaman aşımına uğrayan ilk denemeyi tekrarladığında)
+        List<String> ids = Flux.range(0, requests)
+                .flatMap(i -> keyedDebit("request-" + i)
+                        .flatMap(first -> keyedDebit("request-" + i)
+                                .doOnNext(second -> assertEquals(first.getId(), second.getId()))
+                                .thenReturn(first.getId())),
+                        256)
+                .collectList()
+                .block(Duration.ofSeconds(60));
+
+        assertEquals(requests, new HashSet<>(ids).size());
+        assertEquals(requests, creditRepository.journal.size());
+        // Olay işlemle aynı commit'te yazılır: cevabı kaybolan commit'in tekrarı ikinci olay üretmez
+        assertEquals(requests, creditRepository.outbox.size());
+        Credit credit = creditRepository.current();
+        assertEquals(0, credit.getBalance().compareTo(new BigDecimal(requests)));
+        assertEquals(0, credit.getTotalCreditsUsed().compareTo(new BigDecimal(requests)));
+        assertTrue(creditRepository.lostResponses.get() > 0, "Test cevabı kaybolan commit üretmedi");
+    }
+
+    @Test
+    void batchDebitAppliesEachUsersEntriesInOrderWithPartialFailures() {
+        creditRepository.seed(credit("user-a", 5));
+        creditRepository.seed(credit("user-b", 1));
+
+        List<CreditDebitOutcome> outcomes = creditService.processBatchDebit(List.of(
+                        batchDebit("user-a", 2, "a-1"),
+                        batchDebit("user-b", 1, "b-1"),
+                        batchDebit("user-a", 2, "a-2"),
+                        batchDebit("user-b", 1, "b-2"),
+                        batchDebit("user-a", 2, "a-3"),
+                        batchDebit("user-a", 2, "a-1"),
+                        batchDebit("user-a", 1, null)))
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(List.of(CreditDebitOutcome.Status.APPLIED, CreditDebitOutcome.Status.APPLIED,
+                        CreditDebitOutcome.Status.APPLIED, CreditDebitOutcome.Status.INSUFFICIENT_CREDITS,
+                        CreditDebitOutcome.Status.INSUFFICIENT_CREDITS, CreditDebitOutcome.Status.DUPLICATE,
+                        CreditDebitOutcome.Status.APPLIED),
+                outcomes.stream().map(CreditDebitOutcome::status).toList());
+        assertEquals(outcomes.get(0).transaction().getId(), outcomes.get(5).transaction().getId());
+        assertEquals(0, creditRepository.balance("user-a").compareTo(BigDecimal.ZERO));
+        assertEquals(0, creditRepository.balance("user-b").compareTo(BigDecimal.ZERO));
+        assertEquals(4, creditRepository.journal.size());
+        assertEquals(4, creditRepository.outbox.size());
+        assertTrue(creditRepository.outbox.containsKey("transaction:" + outcomes.get(0).transaction().getId()));
+        // Kullanıcı başına tek commit
+        assertEquals(2, creditRepository.batchCommits.get());
+
+        // Aynı istek tekrar gönderildiğinde anahtarlı kalemler bakiyeye dokunmaz
+        List<CreditDebitOutcome> retried = creditService.processBatchDebit(List.of(batchDebit("user-a", 2, "a-2")))
+                .block(Duration.ofSeconds(10));
+        assertEquals(CreditDebitOutcome.Status.DUPLICATE, retried.get(0).status());
+        assertEquals(4, creditRepository.journal.size());
+    }
+
+    @Test
+    void batchDebitFailsUnknownUserWithoutCreatingCredit() {
+        creditRepository.seed(credit("user-a", 5));
+
+        List<CreditDebitOutcome> outcomes = creditService.processBatchDebit(List.of(
+                        batchDebit("user-a", 2, "a-1"),
+                        batchDebit("made-up", 2, "m-1")))
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(CreditDebitOutcome.Status.APPLIED, outcomes.get(0).status());
+        assertEquals(CreditDebitOutcome.Status.FAILED, outcomes.get(1).status());
+        assertEquals(0, creditRepository.created.get());
+        assertEquals(0, creditRepository.balance("user-a").compareTo(new BigDecimal(3)));
+    }
+
+    private static CreditTransaction batchDebit(String userId, int amount, String idempotencyKey) {
+        return CreditTransaction.builder()
+                .userId(userId)
+                .serviceId("image-service")
+                .amount(new BigDecimal(amount))
+                .creditType("STANDARD")
+                .idempotencyKey(idempotencyKey)
+                .build();
+    }
+
+    private Mono<CreditTransaction> keyedDebit(String idempotencyKey) {
+        return Mono.defer(() -> creditService.processTransaction(USER_ID, "llm-service", BigDecimal.ONE, "DEBIT", "chat",
+                        "STANDARD", idempotencyKey))
+                .subscribeOn(callers)
+                .retryWhen(Retry.max(100).filter(InjectedFailure.class::isInstance));
+    }
+
+    private static <T> Mono<T> flaky(Mono<T> result) {
+        return ThreadLocalRandom.current().nextDouble() < 0.1
+                ? Mono.error(new IllegalStateException("redis unavailable"))
+                : result;
+    }
+
+    @Test
+    void lowBalanceEventIsPublishedOncePerCrossingWithHysteresis() {
+        creditRepository.seed(credit(PARALLEL_REQUESTS).toBuilder()
+                .lowBalanceThreshold(new BigDecimal(100))
+                .lowBalanceRearm(new BigDecimal(150))
+                .build());
+
+        // Eşzamanlı düşümler transaction'ı yeniden denetse de eşik bir kez geçilir
+        runParallel(i -> debit(BigDecimal.ONE));
+        assertEquals(1, lowBalanceEvents().size());
+
+        // Rearm seviyesinin altında kalan salınım yeni olay üretmez; rearm sonrası iniş üretir
+        credit(new BigDecimal(120)).block();
+        debit(new BigDecimal(30)).block();
+        assertEquals(1, lowBalanceEvents().size());
+        credit(new BigDecimal(70)).block();
+        assertFalse(creditRepository.current().isLowBalanceAlerted());
+        debit(new BigDecimal(70)).block();
+
+        List<CreditEvent> events = lowBalanceEvents();
+        assertEquals(2, events.size());
+        assertEquals(0, events.get(1).getAmount().compareTo(new BigDecimal(90)));
+        assertEquals(0, events.get(1).getThreshold().compareTo(new BigDecimal(100)));
+        assertTrue(creditRepository.current().isLowBalanceAlerted());
+    }
+
+    private List<CreditEvent> lowBalanceEvents() {
+        synchronized (creditRepository.outbox) {
+            return creditRepository.outbox.values().stream()
+                    .filter(event -> "LOW_BALANCE".equals(event.getType()))
+                    .toList();
+        }
+    }
+
+    private List<String> runParallel(IntFunction<Mono<CreditTransaction>> request) {
+        return Flux.range(0, PARALLEL_REQUESTS)
+                .flatMap(i -> Mono.defer(() -> request.apply(i))
+                        .subscribeOn(callers)
+                        .map(transaction -> "ok")
+                        .onErrorResume(InsufficientCreditsException.class, e -> Mono.just("insufficient")),
+                        PARALLEL_REQUESTS)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+    }
+
+    private Mono<CreditTransaction> debit(BigDecimal amount) {
+        return creditService.processTransaction(USER_ID, "llm-service", amount, "DEBIT", "chat", "STANDARD");
+    }
+
+    private Mono<CreditTransaction> credit(BigDecimal amount) {
+        return creditService.processTransaction(USER_ID, "subscription-service", amount, "CREDIT", "top-up", "STANDARD");
+    }
+
+    private static long count(List<String> results, String result) {
+        return results.stream().filter(result::equals).count();
+    }
+
+    private static Credit credit(int balance) {
+        return credit(USER_ID, balance);
+    }
+
+    private static Credit credit(String userId, int balance) {
+        return Credit.builder()
+                .id(userId)
+                .userId(userId)
+                .balance(new BigDecimal(balance))
+                .totalCreditsEarned(new BigDecimal(balance))
+                .totalCreditsUsed(BigDecimal.ZERO)
+                .advancedBalance(BigDecimal.ZERO)
+                .totalAdvancedCreditsEarned(BigDecimal.ZERO)
+                .totalAdvancedCreditsUsed(BigDecimal.ZERO)
+                .createdAt(LocalDateTime.now())
+                .lastUpdated(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Firestore transaction'ının bellekteki karşılığı: belgeyi okur, mutation'ı uygular ve yalnızca belge
+     * okunduğundan beri değişmediyse yazar; değiştiyse baştan dener (optimistic concurrency)
+     */
+    static final class InMemoryCreditRepository extends CreditRepository {
+        private final Map<String, Versioned> documents = new ConcurrentHashMap<>();
+        private final Queue<CreditTransaction> journal = new ConcurrentLinkedQueue<>();
+        // Commit edilen olaylar commit sırasıyla, eventId'ye göre; yalnızca belge yazmasıyla birlikte eklenir
+        private final Map<String, CreditEvent> outbox = Collections.synchronizedMap(new LinkedHashMap<>());
+        private final AtomicInteger retries = new AtomicInteger();
+        private final Map<String, CreditTransaction> journalById = new ConcurrentHashMap<>();
+        private final AtomicInteger lostResponses = new AtomicInteger();
+        private final AtomicInteger batchCommits = new AtomicInteger();
+        private final AtomicInteger created = new AtomicInteger();
+        private volatile double failureRate;
+
+        InMemoryCreditRepository() {
+            super(null, new SimpleMeterRegistry());
+        }
+
+        void seed(Credit credit) {
+            documents.put(credit.getId(), new Versioned(credit, 0));
+        }
+
+        Credit current() {
+            return documents.values().iterator().next().credit();
+        }
+
+        BigDecimal balance(String userId) {
+            return documents.get(userId).credit().getBalance();
+        }
+
+        @Override
+        public Mono<Credit> findByUserId(String userId) {
+            return Mono.justOrEmpty(documents.values().stream()
+                    .map(Versioned::credit)
+                    .filter(credit -> userId.equals(credit.getUserId()))
+                    .findFirst());
+        }
+
+        @Override
+        public Mono<Credit> create(Credit credit) {
+            created.incrementAndGet();
+            return Mono.fromCallable(() -> {
+                seed(credit.toBuilder().id(credit.getUserId()).build());
+                return credit;
+            });
+        }
+
+        @Override
+        public Mono<Credit> updateAtomically(String creditId, UnaryOperator<Credit> mutation, CreditTransaction journalEntry,
+                                             Supplier<List<CreditEvent>> events) {
+            return Mono.fromCallable(() -> {
+                if (journalEntry.getId() == null) {
+                    journalEntry.setId(UUID.randomUUID().toString());
+                }
+                while (true) {
+                    Versioned read = documents.get(creditId);
+                    Credit updated = mutation.apply(read.credit());
+                    List<CreditEvent> pending = events.get();
+                    // Okuma ile commit arasındaki ağ gecikmesi; çakışma penceresini açar
+                    LockSupport.parkNanos(20_000);
+                    if (documents.replace(creditId, read, new Versioned(updated, read.version() + 1))) {
+                        journal.add(journalEntry);
+                        enqueue(pending);
+                        return updated;
+                    }
+                    retries.incrementAndGet();
+                }
+            });
+        }
+
+        /**
+         * Firestore transaction'ı gibi belge ve işlem kaydı birlikte okunup birlikte yazılır. failureRate
+         * olasılıkla commit'ten önce, aynı olasılıkla commit'ten sonra (cevap kaybolmuş gibi) hata verir.
+         */
+        @Override
+        public Mono<CreditTransaction> updateOnce(String creditId, UnaryOperator<Credit> mutation, CreditTransaction journalEntry,
+                                                  Supplier<List<CreditEvent>> events) {
+            return Mono.fromCallable(() -> {
+                if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                    throw new InjectedFailure("unavailable");
+                }
+                CreditTransaction saved;
+                while (true) {
+                    Versioned read = documents.get(creditId);
+                    CreditTransaction previous = journalById.get(journalEntry.getId());
+                    if (previous != null) {
+                        saved = previous;
+                        break;
+                    }
+                    Credit updated = mutation.apply(read.credit());
+                    if (commit(creditId, read, updated, journalEntry, events.get())) {
+                        saved = journalEntry;
+                        break;
+                    }
+                    retries.incrementAndGet();
+                }
+                if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                    lostResponses.incrementAndGet();
+                    throw new InjectedFailure("deadline exceeded");
+                }
+                return saved;
+            });
+        }
+
+        @Override
+        public Mono<List<CreditTransaction>> updateBatch(String creditId, List<CreditTransaction> entries,
+                                                         BiFunction<Credit, CreditTransaction, Credit> mutation,
+                                                         Function<CreditTransaction, List<CreditEvent>> events) {
+            return Mono.fromCallable(() -> {
+                synchronized (this) {
+                    Credit current = documents.get(creditId).credit();
+                    List<CreditTransaction> results = new ArrayList<>(entries.size());
+                    for (CreditTransaction entry : entries) {
+                        CreditTransaction previous = journalById.get(entry.getId());
+                        if (previous != null) {
+                            results.add(previous);
+                            continue;
+                        }
+                        Credit updated = mutation.apply(current, entry);
+                        if (updated != null) {
+                            current = updated;
+                            journalById.put(entry.getId(), entry);
+                            journal.add(entry);
+                            enqueue(events.apply(entry));
+                        }
+                        results.add(updated == null ? null : entry);
+                    }
+                    Versioned read = documents.get(creditId);
+                    documents.put(creditId, new Versioned(current, read.version() + 1));
+                    batchCommits.incrementAndGet();
+                    return results;
+                }
+            });
+        }
+
+        private synchronized boolean commit(String creditId, Versioned read, Credit updated, CreditTransaction journalEntry,
+                                            List<CreditEvent> events) {
+            if (documents.get(creditId) != read || journalById.containsKey(journalEntry.getId())) {
+                return false;
+            }
+            documents.put(creditId, new Versioned(updated, read.version() + 1));
+            journalById.put(journalEntry.getId(), journalEntry);
+            journal.add(journalEntry);
+            enqueue(events);
+            return true;
+        }
+
+        private void enqueue(List<CreditEvent> events) {
+            events.forEach(event -> outbox.put(event.getEventId(), event));
+        }
+
+        record Versioned(Credit credit, long version) {
+        }
+    }
+
+    static final class InjectedFailure extends RuntimeException {
+        InjectedFailure(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.craftpilot.creditservice.service;
+
+import com.craftpilot.creditservice.idempotency.IdempotencyStore;
+import com.craftpilot.creditservice.ledger.CreditLedger;
+import com.craftpilot.creditservice.model.CreditDebitOutcome;
+import com.craftpilot.creditservice.model.CreditTransaction;
+import com.craftpilot.creditservice.repository.CreditRepository;
+import com.craftpilot.creditservice.repository.CreditTransactionRepository;
+import com.craftpilot.creditservice.usage.CreditUsageRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Defter açıkken Redis idempotency anahtarının süresi dolduktan sonra gelen tekrarın Firestore'daki işlem
+ * belgesinden yakalandığını doğrular.
+ */
+@ExtendWith(MockitoExtension.class)
+class CreditServiceIdempotencyTest {
+    private static final String USER_ID = "user-1";
+
+    @Mock
+    private CreditRepository creditRepository;
+
+    @Mock
+    private CreditTransactionRepository transactionRepository;
+
+    @Mock
+    private CreditLedger creditLedger;
+
+    @Mock
+    private CreditUsageRecorder usageRecorder;
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    private CreditService creditService;
+
+    @BeforeEach
+    void setUp() {
+        creditService = new CreditService(creditRepository, transactionRepository, new SimpleMeterRegistry(),
+                creditLedger, null, usageRecorder, idempotencyStore);
+        ReflectionTestUtils.setField(creditService, "ledgerEnabled", true);
+        // Redis anahtarı düşmüş: hızlı yol hiçbir zaman isabet etmez
+        lenient().when(idempotencyStore.find(anyString(), anyString())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void writtenTransactionIsReplayedWithoutTouchingLedger() {
+        String txId = IdempotencyStore.transactionId(USER_ID, "key-1");
+        CreditTransaction previous = CreditTransaction.builder().id(txId).userId(USER_ID).amount(BigDecimal.TEN).build();
+        when(transactionRepository.findById(txId)).thenReturn(Mono.just(previous));
+
+        CreditTransaction result = creditService.processTransaction(USER_ID, "llm", BigDecimal.TEN, "DEBIT",
+                "tekrar", "STANDARD", "key-1").block();
+
+        assertSame(previous, result);
+        verify(creditLedger, never()).apply(anyString(), any(CreditTransaction.class), any());
+        verify(idempotencyStore).rememberLocally(USER_ID, "key-1", previous);
+    }
+
+    @Test
+    void batchSkipsWrittenEntriesAndAppliesTheRest() {
+        CreditTransaction written = debit("key-1");
+        CreditTransaction fresh = debit("key-2");
+        String writtenId = IdempotencyStore.transactionId(USER_ID, "key-1");
+        CreditTransaction previous = CreditTransaction.builder().id(writtenId).userId(USER_ID).amount(BigDecimal.ONE).build();
+        when(transactionRepository.findAllById(anyList())).thenReturn(Mono.just(Map.of(writtenId, previous)));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CreditTransaction>> applied = ArgumentCaptor.forClass(List.class);
+        when(creditLedger.applyBatch(eq(USER_ID), applied.capture(), anyList())).thenReturn(Mono.just(List.of(
+                new CreditLedger.Result(CreditLedger.Status.ACCEPTED, 1, BigDecimal.TEN, BigDecimal.ONE, null))));
+
+        List<CreditDebitOutcome> outcomes = creditService.processBatchDebit(List.of(written, fresh)).block();
+
+        assertEquals(List.of(fresh), applied.getValue());
+        assertEquals(CreditDebitOutcome.Status.DUPLICATE, outcomes.get(0).status());
+        assertSame(previous, outcomes.get(0).transaction());
+        assertEquals(CreditDebitOutcome.Status.APPLIED, outcomes.get(1).status());
+        assertSame(fresh, outcomes.get(1).transaction());
+    }
+
+    private static CreditTransaction debit(String key) {
+        return CreditTransaction.builder()
+                .userId(USER_ID)
+                .amount(BigDecimal.ONE)
+                .creditType("STANDARD")
+                .idempotencyKey(key)
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.craftpilot.creditservice.usage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTopKTest {
+
+    @Test
+    void heavyHittersSurviveAmongManyLightUsers() {
+        SpaceSavingTopK sketch = new SpaceSavingTopK(100);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // 10 ağır kullanıcı trafiğin ~%30'u, geri kalanı 100k hafif kullanıcıya dağılır
+            String user = random.nextInt(10) < 3 ? "heavy-" + random.nextInt(10) : "user-" + random.nextInt(100_000);
+            long weight = 1 + random.nextInt(5);
+            sketch.offer(user, weight);
+            exact.merge(user, weight, Long::sum);
+        }
+
+        List<SpaceSavingTopK.Estimate> top = sketch.top(10);
+
+        assertEquals(100, sketch.size());
+        assertEquals(10, top.size());
+        for (SpaceSavingTopK.Estimate estimate : top) {
+            assertTrue(estimate.key().startsWith("heavy-"), estimate.key());
+            long actual = exact.get(estimate.key());
+            assertTrue(estimate.count() >= actual && estimate.count() - estimate.error() <= actual);
+        }
+    }
+
+    @Test
+    void exactWhileUnderCapacity() {
+        SpaceSavingTopK sketch = new SpaceSavingTopK(10);
+        sketch.offer("a", 5);
+        sketch.offer("b", 7);
+        sketch.offer("a", 4);
+
+        List<SpaceSavingTopK.Estimate> top = sketch.top(5);
+
+        assertEquals(List.of(new SpaceSavingTopK.Estimate("a", 9, 0), new SpaceSavingTopK.Estimate("b", 7, 0)), top);
+    }
+}
@@ -0,0 +1,70 @@
+package com.craftpilot.llmservice.benchmark;
+
+import com.craftpilot.llmservice.model.ChatHistory;
+import com.craftpilot.llmservice.model.Conversation;
+import com.google.cloud.Timestamp;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark'lar için sabit tohumlu sentetik veri üretir; her çalıştırma aynı veriyi kullanır.
+ */
+public final class BenchmarkData {
+
+    private static final String[] WORDS = {
+            "merhaba", "kod", "yazılım", "tablo", "performans", "istanbul", "proje", "uygulama",
+            "stream", "react", "spring", "veritabanı", "öneri", "analiz", "model", "sorgu"
+    };
+
+    private BenchmarkData() {
+    }
+
+    public static String text(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length + 16);
+        while (builder.length() < length) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return builder.substring(0, length);
+    }
+
+    public static ChatHistory chatHistory(Random random, String userId, int index, int conversationCount) {
+        // Son 90 güne yayılmış güncelleme zamanları: tüm kategoriler (today ... older) dolar
+        Instant updatedAt = Instant.now().minus(Duration.ofMinutes(random.nextInt(90 * 24 * 60)));
+        Timestamp updated = Timestamp.ofTimeSecondsAndNanos(updatedAt.getEpochSecond(), 0);
+
+        List<Conversation> conversations = new ArrayList<>(conversationCount);
+        for (int i = 0; i < conversationCount; i++) {
+            conversations.add(Conversation.builder()
+                    .id("conv-" + index + "-" + i)
+                    .role(i % 2 == 0 ? "user" : "assistant")
+                    .content(text(random, i % 2 == 0 ? 120 : 1200))
+                    .timestamp(updated)
+                    .orderIndex(i)
+                    .build());
+        }
+
+        return ChatHistory.builder()
+                .id("history-" + index)
+                .userId(userId)
+                .title(text(random, 40))
+                .createdAt(updated)
+                .updatedAt(updated)
+                .conversations(conversations)
+                .aiModel("google/gemini-2.0-flash-lite-001")
+                .enable(random.nextInt(10) != 0)
+                .build();
+    }
+
+    public static List<ChatHistory> chatHistories(String userId, int count, int conversationCount) {
+        Random random = new Random(42);
+        List<ChatHistory> histories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            histories.add(chatHistory(random, userId, i, conversationCount));
+        }
+        return histories;
+    }
+}
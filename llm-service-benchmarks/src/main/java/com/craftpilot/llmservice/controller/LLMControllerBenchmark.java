@@ -0,0 +1,60 @@
+package com.craftpilot.llmservice.controller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream chunk'larına uygulanan tablo temizleme (LLMController.cleanTableFormat)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LLMControllerBenchmark {
+
+    @Param({"markdownTable", "paddedTable", "plainText"})
+    private String shape;
+
+    private LLMController controller;
+    private String content;
+
+    @Setup
+    public void setUp() {
+        // cleanTableFormat controller bağımlılıklarını kullanmaz
+        controller = new LLMController(null, null, null);
+
+        StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < 40; row++) {
+            switch (shape) {
+                case "markdownTable" -> {
+                    if (row == 1) {
+                        builder.append("| --- | --- | --- |\n");
+                    }
+                    builder.append("| hücre ").append(row).append(" | değer | açıklama |\n");
+                }
+                case "paddedTable" -> builder.append("|            hücre ").append(row)
+                        .append(" |              değer |\n\n\n\n");
+                default -> builder.append("Düz metin satırı ").append(row).append(" içinde tablo yok.\n");
+            }
+        }
+        content = builder.toString();
+    }
+
+    @Benchmark
+    public String cleanTableFormat() {
+        return controller.cleanTableFormat(content);
+    }
+}
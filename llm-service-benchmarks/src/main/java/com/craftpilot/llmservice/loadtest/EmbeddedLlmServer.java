@@ -0,0 +1,115 @@
+package com.craftpilot.llmservice.loadtest;
+
+import com.craftpilot.llmservice.config.OpenRouterProperties;
+import com.craftpilot.llmservice.config.WebClientConfig;
+import com.craftpilot.llmservice.controller.LLMController;
+import com.craftpilot.llmservice.service.ChatCompletionService;
+import com.craftpilot.llmservice.service.ChatEnhancementService;
+import com.craftpilot.llmservice.service.LLMService;
+import com.craftpilot.llmservice.service.PromptEnhancementService;
+import com.craftpilot.llmservice.service.StreamingService;
+import com.craftpilot.llmservice.service.UserInformationExtractionService;
+import com.craftpilot.llmservice.service.client.OpenRouterClient;
+import com.craftpilot.llmservice.util.ResponseExtractor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Map;
+
+/**
+ * Yalnızca LLMController ve OpenRouter yolunu (OpenRouterClient, StreamingService, ChatCompletionService)
+ * içeren hafif bir WebFlux sunucusu. Firestore, Redis, Kafka ve Eureka gerektirmez;
+ * openRouterWebClient gerçek WebClientConfig ile, openrouter.api.url simülatöre verilerek oluşturulur.
+ */
+@Slf4j
+public class EmbeddedLlmServer implements AutoCloseable {
+
+    private final AnnotationConfigApplicationContext context;
+    private final DisposableServer server;
+
+    public EmbeddedLlmServer(String openRouterBaseUrl, int port) {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("loadtest", Map.of(
+                "openrouter.api.url", openRouterBaseUrl,
+                "openrouter.api.key", "simulator")));
+        context.register(LlmPathConfiguration.class);
+        context.refresh();
+
+        ReactorHttpHandlerAdapter adapter = new ReactorHttpHandlerAdapter(
+                WebHttpHandlerBuilder.applicationContext(context).build());
+        server = HttpServer.create().port(port).handle(adapter).bindNow();
+        log.info("Gömülü llm-service (LLMController) dinleniyor: {}", baseUrl());
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        context.close();
+    }
+
+    @Configuration
+    @EnableWebFlux
+    @Import(WebClientConfig.class)
+    static class LlmPathConfiguration {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        OpenRouterProperties openRouterProperties() {
+            return new OpenRouterProperties();
+        }
+
+        @Bean
+        ResponseExtractor responseExtractor(ObjectMapper objectMapper) {
+            return new ResponseExtractor(objectMapper);
+        }
+
+        @Bean
+        OpenRouterClient openRouterClient(WebClient openRouterWebClient, OpenRouterProperties properties,
+                                          ResponseExtractor responseExtractor, ObjectMapper objectMapper,
+                                          MeterRegistry meterRegistry) {
+            return new OpenRouterClient(openRouterWebClient, properties, responseExtractor, objectMapper, meterRegistry);
+        }
+
+        @Bean
+        LLMService llmService(OpenRouterClient openRouterClient, ResponseExtractor responseExtractor,
+                              OpenRouterProperties properties) {
+            return new LLMService(
+                    new ChatCompletionService(openRouterClient, responseExtractor, properties),
+                    new PromptEnhancementService(openRouterClient, responseExtractor, properties),
+                    new StreamingService(openRouterClient, responseExtractor, properties));
+        }
+
+        @Bean
+        LLMController llmController(LLMService llmService) {
+            // Sürücü X-User-Id göndermez; bellek çıkarımı ve zenginleştirme yolu devreye girmez
+            UserInformationExtractionService extractionService = new UserInformationExtractionService(null, llmService);
+            return new LLMController(llmService, new ChatEnhancementService(null, extractionService), extractionService);
+        }
+    }
+}
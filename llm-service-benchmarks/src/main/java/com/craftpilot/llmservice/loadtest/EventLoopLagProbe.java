@@ -0,0 +1,58 @@
+package com.craftpilot.llmservice.loadtest;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import reactor.netty.http.HttpResources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reactor Netty event loop'larının doygunluğunu ölçer: her loop'a periyodik olarak boş bir görev
+ * gönderilir ve görevin kuyrukta beklediği süre (lag) kaydedilir. Lag büyüdükçe loop'lar meşguldür.
+ */
+public class EventLoopLagProbe implements AutoCloseable {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-loop-lag-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LatencyStats lag = new LatencyStats();
+    private final List<EventLoop> loops = new ArrayList<>();
+
+    public EventLoopLagProbe start(long intervalMillis) {
+        EventLoopGroup group = HttpResources.get().onServer(false);
+        for (EventExecutor executor : group) {
+            if (executor instanceof EventLoop loop) {
+                loops.add(loop);
+            }
+        }
+        scheduler.scheduleAtFixedRate(this::probe, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    public LatencyStats lag() {
+        return lag;
+    }
+
+    public int loopCount() {
+        return loops.size();
+    }
+
+    private void probe() {
+        for (EventLoop loop : loops) {
+            long submittedAt = System.nanoTime();
+            loop.execute(() -> lag.record(System.nanoTime() - submittedAt));
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
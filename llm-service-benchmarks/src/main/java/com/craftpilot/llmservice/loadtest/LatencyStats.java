@@ -0,0 +1,49 @@
+package com.craftpilot.llmservice.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Nanosaniye cinsinden gecikme örneklerini toplar ve yüzdelik dilimleri milisaniye olarak raporlar
+ */
+public class LatencyStats {
+
+    private final ConcurrentLinkedQueue<Long> samples = new ConcurrentLinkedQueue<>();
+
+    public void record(long nanos) {
+        samples.add(nanos);
+    }
+
+    public int count() {
+        return samples.size();
+    }
+
+    public Map<String, Object> summary() {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", sorted.length);
+        if (sorted.length == 0) {
+            return summary;
+        }
+        summary.put("minMs", toMillis(sorted[0]));
+        summary.put("p50Ms", toMillis(percentile(sorted, 50)));
+        summary.put("p90Ms", toMillis(percentile(sorted, 90)));
+        summary.put("p99Ms", toMillis(percentile(sorted, 99)));
+        summary.put("p999Ms", toMillis(percentile(sorted, 99.9)));
+        summary.put("maxMs", toMillis(sorted[sorted.length - 1]));
+        return summary;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
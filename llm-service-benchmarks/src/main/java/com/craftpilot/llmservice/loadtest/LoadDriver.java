@@ -0,0 +1,207 @@
+package com.craftpilot.llmservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * LLMController'a eşzamanlı stream ve stream olmayan oturumlar gönderir; throughput, TTFT,
+ * toplam gecikme ve (gömülü modda) aktif stream başına heap kullanımını ölçer.
+ * Kendi event loop'larında çalışır, böylece ölçülen sunucunun loop'larını meşgul etmez.
+ */
+@Slf4j
+public class LoadDriver {
+
+    @Value
+    @Builder
+    public static class Settings {
+        String targetBaseUrl;
+        @Builder.Default
+        int totalSessions = 2000;
+        @Builder.Default
+        int concurrency = 500;
+        // Stream oturumlarının oranı (0.0 - 1.0)
+        @Builder.Default
+        double streamingRatio = 0.8;
+        @Builder.Default
+        String model = "google/gemini-2.0-flash-lite-001";
+        @Builder.Default
+        boolean sampleHeap = true;
+    }
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LatencyStats ttft = new LatencyStats();
+    private final LatencyStats streamLatency = new LatencyStats();
+    private final LatencyStats completionLatency = new LatencyStats();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger peakActiveStreams = new AtomicInteger();
+    private final AtomicLong heapAtPeak = new AtomicLong();
+
+    public LoadDriver(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Map<String, Object> run() {
+        ConnectionProvider provider = ConnectionProvider.builder("loadtest-driver")
+                .maxConnections(settings.getConcurrency())
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(5))
+                .build();
+        LoopResources loops = LoopResources.create("loadtest-driver");
+        HttpClient client = HttpClient.create(provider)
+                .runOn(loops)
+                .baseUrl(settings.getTargetBaseUrl())
+                .responseTimeout(Duration.ofMinutes(5));
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+
+        Flux<Long> heapSampler = Flux.interval(Duration.ofMillis(100))
+                .doOnNext(tick -> sampleHeap(memory));
+
+        long startedAt = System.nanoTime();
+        Disposable sampling = settings.isSampleHeap() ? heapSampler.subscribe() : null;
+        try {
+            Flux.range(0, settings.getTotalSessions())
+                    .flatMap(i -> ThreadLocalRandom.current().nextDouble() < settings.getStreamingRatio()
+                            ? streamingSession(client, i)
+                            : completionSession(client, i), settings.getConcurrency())
+                    .blockLast();
+        } finally {
+            if (sampling != null) {
+                sampling.dispose();
+            }
+            provider.disposeLater().block();
+            loops.disposeLater().block();
+        }
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("target", settings.getTargetBaseUrl());
+        report.put("sessions", settings.getTotalSessions());
+        report.put("concurrency", settings.getConcurrency());
+        report.put("elapsedSeconds", Math.round(elapsedSeconds * 1000) / 1000.0);
+        report.put("throughputPerSecond", Math.round(settings.getTotalSessions() / elapsedSeconds * 10) / 10.0);
+        report.put("outcomes", outcomes.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum())));
+        report.put("ttft", ttft.summary());
+        report.put("streamLatency", streamLatency.summary());
+        report.put("completionLatency", completionLatency.summary());
+        if (settings.isSampleHeap()) {
+            int peak = peakActiveStreams.get();
+            report.put("peakActiveStreams", peak);
+            // Çöp dahil kaba bir tahmin: en yüksek eşzamanlılıktaki heap artışı / aktif stream
+            report.put("approxHeapBytesPerActiveStream",
+                    peak > 0 ? Math.max(0, heapAtPeak.get() - baselineHeap) / peak : 0);
+        }
+        return report;
+    }
+
+    private Mono<Void> streamingSession(HttpClient client, int index) {
+        long startedAt = System.nanoTime();
+        AtomicBoolean firstToken = new AtomicBoolean();
+        AtomicBoolean errorEvent = new AtomicBoolean();
+        int active = activeStreams.incrementAndGet();
+        peakActiveStreams.accumulateAndGet(active, Math::max);
+
+        return client.headers(headers -> headers
+                        .set(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                        .set(HttpHeaderNames.ACCEPT, "text/event-stream")
+                        .set("X-Request-ID", "loadtest-" + index))
+                .post()
+                .uri("/chat/completions/stream")
+                .send(ByteBufFlux.fromString(Mono.fromCallable(() -> requestBody(index))))
+                .response((response, content) -> {
+                    int status = response.status().code();
+                    return content.asString()
+                            .doOnNext(chunk -> {
+                                if (!firstToken.get() && chunk.contains("event:message")
+                                        && firstToken.compareAndSet(false, true)) {
+                                    ttft.record(System.nanoTime() - startedAt);
+                                }
+                                if (chunk.contains("event:error")) {
+                                    errorEvent.set(true);
+                                }
+                            })
+                            .then(Mono.just(status));
+                })
+                .next()
+                .doOnNext(status -> {
+                    streamLatency.record(System.nanoTime() - startedAt);
+                    count(status == 200 && !errorEvent.get() ? "stream_ok" : "stream_" + (errorEvent.get() ? "error_event" : status));
+                })
+                .onErrorResume(e -> {
+                    count("stream_" + e.getClass().getSimpleName());
+                    return Mono.empty();
+                })
+                .doFinally(signal -> activeStreams.decrementAndGet())
+                .then();
+    }
+
+    private Mono<Void> completionSession(HttpClient client, int index) {
+        long startedAt = System.nanoTime();
+
+        return client.headers(headers -> headers
+                        .set(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                        .set(HttpHeaderNames.ACCEPT, "application/json"))
+                .post()
+                .uri("/chat/completions")
+                .send(ByteBufFlux.fromString(Mono.fromCallable(() -> requestBody(index))))
+                .responseSingle((response, content) -> content.asString()
+                        .defaultIfEmpty("")
+                        .map(body -> response.status().code()))
+                .doOnNext(status -> {
+                    completionLatency.record(System.nanoTime() - startedAt);
+                    count(status == 200 ? "completion_ok" : "completion_" + status);
+                })
+                .onErrorResume(e -> {
+                    count("completion_" + e.getClass().getSimpleName());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private String requestBody(int index) throws Exception {
+        return objectMapper.writeValueAsString(Map.of(
+                "model", settings.getModel(),
+                "messages", List.of(Map.of("role", "user", "content", "Yük testi mesajı #" + index))));
+    }
+
+    private void sampleHeap(MemoryMXBean memory) {
+        int active = activeStreams.get();
+        if (active > 0 && active >= peakActiveStreams.get()) {
+            heapAtPeak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+}
@@ -0,0 +1,131 @@
+package com.craftpilot.llmservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Ücretli upstream'e gitmeden llm-service yük testi.
+ *
+ * <pre>
+ * # Simülatör + gömülü LLMController + sürücü tek süreçte (varsayılan)
+ * java -cp target/benchmarks.jar com.craftpilot.llmservice.loadtest.LoadHarness --sessions=5000 --concurrency=1000
+ *
+ * # Yalnızca simülatör; gerçek llm-service --openrouter.api.url=http://localhost:18080/api/v1 ile başlatılır
+ * java -cp target/benchmarks.jar com.craftpilot.llmservice.loadtest.LoadHarness --mode=simulator --port=18080
+ *
+ * # Yalnızca sürücü, çalışan bir llm-service'e karşı
+ * java -cp target/benchmarks.jar com.craftpilot.llmservice.loadtest.LoadHarness --mode=drive --target=http://localhost:8066
+ * </pre>
+ *
+ * Simülatör ayarları: --ttftMs, --tokensPerSecond, --tokensPerResponse, --errorRate,
+ * --burstIntervalMs, --burstDurationMs. Rapor target/loadtest-result.json dosyasına da yazılır.
+ */
+@Slf4j
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String mode = options.getOrDefault("mode", "embedded");
+
+        switch (mode) {
+            case "simulator" -> runSimulator(options);
+            case "drive" -> report(options, new LoadDriver(driverSettings(options, options.get("target"), false)).run());
+            default -> runEmbedded(options);
+        }
+    }
+
+    private static void runEmbedded(Map<String, String> options) throws Exception {
+        try (OpenRouterSimulator simulator = new OpenRouterSimulator(simulatorSettings(options, 0)).start();
+             EmbeddedLlmServer llmServer = new EmbeddedLlmServer(simulator.baseUrl(), 0);
+             EventLoopLagProbe probe = new EventLoopLagProbe().start(10)) {
+
+            Map<String, Object> result = new LinkedHashMap<>(
+                    new LoadDriver(driverSettings(options, llmServer.baseUrl(), true)).run());
+
+            Map<String, Object> eventLoop = new LinkedHashMap<>();
+            eventLoop.put("loops", probe.loopCount());
+            eventLoop.put("lag", probe.lag().summary());
+            result.put("serverEventLoop", eventLoop);
+
+            Map<String, Object> upstream = new LinkedHashMap<>();
+            upstream.put("requests", simulator.requestCount());
+            upstream.put("injectedErrors", simulator.injectedErrorCount());
+            upstream.put("rateLimited", simulator.rateLimitedCount());
+            result.put("simulator", upstream);
+
+            report(options, result);
+        }
+    }
+
+    private static void runSimulator(Map<String, String> options) throws InterruptedException {
+        OpenRouterSimulator simulator = new OpenRouterSimulator(
+                simulatorSettings(options, Integer.parseInt(options.getOrDefault("port", "18080")))).start();
+        log.info("llm-service'i --openrouter.api.url={} ile başlatın", simulator.baseUrl());
+        CountDownLatch shutdown = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            simulator.close();
+            shutdown.countDown();
+        }));
+        shutdown.await();
+    }
+
+    private static OpenRouterSimulator.Settings simulatorSettings(Map<String, String> options, int port) {
+        return OpenRouterSimulator.Settings.builder()
+                .port(port)
+                .ttft(Duration.ofMillis(Long.parseLong(options.getOrDefault("ttftMs", "300"))))
+                .tokensPerSecond(Integer.parseInt(options.getOrDefault("tokensPerSecond", "50")))
+                .tokensPerResponse(Integer.parseInt(options.getOrDefault("tokensPerResponse", "200")))
+                .errorRate(Double.parseDouble(options.getOrDefault("errorRate", "0")))
+                .burstInterval(Duration.ofMillis(Long.parseLong(options.getOrDefault("burstIntervalMs", "0"))))
+                .burstDuration(Duration.ofMillis(Long.parseLong(options.getOrDefault("burstDurationMs", "0"))))
+                .build();
+    }
+
+    private static LoadDriver.Settings driverSettings(Map<String, String> options, String target, boolean sampleHeap) {
+        if (target == null) {
+            throw new IllegalArgumentException("--target=http://host:port gerekli");
+        }
+        return LoadDriver.Settings.builder()
+                .targetBaseUrl(target)
+                .totalSessions(Integer.parseInt(options.getOrDefault("sessions", "2000")))
+                .concurrency(Integer.parseInt(options.getOrDefault("concurrency", "500")))
+                .streamingRatio(Double.parseDouble(options.getOrDefault("streamingRatio", "0.8")))
+                .sampleHeap(sampleHeap)
+                .build();
+    }
+
+    private static void report(Map<String, String> options, Map<String, Object> result) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        String json = objectMapper.writeValueAsString(result);
+        System.out.println(json);
+
+        File output = new File(options.getOrDefault("result", "target/loadtest-result.json"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        objectMapper.writeValue(output, result);
+        log.info("Yük testi raporu yazıldı: {}", output.getAbsolutePath());
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,243 @@
+package com.craftpilot.llmservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpMethod;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OpenRouter /chat/completions uç noktasını JSON ve SSE formatlarında taklit eden gömülü sunucu.
+ * llm-service, openrouter.api.url bu sunucuya yönlendirilerek ücretli upstream olmadan yük altında test edilir.
+ */
+@Slf4j
+public class OpenRouterSimulator implements AutoCloseable {
+
+    @Value
+    @Builder
+    public static class Settings {
+        @Builder.Default
+        int port = 0;
+        // İlk token'a kadar geçen süre
+        @Builder.Default
+        Duration ttft = Duration.ofMillis(300);
+        // Saniyede üretilen token (stream parçası) sayısı
+        @Builder.Default
+        int tokensPerSecond = 50;
+        @Builder.Default
+        int tokensPerResponse = 200;
+        // 500 döndürülecek isteklerin oranı (0.0 - 1.0)
+        @Builder.Default
+        double errorRate = 0.0;
+        // Her burstInterval'da burstDuration boyunca tüm istekler 429 alır; sıfır ise kapalı
+        @Builder.Default
+        Duration burstInterval = Duration.ZERO;
+        @Builder.Default
+        Duration burstDuration = Duration.ZERO;
+    }
+
+    private static final String TOKEN = "lorem ";
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long startedAtNanos = System.nanoTime();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private LoopResources loops;
+    private DisposableServer server;
+
+    public OpenRouterSimulator(Settings settings) {
+        this.settings = settings;
+    }
+
+    public OpenRouterSimulator start() {
+        loops = LoopResources.create("openrouter-simulator");
+        server = HttpServer.create()
+                .runOn(loops)
+                .port(settings.getPort())
+                .handle(this::handle)
+                .bindNow();
+        log.info("OpenRouter simulator dinleniyor: {}", baseUrl());
+        return this;
+    }
+
+    /**
+     * openrouter.api.url olarak verilecek adres
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.port() + "/api/v1";
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long injectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    public long rateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.disposeNow();
+            loops.disposeLater().block();
+        }
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        String path = request.path();
+        if (request.method() == HttpMethod.GET && path.endsWith("models")) {
+            return response.header("Content-Type", "application/json")
+                    .sendString(Mono.just("{\"data\":[]}"))
+                    .then();
+        }
+        if (request.method() != HttpMethod.POST || !path.endsWith("chat/completions")) {
+            return response.status(404).send();
+        }
+        requests.incrementAndGet();
+
+        return request.receive().aggregate().asString()
+                .defaultIfEmpty("{}")
+                .flatMap(body -> {
+                    if (inRateLimitBurst()) {
+                        rateLimited.incrementAndGet();
+                        return response.status(429)
+                                .header("Content-Type", "application/json")
+                                .header("Retry-After", String.valueOf(Math.max(1, settings.getBurstDuration().toSeconds())))
+                                .sendString(Mono.just("{\"error\":{\"code\":429,\"message\":\"Rate limit exceeded\"}}"))
+                                .then();
+                    }
+                    if (settings.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < settings.getErrorRate()) {
+                        injectedErrors.incrementAndGet();
+                        return response.status(500)
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"error\":{\"code\":500,\"message\":\"Injected upstream error\"}}"))
+                                .then();
+                    }
+
+                    JsonNode json = readBody(body);
+                    String model = json.path("model").asText("simulator/model");
+                    if (json.path("stream").asBoolean(false)) {
+                        return streamResponse(response, model);
+                    }
+                    return jsonResponse(response, model);
+                });
+    }
+
+    private Mono<Void> jsonResponse(HttpServerResponse response, String model) {
+        Duration generation = Duration.ofMillis(1000L * settings.getTokensPerResponse() / settings.getTokensPerSecond());
+        return Mono.delay(settings.getTtft().plus(generation))
+                .then(response.status(200)
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.fromCallable(() -> completionJson(model)))
+                        .then());
+    }
+
+    private Mono<Void> streamResponse(HttpServerResponse response, String model) {
+        Duration tokenInterval = Duration.ofNanos(1_000_000_000L / settings.getTokensPerSecond());
+
+        Flux<String> events = Flux.concat(
+                Flux.just(": OPENROUTER PROCESSING\n\n"),
+                Mono.delay(settings.getTtft()).thenMany(
+                        Flux.interval(Duration.ZERO, tokenInterval)
+                                .take(settings.getTokensPerResponse())
+                                .map(i -> sse(deltaChunk(model, TOKEN)))),
+                Mono.fromCallable(() -> sse(finalChunk(model))),
+                Mono.just("data: [DONE]\n\n"));
+
+        return response.status(200)
+                .header("Content-Type", "text/event-stream")
+                .header("Cache-Control", "no-cache")
+                .sendString(events)
+                .then();
+    }
+
+    private boolean inRateLimitBurst() {
+        long intervalNanos = settings.getBurstInterval().toNanos();
+        if (intervalNanos <= 0 || settings.getBurstDuration().isZero()) {
+            return false;
+        }
+        long position = (System.nanoTime() - startedAtNanos) % intervalNanos;
+        return position < settings.getBurstDuration().toNanos();
+    }
+
+    private JsonNode readBody(String body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (Exception e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+
+    private String sse(String json) {
+        return "data: " + json + "\n\n";
+    }
+
+    private String deltaChunk(String model, String content) {
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("id", "gen-simulator");
+        chunk.put("model", model);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("choices", List.of(Map.of("index", 0, "delta", Map.of("role", "assistant", "content", content))));
+        return write(chunk);
+    }
+
+    private String finalChunk(String model) {
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("id", "gen-simulator");
+        chunk.put("model", model);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("choices", List.of(Map.of("index", 0, "delta", Map.of(), "finish_reason", "stop")));
+        chunk.put("usage", usage());
+        return write(chunk);
+    }
+
+    private String completionJson(String model) {
+        Map<String, Object> completion = new LinkedHashMap<>();
+        completion.put("id", "gen-simulator");
+        completion.put("model", model);
+        completion.put("object", "chat.completion");
+        completion.put("choices", List.of(Map.of(
+                "index", 0,
+                "finish_reason", "stop",
+                "message", Map.of("role", "assistant", "content", TOKEN.repeat(settings.getTokensPerResponse())))));
+        completion.put("usage", usage());
+        return write(completion);
+    }
+
+    private Map<String, Object> usage() {
+        return Map.of(
+                "prompt_tokens", 64,
+                "completion_tokens", settings.getTokensPerResponse(),
+                "total_tokens", 64 + settings.getTokensPerResponse(),
+                "prompt_tokens_details", Map.of("cached_tokens", 0));
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
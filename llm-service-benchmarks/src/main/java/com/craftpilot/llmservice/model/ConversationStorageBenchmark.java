@@ -0,0 +1,161 @@
+package com.craftpilot.llmservice.model;
+
+import com.craftpilot.llmservice.benchmark.BenchmarkData;
+import com.craftpilot.llmservice.util.FirestoreDocumentSize;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FirestoreOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /histories/{id} için Firestore belge boyutu ve eşleme maliyeti: düz metin saklanan
+ * (önceki) belge ile eşik üstü mesajları sıkıştırılmış (sonraki) belge karşılaştırılır.
+ * Eşleme Firestore SDK'nın kendi CustomClassMapper'ı ile yapılır; okunan bayt tahmini
+ * kurulum sırasında yazdırılır.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationStorageBenchmark {
+
+    private Method convertToCustomClass;
+    private DocumentReference documentRef;
+    private Map<String, Object> plainDocument;
+    private Map<String, Object> compressedDocument;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        Class<?> mapper = Class.forName("com.google.cloud.firestore.CustomClassMapper");
+        convertToCustomClass = mapper.getDeclaredMethod("convertToCustomClass", Object.class, Class.class, DocumentReference.class);
+        convertToCustomClass.setAccessible(true);
+        Method convertToPlain = mapper.getDeclaredMethod("convertToPlainJavaTypes", Map.class);
+        convertToPlain.setAccessible(true);
+        // @DocumentId eşlemesi için referans gerekir; ağ çağrısı yapılmaz
+        documentRef = FirestoreOptions.newBuilder()
+                .setProjectId("benchmark")
+                .setCredentials(NoCredentials.getInstance())
+                .build()
+                .getService()
+                .collection("chatHistories")
+                .document("history-0");
+
+        ChatHistory history = largeHistory(new Random(3));
+        Map<String, Object> wrapper = new HashMap<>();
+        wrapper.put("doc", history);
+        compressedDocument = (Map<String, Object>) ((Map<String, Object>) convertToPlain.invoke(null, wrapper)).get("doc");
+
+        // Önceki düzen: tüm içerik düz metin, lastConversation son mesajın tamamı
+        plainDocument = new HashMap<>(compressedDocument);
+        List<Map<String, Object>> plainConversations = new ArrayList<>();
+        for (Conversation conversation : history.getConversations()) {
+            Map<String, Object> plain = new HashMap<>();
+            plain.put("id", conversation.getId());
+            plain.put("role", conversation.getRole());
+            plain.put("content", conversation.getContent());
+            plain.put("orderIndex", conversation.getOrderIndex());
+            plain.put("timestamp", conversation.getTimestamp());
+            plainConversations.add(plain);
+        }
+        plainDocument.put("conversations", plainConversations);
+        String lastContent = history.getConversations().get(history.getConversations().size() - 1).getContent();
+        plainDocument.put("lastConversation", lastContent);
+
+        ChatHistory before = read(plainDocument);
+        before.setLastConversation(lastContent);
+        ChatHistory after = read(compressedDocument);
+        long beforeBytes = FirestoreDocumentSize.estimate(before);
+        long afterBytes = FirestoreDocumentSize.estimate(after);
+        System.out.printf("Bytes read per /histories/{id}: before=%d after=%d (%.1f%%)%n",
+                beforeBytes, afterBytes, 100.0 * afterBytes / beforeBytes);
+    }
+
+    @Benchmark
+    public ChatHistory readPlainDocument() throws Exception {
+        return read(plainDocument);
+    }
+
+    /**
+     * Listeleme yolu: içerik çözülmez
+     */
+    @Benchmark
+    public ChatHistory readCompressedDocument() throws Exception {
+        return read(compressedDocument);
+    }
+
+    /**
+     * Detay yolu: tüm mesajların içeriği istenir, sıkıştırılmış olanlar çözülür
+     */
+    @Benchmark
+    public int readCompressedDocumentWithContent() throws Exception {
+        int length = 0;
+        for (Conversation conversation : read(compressedDocument).getConversations()) {
+            length += conversation.getContent().length();
+        }
+        return length;
+    }
+
+    private ChatHistory read(Map<String, Object> document) throws Exception {
+        return (ChatHistory) convertToCustomClass.invoke(null, document, ChatHistory.class, documentRef);
+    }
+
+    /**
+     * Kod bloğu ve tablo içeren onlarca KB'lik asistan yanıtlarından oluşan 30 mesajlık sohbet
+     */
+    private static ChatHistory largeHistory(Random random) {
+        ChatHistory history = BenchmarkData.chatHistory(random, "benchmark-user", 0, 0);
+        List<Conversation> conversations = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String content = i % 2 == 0 ? BenchmarkData.text(random, 160) : assistantAnswer(random, 8 + random.nextInt(24));
+            conversations.add(Conversation.builder()
+                    .id("conv-" + i)
+                    .role(i % 2 == 0 ? "user" : "assistant")
+                    .content(content)
+                    .timestamp(history.getUpdatedAt())
+                    .orderIndex(i)
+                    .build());
+        }
+        history.setConversations(conversations);
+        history.setLastConversation(ChatHistory.previewOf(conversations.get(conversations.size() - 1).getContent()));
+        return history;
+    }
+
+    private static String assistantAnswer(Random random, int sections) {
+        StringBuilder builder = new StringBuilder();
+        for (int s = 0; s < sections; s++) {
+            builder.append("## ").append(BenchmarkData.text(random, 30)).append("\n\n")
+                    .append(BenchmarkData.text(random, 400)).append("\n\n```java\n");
+            for (int line = 0; line < 12; line++) {
+                builder.append("    public void ").append(BenchmarkData.text(random, 12).replace(' ', '_'))
+                        .append(line).append("() { return service.call(\"").append(BenchmarkData.text(random, 20)).append("\"); }\n");
+            }
+            builder.append("```\n\n| Alan | Değer | Açıklama |\n|---|---|---|\n");
+            for (int row = 0; row < 6; row++) {
+                builder.append("| ").append(BenchmarkData.text(random, 10)).append(" | ").append(random.nextInt(1000))
+                        .append(" | ").append(BenchmarkData.text(random, 40)).append(" |\n");
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.craftpilot.llmservice.service;
+
+import com.craftpilot.llmservice.benchmark.BenchmarkData;
+import com.craftpilot.llmservice.config.ChatSearchProperties;
+import com.craftpilot.llmservice.model.ChatHistory;
+import com.craftpilot.llmservice.model.response.ChatItem;
+import com.craftpilot.llmservice.model.response.PaginatedChatHistoryResponse;
+import com.craftpilot.llmservice.repository.ChatHistoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sohbet geçmişi listeleme: ChatItem dönüşümü ve 10k geçmişli kullanıcı için
+ * kategorilere ayırma/sıralama/sayfalama (Firestore okuması hariç)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ChatHistoryServiceBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+
+    @Param({"10000"})
+    private int historyCount;
+
+    private ChatHistoryService chatHistoryService;
+    private ChatHistory largeHistory;
+
+    @Setup
+    public void setUp() {
+        List<ChatHistory> histories = BenchmarkData.chatHistories(USER_ID, historyCount, 6);
+        InMemoryChatHistoryRepository repository = new InMemoryChatHistoryRepository(histories);
+        // Arama indeksi kapalı: categorizedWithSearch eski başlık taramasını ölçer
+        ChatSearchProperties searchProperties = new ChatSearchProperties();
+        searchProperties.setEnabled(false);
+        chatHistoryService = new ChatHistoryService(repository, null,
+                new ChatSearchService(null, repository, searchProperties));
+        largeHistory = BenchmarkData.chatHistory(new Random(11), USER_ID, 0, 200);
+    }
+
+    @Benchmark
+    public ChatItem convertToChatItem() {
+        return chatHistoryService.convertToChatItem(largeHistory);
+    }
+
+    @Benchmark
+    public PaginatedChatHistoryResponse categorizedFirstPage() {
+        return chatHistoryService.getChatHistoriesByUserIdCategorized(
+                USER_ID, 1, 20, null, null, "updatedAt", "desc", false).block();
+    }
+
+    @Benchmark
+    public PaginatedChatHistoryResponse categorizedWithSearch() {
+        return chatHistoryService.getChatHistoriesByUserIdCategorized(
+                USER_ID, 1, 20, null, "performans", "createdAt", "desc", null).block();
+    }
+
+    /**
+     * Firestore yerine önceden üretilmiş geçmişleri döndüren repository
+     */
+    static final class InMemoryChatHistoryRepository extends ChatHistoryRepository {
+        private final List<ChatHistory> histories;
+
+        InMemoryChatHistoryRepository(List<ChatHistory> histories) {
+            super(null, new SimpleMeterRegistry());
+            this.histories = histories;
+        }
+
+        @Override
+        public Flux<ChatHistory> findAllByUserId(String userId, int page, int pageSize) {
+            return Flux.fromIterable(histories);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.craftpilot.llmservice.service;
+
+import com.craftpilot.llmservice.config.ChatSearchProperties;
+import com.craftpilot.llmservice.model.ChatHistory;
+import com.craftpilot.llmservice.model.Conversation;
+import com.craftpilot.llmservice.model.response.ChatSearchResult;
+import com.craftpilot.llmservice.repository.ChatSearchIndexRepository;
+import com.craftpilot.llmservice.util.SearchTextNormalizer;
+import com.google.cloud.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Kullanıcı başına 50k mesajlık geçmişte arama: ters indeks sorgusu (tek terim, çok terim, prefix)
+ * ile eski başlık taraması ve naif içerik taraması karşılaştırılır. Redis yerine bellek içi
+ * indeks kullanılır; ölçülen maliyet ağ gidiş-dönüşü hariç sıralama + posting okumasıdır.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ChatSearchBenchmark {
+
+    private static final String USER_ID = "benchmark-user";
+    private static final int MESSAGES_PER_HISTORY = 50;
+
+    @Param({"50000"})
+    private int messageCount;
+
+    private List<ChatHistory> histories;
+    private ChatSearchService chatSearchService;
+    private String commonTerm;
+    private String multiTermQuery;
+    private String prefixQuery;
+    private ChatHistory appendTarget;
+    private Conversation appendedConversation;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        String[] vocabulary = vocabulary(random, 20_000);
+        histories = new ArrayList<>();
+        int historyCount = messageCount / MESSAGES_PER_HISTORY;
+        Timestamp now = Timestamp.now();
+        for (int h = 0; h < historyCount; h++) {
+            List<Conversation> conversations = new ArrayList<>(MESSAGES_PER_HISTORY);
+            for (int m = 0; m < MESSAGES_PER_HISTORY; m++) {
+                conversations.add(Conversation.builder()
+                        .id("conv-" + h + "-" + m)
+                        .role(m % 2 == 0 ? "user" : "assistant")
+                        .content(zipfText(random, vocabulary, m % 2 == 0 ? 20 : 160))
+                        .timestamp(now)
+                        .orderIndex(m)
+                        .build());
+            }
+            histories.add(ChatHistory.builder()
+                    .id("history-" + h)
+                    .userId(USER_ID)
+                    .title(zipfText(random, vocabulary, 5))
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .conversations(conversations)
+                    .enable(true)
+                    .build());
+        }
+
+        ChatSearchProperties properties = new ChatSearchProperties();
+        properties.setTimeout(Duration.ofSeconds(30));
+        chatSearchService = new ChatSearchService(new InMemoryChatSearchIndexRepository(), null, properties);
+        Flux.fromIterable(histories).concatMap(chatSearchService::indexHistory).blockLast();
+
+        commonTerm = vocabulary[40];
+        multiTermQuery = vocabulary[40] + " " + vocabulary[900];
+        prefixQuery = vocabulary[300].substring(0, 3);
+        appendTarget = histories.get(0);
+        appendedConversation = Conversation.builder()
+                .id("conv-append")
+                .role("user")
+                .content(zipfText(random, vocabulary, 160))
+                .build();
+    }
+
+    @Benchmark
+    public List<ChatSearchResult> indexedSingleTerm() {
+        return chatSearchService.search(USER_ID, commonTerm, 20).block();
+    }
+
+    @Benchmark
+    public List<ChatSearchResult> indexedMultiTerm() {
+        return chatSearchService.search(USER_ID, multiTermQuery, 20).block();
+    }
+
+    @Benchmark
+    public List<ChatSearchResult> indexedPrefix() {
+        return chatSearchService.search(USER_ID, prefixQuery, 20).block();
+    }
+
+    @Benchmark
+    public Void indexConversation() {
+        return chatSearchService.indexConversation(appendTarget, appendedConversation).block();
+    }
+
+    /**
+     * Eski davranış: tüm geçmişlerin başlığında contains (içerik aranmaz)
+     */
+    @Benchmark
+    public List<ChatHistory> legacyTitleScan() {
+        String query = commonTerm.toLowerCase();
+        return histories.stream()
+                .filter(history -> history.getTitle() != null && history.getTitle().toLowerCase().contains(query))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * İndekssiz içerik araması: tüm mesajların katlanmış metninde contains
+     */
+    @Benchmark
+    public List<ChatHistory> naiveContentScan() {
+        String query = SearchTextNormalizer.fold(commonTerm);
+        return histories.stream()
+                .filter(history -> history.getConversations().stream()
+                        .anyMatch(c -> SearchTextNormalizer.fold(c.getContent()).contains(query)))
+                .collect(Collectors.toList());
+    }
+
+    private static String[] vocabulary(Random random, int size) {
+        String[] syllables = {"ka", "le", "mi", "şo", "ğu", "ra", "te", "çı", "nö", "sü", "pa", "di", "yo", "be", "ge", "İz"};
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 2 + random.nextInt(3);
+            for (int s = 0; s < length; s++) {
+                word.append(syllables[random.nextInt(syllables.length)]);
+            }
+            words[i] = word.append(i).toString();
+        }
+        return words;
+    }
+
+    /**
+     * Zipf benzeri dağılım: düşük indeksli kelimeler çok sık, kuyruk seyrek görülür
+     */
+    private static String zipfText(Random random, String[] vocabulary, int wordCount) {
+        StringBuilder builder = new StringBuilder(wordCount * 10);
+        for (int i = 0; i < wordCount; i++) {
+            int index = (int) Math.min(vocabulary.length - 1, Math.exp(random.nextDouble() * Math.log(vocabulary.length)) - 1);
+            builder.append(vocabulary[index]).append(' ');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Redis anahtar yapısını bellek içinde taklit eden indeks
+     */
+    static final class InMemoryChatSearchIndexRepository extends ChatSearchIndexRepository {
+        private final Map<String, String> titles = new HashMap<>();
+        private final TreeSet<String> lexicon = new TreeSet<>();
+        private final Map<String, Map<String, String>> postings = new HashMap<>();
+        private final Map<String, Set<String>> documentTerms = new HashMap<>();
+
+        InMemoryChatSearchIndexRepository() {
+            super(null);
+        }
+
+        @Override
+        public Mono<Void> addTerms(String userId, String historyId, Map<String, Integer> weights, Map<String, String> snippets) {
+            weights.forEach((term, weight) -> {
+                Map<String, String> posting = postings.computeIfAbsent(term, t -> new HashMap<>());
+                posting.merge(historyId, String.valueOf(weight), (a, b) -> String.valueOf(Long.parseLong(a) + Long.parseLong(b)));
+                String snippet = snippets.get(term);
+                if (snippet != null) {
+                    posting.putIfAbsent(historyId + SNIPPET_SUFFIX, snippet);
+                }
+                lexicon.add(term);
+            });
+            documentTerms.computeIfAbsent(historyId, id -> new HashSet<>()).addAll(weights.keySet());
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> removeTerms(String userId, String historyId, Map<String, Integer> weights) {
+            weights.forEach((term, weight) -> {
+                Map<String, String> posting = postings.get(term);
+                if (posting != null && posting.containsKey(historyId)) {
+                    long remaining = Long.parseLong(posting.get(historyId)) - weight;
+                    if (remaining > 0) {
+                        posting.put(historyId, String.valueOf(remaining));
+                    } else {
+                        posting.remove(historyId);
+                        posting.remove(historyId + SNIPPET_SUFFIX);
+                    }
+                }
+            });
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> removeDocument(String userId, String historyId) {
+            Set<String> terms = documentTerms.remove(historyId);
+            if (terms != null) {
+                for (String term : terms) {
+                    Map<String, String> posting = postings.get(term);
+                    if (posting != null) {
+                        posting.remove(historyId);
+                        posting.remove(historyId + SNIPPET_SUFFIX);
+                    }
+                }
+            }
+            titles.remove(historyId);
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> putDocument(String userId, String historyId, String title) {
+            titles.put(historyId, title != null ? title : "");
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<String> findTitle(String userId, String historyId) {
+            return Mono.justOrEmpty(titles.get(historyId));
+        }
+
+        @Override
+        public Mono<Map<String, String>> findTitles(String userId, List<String> historyIds) {
+            Map<String, String> result = new HashMap<>();
+            historyIds.forEach(id -> result.put(id, titles.get(id)));
+            return Mono.just(result);
+        }
+
+        @Override
+        public Mono<Long> countDocuments(String userId) {
+            return Mono.just((long) titles.size());
+        }
+
+        @Override
+        public Flux<String> expandPrefix(String userId, String prefix, int limit) {
+            return Flux.fromIterable(lexicon.subSet(prefix, true, prefix + Character.MAX_VALUE, true)).take(limit);
+        }
+
+        @Override
+        public Mono<Map<String, String>> findPostings(String userId, String term) {
+            return Mono.just(postings.getOrDefault(term, Map.of()));
+        }
+
+        @Override
+        public Mono<Boolean> isReady(String userId) {
+            return Mono.just(true);
+        }
+    }
+}
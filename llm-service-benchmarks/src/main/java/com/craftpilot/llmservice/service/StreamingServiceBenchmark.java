@@ -0,0 +1,90 @@
+package com.craftpilot.llmservice.service;
+
+import com.craftpilot.llmservice.benchmark.BenchmarkData;
+import com.craftpilot.llmservice.config.OpenRouterProperties;
+import com.craftpilot.llmservice.model.AIRequest;
+import com.craftpilot.llmservice.model.StreamResponse;
+import com.craftpilot.llmservice.service.client.OpenRouterClient;
+import com.craftpilot.llmservice.util.ResponseExtractor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StreamingService chunk işleme yolu: her operasyon bir yanıtın tüm chunk'larını
+ * (JSON parse + StreamResponse üretimi) baştan sona işler. Ağ katmanı devre dışıdır.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingServiceBenchmark {
+
+    /**
+     * sse: "data: {...}" satırları, raw: WebClient SSE decoder'ından çıkmış çıplak JSON
+     */
+    @Param({"sse", "raw"})
+    private String chunkFormat;
+
+    @Param({"256"})
+    private int chunkCount;
+
+    private StreamingService streamingService;
+    private AIRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        OpenRouterProperties properties = new OpenRouterProperties();
+        ResponseExtractor responseExtractor = new ResponseExtractor(objectMapper);
+
+        Random random = new Random(3);
+        List<String> chunks = new ArrayList<>(chunkCount + 1);
+        for (int i = 0; i < chunkCount; i++) {
+            String json = objectMapper.writeValueAsString(Map.of(
+                    "id", "gen-benchmark",
+                    "choices", new Object[]{Map.of(
+                            "index", 0,
+                            "delta", Map.of("role", "assistant", "content", BenchmarkData.text(random, 24)))}));
+            chunks.add("sse".equals(chunkFormat) ? "data: " + json : json);
+        }
+        chunks.add("sse".equals(chunkFormat) ? "data: [DONE]" : "[DONE]");
+
+        OpenRouterClient replayClient = new OpenRouterClient(null, properties, responseExtractor, objectMapper, null) {
+            @Override
+            public Flux<String> streamFromOpenRouter(AIRequest request) {
+                return Flux.fromIterable(chunks);
+            }
+        };
+        streamingService = new StreamingService(replayClient, responseExtractor, properties);
+
+        request = AIRequest.builder()
+                .model("google/gemini-2.0-flash-lite-001")
+                .prompt("benchmark")
+                .systemPrompt(properties.getDefaultSystemPrompt())
+                .build();
+    }
+
+    @Benchmark
+    public StreamResponse streamChunks() {
+        return streamingService.streamChatCompletion(request).blockLast();
+    }
+}
@@ -0,0 +1,52 @@
+package com.craftpilot.llmservice.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kural tabanlı kullanıcı bilgisi çıkarımı (AI yanıtı boş/hatalı olduğunda çalışan yol)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserInformationExtractionServiceBenchmark {
+
+    @Param({"short", "personal", "long"})
+    private String messageType;
+
+    private UserInformationExtractionService service;
+    private String message;
+
+    @Setup
+    public void setUp() {
+        // Kural tabanlı çıkarım bellek istemcisi ve LLM servisini kullanmaz
+        service = new UserInformationExtractionService(null, null);
+
+        message = switch (messageType) {
+            case "short" -> "Merhaba nasılsın?";
+            case "personal" -> "Merhaba, adım Ayşe. İstanbul'da yaşıyorum, yazılım mühendisi olarak çalışıyorum "
+                    + "ve boş zamanlarımda fotoğrafçılık hobim var. Şu an CraftPilotApp adlı bir proje geliştiriyorum.";
+            default -> "Bir React uygulamasında performans sorunları yaşıyorum. ".repeat(60)
+                    + "Ankara'da bir ekipte mobil uygulama geliştiriyorum.";
+        };
+    }
+
+    @Benchmark
+    public String performAdvancedRuleBasedExtraction() {
+        return service.performAdvancedRuleBasedExtraction(message);
+    }
+}
@@ -0,0 +1,74 @@
+package com.craftpilot.llmservice.util;
+
+import com.craftpilot.llmservice.benchmark.BenchmarkData;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OpenRouter JSON yanıtından metin çıkarımı (ChatCompletionService.mapToAIResponse yolu)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseExtractorBenchmark {
+
+    @Param({"200", "20000"})
+    private int contentLength;
+
+    private ResponseExtractor responseExtractor;
+    private Map<String, Object> chatResponse;
+    private Map<String, Object> unknownResponse;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        responseExtractor = new ResponseExtractor(objectMapper);
+
+        String content = BenchmarkData.text(new Random(7), contentLength);
+        String json = objectMapper.writeValueAsString(Map.of(
+                "id", "gen-benchmark",
+                "model", "google/gemini-2.0-flash-lite-001",
+                "choices", new Object[]{Map.of(
+                        "index", 0,
+                        "finish_reason", "stop",
+                        "message", Map.of("role", "assistant", "content", content))},
+                "usage", Map.of("prompt_tokens", 512, "completion_tokens", 256, "total_tokens", 768)));
+        // Gerçek yolda olduğu gibi yanıt Jackson tarafından Map'e çevrilmiş halde gelir
+        chatResponse = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+        unknownResponse = Map.of("error", "unexpected", "status", 500);
+    }
+
+    @Benchmark
+    public String extractChatContent() {
+        return responseExtractor.extractResponseText(chatResponse);
+    }
+
+    @Benchmark
+    public String extractUnknownShape() {
+        return responseExtractor.extractResponseText(unknownResponse);
+    }
+
+    @Benchmark
+    public Integer extractTokenCount() {
+        return responseExtractor.extractTokenCount(chatResponse);
+    }
+}
@@ -0,0 +1,26 @@
+package com.craftpilot.llmservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Kullanıcı başına sohbet arama indeksi ayarları.
+ * Sorgu maliyeti terim, prefix genişletme ve sonuç sınırlarıyla üstten bağlıdır;
+ * geçmişin toplam mesaj sayısından bağımsızdır.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "chat-search")
+public class ChatSearchProperties {
+    private boolean enabled = true;
+    private int maxQueryTerms = 6;
+    private int maxPrefixExpansions = 16;
+    private int maxResults = 200;
+    private int snippetLength = 80;
+    private int titleWeight = 5;
+    private Duration timeout = Duration.ofMillis(500);
+    private Duration rebuildLockTtl = Duration.ofMinutes(5);
+}
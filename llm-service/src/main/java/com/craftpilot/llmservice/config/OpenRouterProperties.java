@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "openrouter")
@@ -19,4 +21,19 @@ public class OpenRouterProperties {
     private Integer streamTimeoutSeconds = 120;
     private Integer keepAliveIntervalSeconds = 15;
     private String defaultSystemPrompt = "Sen yardımcı bir yapay zeka asistanısın.";
+    private PromptCache promptCache = new PromptCache();
+
+    /**
+     * Sağlayıcı tarafı prompt önbellekleme ayarları.
+     * cache_control işaretleri yalnızca açık breakpoint destekleyen modellere eklenir;
+     * diğer sağlayıcılar sabit prefix'i otomatik olarak yeniden kullanır.
+     */
+    @Data
+    public static class PromptCache {
+        private boolean enabled = true;
+        // Sağlayıcı alt sınırının (Anthropic ~1024 token) altındaki breakpoint'ler ücretsiz yok sayılır;
+        // eşik yalnızca tek satırlık varsayılan sistem mesajının gereksiz yere işaretlenmesini önler
+        private int minCacheableChars = 512;
+        private List<String> cacheControlModelPrefixes = List.of("anthropic/", "google/gemini-2.5");
+    }
 }
@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.craftpilot.llmservice.model.response.CategoryData;
+import com.craftpilot.llmservice.model.response.ChatSearchResult;
 import com.craftpilot.llmservice.model.response.PaginatedChatHistoryResponse;
 import com.craftpilot.llmservice.model.response.PaginationInfo;
 
@@ -71,6 +72,20 @@ public class ChatHistoryController {
                 .build();
     }
 
+    @GetMapping("/histories/search")
+    public Mono<ResponseEntity<List<ChatSearchResult>>> searchChatHistories(
+            @RequestParam String userId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false, defaultValue = "20") int limit) {
+
+        return chatHistoryService.searchChatHistories(userId, query, limit)
+                .map(ResponseEntity::ok)
+                .onErrorResume(error -> {
+                    log.error("Sohbet araması yapılırken hata: {}", error.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+                });
+    }
+
     @GetMapping("/histories/{id}")
     public Mono<ResponseEntity<ChatHistory>> getChatHistoryById(@PathVariable String id) { 
         
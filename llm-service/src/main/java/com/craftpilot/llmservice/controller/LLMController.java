@@ -222,7 +222,7 @@ public class LLMController {
      * @param content Düzeltilecek içerik
      * @return Düzeltilmiş tablo içeriği
      */
-    private String cleanTableFormat(String content) {
+    String cleanTableFormat(String content) {
         // Birden fazla satır varsa ve tablo formatı olduğunu düşünüyorsak
         if (content.contains("|")) {
             // Birden fazla boş satırı kaldır
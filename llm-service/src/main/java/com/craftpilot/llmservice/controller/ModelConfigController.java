@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
@@ -18,6 +19,7 @@ import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 
 @RestController
@@ -111,7 +113,10 @@ public class ModelConfigController {
                 response.put(entry.getKey(), entry.getValue().toArray(new String[0]));
             }
             
-            return Mono.just(ResponseEntity.ok(response));
+            // Liste yalnızca açılışta yüklenir; gateway ve tarayıcı 5 dakika saklayabilir
+            return Mono.just(ResponseEntity.ok()
+                    .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                    .body(response));
         } catch (Exception e) {
             log.error("Modeller listelenirken hata: {}", e.getMessage());
             return Mono.just(ResponseEntity.status(500).build());
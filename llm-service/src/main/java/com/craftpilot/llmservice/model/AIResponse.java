@@ -17,6 +17,7 @@ public class AIResponse {
     private Integer tokenCount;
     private Double responseTime;
     private Integer tokensUsed;
+    private Integer cachedTokenCount;
     
     // Eksik alanlar ekleniyor
     private boolean success;
@@ -38,4 +38,16 @@ public class ChatHistory {
     
     @Builder.Default
     private boolean enable = true;
+
+    public static final int PREVIEW_LENGTH = 100;
+
+    /**
+     * Listeleme uçları için kısa önizleme; tam içerik yalnızca detay ucunda döner.
+     */
+    public static String previewOf(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH - 3) + "...";
+    }
 }
@@ -1,12 +1,19 @@
 package com.craftpilot.llmservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.annotation.Exclude;
+import com.google.cloud.firestore.annotation.PropertyName;
+import com.craftpilot.llmservice.util.ContentCompression;
+import com.craftpilot.llmservice.util.FirestoreDocumentSize;
 import com.craftpilot.llmservice.util.TimestampDeserializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @Builder
@@ -15,22 +22,88 @@ import lombok.NoArgsConstructor;
 public class Conversation {
     private String id;
     private String role;
+    // toString getter kullanır; içerik loglara düşmesin ve sıkıştırma/çözme tetiklenmesin
+    @ToString.Exclude
     private String content;
     private Boolean fresh;
-    
+
     @JsonDeserialize(using = TimestampDeserializer.class)
     private Timestamp timestamp;
-    
+
     // orderIndex konuşma sıralaması için kullanılır
     private Integer orderIndex;
-    
+
     private Boolean isCanceled;
 
+    // Eşik üzerindeki içerik Firestore'da bu alanda sıkıştırılmış saklanır (bkz. ContentCompression)
+    @ToString.Exclude
+    private Blob compressedContent;
+
     public Boolean getIsCanceled() {
         return isCanceled;
     }
-    
+
     public void setIsCanceled(Boolean isCanceled) {
         this.isCanceled = isCanceled;
     }
+
+    /**
+     * İçerik sıkıştırılmış okunduysa ilk erişimde çözülür; listeleme gibi içeriğe
+     * dokunmayan yollar çözme maliyeti ödemez.
+     */
+    @Exclude
+    public String getContent() {
+        if (content == null && compressedContent != null) {
+            content = ContentCompression.decompress(compressedContent.toBytes());
+        }
+        return content;
+    }
+
+    @Exclude
+    public void setContent(String content) {
+        this.content = content;
+        this.compressedContent = null;
+    }
+
+    // Firestore eşlemesi: küçük içerik "content" alanında düz metin olarak kalır
+    @JsonIgnore
+    @PropertyName("content")
+    public String getStoredContent() {
+        if (compressedContent != null || ContentCompression.shouldCompress(content)) {
+            return null;
+        }
+        return content;
+    }
+
+    @JsonIgnore
+    @PropertyName("content")
+    public void setStoredContent(String storedContent) {
+        if (storedContent != null) {
+            this.content = storedContent;
+        }
+    }
+
+    @JsonIgnore
+    public Blob getCompressedContent() {
+        if (compressedContent == null && ContentCompression.shouldCompress(content)) {
+            compressedContent = Blob.fromBytes(ContentCompression.compress(content));
+        }
+        return compressedContent;
+    }
+
+    @JsonIgnore
+    public void setCompressedContent(Blob compressedContent) {
+        this.compressedContent = compressedContent;
+    }
+
+    /**
+     * İçeriğin okunduğu haliyle saklama boyutu; çözme veya sıkıştırma tetiklemez.
+     */
+    @ToString.Include(name = "contentBytes")
+    public int storedContentBytes() {
+        if (compressedContent != null) {
+            return compressedContent.toByteString().size();
+        }
+        return content == null ? 0 : FirestoreDocumentSize.utf8Length(content);
+    }
 }
@@ -0,0 +1,17 @@
+package com.craftpilot.llmservice.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSearchResult {
+    private String historyId;
+    private String title;
+    private double score;
+    private String snippet;
+}
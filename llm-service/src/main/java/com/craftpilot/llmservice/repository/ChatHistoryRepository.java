@@ -5,6 +5,9 @@ import com.craftpilot.llmservice.model.Conversation;
 import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.*;
+import com.craftpilot.llmservice.util.FirestoreDocumentSize;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
@@ -21,6 +24,7 @@ import java.util.UUID;
 @Slf4j
 public class ChatHistoryRepository {
     private final Firestore firestore;
+    private final MeterRegistry meterRegistry;
     private static final String COLLECTION_NAME = "chatHistories";
 
     public Flux<ChatHistory> findAllByUserId(String userId, int page, int pageSize) {
@@ -87,7 +91,9 @@ public class ChatHistoryRepository {
                 try {
                     DocumentSnapshot document = future.get();
                     if (document.exists()) {
-                        emitter.success(document.toObject(ChatHistory.class));
+                        ChatHistory history = document.toObject(ChatHistory.class);
+                        recordReadBytes(history);
+                        emitter.success(history);
                     } else {
                         emitter.success();
                     }
@@ -98,6 +104,48 @@ public class ChatHistoryRepository {
         });
     }
 
+    /**
+     * /histories/{id} başına okunan tahmini belge boyutu; sıkıştırmanın etkisi bu metrikle izlenir.
+     */
+    private void recordReadBytes(ChatHistory history) {
+        DistributionSummary.builder("chat.history.read.bytes")
+                .description("Estimated Firestore document bytes read per chat history lookup")
+                .baseUnit("bytes")
+                .register(meterRegistry)
+                .record(FirestoreDocumentSize.estimate(history));
+    }
+
+    /**
+     * Verilen ID'lere sahip sohbetleri tek bir batch okuma (getAll) ile getirir.
+     */
+    public Flux<ChatHistory> findAllByIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.create(emitter -> {
+            DocumentReference[] refs = ids.stream()
+                    .map(id -> firestore.collection(COLLECTION_NAME).document(id))
+                    .toArray(DocumentReference[]::new);
+            ApiFuture<List<DocumentSnapshot>> future = firestore.getAll(refs);
+            future.addListener(() -> {
+                try {
+                    for (DocumentSnapshot document : future.get()) {
+                        if (document.exists()) {
+                            ChatHistory history = document.toObject(ChatHistory.class);
+                            if (history != null) {
+                                emitter.next(history);
+                            }
+                        }
+                    }
+                    emitter.complete();
+                } catch (Exception e) {
+                    log.error("Sohbet geçmişleri toplu getirilirken hata: {}", e.getMessage());
+                    emitter.error(e);
+                }
+            }, Runnable::run);
+        });
+    }
+
     public Mono<ChatHistory> save(ChatHistory chatHistory) {
         return Mono.create(emitter -> {
             if (chatHistory.getId() == null) {
@@ -209,9 +257,9 @@ public class ChatHistoryRepository {
                     history.setConversations(updatedConversations);
                     history.setUpdatedAt(Timestamp.now());
                     
-                    // Update lastConversation field if it exists in the model
+                    // lastConversation yalnızca listeleme önizlemesi; tam içerik conversations'ta
                     if (conversation.getContent() != null) {
-                        history.setLastConversation(conversation.getContent());
+                        history.setLastConversation(ChatHistory.previewOf(conversation.getContent()));
                     }
                     
                     // Update the document in Firestore
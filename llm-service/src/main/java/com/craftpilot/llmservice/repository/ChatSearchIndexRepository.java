@@ -0,0 +1,191 @@
+package com.craftpilot.llmservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kullanıcı başına ters indeks (Redis).
+ * <pre>
+ * chat-search:{userId}:docs          HASH  historyId → başlık
+ * chat-search:{userId}:lex           ZSET  posting listesi boş olmayan terimler (skor 0, ZRANGEBYLEX ile prefix arama)
+ * chat-search:{userId}:t:{term}      HASH  historyId → ağırlık, historyId#s → snippet
+ * chat-search:{userId}:d:{historyId} SET   sohbetin terimleri (silme/yeniden indeksleme için)
+ * </pre>
+ * Tüm anahtarlar aynı {userId} hash tag'ini taşır; Redis Cluster'da tek slotta kalır.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class ChatSearchIndexRepository {
+    private static final String KEY_PREFIX = "chat-search:{";
+    public static final String SNIPPET_SUFFIX = "#s";
+    private static final int WRITE_CONCURRENCY = 32;
+    private static final RedisScript<Long> PRUNE_TERM_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/chat_search_prune_term.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public Mono<Void> addTerms(String userId, String historyId, Map<String, Integer> weights, Map<String, String> snippets) {
+        if (weights.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveHashOperations<String, String, String> hashOps = redisTemplate.opsForHash();
+        List<ZSetOperations.TypedTuple<String>> lexEntries = new ArrayList<>(weights.size());
+        weights.keySet().forEach(term -> lexEntries.add(ZSetOperations.TypedTuple.of(term, 0d)));
+
+        return Flux.fromIterable(weights.entrySet())
+                .flatMap(entry -> {
+                    String key = termKey(userId, entry.getKey());
+                    String snippet = snippets.get(entry.getKey());
+                    Mono<Long> increment = hashOps.increment(key, historyId, entry.getValue());
+                    return snippet == null
+                            ? increment
+                            : increment.then(hashOps.putIfAbsent(key, historyId + SNIPPET_SUFFIX, snippet));
+                }, WRITE_CONCURRENCY)
+                .then(redisTemplate.opsForZSet().addAll(lexKey(userId), lexEntries))
+                .then(redisTemplate.opsForSet().add(docTermsKey(userId, historyId), weights.keySet().toArray(String[]::new)))
+                .then();
+    }
+
+    /**
+     * Ağırlıkları geri alır; sıfıra düşen girdiler posting listesinden, boşalan terimler lex'ten silinir.
+     */
+    public Mono<Void> removeTerms(String userId, String historyId, Map<String, Integer> weights) {
+        if (weights.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveHashOperations<String, String, String> hashOps = redisTemplate.opsForHash();
+        return Flux.fromIterable(weights.entrySet())
+                .flatMap(entry -> {
+                    String key = termKey(userId, entry.getKey());
+                    return hashOps.increment(key, historyId, -entry.getValue())
+                            .flatMap(remaining -> remaining > 0
+                                    ? Mono.just(remaining)
+                                    : hashOps.remove(key, historyId, historyId + SNIPPET_SUFFIX)
+                                            .then(redisTemplate.opsForSet().remove(docTermsKey(userId, historyId), entry.getKey()))
+                                            .then(pruneTerm(userId, entry.getKey())));
+                }, WRITE_CONCURRENCY)
+                .then();
+    }
+
+    public Mono<Void> removeDocument(String userId, String historyId) {
+        ReactiveHashOperations<String, String, String> hashOps = redisTemplate.opsForHash();
+        String docTermsKey = docTermsKey(userId, historyId);
+        return redisTemplate.opsForSet().members(docTermsKey)
+                .flatMap(term -> hashOps.remove(termKey(userId, term), historyId, historyId + SNIPPET_SUFFIX)
+                        .then(pruneTerm(userId, term)), WRITE_CONCURRENCY)
+                .then(redisTemplate.delete(docTermsKey))
+                .then(hashOps.remove(docsKey(userId), historyId))
+                .then();
+    }
+
+    private Mono<Long> pruneTerm(String userId, String term) {
+        return redisTemplate.execute(PRUNE_TERM_SCRIPT, List.of(termKey(userId, term), lexKey(userId)), List.of(term))
+                .next();
+    }
+
+    public Mono<Void> putDocument(String userId, String historyId, String title) {
+        return redisTemplate.<String, String>opsForHash()
+                .put(docsKey(userId), historyId, title != null ? title : "")
+                .then();
+    }
+
+    public Mono<String> findTitle(String userId, String historyId) {
+        return redisTemplate.<String, String>opsForHash().get(docsKey(userId), historyId);
+    }
+
+    public Mono<Map<String, String>> findTitles(String userId, List<String> historyIds) {
+        if (historyIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return redisTemplate.<String, String>opsForHash().multiGet(docsKey(userId), historyIds)
+                .map(titles -> {
+                    Map<String, String> result = new HashMap<>();
+                    for (int i = 0; i < historyIds.size(); i++) {
+                        result.put(historyIds.get(i), titles.get(i));
+                    }
+                    return result;
+                });
+    }
+
+    public Mono<Long> countDocuments(String userId) {
+        return redisTemplate.opsForHash().size(docsKey(userId));
+    }
+
+    /**
+     * Prefix ile başlayan terimleri leksikografik sırada, en fazla {@code limit} adet döner.
+     */
+    public Flux<String> expandPrefix(String userId, String prefix, int limit) {
+        return redisTemplate.opsForZSet().rangeByLex(lexKey(userId),
+                Range.closed(prefix, prefix + Character.MAX_VALUE),
+                Limit.limit().count(limit));
+    }
+
+    /**
+     * Terimin posting listesi: historyId → ağırlık ve historyId#s → snippet alanları.
+     */
+    public Mono<Map<String, String>> findPostings(String userId, String term) {
+        return redisTemplate.<String, String>opsForHash().entries(termKey(userId, term))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    public Mono<Boolean> isReady(String userId) {
+        return redisTemplate.hasKey(readyKey(userId));
+    }
+
+    public Mono<Boolean> markReady(String userId) {
+        return redisTemplate.opsForValue().set(readyKey(userId), "1");
+    }
+
+    public Mono<Boolean> tryLockRebuild(String userId, Duration ttl) {
+        return redisTemplate.opsForValue().setIfAbsent(rebuildLockKey(userId), "1", ttl);
+    }
+
+    public Mono<Boolean> unlockRebuild(String userId) {
+        return redisTemplate.delete(rebuildLockKey(userId)).map(deleted -> deleted > 0);
+    }
+
+    private String userPrefix(String userId) {
+        return KEY_PREFIX + userId + "}:";
+    }
+
+    private String docsKey(String userId) {
+        return userPrefix(userId) + "docs";
+    }
+
+    private String lexKey(String userId) {
+        return userPrefix(userId) + "lex";
+    }
+
+    private String termKey(String userId, String term) {
+        return userPrefix(userId) + "t:" + term;
+    }
+
+    private String docTermsKey(String userId, String historyId) {
+        return userPrefix(userId) + "d:" + historyId;
+    }
+
+    private String readyKey(String userId) {
+        return userPrefix(userId) + "ready";
+    }
+
+    private String rebuildLockKey(String userId) {
+        return userPrefix(userId) + "rebuild";
+    }
+}
@@ -79,6 +79,7 @@ public class ChatCompletionService {
             .response(responseText)
             .model(request.getModel())
             .tokenCount(responseExtractor.extractTokenCount(openRouterResponse))
+            .cachedTokenCount(responseExtractor.extractCachedTokenCount(openRouterResponse))
             .requestId(request.getRequestId())
             .success(true)
             .build();
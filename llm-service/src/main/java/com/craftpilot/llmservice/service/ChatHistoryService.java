@@ -3,6 +3,7 @@ package com.craftpilot.llmservice.service;
 import com.craftpilot.llmservice.model.ChatHistory;
 import com.craftpilot.llmservice.model.Conversation;
 import com.craftpilot.llmservice.repository.ChatHistoryRepository;
+import com.craftpilot.llmservice.util.SearchTextNormalizer;
 import com.google.cloud.Timestamp;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,7 @@ import java.util.stream.Collectors;
 
 import com.craftpilot.llmservice.model.response.CategoryData;
 import com.craftpilot.llmservice.model.response.ChatItem;
+import com.craftpilot.llmservice.model.response.ChatSearchResult;
 import com.craftpilot.llmservice.model.response.PaginatedChatHistoryResponse;
 import com.craftpilot.llmservice.model.response.PaginationInfo;
 
@@ -35,6 +37,7 @@ import com.craftpilot.commons.activity.model.ActivityEventTypes;
 public class ChatHistoryService {
     private final ChatHistoryRepository chatHistoryRepository;
     private final ActivityLogger activityLogger;  
+    private final ChatSearchService chatSearchService;
 
     public Flux<ChatHistory> getChatHistoriesByUserId(String userId, int page, int pageSize) {
         if (userId == null || userId.isEmpty()) {
@@ -97,6 +100,8 @@ public class ChatHistoryService {
         }
          
         return chatHistoryRepository.save(chatHistory)
+                // İndeks hatası kaydı bozmaz (indexHistory hatayı yutar); yanıt indeks güncellendikten sonra döner
+                .flatMap(saved -> chatSearchService.indexHistory(saved).thenReturn(saved))
                 .doOnError(error -> log.error("Sohbet geçmişi oluştururken hata: {}", error.getMessage()))
                 .onErrorMap(e -> new RuntimeException("Sohbet geçmişi oluşturulamadı: " + e.getMessage(), e));
     }
@@ -116,6 +121,7 @@ public class ChatHistoryService {
         chatHistory.setUpdatedAt(Timestamp.now());
          
         return chatHistoryRepository.save(chatHistory)
+                .flatMap(saved -> chatSearchService.indexHistory(saved).thenReturn(saved))
                 .doOnError(error -> log.error("Sohbet geçmişi güncellenirken hata, ID {}: {}", chatHistory.getId(), error.getMessage()))
                 .onErrorMap(e -> new RuntimeException("Sohbet geçmişi güncellenemedi: " + e.getMessage(), e));
     }
@@ -135,6 +141,7 @@ public class ChatHistoryService {
                 .flatMap(history -> {
                     // Önce silme işlemini yap
                     return chatHistoryRepository.delete(historyId)  
+                            .then(chatSearchService.removeHistory(history.getUserId(), historyId))
                             .then(activityLogger.log(
                                 userId,
                                 ActivityEventTypes.CHAT_HISTORY_DELETE,
@@ -171,6 +178,7 @@ public class ChatHistoryService {
         }
          
         return chatHistoryRepository.addConversation(historyId, conversation) 
+                .flatMap(history -> chatSearchService.indexConversation(history, conversation).thenReturn(history))
                 .doOnError(error -> log.error("Mesaj eklenirken hata, Chat ID {}, OrderIndex {}: {}", 
                                         historyId, conversation.getOrderIndex(), error.getMessage()))
                 .onErrorMap(e -> new RuntimeException("Mesaj eklenemedi: " + e.getMessage(), e));
@@ -193,6 +201,7 @@ public class ChatHistoryService {
         }
          
         return chatHistoryRepository.updateTitle(historyId, newTitle)
+                .flatMap(history -> chatSearchService.reindexTitle(history).thenReturn(history))
                 .doOnError(error -> log.error("Sohbet başlığı güncellenirken hata, ID {}: {}", historyId, error.getMessage()))
                 .onErrorMap(e -> new RuntimeException("Sohbet başlığı güncellenemedi: " + e.getMessage(), e));
     }
@@ -369,9 +378,14 @@ public class ChatHistoryService {
                 ? List.of("today", "yesterday", "lastWeek", "lastMonth", "older")
                 : categoryFilters;
         
-        // Sayfalama mantığını doğru hesaplamak için önce tüm kayıtları getirelim
-        return chatHistoryRepository.findAllByUserId(userId, 1, Integer.MAX_VALUE) // Get all histories first
-                .collectList()
+        boolean searching = searchQuery != null && !searchQuery.trim().isEmpty();
+        
+        // Arama varsa yalnızca indeksin eşleştirdiği sohbetler okunur; yoksa sayfalama için tüm kayıtlar
+        Mono<List<ChatHistory>> source = searching
+                ? searchHistories(userId, searchQuery)
+                : chatHistoryRepository.findAllByUserId(userId, 1, Integer.MAX_VALUE).collectList();
+        
+        return source
                 .flatMap(allHistories -> {
                     // Arşiv durumuna göre filtrele
                     List<ChatHistory> archiveFilteredHistories = filterByArchiveStatus(allHistories, showArchived);
@@ -379,15 +393,8 @@ public class ChatHistoryService {
                     // Veritabanındaki toplam kayıt sayısı (filtrelemeden sonce)
                     int totalDatabaseRecords = archiveFilteredHistories.size(); 
                     
-                    // Apply search filter if specified
+                    // Arama filtresi searchHistories içinde uygulandı
                     List<ChatHistory> filteredHistories = archiveFilteredHistories;
-                    if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-                        String query = searchQuery.toLowerCase();
-                        filteredHistories = archiveFilteredHistories.stream()
-                                .filter(history -> history.getTitle() != null && 
-                                        history.getTitle().toLowerCase().contains(query))
-                                .collect(Collectors.toList());
-                    }
                     
                     // Sort the histories
                     Comparator<ChatHistory> comparator;
@@ -503,6 +510,72 @@ public class ChatHistoryService {
                 });
     }
 
+    /**
+     * Sunucu tarafı arama indeksiyle eşleşen sohbetleri sıralı sonuçlar ve snippet'lerle döner. İndeks henüz
+     * oluşturuluyorsa veya Redis erişilemezse başlık taramasının sonuçları (skorsuz, snippet'siz) döner.
+     */
+    public Mono<List<ChatSearchResult>> searchChatHistories(String userId, String query, int limit) {
+        if (userId == null || userId.isEmpty() || query == null || query.isBlank()) {
+            return Mono.just(List.of());
+        }
+        if (!chatSearchService.isEnabled()) {
+            return scanTitleResults(userId, query, limit);
+        }
+        return chatSearchService.ensureIndexed(userId)
+                .flatMap(ready -> ready
+                        ? chatSearchService.search(userId, query, limit)
+                        : scanTitleResults(userId, query, limit))
+                .onErrorResume(e -> {
+                    log.warn("Arama indeksi kullanılamadı, başlık taramasına dönülüyor, userId {}: {}", userId, e.getMessage());
+                    return scanTitleResults(userId, query, limit);
+                });
+    }
+
+    private Mono<List<ChatSearchResult>> scanTitleResults(String userId, String query, int limit) {
+        return scanHistoryTitles(userId, query)
+                .map(histories -> histories.stream()
+                        .limit(Math.max(1, limit))
+                        .map(history -> ChatSearchResult.builder()
+                                .historyId(history.getId())
+                                .title(history.getTitle())
+                                .build())
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * İndeks hazırsa eşleşen sohbetleri ID ile toplu okur; indeks hazır değilse veya
+     * Redis erişilemezse eski başlık taramasına düşer.
+     */
+    private Mono<List<ChatHistory>> searchHistories(String userId, String searchQuery) {
+        if (!chatSearchService.isEnabled()) {
+            return scanHistoryTitles(userId, searchQuery);
+        }
+        return chatSearchService.ensureIndexed(userId)
+                .flatMap(ready -> {
+                    if (!ready) {
+                        return scanHistoryTitles(userId, searchQuery);
+                    }
+                    return chatSearchService.search(userId, searchQuery, Integer.MAX_VALUE)
+                            .flatMap(results -> chatHistoryRepository.findAllByIds(results.stream()
+                                            .map(ChatSearchResult::getHistoryId)
+                                            .collect(Collectors.toList()))
+                                    .filter(history -> userId.equals(history.getUserId()))
+                                    .collectList());
+                })
+                .onErrorResume(e -> {
+                    log.warn("Arama indeksi kullanılamadı, başlık taramasına dönülüyor: {}", e.getMessage());
+                    return scanHistoryTitles(userId, searchQuery);
+                });
+    }
+
+    private Mono<List<ChatHistory>> scanHistoryTitles(String userId, String searchQuery) {
+        String query = SearchTextNormalizer.fold(searchQuery.trim());
+        return chatHistoryRepository.findAllByUserId(userId, 1, Integer.MAX_VALUE)
+                .filter(history -> history.getTitle() != null &&
+                        SearchTextNormalizer.fold(history.getTitle()).contains(query))
+                .collectList();
+    }
+
     private long getTimestampValue(Timestamp timestamp) {
         return timestamp != null ? timestamp.getSeconds() : 0L;
     }
@@ -583,21 +656,8 @@ public class ChatHistoryService {
         return date;
     }
 
-    private ChatItem convertToChatItem(ChatHistory history) {
-        String lastConversation = null;
-        if (history.getConversations() != null && !history.getConversations().isEmpty()) {
-            // Find the last conversation based on orderIndex or timestamp
-            Optional<Conversation> lastConv = history.getConversations().stream()
-                    .max(Comparator.comparing(Conversation::getOrderIndex));
-            
-            if (lastConv.isPresent()) {
-                lastConversation = lastConv.get().getContent();
-                // Truncate if too long
-                if (lastConversation != null && lastConversation.length() > 100) {
-                    lastConversation = lastConversation.substring(0, 97) + "...";
-                }
-            }
-        }
+    ChatItem convertToChatItem(ChatHistory history) {
+        String lastConversation = lastConversationPreview(history);
         
         return ChatItem.builder()
                 .id(history.getId())
@@ -682,21 +742,28 @@ public class ChatHistoryService {
         item.put("is_archived", !history.isEnable());
         
         // Son konuşma içeriğinden snippet oluştur
-        String snippet = null;
-        if (history.getConversations() != null && !history.getConversations().isEmpty()) {
-            Optional<Conversation> lastConv = history.getConversations().stream()
-                    .max(Comparator.comparing(Conversation::getOrderIndex));
-            
-            if (lastConv.isPresent()) {
-                String content = lastConv.get().getContent();
-                if (content != null && !content.isEmpty()) {
-                    snippet = content.length() > 100 ? content.substring(0, 97) + "..." : content;
-                }
-            }
-        }
-        item.put("snippet", snippet);
+        String snippet = lastConversationPreview(history);
+        item.put("snippet", snippet != null && !snippet.isEmpty() ? snippet : null);
         
         return item;
     }
+
+    /**
+     * Kayıtlı önizlemeyi kullanır; böylece listelemede sıkıştırılmış mesajlar çözülmez.
+     * Önizlemesi olmayan eski kayıtlarda son mesaja düşer.
+     */
+    private String lastConversationPreview(ChatHistory history) {
+        if (history.getLastConversation() != null) {
+            return ChatHistory.previewOf(history.getLastConversation());
+        }
+        if (history.getConversations() == null || history.getConversations().isEmpty()) {
+            return null;
+        }
+        // Find the last conversation based on orderIndex or timestamp
+        return history.getConversations().stream()
+                .max(Comparator.comparing(Conversation::getOrderIndex))
+                .map(conversation -> ChatHistory.previewOf(conversation.getContent()))
+                .orElse(null);
+    }
 }
 
@@ -0,0 +1,292 @@
+package com.craftpilot.llmservice.service;
+
+import com.craftpilot.llmservice.config.ChatSearchProperties;
+import com.craftpilot.llmservice.model.ChatHistory;
+import com.craftpilot.llmservice.model.Conversation;
+import com.craftpilot.llmservice.model.response.ChatSearchResult;
+import com.craftpilot.llmservice.repository.ChatHistoryRepository;
+import com.craftpilot.llmservice.repository.ChatSearchIndexRepository;
+import com.craftpilot.llmservice.util.SearchTextNormalizer;
+import com.craftpilot.llmservice.util.SearchTextNormalizer.TermOccurrence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sohbet geçmişleri için sunucu tarafı tam metin arama.
+ * İndeks ekleme/başlık güncelleme/silme anında artımlı olarak güncellenir;
+ * sorgular yalnızca sorgu terimlerinin posting listelerini okur.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatSearchService {
+    private static final double PREFIX_MATCH_FACTOR = 0.6;
+
+    private final ChatSearchIndexRepository indexRepository;
+    private final ChatHistoryRepository chatHistoryRepository;
+    private final ChatSearchProperties properties;
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Sohbeti baştan indeksler (başlık + tüm mesajlar).
+     */
+    public Mono<Void> indexHistory(ChatHistory history) {
+        if (!properties.isEnabled() || history == null || history.getUserId() == null || history.getId() == null) {
+            return Mono.empty();
+        }
+        String userId = history.getUserId();
+        String historyId = history.getId();
+
+        Map<String, Integer> weights = new HashMap<>();
+        Map<String, String> snippets = new HashMap<>();
+        collectTitle(history.getTitle(), weights);
+        if (history.getConversations() != null) {
+            for (Conversation conversation : history.getConversations()) {
+                collectContent(conversation.getContent(), weights, snippets);
+            }
+        }
+
+        return indexRepository.removeDocument(userId, historyId)
+                .then(indexRepository.putDocument(userId, historyId, history.getTitle()))
+                .then(indexRepository.addTerms(userId, historyId, weights, snippets))
+                .doOnError(e -> log.warn("Sohbet indekslenemedi, ID {}: {}", historyId, e.getMessage()))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    /**
+     * Yeni eklenen tek bir mesajı indekse ekler.
+     */
+    public Mono<Void> indexConversation(ChatHistory history, Conversation conversation) {
+        if (!properties.isEnabled() || history == null || history.getUserId() == null || conversation == null) {
+            return Mono.empty();
+        }
+        Map<String, Integer> weights = new HashMap<>();
+        Map<String, String> snippets = new HashMap<>();
+        collectContent(conversation.getContent(), weights, snippets);
+
+        return indexRepository.findTitle(history.getUserId(), history.getId())
+                .switchIfEmpty(Mono.defer(() -> {
+                    // İlk mesaj: başlık da indekse girer
+                    Map<String, Integer> titleWeights = new HashMap<>();
+                    collectTitle(history.getTitle(), titleWeights);
+                    return indexRepository.putDocument(history.getUserId(), history.getId(), history.getTitle())
+                            .then(indexRepository.addTerms(history.getUserId(), history.getId(), titleWeights, Map.of()))
+                            .then(Mono.empty());
+                }))
+                .then(indexRepository.addTerms(history.getUserId(), history.getId(), weights, snippets))
+                .doOnError(e -> log.warn("Mesaj indekslenemedi, Chat ID {}: {}", history.getId(), e.getMessage()))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    /**
+     * Eski başlığın terimlerini geri alıp yeni başlığı indeksler.
+     */
+    public Mono<Void> reindexTitle(ChatHistory history) {
+        if (!properties.isEnabled() || history == null || history.getUserId() == null) {
+            return Mono.empty();
+        }
+        String userId = history.getUserId();
+        String historyId = history.getId();
+        Map<String, Integer> newWeights = new HashMap<>();
+        collectTitle(history.getTitle(), newWeights);
+
+        return indexRepository.findTitle(userId, historyId)
+                .defaultIfEmpty("")
+                .flatMap(oldTitle -> {
+                    Map<String, Integer> oldWeights = new HashMap<>();
+                    collectTitle(oldTitle, oldWeights);
+                    return indexRepository.removeTerms(userId, historyId, oldWeights);
+                })
+                .then(indexRepository.putDocument(userId, historyId, history.getTitle()))
+                .then(indexRepository.addTerms(userId, historyId, newWeights, Map.of()))
+                .doOnError(e -> log.warn("Başlık indekslenemedi, ID {}: {}", historyId, e.getMessage()))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    public Mono<Void> removeHistory(String userId, String historyId) {
+        if (!properties.isEnabled() || userId == null || historyId == null) {
+            return Mono.empty();
+        }
+        return indexRepository.removeDocument(userId, historyId)
+                .doOnError(e -> log.warn("Sohbet indeksten silinemedi, ID {}: {}", historyId, e.getMessage()))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    /**
+     * Kullanıcının indeksi hazır değilse (ilk kullanım / eski veriler) tüm geçmişi bir kez indeksler.
+     * Dağıtık kilit sayesinde aynı kullanıcı için tek bir yeniden oluşturma çalışır.
+     */
+    public Mono<Boolean> ensureIndexed(String userId) {
+        return indexRepository.isReady(userId)
+                .flatMap(ready -> {
+                    if (ready) {
+                        return Mono.just(true);
+                    }
+                    // Yeniden oluşturma arka planda sürer; bu istek indeks hazır olmadan yanıtlanır
+                    rebuildIndex(userId)
+                            .subscribe(null, e -> log.warn("Arama indeksi oluşturulamadı, userId {}: {}", userId, e.getMessage()));
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Kilidi alabilirse kullanıcının tüm geçmişini indeksler; kilit başarı, hata ve iptalde aynı zincir içinde bırakılır.
+     */
+    Mono<Void> rebuildIndex(String userId) {
+        return Mono.usingWhen(
+                indexRepository.tryLockRebuild(userId, properties.getRebuildLockTtl()).filter(Boolean::booleanValue),
+                locked -> chatHistoryRepository.findAllByUserId(userId, 1, Integer.MAX_VALUE)
+                        .concatMap(this::indexHistory)
+                        .then(indexRepository.markReady(userId))
+                        .doOnSuccess(done -> log.info("Arama indeksi oluşturuldu, userId: {}", userId)),
+                locked -> indexRepository.unlockRebuild(userId),
+                (locked, e) -> indexRepository.unlockRebuild(userId),
+                locked -> indexRepository.unlockRebuild(userId))
+                .then();
+    }
+
+    /**
+     * Sorgudaki her terim (son terim prefix olarak) için eşleşen sohbetleri bulur;
+     * tüm terimleri içeren sohbetler tf-idf benzeri skorla sıralanır.
+     */
+    public Mono<List<ChatSearchResult>> search(String userId, String query, int limit) {
+        List<String> queryTerms = SearchTextNormalizer.queryTerms(query, properties.getMaxQueryTerms());
+        if (queryTerms.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        int resultLimit = Math.max(1, Math.min(limit, properties.getMaxResults()));
+
+        return indexRepository.countDocuments(userId)
+                .flatMap(documentCount -> Flux.fromIterable(queryTerms)
+                        .flatMapSequential(term -> matchTerm(userId, term, documentCount))
+                        .collectList())
+                .map(perTerm -> rank(perTerm, resultLimit))
+                .flatMap(ranked -> indexRepository.findTitles(userId, ranked.stream().map(ChatSearchResult::getHistoryId).toList())
+                        .map(titles -> {
+                            ranked.forEach(result -> result.setTitle(titles.get(result.getHistoryId())));
+                            return ranked;
+                        }))
+                .timeout(properties.getTimeout());
+    }
+
+    private Mono<Map<String, Match>> matchTerm(String userId, String term, long documentCount) {
+        return indexRepository.expandPrefix(userId, term, properties.getMaxPrefixExpansions())
+                .flatMap(expanded -> indexRepository.findPostings(userId, expanded)
+                        .map(postings -> scorePostings(term, expanded, postings, documentCount)))
+                .reduce(new HashMap<String, Match>(), (merged, matches) -> {
+                    matches.forEach((historyId, match) -> merged.merge(historyId, match, Match::better));
+                    return merged;
+                })
+                .map(merged -> (Map<String, Match>) merged);
+    }
+
+    static Map<String, Match> scorePostings(String queryTerm, String indexedTerm, Map<String, String> postings, long documentCount) {
+        Map<String, Match> matches = new HashMap<>();
+        long documentFrequency = postings.keySet().stream()
+                .filter(field -> !field.endsWith(ChatSearchIndexRepository.SNIPPET_SUFFIX))
+                .count();
+        if (documentFrequency == 0) {
+            return matches;
+        }
+        double idf = Math.log(1.0 + (double) Math.max(documentCount, documentFrequency) / documentFrequency);
+        double factor = queryTerm.equals(indexedTerm) ? 1.0 : PREFIX_MATCH_FACTOR;
+
+        postings.forEach((field, value) -> {
+            if (field.endsWith(ChatSearchIndexRepository.SNIPPET_SUFFIX)) {
+                return;
+            }
+            long weight;
+            try {
+                weight = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (weight <= 0) {
+                return;
+            }
+            double score = idf * (1.0 + Math.log(weight)) * factor;
+            matches.put(field, new Match(score, postings.get(field + ChatSearchIndexRepository.SNIPPET_SUFFIX)));
+        });
+        return matches;
+    }
+
+    static List<ChatSearchResult> rank(List<Map<String, Match>> perTerm, int limit) {
+        if (perTerm.isEmpty() || perTerm.stream().anyMatch(Map::isEmpty)) {
+            return new ArrayList<>();
+        }
+        // En seçici terimden başlayarak kesişim al
+        List<Map<String, Match>> ordered = new ArrayList<>(perTerm);
+        ordered.sort(Comparator.comparingInt(Map::size));
+
+        List<ChatSearchResult> results = new ArrayList<>();
+        for (Map.Entry<String, Match> candidate : ordered.get(0).entrySet()) {
+            double score = candidate.getValue().score;
+            String snippet = candidate.getValue().snippet;
+            double snippetScore = snippet != null ? candidate.getValue().score : -1;
+            boolean matchesAll = true;
+            for (int i = 1; i < ordered.size(); i++) {
+                Match match = ordered.get(i).get(candidate.getKey());
+                if (match == null) {
+                    matchesAll = false;
+                    break;
+                }
+                score += match.score;
+                if (match.snippet != null && match.score > snippetScore) {
+                    snippet = match.snippet;
+                    snippetScore = match.score;
+                }
+            }
+            if (matchesAll) {
+                results.add(ChatSearchResult.builder()
+                        .historyId(candidate.getKey())
+                        .score(score)
+                        .snippet(snippet)
+                        .build());
+            }
+        }
+        results.sort(Comparator.comparingDouble(ChatSearchResult::getScore).reversed());
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    private void collectTitle(String title, Map<String, Integer> weights) {
+        SearchTextNormalizer.terms(title).forEach((term, occurrence) ->
+                weights.merge(term, properties.getTitleWeight(), Integer::sum));
+    }
+
+    private void collectContent(String content, Map<String, Integer> weights, Map<String, String> snippets) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, TermOccurrence> entry : SearchTextNormalizer.terms(content).entrySet()) {
+            weights.merge(entry.getKey(), entry.getValue().getCount(), Integer::sum);
+            snippets.computeIfAbsent(entry.getKey(), term ->
+                    SearchTextNormalizer.snippet(content, entry.getValue().getFirstPosition(), properties.getSnippetLength()));
+        }
+    }
+
+    static final class Match {
+        private final double score;
+        private final String snippet;
+
+        Match(double score, String snippet) {
+            this.score = score;
+            this.snippet = snippet;
+        }
+
+        private Match better(Match other) {
+            return other.score > score ? other : this;
+        }
+    }
+}
@@ -178,23 +178,9 @@ public class PerformanceService {
             // Analiz verilerini JSON string'e dönüştür
             String analysisJson = objectMapper.writeValueAsString(request.getAnalysisData());
             
-            // Performans önerileri için system prompt
-            String systemPrompt = "Sen bir web performans optimizasyonu uzmanısın. " +
-                    "Verilen Lighthouse performans verilerini analiz et ve spesifik iyileştirmeler öner. " +
-                    "Her sorun için şunları belirt: problem açıklaması, önem derecesi (kritik/önemli/düşük), çözüm, " +
-                    "kod örneği, faydalı kaynaklar ve uygulama zorluğu (kolay/orta/zor). " +
-                    "Yanıtını geçerli bir JSON dizisi olarak formatla.";
-            
-            aiRequest.setSystemPrompt(systemPrompt);
-            
-            // Analiz verileriyle prompt oluştur
-            String prompt = "Bu Lighthouse performans analiz verilerine dayanarak, " +
-                    "web sitesi performansını iyileştirmek için detaylı öneriler sun. Önce en etkili değişikliklere odaklan:\n\n" +
-                    analysisJson + "\n\n" +
-                    "Yanıtını her biri için şu özelliklere sahip bir JSON dizisi olarak formatla: " +
-                    "problem, severity, solution, codeExample, resources (URL'ler dizisi), implementationDifficulty";
-            
-            aiRequest.setPrompt(prompt);
+            // Sabit sistem mesajı önde, değişken analiz verisi kullanıcı mesajında: prefix önbelleğe alınabilir
+            aiRequest.setSystemPrompt(promptService.getPerformanceSuggestionsSystemPrompt());
+            aiRequest.setPrompt(promptService.getPerformanceSuggestionsPrompt(analysisJson));
             
             log.info("OpenRouter AI'ya performans iyileştirme önerileri için istek gönderiliyor");
             return llmService.processChatCompletion(aiRequest)
@@ -229,26 +215,9 @@ public class PerformanceService {
         aiRequest.setTemperature(request.getTemperature() != null ? request.getTemperature() : 0.7);
         aiRequest.setLanguage(request.getLanguage() != null ? request.getLanguage() : "tr"); // Varsayılan olarak Türkçe yanıt
         
-        // Performans önerileri için system prompt
-        String systemPrompt = "Sen bir web performans optimizasyonu uzmanısın. " +
-                "Verilen URL'yi analiz et ve spesifik iyileştirmeler öner. " +
-                "Her sorun için şunları belirt: problem açıklaması, önem derecesi (kritik/önemli/düşük), çözüm, " +
-                "kod örneği, faydalı kaynaklar ve uygulama zorluğu (kolay/orta/zor). " +
-                "Yanıtını geçerli bir JSON dizisi olarak formatla.";
-        
-        aiRequest.setSystemPrompt(systemPrompt);
-        
-        // URL'le prompt oluştur
-        String prompt = "Bu URL için performans ve kullanıcı deneyimi sorunlarını analiz et: " + request.getUrl() + 
-                "\n\nHer bir sorun için şu bilgileri içeren bir JSON dizisi oluştur:\n" +
-                "1. problem: Sorunun açıklaması\n" +
-                "2. severity: Önem derecesi (critical, major, minor)\n" +
-                "3. solution: Çözüm önerisi\n" +
-                "4. codeExample: Kod örneği\n" +
-                "5. resources: Faydalı kaynakların URL'lerini içeren bir dizi\n" +
-                "6. implementationDifficulty: Uygulama zorluğu (easy, medium, hard)";
-        
-        aiRequest.setPrompt(prompt);
+        // Öneri uçları aynı sistem mesajını paylaşır; URL kullanıcı mesajında kalır
+        aiRequest.setSystemPrompt(promptService.getPerformanceSuggestionsSystemPrompt());
+        aiRequest.setPrompt(promptService.getUrlSuggestionsPrompt(request.getUrl()));
         
         return llmService.streamChatCompletion(aiRequest)
                 .map(chunk -> {
@@ -13,9 +13,9 @@ public class PromptService {
     private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper;
     
+    // Değişken veri sonda tutulur; talimat kısmı her istekte aynı kaldığı için sağlayıcı önbelleğinden okunabilir
     private static final String PERFORMANCE_ANALYSIS_PROMPT_V1 = """
-            Bu bir PageSpeed Insights JSON özetidir:
-            {analysisData}
+            Aşağıda bir PageSpeed Insights JSON özeti var.
             
             Lütfen bu sonuçları analiz et ve tespit edilen performans sorunlarını önem sırasına göre listele.
             Her sorun için şu formatı kullan:
@@ -27,8 +27,28 @@ public class PromptService {
             5. Kaynaklar: Bu konuda daha fazla bilgi için kaynaklar öner
             
             Yanıtını JSON formatında ver. Başka bir şey yazma.
+            
+            PageSpeed Insights özeti:
+            {analysisData}
             """;
-    
+
+    // Öneri uçlarının ortak sistem mesajı; yanıt formatı da burada olduğundan kullanıcı mesajı yalnızca veriyi taşır
+    private static final String PERFORMANCE_SUGGESTIONS_SYSTEM_PROMPT_V1 = """
+            Sen bir web performans optimizasyonu uzmanısın.
+            Verilen Lighthouse performans verilerini ya da URL'yi analiz et ve web sitesi performansını ve
+            kullanıcı deneyimini iyileştirmek için spesifik, detaylı öneriler sun. Önce en etkili değişikliklere odaklan.
+            
+            Yanıtını geçerli bir JSON dizisi olarak formatla. Dizinin her elemanı şu alanlara sahip olmalı:
+            1. problem: Sorunun açıklaması
+            2. severity: Önem derecesi (critical, major, minor)
+            3. solution: Frontend geliştiricisine yönelik net ve uygulanabilir çözüm adımları
+            4. codeExample: Mümkünse çözüm için örnek kod parçası
+            5. resources: Faydalı kaynakların URL'lerini içeren bir dizi
+            6. implementationDifficulty: Uygulama zorluğu (easy, medium, hard)
+            
+            JSON dizisi dışında hiçbir açıklama ya da ek metin yazma.
+            """;
+
     public String getPerformanceAnalysisPrompt(Object analysisData) {
         try {
             String analysisJson = objectMapper.writeValueAsString(analysisData);
@@ -44,4 +64,17 @@ public class PromptService {
             throw new RuntimeException("Performans analizi promptu oluşturulamadı", e);
         }
     }
+
+    public String getPerformanceSuggestionsSystemPrompt() {
+        meterRegistry.counter("prompt.performance_suggestions.usage", "version", "v1").increment();
+        return PERFORMANCE_SUGGESTIONS_SYSTEM_PROMPT_V1;
+    }
+
+    public String getPerformanceSuggestionsPrompt(String analysisJson) {
+        return "Lighthouse performans analiz verileri:\n\n" + analysisJson;
+    }
+
+    public String getUrlSuggestionsPrompt(String url) {
+        return "Analiz edilecek URL: " + url;
+    }
 }
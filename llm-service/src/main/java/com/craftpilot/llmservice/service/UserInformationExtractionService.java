@@ -87,6 +87,7 @@ public class UserInformationExtractionService {
 
         AIRequest extractionRequest = AIRequest.builder()
                 .model(extractionModel)
+                .systemPrompt(EXTRACTION_SYSTEM_PROMPT)
                 .prompt(prompt)
                 .maxTokens(500)
                 .temperature(0.2)  // Daha kesin sonuçlar için düşük sıcaklık
@@ -120,31 +121,37 @@ public class UserInformationExtractionService {
                 .doFinally(s -> LoggingUtils.clearRequestContext());
     }
 
+    // Sabit talimatlar sistem mesajında tutulur; kullanıcı mesajı sonda kaldığı için
+    // prefix her istekte byte-byte aynıdır ve sağlayıcı önbelleğinden okunabilir
+    private static final String EXTRACTION_SYSTEM_PROMPT = """
+            Kullanıcı mesajından anlamlı bilgileri çıkartıp JSON formatında döndür.
+            
+            Mesajdan kullanıcının adı, yaşadığı yer, ilgi alanları, mesleği, teknoloji bilgisi, 
+            tercihleri ve diğer kişisel bilgileri tespit etmeye çalış.
+            
+            ÖNEMLİ: 
+            1. Eğer mesajda hiçbir anlamlı kişisel bilgi yoksa, boş döndürmek yerine mesajın 
+               ana konusunu veya amacını belirt.
+            2. Mutlaka JSON formatında yanıt ver.
+            3. Kesin bilgi yoksa tahmin yürütme.
+            
+            Örnek yanıt formatı:
+            {
+              "bilgiler": [
+                "Kullanıcı yazılım geliştirme ile ilgileniyor",
+                "Kullanıcı CraftPilot adlı bir proje üzerinde çalışıyor"
+              ]
+            }
+            
+            Sadece JSON formatında cevap ver, hiçbir açıklama ya da ek metin kullanma.
+            """;
+
     // Geliştirilmiş prompt oluşturma - daha iyi sonuçlar için
     private String buildImprovedExtractionPrompt(String message) {
         return """
-                Aşağıdaki kullanıcı mesajından anlamlı bilgileri çıkartıp JSON formatında döndür:
+                Aşağıdaki kullanıcı mesajından anlamlı bilgileri çıkar:
                 
                 "%s"
-                
-                Mesajdan kullanıcının adı, yaşadığı yer, ilgi alanları, mesleği, teknoloji bilgisi, 
-                tercihleri ve diğer kişisel bilgileri tespit etmeye çalış.
-                
-                ÖNEMLİ: 
-                1. Eğer mesajda hiçbir anlamlı kişisel bilgi yoksa, boş döndürmek yerine mesajın 
-                   ana konusunu veya amacını belirt.
-                2. Mutlaka JSON formatında yanıt ver.
-                3. Kesin bilgi yoksa tahmin yürütme.
-                
-                Örnek yanıt formatı:
-                {
-                  "bilgiler": [
-                    "Kullanıcı yazılım geliştirme ile ilgileniyor",
-                    "Kullanıcı CraftPilot adlı bir proje üzerinde çalışıyor"
-                  ]
-                }
-                
-                Sadece JSON formatında cevap ver, hiçbir açıklama ya da ek metin kullanma.
                 """.formatted(message);
     }
 
@@ -328,7 +335,7 @@ public class UserInformationExtractionService {
     }
 
     // Gelişmiş kural tabanlı çıkarım
-    private String performAdvancedRuleBasedExtraction(String message) {
+    String performAdvancedRuleBasedExtraction(String message) {
         if (message == null || message.trim().isEmpty()) {
             return "Mesajdan bilgi çıkarılamadı";
         }
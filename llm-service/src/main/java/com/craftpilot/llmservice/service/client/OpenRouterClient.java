@@ -5,8 +5,12 @@ import com.craftpilot.llmservice.exception.APIException;
 import com.craftpilot.llmservice.model.AIRequest;
 import com.craftpilot.llmservice.model.AIResponse;
 import com.craftpilot.llmservice.util.LoggingUtils;
+import com.craftpilot.llmservice.util.ResponseExtractor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.ParameterizedTypeReference;
@@ -21,6 +25,7 @@ import reactor.core.scheduler.Schedulers;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeoutException;
@@ -34,6 +39,9 @@ import java.util.concurrent.TimeoutException;
 public class OpenRouterClient {
     private final WebClient openRouterWebClient;
     private final OpenRouterProperties properties;
+    private final ResponseExtractor responseExtractor;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
 
     private static final String OPENROUTER_CIRCUIT = "openRouterApiCircuit";
     private static final String FALLBACK_RESPONSE = "API servisine şu anda ulaşılamıyor. Lütfen daha sonra tekrar deneyin.";
@@ -45,6 +53,7 @@ public class OpenRouterClient {
     @Retry(name = OPENROUTER_CIRCUIT)
     public Mono<Map<String, Object>> callOpenRouter(String endpoint, AIRequest request) {
         Map<String, Object> requestBody = createRequestBody(request);
+        String model = (String) requestBody.get("model");
 
         // Endpoint normalizasyonu
         String uri = normalizeEndpoint(endpoint);
@@ -57,6 +66,7 @@ public class OpenRouterClient {
                     headers.set("Accept", "application/json, text/plain, text/html, */*");
                 })
                 .exchangeToMono(this::processResponse)
+                .doOnNext(response -> recordPromptCacheUsage(model, response))
                 .timeout(Duration.ofSeconds(properties.getRequestTimeoutSeconds()))
                 .doOnError(e -> log.error("OpenRouter API isteği sırasında hata: {}", e.getMessage(), e))
                 // Timeout ve ağ hataları için retry mekanizması
@@ -76,6 +86,7 @@ public class OpenRouterClient {
     public Flux<String> streamFromOpenRouter(AIRequest request) {
         Map<String, Object> requestBody = createRequestBody(request);
         requestBody.put("stream", true);
+        String model = (String) requestBody.get("model");
  
         return openRouterWebClient.post()
                 .uri("/chat/completions")
@@ -88,6 +99,7 @@ public class OpenRouterClient {
                 .onStatus(status -> status.is5xxServerError(), response -> response.bodyToMono(String.class)
                         .flatMap(error -> Mono.error(new APIException("OpenRouter sunucu hatası: " + error))))
                 .bodyToFlux(String.class)
+                .doOnNext(chunk -> recordStreamPromptCacheUsage(model, chunk))
                 .timeout(Duration.ofSeconds(properties.getStreamTimeoutSeconds())) 
                 .doOnError(e -> log.error("OpenRouter stream hatası: {}", e.getMessage(), e))
                 // Backpressure stratejisi
@@ -174,6 +186,37 @@ public class OpenRouterClient {
         }
     }
 
+    /**
+     * Yanıttaki prompt ve önbellek token sayılarını metrik olarak kaydeder
+     */
+    private void recordPromptCacheUsage(String model, Map<String, Object> response) {
+        if (response == null || !response.containsKey("usage")) {
+            return;
+        }
+        int promptTokens = responseExtractor.extractPromptTokenCount(response);
+        int cachedTokens = responseExtractor.extractCachedTokenCount(response);
+        meterRegistry.counter("openrouter.prompt.tokens", "model", model).increment(promptTokens);
+        meterRegistry.counter("openrouter.prompt.tokens.cached", "model", model).increment(cachedTokens);
+    }
+
+    /**
+     * Stream'in son parçasında gelen usage bilgisini kaydeder; diğer parçalar parse edilmez
+     */
+    private void recordStreamPromptCacheUsage(String model, String chunk) {
+        if (chunk == null || !chunk.contains("\"usage\"")) {
+            return;
+        }
+        String data = chunk.startsWith("data:") ? chunk.substring(5).trim() : chunk;
+        try {
+            Map<String, Object> usageChunk = objectMapper.readValue(data,
+                    new TypeReference<Map<String, Object>>() {
+                    });
+            recordPromptCacheUsage(model, usageChunk);
+        } catch (Exception e) {
+            log.debug("Stream usage parçası okunamadı: {}", e.getMessage());
+        }
+    }
+
     /**
      * callOpenRouter metodu için fallback
      */
@@ -218,22 +261,27 @@ public class OpenRouterClient {
         body.put("model", request.getModel() != null ? request.getModel() : properties.getDefaultModel());
 
         // Mesajları hazırla
-        List<Map<String, Object>> messages = prepareMessages(request);
+        List<Map<String, Object>> messages = prepareMessages(request, (String) body.get("model"));
         body.put("messages", messages);
 
         // Diğer parametreleri ekle
         body.put("max_tokens", request.getMaxTokens() != null ? request.getMaxTokens() : properties.getMaxTokens());
         body.put("temperature",
                 request.getTemperature() != null ? request.getTemperature() : properties.getTemperature());
+
+        // Önbellekten okunan token sayısının (cached_tokens) yanıtta dönmesi için
+        body.put("usage", Map.of("include", true));
  
         return body;
     }
 
     /**
-     * Mesajları hazırlar, sistem mesajını ve kullanıcı mesajını ayarlar
+     * Mesajları hazırlar, sistem mesajını ve kullanıcı mesajını ayarlar.
+     * Sistem mesajı yoksa başa eklenir; mevcut mesajların sırası değiştirilmez. Destekleyen modellerde
+     * baştaki sistem mesajları sağlayıcı prompt önbelleği için cache_control ile işaretlenir.
      * (RequestBodyBuilder'dan taşındı)
      */
-    private List<Map<String, Object>> prepareMessages(AIRequest request) {
+    List<Map<String, Object>> prepareMessages(AIRequest request, String model) {
         List<Map<String, Object>> messages;
 
         // Eğer messages dizisi mevcutsa, onu kullan
@@ -246,7 +294,7 @@ public class OpenRouterClient {
 
             // Yoksa ekle
             if (!hasSystemMessage) {
-                Map<String, Object> systemMessage = new HashMap<>();
+                Map<String, Object> systemMessage = new LinkedHashMap<>();
                 systemMessage.put("role", "system");
                 systemMessage.put("content", request.getSystemPrompt() != null ? request.getSystemPrompt()
                         : properties.getDefaultSystemPrompt());
@@ -260,14 +308,14 @@ public class OpenRouterClient {
             messages = new ArrayList<>();
 
             // Sistem mesajını ekle
-            Map<String, Object> systemMessage = new HashMap<>();
+            Map<String, Object> systemMessage = new LinkedHashMap<>();
             systemMessage.put("role", "system");
             systemMessage.put("content", request.getSystemPrompt() != null ? request.getSystemPrompt()
                     : properties.getDefaultSystemPrompt());
             messages.add(systemMessage);
 
             // Kullanıcı mesajını ekle
-            Map<String, Object> userMessage = new HashMap<>();
+            Map<String, Object> userMessage = new LinkedHashMap<>();
             userMessage.put("role", "user");
             userMessage.put("content", request.getPrompt());
             messages.add(userMessage);
@@ -276,6 +324,57 @@ public class OpenRouterClient {
             throw new IllegalArgumentException("Request must contain either 'prompt' or 'messages'");
         }
 
-        return messages;
+        return arrangeForPromptCache(messages, model);
+    }
+
+    /**
+     * Model destekliyorsa baştaki ardışık sistem mesajlarının sonuncusuna cache_control breakpoint'i ekler.
+     * Sıra değiştirilmez: konuşmanın ortasındaki sistem mesajları bağlamına göre anlam taşır ve yerinde kalır,
+     * önbelleğe yalnızca sabit önek girer. Çağıranın mesaj map'leri değiştirilmez.
+     */
+    private List<Map<String, Object>> arrangeForPromptCache(List<Map<String, Object>> messages, String model) {
+        OpenRouterProperties.PromptCache cacheProperties = properties.getPromptCache();
+        if (!cacheProperties.isEnabled() || !supportsCacheControl(model)) {
+            return messages;
+        }
+
+        int prefixCount = 0;
+        while (prefixCount < messages.size() && "system".equals(messages.get(prefixCount).get("role"))) {
+            prefixCount++;
+        }
+        if (prefixCount == 0) {
+            return messages;
+        }
+
+        Map<String, Object> lastSystem = messages.get(prefixCount - 1);
+        if (!(lastSystem.get("content") instanceof String content)
+                || content.length() < cacheProperties.getMinCacheableChars()) {
+            return messages;
+        }
+        Map<String, Object> textPart = new LinkedHashMap<>();
+        textPart.put("type", "text");
+        textPart.put("text", content);
+        textPart.put("cache_control", Map.of("type", "ephemeral"));
+
+        Map<String, Object> cachedSystem = new LinkedHashMap<>(lastSystem);
+        cachedSystem.put("content", List.of(textPart));
+        List<Map<String, Object>> arranged = new ArrayList<>(messages);
+        arranged.set(prefixCount - 1, cachedSystem);
+        return arranged;
+    }
+
+    /**
+     * Modelin açık cache_control breakpoint'lerini destekleyip desteklemediğini kontrol eder
+     */
+    private boolean supportsCacheControl(String model) {
+        if (model == null) {
+            return false;
+        }
+        for (String prefix : properties.getPromptCache().getCacheControlModelPrefixes()) {
+            if (model.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,68 @@
+package com.craftpilot.llmservice.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Büyük mesaj içeriklerini Firestore'a sıkıştırılmış saklamak için yardımcı.
+ * Çıktının ilk baytı format işaretidir (1 = raw deflate); ileride başka
+ * algoritmalar eklenirse eski kayıtlar bu işaretle ayırt edilir.
+ */
+public class ContentCompression {
+    public static final int COMPRESSION_THRESHOLD_CHARS = 4096;
+    public static final byte FORMAT_DEFLATE = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    public static boolean shouldCompress(String content) {
+        return content != null && content.length() >= COMPRESSION_THRESHOLD_CHARS;
+    }
+
+    public static byte[] compress(String content) {
+        byte[] input = content.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 3 + 16);
+            out.write(FORMAT_DEFLATE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        if (data[0] != FORMAT_DEFLATE) {
+            throw new IllegalStateException("Bilinmeyen içerik sıkıştırma formatı: " + data[0]);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, 1, data.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Sıkıştırılmış içerik çözülemedi: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.craftpilot.llmservice.util;
+
+import com.craftpilot.llmservice.model.ChatHistory;
+import com.craftpilot.llmservice.model.Conversation;
+
+/**
+ * Firestore belge boyutu tahmini (https://firebase.google.com/docs/firestore/storage-size):
+ * string = UTF-8 bayt + 1, blob = bayt sayısı, sayı/zaman damgası = 8, alan adı = uzunluk + 1.
+ * Okunan bayt metriği için kullanılır; belgeyi yeniden kodlamadan nesne üzerinden hesaplar.
+ */
+public class FirestoreDocumentSize {
+    private static final int DOCUMENT_OVERHEAD = 32;
+    private static final int CONVERSATION_FIXED_FIELDS = 96;
+
+    public static long estimate(ChatHistory history) {
+        if (history == null) {
+            return 0;
+        }
+        long size = DOCUMENT_OVERHEAD
+                + field("userId", history.getUserId())
+                + field("title", history.getTitle())
+                + field("aiModel", history.getAiModel())
+                + field("lastConversation", history.getLastConversation())
+                + 3 * 16; // createdAt, updatedAt, temperature, enable
+        if (history.getConversations() != null) {
+            for (Conversation conversation : history.getConversations()) {
+                size += CONVERSATION_FIXED_FIELDS + field("id", conversation.getId()) + field("role", conversation.getRole());
+                // Sıkıştırılmış içerik çözülmeden blob boyutu sayılır
+                size += "content".length() + 1 + conversation.storedContentBytes() + 1;
+            }
+        }
+        return size;
+    }
+
+    private static long field(String name, String value) {
+        return name.length() + 1 + (value == null ? 1 : utf8Length(value) + 1);
+    }
+
+    public static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
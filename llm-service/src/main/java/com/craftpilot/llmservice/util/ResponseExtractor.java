@@ -76,6 +76,31 @@ public class ResponseExtractor {
         return ((Number) usage.getOrDefault("total_tokens", 0)).intValue();
     }
     
+    /**
+     * Prompt token sayısını çıkarır
+     */
+    public Integer extractPromptTokenCount(Map<String, Object> response) {
+        Object usage = response.get("usage");
+        if (usage instanceof Map<?, ?> usageMap && usageMap.get("prompt_tokens") instanceof Number promptTokens) {
+            return promptTokens.intValue();
+        }
+        return 0;
+    }
+
+    /**
+     * Sağlayıcı önbelleğinden okunan prompt token sayısını çıkarır
+     * (usage.prompt_tokens_details.cached_tokens)
+     */
+    public Integer extractCachedTokenCount(Map<String, Object> response) {
+        Object usage = response.get("usage");
+        if (usage instanceof Map<?, ?> usageMap
+                && usageMap.get("prompt_tokens_details") instanceof Map<?, ?> details
+                && details.get("cached_tokens") instanceof Number cachedTokens) {
+            return cachedTokens.intValue();
+        }
+        return 0;
+    }
+    
     /**
      * HTML içeriğinden hata mesajını çıkarır
      */
@@ -0,0 +1,143 @@
+package com.craftpilot.llmservice.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Arama indeksi için Türkçe duyarlı metin normalizasyonu.
+ * Önce Türkçe yerel ayarıyla küçük harfe çevrilir (İ→i, I→ı), ardından
+ * ı/ş/ğ/ç/ö/ü harfleri ASCII karşılıklarına katlanır; böylece "İstanbul",
+ * "ISTANBUL" ve "istanbul" aynı terime düşer.
+ */
+public class SearchTextNormalizer {
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+    private static final char COMBINING_DOT_ABOVE = '\u0307';
+    public static final int MIN_TERM_LENGTH = 2;
+    public static final int MAX_TERM_LENGTH = 32;
+
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String lower = text.toLowerCase(TURKISH);
+        StringBuilder sb = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c != COMBINING_DOT_ABOVE) {
+                sb.append(foldChar(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Metni terimlere ayırır; her terim için geçiş sayısını ve ilk geçtiği
+     * karakter konumunu (orijinal metin üzerinde) döner.
+     */
+    public static Map<String, TermOccurrence> terms(String text) {
+        Map<String, TermOccurrence> result = new LinkedHashMap<>();
+        if (text == null || text.isEmpty()) {
+            return result;
+        }
+        String folded = fold(text);
+        // Ayrışık yazılmış "i̇" gibi birleşik noktalar atıldığında konumlar kayar;
+        // bu durumda snippet metnin başından alınır
+        boolean sameLength = folded.length() == text.length();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_TERM_LENGTH) {
+                    String term = folded.substring(start, start + Math.min(length, MAX_TERM_LENGTH));
+                    int position = sameLength ? start : -1;
+                    result.computeIfAbsent(term, t -> new TermOccurrence(position)).count++;
+                }
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Arama sorgusunu terimlere ayırır; kısa parçalar da prefix olarak korunur.
+     */
+    public static List<String> queryTerms(String query, int maxTerms) {
+        List<String> result = new ArrayList<>();
+        for (String part : fold(query).split("[^\\p{L}\\p{N}]+")) {
+            if (part.isEmpty() || result.contains(part)) {
+                continue;
+            }
+            result.add(part.length() > MAX_TERM_LENGTH ? part.substring(0, MAX_TERM_LENGTH) : part);
+            if (result.size() >= maxTerms) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Terimin ilk geçtiği yerin çevresinden kelime sınırlarına hizalı kısa bir alıntı üretir.
+     */
+    public static String snippet(String text, int position, int maxLength) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        if (text.length() <= maxLength) {
+            return text.strip();
+        }
+        int from = Math.max(0, Math.min(position < 0 ? 0 : position - maxLength / 3, text.length() - maxLength));
+        int to = Math.min(text.length(), from + maxLength);
+        if (from > 0) {
+            int space = text.indexOf(' ', from);
+            if (space > 0 && space < from + 16) {
+                from = space + 1;
+            }
+        }
+        if (to < text.length()) {
+            int space = text.lastIndexOf(' ', to);
+            if (space > from + maxLength / 2) {
+                to = space;
+            }
+        }
+        String body = text.substring(from, to).replaceAll("\\s+", " ").strip();
+        return (from > 0 ? "…" : "") + body + (to < text.length() ? "…" : "");
+    }
+
+    private static char foldChar(char c) {
+        switch (c) {
+            case 'ı': return 'i';
+            case 'ş': return 's';
+            case 'ğ': return 'g';
+            case 'ç': return 'c';
+            case 'ö': return 'o';
+            case 'ü': return 'u';
+            case 'â': return 'a';
+            case 'î': return 'i';
+            case 'û': return 'u';
+            default: return c;
+        }
+    }
+
+    public static class TermOccurrence {
+        private final int firstPosition;
+        private int count;
+
+        TermOccurrence(int firstPosition) {
+            this.firstPosition = firstPosition;
+        }
+
+        public int getFirstPosition() {
+            return firstPosition;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
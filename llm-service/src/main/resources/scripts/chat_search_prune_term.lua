@@ -0,0 +1,8 @@
+-- Posting listesi boşalan terimi lex ZSET'inden siler; prefix aramaları ölü terimlere limit harcamaz.
+-- addTerms önce HINCRBY sonra ZADD yaptığı için kontrol ve silme atomik olmalıdır: eşzamanlı bir ekleme ya
+-- listeyi boş bulmaz ya da ZADD'i bu silmeden sonra gelir.
+-- KEYS[1]: terimin posting hash'i, KEYS[2]: lex ZSET'i, ARGV[1]: terim. Dönüş: silindiyse 1
+if redis.call('HLEN', KEYS[1]) > 0 then
+  return 0
+end
+return redis.call('ZREM', KEYS[2], ARGV[1])
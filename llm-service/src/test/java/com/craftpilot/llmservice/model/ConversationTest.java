@@ -0,0 +1,98 @@
+package com.craftpilot.llmservice.model;
+
+import com.craftpilot.llmservice.util.ContentCompression;
+import com.google.cloud.firestore.Blob;
+import com.google.cloud.firestore.DocumentReference;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Conversation'ın Firestore eşlemesi: Firestore'un kendi CustomClassMapper'ı ile yazılıp okunur.
+ */
+class ConversationTest {
+    private static final int THRESHOLD = ContentCompression.COMPRESSION_THRESHOLD_CHARS;
+
+    @Test
+    void contentBelowThresholdIsStoredAsPlainText() {
+        String content = "a".repeat(THRESHOLD - 1);
+
+        Map<String, Object> stored = write(Conversation.builder().id("c1").content(content).build());
+
+        assertEquals(content, stored.get("content"));
+        assertNull(stored.get("compressedContent"));
+        assertEquals(content, read(stored).getContent());
+    }
+
+    @Test
+    void contentAtThresholdIsStoredCompressed() {
+        String content = "ğ".repeat(THRESHOLD);
+
+        Map<String, Object> stored = write(Conversation.builder().id("c1").content(content).build());
+
+        assertNull(stored.get("content"));
+        assertInstanceOf(Blob.class, stored.get("compressedContent"));
+        Conversation conversation = read(stored);
+        assertEquals(((Blob) stored.get("compressedContent")).toByteString().size(), conversation.storedContentBytes());
+        assertEquals(content, conversation.getContent());
+    }
+
+    @Test
+    void legacyPlainContentAboveThresholdIsReadAsIs() {
+        String content = "eski kayıt ".repeat(THRESHOLD);
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put("id", "c1");
+        legacy.put("content", content);
+
+        Conversation conversation = read(legacy);
+
+        assertEquals(content, conversation.getContent());
+        // Yeniden yazıldığında sıkıştırılır
+        Map<String, Object> rewritten = write(conversation);
+        assertNull(rewritten.get("content"));
+        assertEquals(content, read(rewritten).getContent());
+    }
+
+    @Test
+    void toStringNeitherPrintsNorConvertsContent() {
+        String content = "gizli ".repeat(THRESHOLD);
+        Conversation conversation = Conversation.builder().id("c1").content(content).build();
+
+        String text = conversation.toString();
+
+        assertFalse(text.contains("gizli"));
+        assertEquals(content.length(), conversation.storedContentBytes());
+    }
+
+    private static Map<String, Object> write(Conversation conversation) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stored = (Map<String, Object>) invokeMapper("convertToPlainJavaTypes",
+                new Class<?>[]{Object.class}, conversation);
+        return stored;
+    }
+
+    private static Conversation read(Map<String, Object> stored) {
+        return (Conversation) invokeMapper("convertToCustomClass",
+                new Class<?>[]{Object.class, Class.class, DocumentReference.class}, stored, Conversation.class, null);
+    }
+
+    /**
+     * DocumentReference.set ve DocumentSnapshot.toObject'in kullandığı eşleyici; paket içi olduğu için yansımayla çağrılır
+     */
+    private static Object invokeMapper(String name, Class<?>[] types, Object... args) {
+        try {
+            Method method = Class.forName("com.google.cloud.firestore.CustomClassMapper").getDeclaredMethod(name, types);
+            method.setAccessible(true);
+            return method.invoke(null, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
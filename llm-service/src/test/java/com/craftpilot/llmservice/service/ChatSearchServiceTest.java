@@ -0,0 +1,131 @@
+package com.craftpilot.llmservice.service;
+
+import com.craftpilot.llmservice.config.ChatSearchProperties;
+import com.craftpilot.llmservice.model.ChatHistory;
+import com.craftpilot.llmservice.model.response.ChatSearchResult;
+import com.craftpilot.llmservice.repository.ChatHistoryRepository;
+import com.craftpilot.llmservice.repository.ChatSearchIndexRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatSearchServiceTest {
+    private static final String SNIPPET = ChatSearchIndexRepository.SNIPPET_SUFFIX;
+
+    private final ChatSearchIndexRepository indexRepository = mock(ChatSearchIndexRepository.class);
+    private final ChatHistoryRepository chatHistoryRepository = mock(ChatHistoryRepository.class);
+    private final ChatSearchService service = new ChatSearchService(indexRepository, chatHistoryRepository,
+            new ChatSearchProperties());
+
+    @Test
+    void rareTermsAndHigherFrequencyScoreHigher() {
+        // "redis" 1/10 sohbette, "kod" 3/10 sohbette geçer
+        Map<String, ChatSearchService.Match> rare = ChatSearchService.scorePostings("redis", "redis",
+                Map.of("h1", "1"), 10);
+        Map<String, ChatSearchService.Match> common = ChatSearchService.scorePostings("kod", "kod",
+                Map.of("h1", "1", "h2", "4", "h3", "1"), 10);
+
+        List<ChatSearchResult> byRare = ChatSearchService.rank(List.of(rare), 10);
+        List<ChatSearchResult> byCommon = ChatSearchService.rank(List.of(common), 10);
+
+        assertTrue(byRare.get(0).getScore() > byCommon.get(2).getScore());
+        assertEquals("h2", byCommon.get(0).getHistoryId());
+    }
+
+    @Test
+    void prefixMatchScoresBelowExactMatch() {
+        Map<String, String> postings = Map.of("h1", "2");
+
+        double exact = ChatSearchService.rank(List.of(ChatSearchService.scorePostings("kod", "kod", postings, 5)), 1)
+                .get(0).getScore();
+        double prefix = ChatSearchService.rank(List.of(ChatSearchService.scorePostings("ko", "kod", postings, 5)), 1)
+                .get(0).getScore();
+
+        assertEquals(exact * 0.6, prefix, 1e-9);
+    }
+
+    @Test
+    void rankKeepsOnlyHistoriesMatchingEveryTermAndPicksBestSnippet() {
+        Map<String, ChatSearchService.Match> spring = ChatSearchService.scorePostings("spring", "spring",
+                Map.of("h1", "1", "h1" + SNIPPET, "spring boot", "h2", "3", "h2" + SNIPPET, "spring"), 20);
+        Map<String, ChatSearchService.Match> kafka = ChatSearchService.scorePostings("kafka", "kafka",
+                Map.of("h1", "5", "h1" + SNIPPET, "kafka consumer", "h3", "1"), 20);
+
+        List<ChatSearchResult> results = ChatSearchService.rank(List.of(spring, kafka), 10);
+
+        assertEquals(1, results.size());
+        assertEquals("h1", results.get(0).getHistoryId());
+        assertEquals("kafka consumer", results.get(0).getSnippet());
+        assertTrue(ChatSearchService.rank(List.of(spring, Map.of()), 10).isEmpty());
+    }
+
+    @Test
+    void rankAppliesLimitAfterSorting() {
+        Map<String, ChatSearchService.Match> matches = ChatSearchService.scorePostings("kod", "kod",
+                Map.of("h1", "1", "h2", "9", "h3", "3", "h4", "bozuk"), 10);
+
+        List<ChatSearchResult> results = ChatSearchService.rank(List.of(matches), 2);
+
+        assertEquals(List.of("h2", "h3"), results.stream().map(ChatSearchResult::getHistoryId).toList());
+        assertNull(results.get(0).getSnippet());
+    }
+
+    @Test
+    void rebuildReleasesLockWhenIndexingFails() {
+        when(indexRepository.tryLockRebuild(eq("user-1"), any())).thenReturn(Mono.just(true));
+        when(indexRepository.unlockRebuild("user-1")).thenReturn(Mono.just(true));
+        Mono<Boolean> markReady = Mono.fromCallable(() -> {
+            throw new AssertionError("Hatalı yeniden oluşturma indeksi hazır işaretlememeli");
+        });
+        when(indexRepository.markReady("user-1")).thenReturn(markReady);
+        when(chatHistoryRepository.findAllByUserId(eq("user-1"), anyInt(), anyInt()))
+                .thenReturn(Flux.error(new IllegalStateException("firestore down")));
+
+        assertThrows(IllegalStateException.class, () -> service.rebuildIndex("user-1").block());
+
+        verify(indexRepository).unlockRebuild("user-1");
+    }
+
+    @Test
+    void rebuildMarksReadyThenUnlocks() {
+        when(indexRepository.tryLockRebuild(eq("user-1"), any())).thenReturn(Mono.just(true));
+        when(indexRepository.unlockRebuild("user-1")).thenReturn(Mono.just(true));
+        when(indexRepository.markReady("user-1")).thenReturn(Mono.just(true));
+        when(chatHistoryRepository.findAllByUserId(eq("user-1"), anyInt(), anyInt()))
+                .thenReturn(Flux.just(ChatHistory.builder().id("h1").userId("user-1").title("Redis").build()));
+        when(indexRepository.removeDocument("user-1", "h1")).thenReturn(Mono.empty());
+        when(indexRepository.putDocument("user-1", "h1", "Redis")).thenReturn(Mono.empty());
+        when(indexRepository.addTerms(eq("user-1"), eq("h1"), any(), any())).thenReturn(Mono.empty());
+
+        service.rebuildIndex("user-1").block();
+
+        verify(indexRepository).addTerms(eq("user-1"), eq("h1"), eq(Map.of("redis", 5)), eq(Map.of()));
+        verify(indexRepository).markReady("user-1");
+        verify(indexRepository).unlockRebuild("user-1");
+    }
+
+    @Test
+    void rebuildSkipsWhenLockIsHeldElsewhere() {
+        when(indexRepository.tryLockRebuild(eq("user-1"), any())).thenReturn(Mono.just(false));
+
+        service.rebuildIndex("user-1").block();
+
+        verify(chatHistoryRepository, never()).findAllByUserId(any(), anyInt(), anyInt());
+        verify(indexRepository, never()).unlockRebuild("user-1");
+    }
+}
@@ -0,0 +1,99 @@
+package com.craftpilot.llmservice.service.client;
+
+import com.craftpilot.llmservice.config.OpenRouterProperties;
+import com.craftpilot.llmservice.model.AIRequest;
+import com.craftpilot.llmservice.service.PromptService;
+import com.craftpilot.llmservice.util.ResponseExtractor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * prepareMessages: cache_control breakpoint'i yalnızca baştaki sabit sistem önekinin son mesajına eklenir.
+ */
+class OpenRouterClientPromptCacheTest {
+    private static final String CACHED_MODEL = "anthropic/claude-3.5-sonnet";
+    private static final String LONG_PROMPT = "Sabit talimat. ".repeat(60);
+
+    private final OpenRouterProperties properties = new OpenRouterProperties();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OpenRouterClient client = new OpenRouterClient(null, properties, new ResponseExtractor(objectMapper),
+            objectMapper, new SimpleMeterRegistry());
+
+    @Test
+    void breakpointIsPlacedOnLastLeadingSystemMessage() {
+        Map<String, Object> firstSystem = message("system", LONG_PROMPT);
+        Map<String, Object> secondSystem = message("system", LONG_PROMPT + "ikinci");
+        Map<String, Object> user = message("user", "merhaba");
+        Map<String, Object> midSystem = message("system", LONG_PROMPT + "bağlam");
+        AIRequest request = AIRequest.builder()
+                .messages(new ArrayList<>(List.of(firstSystem, secondSystem, user, midSystem)))
+                .build();
+
+        List<Map<String, Object>> messages = client.prepareMessages(request, CACHED_MODEL);
+
+        assertEquals(4, messages.size());
+        assertSame(firstSystem, messages.get(0));
+        assertEquals(List.of(cachedPart(LONG_PROMPT + "ikinci")), messages.get(1).get("content"));
+        assertSame(user, messages.get(2));
+        // Konuşma ortasındaki sistem mesajı yerinde ve işaretsiz kalır
+        assertSame(midSystem, messages.get(3));
+        // Çağıranın map'i değiştirilmez
+        assertEquals(LONG_PROMPT + "ikinci", secondSystem.get("content"));
+    }
+
+    @Test
+    void promptRequestGetsSystemPrefixBeforeUserMessage() {
+        AIRequest request = AIRequest.builder().systemPrompt(LONG_PROMPT).prompt("soru").build();
+
+        List<Map<String, Object>> messages = client.prepareMessages(request, CACHED_MODEL);
+
+        assertEquals(List.of(cachedPart(LONG_PROMPT)), messages.get(0).get("content"));
+        assertEquals("system", messages.get(0).get("role"));
+        assertEquals(message("user", "soru"), messages.get(1));
+    }
+
+    @Test
+    void unsupportedModelAndShortPromptAreLeftUntagged() {
+        AIRequest longPrompt = AIRequest.builder().systemPrompt(LONG_PROMPT).prompt("soru").build();
+        assertEquals(LONG_PROMPT, client.prepareMessages(longPrompt, "openai/gpt-4o-mini").get(0).get("content"));
+
+        // Varsayılan tek satırlık sistem mesajı eşiğin altındadır
+        AIRequest defaultPrompt = AIRequest.builder().prompt("soru").build();
+        assertEquals(properties.getDefaultSystemPrompt(),
+                client.prepareMessages(defaultPrompt, CACHED_MODEL).get(0).get("content"));
+    }
+
+    @Test
+    void performanceSuggestionsSystemPromptIsLongEnoughToTag() {
+        PromptService promptService = new PromptService(new SimpleMeterRegistry(), objectMapper);
+        AIRequest request = AIRequest.builder()
+                .systemPrompt(promptService.getPerformanceSuggestionsSystemPrompt())
+                .prompt(promptService.getUrlSuggestionsPrompt("https://example.com"))
+                .build();
+
+        Object content = client.prepareMessages(request, "google/gemini-2.5-flash").get(0).get("content");
+
+        assertInstanceOf(List.class, content);
+    }
+
+    private static Map<String, Object> message(String role, String content) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("role", role);
+        message.put("content", content);
+        return message;
+    }
+
+    private static Map<String, Object> cachedPart(String text) {
+        return Map.of("type", "text", "text", text, "cache_control", Map.of("type", "ephemeral"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.craftpilot.llmservice.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResponseExtractorTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ResponseExtractor extractor = new ResponseExtractor(objectMapper);
+
+    @Test
+    void extractsPromptAndCachedTokensFromUsage() throws Exception {
+        Map<String, Object> response = parse("""
+                {"usage": {"prompt_tokens": 1800, "completion_tokens": 90, "total_tokens": 1890,
+                           "prompt_tokens_details": {"cached_tokens": 1536}}}
+                """);
+
+        assertEquals(1800, extractor.extractPromptTokenCount(response));
+        assertEquals(1536, extractor.extractCachedTokenCount(response));
+    }
+
+    @Test
+    void missingUsageDetailsCountAsZero() throws Exception {
+        assertEquals(0, extractor.extractCachedTokenCount(parse("{\"usage\": {\"prompt_tokens\": 12}}")));
+        assertEquals(0, extractor.extractCachedTokenCount(parse("{\"choices\": []}")));
+        assertEquals(0, extractor.extractPromptTokenCount(parse("{\"choices\": []}")));
+    }
+
+    private Map<String, Object> parse(String json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        });
+    }
+}
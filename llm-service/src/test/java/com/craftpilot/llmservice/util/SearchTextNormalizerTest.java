@@ -0,0 +1,61 @@
+package com.craftpilot.llmservice.util;
+
+import com.craftpilot.llmservice.util.SearchTextNormalizer.TermOccurrence;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchTextNormalizerTest {
+
+    @Test
+    void turkishCaseVariantsFoldToSameTerm() {
+        assertEquals("istanbul", SearchTextNormalizer.fold("İstanbul"));
+        assertEquals("istanbul", SearchTextNormalizer.fold("ISTANBUL"));
+        assertEquals("istanbul", SearchTextNormalizer.fold("istanbul"));
+        assertEquals("isik", SearchTextNormalizer.fold("IŞIK"));
+        assertEquals("cagri gonder uzum", SearchTextNormalizer.fold("Çağrı Gönder Üzüm"));
+        // Ayrışık yazılmış noktalı İ (I + U+0307) da aynı terime düşer
+        assertEquals("istanbul", SearchTextNormalizer.fold("İstanbul"));
+    }
+
+    @Test
+    void termsCountOccurrencesAndSkipShortTokens() {
+        Map<String, TermOccurrence> terms = SearchTextNormalizer.terms("Kod yaz, KOD çalıştır: a b kod!");
+
+        assertEquals(3, terms.get("kod").getCount());
+        assertEquals(0, terms.get("kod").getFirstPosition());
+        assertEquals(1, terms.get("calistir").getCount());
+        assertEquals(13, terms.get("calistir").getFirstPosition());
+        assertFalse(terms.containsKey("a"));
+        assertFalse(terms.containsKey("b"));
+    }
+
+    @Test
+    void longTermsAreTruncated() {
+        String word = "a".repeat(SearchTextNormalizer.MAX_TERM_LENGTH + 10);
+
+        assertTrue(SearchTextNormalizer.terms(word).containsKey("a".repeat(SearchTextNormalizer.MAX_TERM_LENGTH)));
+    }
+
+    @Test
+    void queryTermsAreFoldedDedupedAndCapped() {
+        assertEquals(List.of("ozel", "sohbet", "g"), SearchTextNormalizer.queryTerms("Özel SOHBET özel g", 6));
+        assertEquals(List.of("bir", "iki"), SearchTextNormalizer.queryTerms("bir iki üç", 2));
+    }
+
+    @Test
+    void snippetIsAlignedToWordsAroundPosition() {
+        String text = "başlangıç " + "dolgu ".repeat(20) + "aranan kelime burada " + "son ".repeat(20);
+        String snippet = SearchTextNormalizer.snippet(text, text.indexOf("aranan"), 40);
+
+        assertTrue(snippet.startsWith("…"));
+        assertTrue(snippet.endsWith("…"));
+        assertTrue(snippet.contains("aranan"));
+        assertEquals("kısa metin", SearchTextNormalizer.snippet("  kısa metin ", 0, 40));
+    }
+}
@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
@@ -16,6 +17,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
@@ -47,7 +50,10 @@ public class AIModelController {
                                             .providers(modelsData.getProviders())
                                             // defaultModelId, userPlan, lastSelectedModelId ve version alanları kaldırıldı
                                             .build();
-                                        return ResponseEntity.ok(response);
+                                        // Plana göre değişir; yalnızca kullanıcıya özgü önbelleklerde kısa süre saklanabilir
+                                        return ResponseEntity.ok()
+                                            .cacheControl(CacheControl.maxAge(Duration.ofSeconds(60)).cachePrivate())
+                                            .body(response);
                                     });
                             })
                     )
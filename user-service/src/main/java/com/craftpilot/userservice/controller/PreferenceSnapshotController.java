@@ -0,0 +1,42 @@
+package com.craftpilot.userservice.controller;
+
+import com.craftpilot.userservice.dto.PreferenceSnapshotPage;
+import com.craftpilot.userservice.service.UserPreferenceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Servisler arası toplu tercih okuma. Gateway üzerinden yönlendirilmez (/internal/** için route yok);
+ * gateway'in tercih replikası açılışta bu uçtan sayfa sayfa yüklenir.
+ */
+@RestController
+@RequestMapping("/internal/preferences")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Internal Preferences", description = "Servisler arası toplu tercih API'leri")
+public class PreferenceSnapshotController {
+    private static final int MAX_PAGE_SIZE = 5000;
+
+    private final UserPreferenceService userPreferenceService;
+
+    @GetMapping("/snapshot")
+    @Operation(summary = "Tercih anlık görüntüsü", description = "userId sırasına göre sayfalı olarak kullanıcı dillerini döner")
+    public Mono<ResponseEntity<PreferenceSnapshotPage>> getSnapshot(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "1000") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return userPreferenceService.getPreferenceSnapshot(cursor, pageSize)
+                .map(ResponseEntity::ok)
+                .doOnError(e -> log.error("Tercih anlık görüntüsü okunurken hata: cursor={}, error={}", cursor, e.getMessage()))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+    }
+}
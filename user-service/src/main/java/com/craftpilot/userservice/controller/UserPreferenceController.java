@@ -8,6 +8,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -32,8 +33,11 @@ public class UserPreferenceController {
     @Operation(summary = "Kullanıcı tercihlerini getir", description = "Kullanıcıya ait tüm tercihleri getirir")
     public Mono<ResponseEntity<UserPreference>> getUserPreferences(@PathVariable String userId) {
         log.info("Kullanıcı tercihleri isteniyor: userId={}", userId);
+        // Tercihler başka pod'lardan da güncellenebilir: saklanabilir ama her istekte doğrulanmalı (ETag/304)
         return userPreferenceService.getUserPreferences(userId)
-                .map(ResponseEntity::ok)
+                .map(preferences -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(preferences))
                 .doOnSuccess(response -> log.info("Kullanıcı tercihleri başarıyla getirildi: userId={}", userId))
                 .doOnError(e -> log.error("Kullanıcı tercihleri getirilirken hata: userId={}, error={}", userId, e.getMessage()))
                 .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
@@ -0,0 +1,21 @@
+package com.craftpilot.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Tercih anlık görüntüsünün bir sayfası: userId -> dil. nextCursor null ise son sayfadır.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PreferenceSnapshotPage {
+    private Map<String, String> languages;
+    private String nextCursor;
+    private long snapshotAt;
+}
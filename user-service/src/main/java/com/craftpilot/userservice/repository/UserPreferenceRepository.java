@@ -3,13 +3,18 @@ package com.craftpilot.userservice.repository;
 import com.craftpilot.userservice.model.UserPreference;
 import com.google.api.core.ApiFuture;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.WriteResult;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 @Repository
@@ -50,6 +55,27 @@ public class UserPreferenceRepository {
         }).subscribeOn(Schedulers.boundedElastic()).then();
     }
 
+    /**
+     * Belge kimliğine göre sıralı olarak, afterUserId'den sonraki en fazla limit kaydın dil alanını okur.
+     * Yalnızca language alanı seçildiği için belgenin geri kalanı taşınmaz.
+     */
+    public Mono<Map<String, String>> findLanguagesAfter(String afterUserId, int limit) {
+        return Mono.fromCallable(() -> {
+            Query query = firestore.collection(COLLECTION_NAME)
+                    .orderBy(FieldPath.documentId())
+                    .select("language")
+                    .limit(limit);
+            if (afterUserId != null && !afterUserId.isEmpty()) {
+                query = query.startAfter(afterUserId);
+            }
+            Map<String, String> languages = new LinkedHashMap<>();
+            for (QueryDocumentSnapshot document : query.get().get().getDocuments()) {
+                languages.put(document.getId(), document.getString("language"));
+            }
+            return languages;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
     private <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
         CompletableFuture<T> completableFuture = new CompletableFuture<>();
         apiFuture.addListener(() -> {
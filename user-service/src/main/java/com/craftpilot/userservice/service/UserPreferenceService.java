@@ -1,5 +1,6 @@
 package com.craftpilot.userservice.service;
 
+import com.craftpilot.userservice.dto.PreferenceSnapshotPage;
 import com.craftpilot.userservice.dto.UserPreferenceRequest;
 import com.craftpilot.userservice.mapper.UserPreferenceMapper;
 import com.craftpilot.userservice.model.UserPreference;
@@ -250,6 +251,28 @@ public class UserPreferenceService {
             .onErrorReturn(false);
     }
 
+    /**
+     * Gateway replikasının ilk yüklemesi için tercihlerin sayfalı anlık görüntüsü.
+     * Sayfa limit kadar doluysa son userId bir sonraki sayfanın imlecidir.
+     */
+    public Mono<PreferenceSnapshotPage> getPreferenceSnapshot(String cursor, int limit) {
+        long snapshotAt = System.currentTimeMillis();
+        return userPreferenceRepository.findLanguagesAfter(cursor, limit)
+                .map(languages -> {
+                    String nextCursor = null;
+                    if (languages.size() >= limit) {
+                        for (String userId : languages.keySet()) {
+                            nextCursor = userId;
+                        }
+                    }
+                    return PreferenceSnapshotPage.builder()
+                            .languages(languages)
+                            .nextCursor(nextCursor)
+                            .snapshotAt(snapshotAt)
+                            .build();
+                });
+    }
+
     public Mono<UserPreference> updateUserPreferences(String userId, Map<String, Object> updates) {
         log.info("Kullanıcı tercihleri güncelleniyor: userId={}", userId);
         return getUserPreferences(userId)